@@ -0,0 +1,88 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.AttendanceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load of many concurrent clients on the report and punch APIs, with requests handled by
+// a bounded pool of platform threads (classic) or by virtual threads.
+// Sample time mode reports the latency percentiles (p0.99) next to the throughput.
+// The embedded database can be replaced, e.g. with -Dspring.datasource.url=jdbc:mysql://... in the JMH jvmArgs
+// (the schema and the test data are recreated on start).
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(200)
+@Fork(1)
+public class ExecutionModeLoadBenchmark {
+
+    private static final int TOMCAT_THREADS = 50;
+
+    @Param({"classic", "virtual"})
+    private String mode;
+
+    private final AtomicLong punchingUsers = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest reportRequest;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(AttendanceApplication.class).run(
+                "--spring.datasource.url=" + System.getProperty("spring.datasource.url", "jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1"),
+                "--spring.datasource.username=" + System.getProperty("spring.datasource.username", "sa"),
+                "--spring.datasource.password=" + System.getProperty("spring.datasource.password", ""),
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=classpath:init-schema.sql",
+                "--spring.sql.init.data-locations=classpath:test-data.sql",
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--logging.level.root=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/v1/report/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        reportRequest = HttpRequest.newBuilder(URI.create(baseUrl + "alice?fromDate=2020-10-01&toDate=2020-10-31")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getReport() throws IOException, InterruptedException {
+        return send(reportRequest, 200);
+    }
+
+    // Every punch is an entry of a new user, so none is rejected as a conflict
+    @Benchmark
+    public String reportActivity() throws IOException, InterruptedException {
+        HttpRequest punchRequest = HttpRequest.newBuilder(URI.create(baseUrl + "load-" + punchingUsers.incrementAndGet()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("\"ENTRY\""))
+                .build();
+        return send(punchRequest, 201);
+    }
+
+    private String send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+}
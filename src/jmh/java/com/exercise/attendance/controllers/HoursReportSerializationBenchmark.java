@@ -0,0 +1,70 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFixtures;
+import com.exercise.attendance.services.HoursReportBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Json serialization of an hours report of 1 day, 1 month or 5 years, as a whole and streamed,
+// with the date/time settings Spring Boot applies to the application ObjectMapper, compared with its CBOR encoding.
+// The payload sizes of both encodings are printed at the end of each trial.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HoursReportSerializationBenchmark {
+
+    @Param({"1", "31", "1826"})
+    private int days;
+
+    private ObjectMapper objectMapper;
+    private List<WorkingHours> workingHours;
+    private HoursReport report;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        workingHours = WorkingHoursFixtures.workingHours(days);
+        report = new HoursReportBuilder(Duration.ofHours(8)).buildHoursReport(workingHours);
+    }
+
+    @Benchmark
+    public byte[] serializeReport() throws IOException {
+        return objectMapper.writeValueAsBytes(report);
+    }
+
+    @Benchmark
+    public byte[] serializeCborReport() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HoursReportCborHttpMessageConverter.write(report, new CborWriter(outputStream));
+        return outputStream.toByteArray();
+    }
+
+    @TearDown
+    public void printPayloadSizes() throws IOException {
+        System.out.println("Payload of " + days + " days: " + serializeReport().length + " bytes of Json, "
+                + serializeCborReport().length + " bytes of CBOR");
+    }
+
+    @Benchmark
+    public void streamReport() throws IOException {
+        HoursReportJsonStreamWriter writer = new HoursReportJsonStreamWriter(objectMapper, OutputStream.nullOutputStream());
+        workingHours.forEach(writer);
+        writer.finish(report.getSummary());
+    }
+}
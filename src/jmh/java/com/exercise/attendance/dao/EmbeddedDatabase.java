@@ -0,0 +1,25 @@
+package com.exercise.attendance.dao;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+// In-memory H2 database in MySQL mode, with the schema used by the integration tests
+public class EmbeddedDatabase {
+
+    private EmbeddedDatabase() {
+    }
+
+    public static JdbcConnectionPool create() {
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        populate(dataSource);
+        return dataSource;
+    }
+
+    private static void populate(DataSource dataSource) {
+        new ResourceDatabasePopulator(new ClassPathResource("init-schema.sql")).execute(dataSource);
+    }
+}
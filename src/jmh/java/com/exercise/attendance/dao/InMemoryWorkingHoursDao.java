@@ -0,0 +1,117 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Minimal WorkingHoursDao over sorted maps, so the benchmarks can measure the service without the database
+public class InMemoryWorkingHoursDao implements WorkingHoursDao {
+
+    private final Map<String, NavigableMap<LocalDate, WorkingHours>> workingHoursByUser = new HashMap<>();
+
+    @Override
+    public synchronized List<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
+        return new ArrayList<>(userDays(filter.getUser()).subMap(filter.getFromDate(), true, filter.getToDate(), true).values());
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter) {
+        return getWorkingHours(filter);
+    }
+
+    @Override
+    public synchronized List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit) {
+        return userDays(filter.getUser()).subMap(afterDate, false, filter.getToDate(), true).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter) {
+        return new TreeSet<>(filter.getUsers()).stream()
+                .flatMap(user -> getWorkingHours(new WorkingHoursFilter(user, filter.getFromDate(), filter.getToDate())).stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
+        getWorkingHours(filter).forEach(consumer);
+    }
+
+    @Override
+    public synchronized void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer) {
+        workingHoursByUser.values().stream()
+                .map(days -> days.get(date))
+                .filter(Objects::nonNull)
+                .forEach(consumer);
+    }
+
+    // Summed like the streamed report summary, so the summary path is measured without the database
+    @Override
+    public synchronized HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        long totalWorkedSeconds = 0;
+        long workedDays = 0;
+        long openDays = 0;
+        long overtimeSeconds = 0;
+        for (WorkingHours workingHours : userDays(filter.getUser()).subMap(filter.getFromDate(), true, filter.getToDate(), true).values()) {
+            Long workedSeconds = workingHours.getWorkedSeconds();
+            if (workedSeconds == null) {
+                openDays++;
+                continue;
+            }
+            workedDays++;
+            totalWorkedSeconds += workedSeconds;
+            overtimeSeconds += Math.max(workedSeconds - overtimeThreshold.getSeconds(), 0);
+        }
+        return new HoursSummary(totalWorkedSeconds, workedDays, openDays, overtimeSeconds);
+    }
+
+    @Override
+    public synchronized void upsertWorkingHours(WorkingHours workingHours) {
+        userDays(workingHours.getUser()).put(workingHours.getDate(), workingHours);
+    }
+
+    @Override
+    public synchronized void upsertWorkingHours(List<WorkingHours> workingHours) {
+        workingHours.forEach(this::upsertWorkingHours);
+    }
+
+    @Override
+    public synchronized ActivityRecordResult recordActivity(Activity activity) {
+        NavigableMap<LocalDate, WorkingHours> days = userDays(activity.getUser());
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        WorkingHours day = days.get(date);
+        switch (activity.getActivityType()) {
+            case ENTRY:
+            default:
+                if (day != null)
+                    return ActivityRecordResult.conflict(Optional.of(day));
+                days.put(date, new WorkingHours(activity.getUser(), date, activity.getReportDateTime().toLocalTime()));
+                return ActivityRecordResult.recorded();
+            case EXIT:
+                if (day == null || day.getToTime() != null)
+                    return ActivityRecordResult.conflict(Optional.ofNullable(day));
+                days.put(date, new WorkingHours(activity.getUser(), date, day.getFromTime(), activity.getReportDateTime().toLocalTime()));
+                return ActivityRecordResult.recorded();
+        }
+    }
+
+    @Override
+    public synchronized List<ActivityRecordResult> recordActivities(List<Activity> activities) {
+        List<ActivityRecordResult> results = new ArrayList<>(activities.size());
+        activities.forEach(activity -> results.add(recordActivity(activity)));
+        return results;
+    }
+
+    public synchronized void deleteWorkingHours(String user, LocalDate fromDate) {
+        userDays(user).tailMap(fromDate, true).clear();
+    }
+
+    private NavigableMap<LocalDate, WorkingHours> userDays(String user) {
+        return workingHoursByUser.computeIfAbsent(user, key -> new TreeMap<>());
+    }
+}
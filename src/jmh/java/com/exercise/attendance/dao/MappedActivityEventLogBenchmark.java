@@ -0,0 +1,86 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Appends APPENDED punches to a new activity event log with each sync policy, and replays a log of REPLAYED activities.
+// The appended log is recreated for each invocation, so the benchmark does not fill the disk.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedActivityEventLogBenchmark {
+
+    private static final int APPENDED = 10_000;
+    private static final int REPLAYED = 100_000;
+
+    @Param({"ALWAYS", "INTERVAL", "NEVER"})
+    private ActivityEventLogSync sync;
+
+    private Path directory;
+    private MappedActivityEventLog eventLog;
+    private Activity activity;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("activity-event-log");
+        eventLog = new MappedActivityEventLog(directory.toString(), DataSize.ofMegabytes(64), sync, Duration.ofSeconds(1));
+        activity = new Activity("user1", ActivityType.ENTRY, LocalDateTime.parse("2020-10-08T08:00:00"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        eventLog.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(APPENDED)
+    public void append() {
+        for (int i = 0; i < APPENDED; i++) {
+            eventLog.append(activity);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReplayState {
+
+        private Path directory;
+        private MappedActivityEventLog eventLog;
+
+        @Setup
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("activity-event-log");
+            eventLog = new MappedActivityEventLog(directory.toString(), DataSize.ofMegabytes(64), ActivityEventLogSync.NEVER, Duration.ofSeconds(1));
+            LocalDateTime reportDateTime = LocalDateTime.parse("2000-01-01T08:00:00");
+            for (int i = 0; i < REPLAYED; i++) {
+                eventLog.append(new Activity("user" + (i % 100), i % 2 == 0 ? ActivityType.ENTRY : ActivityType.EXIT, reportDateTime.plusHours(i)));
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            eventLog.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPLAYED)
+    public void replay(ReplayState state, Blackhole blackhole) {
+        state.eventLog.replay(blackhole::consume);
+    }
+}
@@ -0,0 +1,88 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+// Maps the rows of an in-memory working hours result set, comparing the mapper with the Calendar based mapper it replaced.
+// Run with the gc profiler (configured in build.gradle), gc.alloc.rate.norm is the number of bytes allocated per row.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkingHoursRowMapperBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private Connection connection;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:benchmark;MODE=MySQL");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE WORKING_HOURS (USER varchar(255), DATE date, FROM_TIME time, TO_TIME time)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO WORKING_HOURS (USER, DATE, FROM_TIME, TO_TIME) VALUES (?, ?, ?, ?)")) {
+            LocalDate date = LocalDate.parse("2000-01-01");
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "user" + (i / 1000));
+                insert.setObject(2, date.plusDays(i % 1000));
+                insert.setObject(3, LocalTime.parse("08:00:00"));
+                insert.setObject(4, LocalTime.parse("17:00:00"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        resultSet = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS ORDER BY USER, DATE");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void calendarRowMapper(Blackhole blackhole) throws SQLException {
+        mapRows(new CalendarWorkingHoursRowMapper(), blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowMapper(Blackhole blackhole) throws SQLException {
+        mapRows(new WorkingHoursRowMapper(), blackhole);
+    }
+
+    private void mapRows(RowMapper<WorkingHours> mapper, Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(mapper.mapRow(resultSet, resultSet.getRow()));
+        }
+    }
+
+    // The mapper used before, kept as the benchmark baseline
+    private static class CalendarWorkingHoursRowMapper implements RowMapper<WorkingHours> {
+
+        @Override
+        public WorkingHours mapRow(ResultSet rs, int rowNum) throws SQLException {
+            String user = rs.getString("USER");
+            LocalDate date = rs.getDate("DATE", Calendar.getInstance(TimeZone.getDefault())).toLocalDate();
+            LocalTime fromTime = rs.getTime("FROM_TIME", Calendar.getInstance(TimeZone.getDefault())).toLocalTime();
+            Time toTimeInRs = rs.getTime("TO_TIME", Calendar.getInstance(TimeZone.getDefault()));
+            LocalTime toTime = toTimeInRs != null ? toTimeInRs.toLocalTime() : null;
+            return new WorkingHours(user, date, fromTime, toTime);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.exercise.attendance.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Building an hours report of 1 day, 1 month or 5 years from fetched working hours
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HoursReportBenchmark {
+
+    @Param({"1", "31", "1826"})
+    private int days;
+
+    private List<WorkingHours> workingHours;
+
+    @Setup
+    public void setUp() {
+        workingHours = WorkingHoursFixtures.workingHours(days);
+    }
+
+    @Benchmark
+    public HoursReport addDailyReport() {
+        HoursReport report = new HoursReport();
+        workingHours.forEach(report::addDailyReport);
+        return report;
+    }
+}
@@ -0,0 +1,28 @@
+package com.exercise.attendance.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Working hours of the data shapes used by the benchmarks: 1 day, 1 month and 5 years per user
+public class WorkingHoursFixtures {
+
+    public static final String USER = "alice";
+    public static final LocalDate FIRST_DATE = LocalDate.parse("2015-01-01");
+
+    private WorkingHoursFixtures() {
+    }
+
+    public static List<WorkingHours> workingHours(int days) {
+        List<WorkingHours> workingHours = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            workingHours.add(new WorkingHours(USER, FIRST_DATE.plusDays(i), LocalTime.parse("08:00:00").plusMinutes(i % 60), LocalTime.parse("17:00:00")));
+        }
+        return workingHours;
+    }
+
+    public static WorkingHoursFilter filter(int days) {
+        return new WorkingHoursFilter(USER, FIRST_DATE, FIRST_DATE.plusDays(days - 1));
+    }
+}
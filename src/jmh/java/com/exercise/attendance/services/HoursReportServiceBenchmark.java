@@ -0,0 +1,128 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.*;
+import com.exercise.attendance.model.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Hours report, hours summary and activity report of a user with a history of 1 day, 1 month or 5 years,
+// against an in-memory WorkingHoursDao (service cost only) and against an embedded database.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HoursReportServiceBenchmark {
+
+    // Punches are reported on the days following the history, which are deleted once this many days were punched
+    private static final int PUNCHED_DAYS = 10_000;
+
+    @Param({"inMemory", "embedded"})
+    private String storage;
+
+    @Param({"1", "31", "1826"})
+    private int days;
+
+    private JdbcConnectionPool dataSource;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private InMemoryWorkingHoursDao inMemoryDao;
+    private HoursReportService service;
+    private WorkingHoursFilter filter;
+    private LocalDate firstPunchedDate;
+    private int punchedDays;
+
+    @Setup
+    public void setUp() {
+        WorkingHoursDao dao;
+        MonthlyHoursDao monthlyHoursDao;
+        if ("embedded".equals(storage)) {
+            dataSource = EmbeddedDatabase.create();
+            jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+            dao = new WorkingHoursDaoImpl(jdbcTemplate, new SimpleMeterRegistry(), 100, 500, Optional.empty());
+            monthlyHoursDao = new MonthlyHoursDaoImpl(jdbcTemplate);
+        } else {
+            inMemoryDao = new InMemoryWorkingHoursDao();
+            dao = inMemoryDao;
+            monthlyHoursDao = new IgnoredMonthlyHoursDao();
+        }
+        dao.upsertWorkingHours(WorkingHoursFixtures.workingHours(days));
+        service = new HoursReportServiceImpl(new HoursReportValidatorImpl(), new WorkingHoursCalculatorImpl(), dao,
+                new HoursReportBuilder(Duration.ofHours(8)), monthlyHoursDao, new SimpleMeterRegistry(), Optional.empty(),
+                new PunchLocks(new SimpleMeterRegistry(), 1024), Optional.empty(), TransactionOperations.withoutTransaction(), 366);
+        filter = WorkingHoursFixtures.filter(days);
+        firstPunchedDate = WorkingHoursFixtures.FIRST_DATE.plusDays(days);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.dispose();
+        }
+    }
+
+    @Benchmark
+    public HoursReport getReport() {
+        return service.getReport(filter);
+    }
+
+    @Benchmark
+    public HoursSummary getSummary() {
+        return service.getSummary(filter);
+    }
+
+    // An entry and an exit of a new day
+    @Benchmark
+    public WorkingHours reportActivity() {
+        if (punchedDays == PUNCHED_DAYS) {
+            deletePunchedDays();
+        }
+        LocalDateTime entry = firstPunchedDate.plusDays(punchedDays++).atTime(8, 0);
+        service.reportActivity(new Activity(WorkingHoursFixtures.USER, ActivityType.ENTRY, entry));
+        return service.reportActivity(new Activity(WorkingHoursFixtures.USER, ActivityType.EXIT, entry.plusHours(9)));
+    }
+
+    private void deletePunchedDays() {
+        if (inMemoryDao != null) {
+            inMemoryDao.deleteWorkingHours(WorkingHoursFixtures.USER, firstPunchedDate);
+        } else {
+            jdbcTemplate.update("DELETE FROM WORKING_HOURS WHERE USER= :user AND DATE >= :fromDate",
+                    Map.of("user", WorkingHoursFixtures.USER, "fromDate", firstPunchedDate));
+        }
+        punchedDays = 0;
+    }
+
+    private static class IgnoredMonthlyHoursDao implements MonthlyHoursDao {
+
+        @Override
+        public List<MonthlyHours> getMonthlyHours(YearMonth month) {
+            return List.of();
+        }
+
+        @Override
+        public void refreshMonthlyHours(Collection<WorkingHours> updatedWorkingHours) {
+        }
+
+        @Override
+        public void addRecordedActivities(Collection<Activity> recordedActivities) {
+        }
+
+        @Override
+        public int rebuildMonthlyHours(int usersPageSize) {
+            return 0;
+        }
+    }
+}
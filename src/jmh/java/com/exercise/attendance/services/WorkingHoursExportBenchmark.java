@@ -0,0 +1,68 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.WorkingHours;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Writing a month of 50k users (22 working days each) as a gzipped export part, in each format, without the database.
+// The compressed sizes of both formats are printed at the end of each trial.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class WorkingHoursExportBenchmark {
+
+    private static final int USERS = 50_000;
+    private static final int WORKING_DAYS = 22;
+    private static final LocalDate FIRST_DATE = LocalDate.parse("2020-10-01");
+
+    @Param({"CSV", "COLUMNAR"})
+    private ExportFormat format;
+
+    private String[] users;
+
+    @Setup
+    public void setUp() {
+        users = new String[USERS];
+        for (int user = 0; user < USERS; user++) {
+            users[user] = String.format("user%05d", user);
+        }
+    }
+
+    @Benchmark
+    public void exportMonth() throws IOException {
+        export(OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void printExportSize() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        export(outputStream);
+        System.out.println(format + " export of " + USERS * WORKING_DAYS + " working hours: " + outputStream.size() + " bytes");
+    }
+
+    private void export(OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 65536);
+        WorkingHoursExportWriter writer = format == ExportFormat.COLUMNAR ?
+                new WorkingHoursColumnarWriter(gzipOutputStream, WorkingHoursColumnarWriter.ROW_GROUP_SIZE) :
+                new WorkingHoursCsvWriter(gzipOutputStream);
+        for (int user = 0; user < USERS; user++) {
+            for (int day = 0; day < WORKING_DAYS; day++) {
+                writer.accept(new WorkingHours(users[user], FIRST_DATE.plusDays(day),
+                        LocalTime.of(8, (user + day) % 60), LocalTime.of(17, day % 60)));
+            }
+        }
+        writer.finish();
+        gzipOutputStream.finish();
+    }
+}
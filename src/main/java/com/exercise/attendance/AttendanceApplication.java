@@ -8,7 +8,6 @@ import java.util.TimeZone;
 @SpringBootApplication
 public class AttendanceApplication {
 
-    //TODO add metrics
     //TODO use Karate for end-to-end tests
     //TODO add swagger
     //TODO consider timezones
@@ -0,0 +1,98 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ImportedActivity;
+import com.exercise.attendance.services.ActivityImportService;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("v1/import/activities")
+public class ActivityImportController {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private ActivityImportService service;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectReader activityReader;
+
+    private int chunkSize;
+
+    private Logger logger = LoggerFactory.getLogger(ActivityImportController.class);
+
+    public ActivityImportController(ActivityImportService service, ObjectMapper objectMapper,
+                                    @Value("${attendance.import.batch-size:1000}") int chunkSize) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+        this.activityReader = objectMapper.readerFor(Activity.class);
+        this.chunkSize = chunkSize;
+    }
+
+    // Accepts either a Json array of activities, or newline delimited Json activities.
+    // The results of each chunk are written once it is imported, so neither the records nor their results are held
+    // in memory beyond a chunk.
+    // A malformed body fails the import. Once results were written (and the status sent), the failure is reported
+    // at the end of the results instead, with the number of records imported before it.
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public void importActivities(InputStream body, HttpServletResponse response) throws IOException, ServletRequestBindingException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ActivityImportJsonStreamWriter writer = new ActivityImportJsonStreamWriter(objectMapper, response.getOutputStream());
+        try (MappingIterator<Activity> iterator = activityReader.readValues(body)) {
+            List<ImportedActivity> chunk = new ArrayList<>(chunkSize);
+            while (readChunk(iterator, writer.getImported(), chunk)) {
+                logger.debug("Importing " + chunk.size() + " activities.");
+                writer.write(service.importActivities(chunk).getResults());
+                chunk = new ArrayList<>(chunkSize);
+            }
+        } catch (JsonParseException ex) {
+            String error = "Activities import failed after " + writer.getImported() + " imported records. Malformed body: " + ex.getOriginalMessage();
+            if (!writer.isStarted()) {
+                throw new ServletRequestBindingException(error);
+            }
+            writer.finish(error);
+            return;
+        }
+        writer.finish(null);
+    }
+
+    // Activities are read one by one from the request stream into chunks, so only a chunk of the body is held in memory.
+    // Returns whether any activity was read, starting with the index of the first one.
+    // A record which cannot be mapped to an activity is rejected, while a malformed body fails the whole request
+    // (with the chunks read before it already imported).
+    private boolean readChunk(MappingIterator<Activity> iterator, int firstIndex, List<ImportedActivity> chunk) throws IOException {
+        int index = firstIndex;
+        while (chunk.size() < chunkSize && iterator.hasNextValue()) {
+            chunk.add(readActivity(iterator, index++));
+        }
+        return !chunk.isEmpty();
+    }
+
+    private ImportedActivity readActivity(MappingIterator<Activity> iterator, int index) throws IOException {
+        try {
+            return ImportedActivity.parsed(index, iterator.nextValue());
+        } catch (JsonMappingException ex) {
+            return ImportedActivity.malformed(index, ex.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.ActivityImportRecordResult;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Writes an import report in the same Json fields as ActivityImportReport, a chunk of results at a time, so the results
+// of an import are never held in memory as a whole. The counts are known only once all the chunks were imported,
+// so they follow the results.
+// Nothing is written until the first chunk, so an import which fails before its first chunk can still be answered
+// with an error status.
+class ActivityImportJsonStreamWriter {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter resultWriter;
+    private final OutputStream outputStream;
+    private JsonGenerator generator;
+    private int accepted;
+    private int rejected;
+
+    ActivityImportJsonStreamWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.objectMapper = objectMapper;
+        this.resultWriter = objectMapper.writerFor(ActivityImportRecordResult.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.outputStream = outputStream;
+    }
+
+    // Writes the results of an imported chunk, and passes them to the output stream before the next chunk is read
+    void write(List<ActivityImportRecordResult> results) throws IOException {
+        startIfNeeded();
+        for (ActivityImportRecordResult result : results) {
+            resultWriter.writeValue(generator, result);
+            if (result.isAccepted()) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+        generator.flush();
+    }
+
+    boolean isStarted() {
+        return generator != null;
+    }
+
+    // The number of records whose results were written, all of them committed
+    int getImported() {
+        return accepted + rejected;
+    }
+
+    // The error is null when the whole body was imported
+    void finish(String error) throws IOException {
+        startIfNeeded();
+        generator.writeEndArray();
+        generator.writeNumberField("accepted", accepted);
+        generator.writeNumberField("rejected", rejected);
+        if (error != null) {
+            generator.writeStringField("error", error);
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private void startIfNeeded() throws IOException {
+        if (generator != null) {
+            return;
+        }
+        generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeFieldName("results");
+        generator.writeStartArray();
+    }
+}
@@ -0,0 +1,78 @@
+package com.exercise.attendance.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Writes the CBOR (RFC 8949) data items used by the binary reports: integers, text strings, null,
+// and arrays and maps of known length. Each item is written in its shortest form.
+class CborWriter {
+
+    private static final int UNSIGNED_INTEGER = 0;
+    private static final int NEGATIVE_INTEGER = 1;
+    private static final int TEXT_STRING = 3;
+    private static final int ARRAY = 4;
+    private static final int MAP = 5;
+    private static final int NULL = 0xf6;
+
+    private final OutputStream outputStream;
+
+    CborWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    void writeMapStart(int entries) throws IOException {
+        writeHead(MAP, entries);
+    }
+
+    void writeArrayStart(int elements) throws IOException {
+        writeHead(ARRAY, elements);
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHead(TEXT_STRING, bytes.length);
+        outputStream.write(bytes);
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value >= 0) {
+            writeHead(UNSIGNED_INTEGER, value);
+        } else {
+            writeHead(NEGATIVE_INTEGER, -1 - value);
+        }
+    }
+
+    void writeNull() throws IOException {
+        outputStream.write(NULL);
+    }
+
+    private void writeHead(int majorType, long argument) throws IOException {
+        int type = majorType << 5;
+        if (argument < 24) {
+            outputStream.write(type | (int) argument);
+        } else if (argument < 0x100) {
+            outputStream.write(type | 24);
+            outputStream.write((int) argument);
+        } else if (argument < 0x10000) {
+            outputStream.write(type | 25);
+            writeBytes(argument, 2);
+        } else if (argument < 0x100000000L) {
+            outputStream.write(type | 26);
+            writeBytes(argument, 4);
+        } else {
+            outputStream.write(type | 27);
+            writeBytes(argument, 8);
+        }
+    }
+
+    private void writeBytes(long value, int count) throws IOException {
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            outputStream.write((int) (value >>> shift));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalTime;
+
+// Writes an hours report as application/cbor, straight from its working hours:
+// {"user": <user>, "days": [[<epoch day delta>, <from second of day>, <to second of day>], ...], "summary": {...}}
+// followed by "nextCursor": <cursor> on a page of the report which has a next page.
+// The user is written once, each day as its distance from the previous day (from epoch day 0 for the first one),
+// and times as seconds of the day (null when missing), so a day takes about 8 bytes instead of about 110 in Json.
+// The worked seconds of a day are left out, as they are the difference of its times.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class HoursReportCborHttpMessageConverter extends AbstractHttpMessageConverter<HoursReport> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public HoursReportCborHttpMessageConverter() {
+        super(MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return HoursReport.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected HoursReport readInternal(Class<? extends HoursReport> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Hours reports are not read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(HoursReport report, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream outputStream = new BufferedOutputStream(outputMessage.getBody(), BUFFER_SIZE);
+        write(report, new CborWriter(outputStream));
+        outputStream.flush();
+    }
+
+    static void write(HoursReport report, CborWriter writer) throws IOException {
+        writer.writeMapStart(report.getNextCursor() == null ? 3 : 4);
+        writer.writeString("user");
+        writer.writeString(report.getReport().isEmpty() ? null : report.getReport().values().iterator().next().getUser());
+        writer.writeString("days");
+        writer.writeArrayStart(report.getReport().size());
+        long previousEpochDay = 0;
+        for (WorkingHours workingHours : report.getReport().values()) {
+            long epochDay = workingHours.getDate().toEpochDay();
+            writer.writeArrayStart(3);
+            writer.writeLong(epochDay - previousEpochDay);
+            writeTime(writer, workingHours.getFromTime());
+            writeTime(writer, workingHours.getToTime());
+            previousEpochDay = epochDay;
+        }
+        writer.writeString("summary");
+        writeSummary(writer, report.getSummary());
+        if (report.getNextCursor() != null) {
+            writer.writeString("nextCursor");
+            writer.writeString(report.getNextCursor());
+        }
+    }
+
+    private static void writeTime(CborWriter writer, LocalTime time) throws IOException {
+        if (time == null) {
+            writer.writeNull();
+        } else {
+            writer.writeLong(time.toSecondOfDay());
+        }
+    }
+
+    private static void writeSummary(CborWriter writer, HoursSummary summary) throws IOException {
+        writer.writeMapStart(4);
+        writer.writeString("totalWorkedSeconds");
+        writer.writeLong(summary.getTotalWorkedSeconds());
+        writer.writeString("workedDays");
+        writer.writeLong(summary.getWorkedDays());
+        writer.writeString("openDays");
+        writer.writeLong(summary.getOpenDays());
+        writer.writeString("overtimeSeconds");
+        writer.writeLong(summary.getOvertimeSeconds());
+    }
+}
@@ -2,59 +2,179 @@ package com.exercise.attendance.controllers;
 
 import com.exercise.attendance.model.ActivityType;
 import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.HoursSummary;
 import com.exercise.attendance.model.WorkingHoursFilter;
 import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.services.ActivityIngestionService;
 import com.exercise.attendance.services.HoursReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("v1/report/{user}")
 public class HoursReportController {
 
     private HoursReportService service;
 
+    // Present only when write-behind ingestion is enabled
+    private Optional<ActivityIngestionService> ingestionService;
+
+    private ObjectMapper objectMapper;
+
     private Logger logger = LoggerFactory.getLogger(HoursReportController.class);
 
-    public HoursReportController(HoursReportService service) {
+    // How long clients and proxies may reuse the report of a range which ended before today without revalidating it
+    private Duration pastMaxAge;
+
+    private ContentNegotiationManager contentNegotiationManager;
+
+    public HoursReportController(HoursReportService service, Optional<ActivityIngestionService> ingestionService, ObjectMapper objectMapper,
+                                 @Value("${attendance.report.past-max-age:PT24H}") Duration pastMaxAge,
+                                 ContentNegotiationManager contentNegotiationManager) {
         this.service = service;
+        this.ingestionService = ingestionService;
+        this.objectMapper = objectMapper;
+        this.pastMaxAge = pastMaxAge;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public HoursReport getReport(@PathVariable String user,
-                                 @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
-                                 @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) throws ServletRequestBindingException {
+    // The report has a shallow ETag: a hash of its content, taken from the report as read (through the cache of months,
+    // or from a read replica), so a report is never sent under the ETag of other working hours. A conditional request
+    // whose ETag is current still reads and builds the report, and is answered with 304 without writing it.
+    // There is no Last-Modified, as the working hours keep no modification time.
+    // A range which ended before today may be reused for pastMaxAge, while a range with today is always revalidated.
+    // The report is written as Json, or as compact CBOR when the Accept header prefers application/cbor.
+    // Each encoding has an ETag of its own, and responses vary by Accept.
+    // With a limit or a cursor, a single page of the range is returned, with the cursor of the next page when more days
+    // follow. Each page has an ETag of its own.
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<HoursReport> getReport(@PathVariable String user,
+                                                 @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                 @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 NativeWebRequest webRequest) throws ServletRequestBindingException, HttpMediaTypeNotAcceptableException {
 
         validateDateParametersAreNotEmpty(fromDate, toDate);
 
         WorkingHoursFilter filter = new WorkingHoursFilter(user,fromDate,toDate);
         logger.debug("Requested hours report. Used filter: " + filter);
+        MediaType contentType = getReportContentType(webRequest);
+        CacheControl cacheControl = toDate.isBefore(LocalDate.now()) ? CacheControl.maxAge(pastMaxAge) : CacheControl.noCache();
+        try {
+            boolean paged = limit != null || cursor != null;
+            HoursReport report = paged ? service.getReportPage(filter, cursor, limit) : service.getReport(filter);
+            String tag = service.getReportVersion(report).getTag();
+            if (MediaType.APPLICATION_CBOR.equals(contentType)) {
+                tag = tag + "-cbor";
+            }
+            if (webRequest.checkNotModified(tag)) {
+                logger.debug("Hours report is not modified. Used filter: " + filter);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .eTag(tag)
+                    .body(report);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Hours report filter is invalid. " + ex.getMessage());
+        }
+    }
+
+    // Same report as above, written to the response while the working hours are read from the database,
+    // so the memory used does not depend on the length of the date range
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamReport(@PathVariable String user,
+                             @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                             @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                             HttpServletResponse response) throws ServletRequestBindingException, IOException {
+
+        validateDateParametersAreNotEmpty(fromDate, toDate);
+
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, fromDate, toDate);
+        logger.debug("Requested hours report stream. Used filter: " + filter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        HoursReportJsonStreamWriter writer = new HoursReportJsonStreamWriter(objectMapper, response.getOutputStream());
+        HoursSummary summary;
         try {
-            return service.getReport(filter);
+            summary = service.streamReport(filter, writer);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Hours report filter is invalid. " + ex.getMessage());
+        }
+        writer.finish(summary);
+    }
+
+    // Totals only (worked time, open days and overtime), without the daily working hours
+    @GetMapping(path = "summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public HoursSummary getSummary(@PathVariable String user,
+                                   @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                   @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) throws ServletRequestBindingException {
+
+        validateDateParametersAreNotEmpty(fromDate, toDate);
+
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, fromDate, toDate);
+        logger.debug("Requested hours summary. Used filter: " + filter);
+        try {
+            return service.getSummary(filter);
         } catch (IllegalArgumentException ex) {
             throw new ServletRequestBindingException("Hours report filter is invalid. " + ex.getMessage());
         }
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.CREATED)
-    public void report(@PathVariable String user,
-                       @RequestBody ActivityType activityType) throws ServletRequestBindingException {
+    public ResponseEntity<Void> report(@PathVariable String user,
+                                       @RequestBody ActivityType activityType) throws ServletRequestBindingException {
         logger.debug("Reporting activity " + activityType + " for user " + user);
+        Activity activity = new Activity(user, activityType, LocalDateTime.now());
+        if (ingestionService.isPresent()) {
+            ingestionService.get().submit(activity);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+        }
         try {
-            service.reportActivity(new Activity(user, activityType, LocalDateTime.now()));
+            service.reportActivity(activity);
         } catch (IllegalArgumentException ex) {
             throw new ServletRequestBindingException("Activity report failed. " + ex.getMessage());
         }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    // The first requested media type which is either Json or CBOR decides, so a missing Accept header or */* gets Json.
+    // The content type is set on the response, so the encoding always matches the ETag.
+    private MediaType getReportContentType(NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType mediaType : contentNegotiationManager.resolveMediaTypes(webRequest)) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 
     // Spring MVC considers empty values as valid.
@@ -0,0 +1,70 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Writes an hours report in the same Json shape as HoursReport, one daily report at a time.
+// Nothing is written until the first daily report (or the end of the report), so a report which fails before
+// its first row can still be answered with an error status.
+class HoursReportJsonStreamWriter implements Consumer<WorkingHours> {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter workingHoursWriter;
+    private final OutputStream outputStream;
+    private JsonGenerator generator;
+
+    HoursReportJsonStreamWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.objectMapper = objectMapper;
+        this.workingHoursWriter = objectMapper.writerFor(WorkingHours.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void accept(WorkingHours workingHours) {
+        try {
+            startIfNeeded();
+            generator.writeFieldName(workingHours.getDate().toString());
+            workingHoursWriter.writeValue(generator, workingHours);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // The summary is known only once all the daily reports were written, so it follows them
+    void finish(HoursSummary summary) throws IOException {
+        startIfNeeded();
+        generator.writeEndObject();
+        generator.writeFieldName("summary");
+        objectMapper.writerFor(HoursSummary.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).writeValue(generator, summary);
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    // Passes the Json written so far to the output stream, so it can be sent before the next daily report
+    void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+    }
+
+    private void startIfNeeded() throws IOException {
+        if (generator != null) {
+            return;
+        }
+        generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeFieldName("report");
+        generator.writeStartObject();
+    }
+}
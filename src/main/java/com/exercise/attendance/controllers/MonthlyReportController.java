@@ -0,0 +1,37 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.MonthlyHoursReport;
+import com.exercise.attendance.services.MonthlyReportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("v1/monthly-report")
+public class MonthlyReportController {
+
+    private MonthlyReportService service;
+
+    private Logger logger = LoggerFactory.getLogger(MonthlyReportController.class);
+
+    public MonthlyReportController(MonthlyReportService service) {
+        this.service = service;
+    }
+
+    @GetMapping(path = "{month}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public MonthlyHoursReport getReport(@PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) throws ServletRequestBindingException {
+        logger.debug("Requested monthly hours report. Month: " + month);
+        try {
+            return service.getReport(month);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Monthly hours report month is invalid. " + ex.getMessage());
+        }
+    }
+}
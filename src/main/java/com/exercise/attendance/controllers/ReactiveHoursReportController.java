@@ -0,0 +1,128 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import com.exercise.attendance.services.ActivityIngestionService;
+import com.exercise.attendance.services.HoursReportStream;
+import com.exercise.attendance.services.ReactiveHoursReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Same URLs and Json as HoursReportController, served by WebFlux (spring.main.web-application-type=reactive).
+// Reports are always streamed: each daily report is written as soon as its row is read.
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("v1/report/{user}")
+public class ReactiveHoursReportController {
+
+    private final ReactiveHoursReportService service;
+
+    // Present only when write-behind ingestion is enabled
+    private final Optional<ActivityIngestionService> ingestionService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveHoursReportController.class);
+
+    public ReactiveHoursReportController(ReactiveHoursReportService service, Optional<ActivityIngestionService> ingestionService, ObjectMapper objectMapper) {
+        this.service = service;
+        this.ingestionService = ingestionService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getReport(@PathVariable String user,
+                                      @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                      @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, fromDate, toDate);
+        logger.debug("Requested hours report. Used filter: " + filter);
+        return writeReport(service.getReport(filter))
+                .onErrorMap(IllegalArgumentException.class, ex -> new ServerWebInputException("Hours report filter is invalid. " + ex.getMessage()));
+    }
+
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> streamReport(@PathVariable String user,
+                                         @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                         @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        return getReport(user, fromDate, toDate);
+    }
+
+    @GetMapping(path = "summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<HoursSummary> getSummary(@PathVariable String user,
+                                         @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                         @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, fromDate, toDate);
+        logger.debug("Requested hours summary. Used filter: " + filter);
+        return service.getSummary(filter)
+                .onErrorMap(IllegalArgumentException.class, ex -> new ServerWebInputException("Hours report filter is invalid. " + ex.getMessage()));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Void>> report(@PathVariable String user,
+                                             @RequestBody ActivityType activityType) {
+        logger.debug("Reporting activity " + activityType + " for user " + user);
+        Activity activity = new Activity(user, activityType, LocalDateTime.now());
+        if (ingestionService.isPresent()) {
+            return Mono.fromRunnable(() -> ingestionService.get().submit(activity))
+                    .thenReturn(ResponseEntity.status(HttpStatus.ACCEPTED).<Void>build());
+        }
+        return service.reportActivity(activity)
+                .map(workingHours -> ResponseEntity.status(HttpStatus.CREATED).<Void>build())
+                .onErrorMap(IllegalArgumentException.class, ex -> new ServerWebInputException("Activity report failed. " + ex.getMessage()));
+    }
+
+    // A buffer per daily report, written by the same writer as the servlet stream
+    private Flux<DataBuffer> writeReport(HoursReportStream report) {
+        return Flux.defer(() -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            HoursReportJsonStreamWriter writer = new HoursReportJsonStreamWriter(objectMapper, outputStream);
+            Flux<DataBuffer> dailyReports = report.getWorkingHours().map(workingHours -> {
+                writer.accept(workingHours);
+                return takeWritten(writer, outputStream);
+            });
+            Mono<DataBuffer> summary = report.getSummary().map(hoursSummary -> {
+                try {
+                    writer.finish(hoursSummary);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return takeWritten(writer, outputStream);
+            });
+            return Flux.concat(dailyReports, summary);
+        });
+    }
+
+    private DataBuffer takeWritten(HoursReportJsonStreamWriter writer, ByteArrayOutputStream outputStream) {
+        try {
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(outputStream.toByteArray());
+        outputStream.reset();
+        return buffer;
+    }
+}
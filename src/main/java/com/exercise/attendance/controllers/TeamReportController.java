@@ -0,0 +1,57 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.TeamHoursReport;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.services.TeamReportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("v1/team-report")
+public class TeamReportController {
+
+    private TeamReportService service;
+
+    private Logger logger = LoggerFactory.getLogger(TeamReportController.class);
+
+    public TeamReportController(TeamReportService service) {
+        this.service = service;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public TeamHoursReport getUsersReport(@RequestParam("users") List<String> users,
+                                          @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                          @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) throws ServletRequestBindingException {
+
+        UsersWorkingHoursFilter filter = new UsersWorkingHoursFilter(new LinkedHashSet<>(users), fromDate, toDate);
+        logger.debug("Requested users hours report. Used filter: " + filter);
+        try {
+            return service.getReport(filter);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Users hours report filter is invalid. " + ex.getMessage());
+        }
+    }
+
+    @GetMapping(path = "{team}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TeamHoursReport getTeamReport(@PathVariable String team,
+                                         @RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                         @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) throws ServletRequestBindingException {
+
+        logger.debug("Requested team hours report. Team: " + team + ", fromDate: " + fromDate + ", toDate: " + toDate);
+        try {
+            return service.getTeamReport(team, fromDate, toDate);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Team hours report filter is invalid. " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.ExportJob;
+import com.exercise.attendance.model.ExportJobStatus;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import com.exercise.attendance.services.WorkingHoursExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Bulk exports of the working hours of all the users (e.g. for payroll), run as background jobs:
+// a job is submitted, polled until it is COMPLETED, and its file is downloaded
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "attendance.export.enabled", havingValue = "true")
+@RequestMapping("v1/export/working-hours")
+public class WorkingHoursExportController {
+
+    static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private WorkingHoursExportService service;
+
+    private Logger logger = LoggerFactory.getLogger(WorkingHoursExportController.class);
+
+    public WorkingHoursExportController(WorkingHoursExportService service) {
+        this.service = service;
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ExportJob> submit(@RequestParam("fromDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                            @RequestParam("toDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                            @RequestParam(name = "userPrefix", required = false) String userPrefix,
+                                            @RequestParam(name = "team", required = false) String team,
+                                            @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format) throws ServletRequestBindingException {
+
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(fromDate, toDate, userPrefix, team);
+        logger.debug("Requested working hours export as " + format + ". Used filter: " + filter);
+        ExportJob job;
+        try {
+            job = service.submit(filter, format);
+        } catch (IllegalArgumentException ex) {
+            throw new ServletRequestBindingException("Working hours export filter is invalid. " + ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(job.getId()).toUri())
+                .body(job);
+    }
+
+    @GetMapping(path = "{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ExportJob> getJob(@PathVariable String id) {
+        return ResponseEntity.of(service.getJob(id));
+    }
+
+    // 409 until the job is completed
+    @GetMapping(path = "{id}/file")
+    public ResponseEntity<Resource> getFile(@PathVariable String id) {
+        Optional<ExportJob> job = service.getJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<Path> file = service.getFile(id);
+        if (job.get().getStatus() != ExportJobStatus.COMPLETED || file.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("working-hours-" + job.get().getFilter().getFromDate() + "-" + job.get().getFilter().getToDate()
+                                + job.get().getFormat().getFileExtension())
+                        .build().toString())
+                .body(new FileSystemResource(file.get()));
+    }
+}
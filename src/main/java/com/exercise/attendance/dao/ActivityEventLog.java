@@ -0,0 +1,17 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Append-only log of the recorded activities (the raw punches), from which the working hours can be rebuilt
+public interface ActivityEventLog {
+
+    void append(Activity activity);
+
+    void append(List<Activity> activities);
+
+    // Passes the logged activities to the consumer in the order they were appended
+    void replay(Consumer<Activity> consumer);
+}
@@ -0,0 +1,11 @@
+package com.exercise.attendance.dao;
+
+// When the appended activities are forced from the page cache to the disk
+public enum ActivityEventLogSync {
+    // Before the append returns, so an acknowledged activity survives a crash of the machine
+    ALWAYS,
+    // Every sync interval, so a crash of the machine loses at most the activities of the last interval
+    INTERVAL,
+    // Left to the OS. The activities still survive a crash of the process, since they are in the page cache.
+    NEVER
+}
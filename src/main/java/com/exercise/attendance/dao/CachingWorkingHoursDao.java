@@ -0,0 +1,333 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Read-through cache of working hours, held in blocks of a user's month.
+// Writes go to the underlying DAO and then update the cached block (write-through), so a punch does not evict the month.
+// A write in a transaction updates the cache only once the transaction is committed, so a rolled back write is never
+// served from the cache.
+// Past months never change, so they are kept much longer than the current month, which may be updated by other nodes.
+// Months are loaded from the primary (not from a read replica), since the cached months are kept up to date by the writes.
+// A read may load a month before a write is committed and store it after the write has updated the cache, so every
+// committed write bumps the write stamp of its month, and a loaded month is cached only if its stamp did not change
+// during the load (otherwise it is served to that read alone, and the next read loads it again).
+public class CachingWorkingHoursDao implements WorkingHoursDao {
+
+    static final String CACHE_NAME = "workingHours";
+
+    // Months share the stripes of write stamps, so a write to another month at most skips caching a load
+    private static final int WRITE_STAMP_STRIPES = 1024;
+
+    private final WorkingHoursDao dao;
+    private final Cache<UserMonth, MonthWorkingHours> cache;
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+
+    public CachingWorkingHoursDao(WorkingHoursDao dao,
+                                  MeterRegistry meterRegistry,
+                                  long maximumCachedDays,
+                                  Duration currentMonthTimeToLive,
+                                  Duration pastMonthTimeToLive) {
+        this.dao = dao;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumCachedDays)
+                .weigher((UserMonth userMonth, MonthWorkingHours month) -> month.size() + 1)
+                .expireAfter(new MonthExpiry(currentMonthTimeToLive, pastMonthTimeToLive))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
+        List<UserMonth> userMonths = userMonthsOf(filter);
+        Map<UserMonth, MonthWorkingHours> months = new HashMap<>(cache.getAllPresent(userMonths));
+        List<UserMonth> missingUserMonths = userMonths.stream()
+                .filter(userMonth -> !months.containsKey(userMonth))
+                .collect(Collectors.toList());
+        if (!missingUserMonths.isEmpty()) {
+            months.putAll(loadMonths(missingUserMonths));
+        }
+
+        return userMonths.stream()
+                .map(months::get)
+                .flatMap(month -> month.between(filter.getFromDate(), filter.getToDate()))
+                .collect(Collectors.toList());
+    }
+
+    // A page is bounded, so it is read through, rather than loading every month up to the end of the range
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit) {
+        return dao.getWorkingHours(filter, afterDate, limit);
+    }
+
+    // The cached months miss the writes of other nodes, so the working hours which are about to be updated are read
+    // from the primary
+    @Override
+    public List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter) {
+        return dao.getWorkingHoursForUpdate(filter);
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter) {
+        return dao.getWorkingHours(filter);
+    }
+
+    // Streamed ranges are typically long audit exports, so they bypass the cache rather than flooding it
+    @Override
+    public void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
+        dao.streamWorkingHours(filter, consumer);
+    }
+
+    @Override
+    public void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer) {
+        dao.streamWorkingHours(date, consumer);
+    }
+
+    // Summaries are aggregated by the database, so no rows cross the wire to be cached
+    @Override
+    public HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        return dao.getHoursSummary(filter, overtimeThreshold);
+    }
+
+    @Override
+    public void upsertWorkingHours(WorkingHours workingHours) {
+        dao.upsertWorkingHours(workingHours);
+        afterCommit(() -> updateCachedDay(workingHours));
+    }
+
+    @Override
+    public void upsertWorkingHours(List<WorkingHours> workingHours) {
+        dao.upsertWorkingHours(workingHours);
+        afterCommit(() -> workingHours.forEach(this::updateCachedDay));
+    }
+
+    @Override
+    public ActivityRecordResult recordActivity(Activity activity) {
+        ActivityRecordResult recordResult = dao.recordActivity(activity);
+        afterCommit(() -> updateCachedMonth(activity, recordResult));
+        return recordResult;
+    }
+
+    @Override
+    public List<ActivityRecordResult> recordActivities(List<Activity> activities) {
+        List<ActivityRecordResult> recordResults = dao.recordActivities(activities);
+        afterCommit(() -> {
+            for (int i = 0; i < activities.size(); i++) {
+                updateCachedMonth(activities.get(i), recordResults.get(i));
+            }
+        });
+        return recordResults;
+    }
+
+    // For days written past this DAO (e.g. by the auto-close sweep), whose months are evicted once the write is committed
+    public void evictWorkingHours(Collection<WorkingHours> workingHours) {
+        Set<UserMonth> userMonths = workingHours.stream()
+                .map(day -> UserMonth.of(day.getUser(), day.getDate()))
+                .collect(Collectors.toSet());
+        afterCommit(() -> userMonths.forEach(userMonth -> {
+            bumpWriteStamp(userMonth);
+            cache.invalidate(userMonth);
+        }));
+    }
+
+    // Without a transaction the write is already committed, so the cache is updated at once
+    private void afterCommit(Runnable cacheUpdate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheUpdate.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheUpdate.run();
+            }
+        });
+    }
+
+    private void updateCachedMonth(Activity activity, ActivityRecordResult recordResult) {
+        UserMonth userMonth = UserMonth.of(activity.getUser(), activity.getReportDateTime().toLocalDate());
+
+        if (recordResult.isRecorded()) {
+            bumpWriteStamp(userMonth);
+            cache.asMap().computeIfPresent(userMonth, (key, month) -> month.withActivity(activity));
+        } else if (recordResult.getConflictingWorkingHours().isPresent()) {
+            // The conflict holds the current state of the day, so it's used to refresh the cache
+            updateCachedDay(recordResult.getConflictingWorkingHours().get());
+        }
+    }
+
+    private void updateCachedDay(WorkingHours workingHours) {
+        UserMonth userMonth = UserMonth.of(workingHours.getUser(), workingHours.getDate());
+        bumpWriteStamp(userMonth);
+        cache.asMap().computeIfPresent(userMonth, (key, month) -> month.withDay(workingHours));
+    }
+
+    // The stamp is bumped before the cached month is updated, so a load which stores its month after the update sees
+    // the new stamp, and a load which stores it before is updated with the write
+    private void bumpWriteStamp(UserMonth userMonth) {
+        writeStamps.incrementAndGet(writeStampStripeOf(userMonth));
+    }
+
+    private static int writeStampStripeOf(UserMonth userMonth) {
+        return Math.floorMod(userMonth.hashCode(), WRITE_STAMP_STRIPES);
+    }
+
+    // Loads all the missing months with a single query, covering the range from the first to the last missing month.
+    // The stamps are read before the query, so a write committed after they are read is either seen by the query or
+    // keeps its month out of the cache.
+    private Map<UserMonth, MonthWorkingHours> loadMonths(List<UserMonth> missingUserMonths) {
+        long[] loadStamps = new long[missingUserMonths.size()];
+        for (int i = 0; i < loadStamps.length; i++) {
+            loadStamps[i] = writeStamps.get(writeStampStripeOf(missingUserMonths.get(i)));
+        }
+
+        SortedSet<YearMonth> missingMonths = new TreeSet<>();
+        String user = null;
+        for (UserMonth userMonth : missingUserMonths) {
+            user = userMonth.user;
+            missingMonths.add(userMonth.month);
+        }
+
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, missingMonths.first().atDay(1), missingMonths.last().atEndOfMonth());
+        Map<YearMonth, SortedMap<LocalDate, WorkingHours>> fetchedMonths = new HashMap<>();
+        dao.getWorkingHoursForUpdate(filter).forEach(workingHours ->
+                fetchedMonths.computeIfAbsent(YearMonth.from(workingHours.getDate()), month -> new TreeMap<>())
+                        .put(workingHours.getDate(), workingHours));
+
+        Map<UserMonth, MonthWorkingHours> loadedMonths = new HashMap<>();
+        for (YearMonth month : missingMonths) {
+            SortedMap<LocalDate, WorkingHours> days = fetchedMonths.getOrDefault(month, new TreeMap<>());
+            loadedMonths.put(new UserMonth(user, month), new MonthWorkingHours(days));
+        }
+
+        // Stored under the month's lock, so a write stamped after the check waits to update the stored month
+        for (int i = 0; i < loadStamps.length; i++) {
+            long loadStamp = loadStamps[i];
+            UserMonth userMonth = missingUserMonths.get(i);
+            cache.asMap().compute(userMonth, (key, cachedMonth) -> {
+                if (cachedMonth != null) {
+                    return cachedMonth;
+                }
+                return writeStamps.get(writeStampStripeOf(key)) == loadStamp ? loadedMonths.get(key) : null;
+            });
+        }
+        return loadedMonths;
+    }
+
+    private List<UserMonth> userMonthsOf(WorkingHoursFilter filter) {
+        List<UserMonth> userMonths = new ArrayList<>();
+        YearMonth lastMonth = YearMonth.from(filter.getToDate());
+        for (YearMonth month = YearMonth.from(filter.getFromDate()); !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            userMonths.add(new UserMonth(filter.getUser(), month));
+        }
+        return userMonths;
+    }
+
+    // Immutable working hours of a user's month, replaced as a whole on every write
+    private static class MonthWorkingHours {
+        private final SortedMap<LocalDate, WorkingHours> days;
+
+        private MonthWorkingHours(SortedMap<LocalDate, WorkingHours> days) {
+            this.days = days;
+        }
+
+        private int size() {
+            return days.size();
+        }
+
+        private Stream<WorkingHours> between(LocalDate fromDate, LocalDate toDate) {
+            return days.subMap(fromDate, toDate.plusDays(1)).values().stream();
+        }
+
+        private MonthWorkingHours withDay(WorkingHours workingHours) {
+            SortedMap<LocalDate, WorkingHours> updatedDays = new TreeMap<>(days);
+            updatedDays.put(workingHours.getDate(), workingHours);
+            return new MonthWorkingHours(updatedDays);
+        }
+
+        // Returning null evicts the month, which is done when the cached day does not match the recorded activity
+        private MonthWorkingHours withActivity(Activity activity) {
+            LocalDate date = activity.getReportDateTime().toLocalDate();
+            switch (activity.getActivityType()) {
+                case ENTRY:
+                default:
+                    return withDay(new WorkingHours(activity.getUser(), date, activity.getReportDateTime().toLocalTime()));
+                case EXIT:
+                    WorkingHours entry = days.get(date);
+                    if (entry == null) {
+                        return null;
+                    }
+                    return withDay(new WorkingHours(activity.getUser(), date, entry.getFromTime(), activity.getReportDateTime().toLocalTime()));
+            }
+        }
+    }
+
+    private static class MonthExpiry implements Expiry<UserMonth, MonthWorkingHours> {
+        private final long currentMonthTimeToLiveNanos;
+        private final long pastMonthTimeToLiveNanos;
+
+        private MonthExpiry(Duration currentMonthTimeToLive, Duration pastMonthTimeToLive) {
+            this.currentMonthTimeToLiveNanos = currentMonthTimeToLive.toNanos();
+            this.pastMonthTimeToLiveNanos = pastMonthTimeToLive.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(UserMonth userMonth, MonthWorkingHours month, long currentTime) {
+            return userMonth.month.isBefore(YearMonth.now()) ? pastMonthTimeToLiveNanos : currentMonthTimeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(UserMonth userMonth, MonthWorkingHours month, long currentTime, long currentDuration) {
+            return expireAfterCreate(userMonth, month, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(UserMonth userMonth, MonthWorkingHours month, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static class UserMonth {
+        private final String user;
+        private final YearMonth month;
+
+        private UserMonth(String user, YearMonth month) {
+            this.user = user;
+            this.month = month;
+        }
+
+        private static UserMonth of(String user, LocalDate date) {
+            return new UserMonth(user, YearMonth.from(date));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            UserMonth userMonth = (UserMonth) o;
+            return user.equals(userMonth.user) &&
+                    month.equals(userMonth.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, month);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+// Monthly hours of the embedded profile. The embedded store finds a user's month with a binary search,
+// so months are summarized when read rather than maintained as a rollup.
+public class EmbeddedMonthlyHoursDao implements MonthlyHoursDao {
+
+    private final EmbeddedWorkingHoursDao workingHoursDao;
+
+    public EmbeddedMonthlyHoursDao(EmbeddedWorkingHoursDao workingHoursDao) {
+        this.workingHoursDao = workingHoursDao;
+    }
+
+    @Override
+    public List<MonthlyHours> getMonthlyHours(YearMonth month) {
+        return workingHoursDao.getMonthlyHours(month);
+    }
+
+    @Override
+    public void refreshMonthlyHours(Collection<WorkingHours> updatedWorkingHours) {
+        // Nothing to refresh, the next read summarizes the updated days
+    }
+
+    @Override
+    public void addRecordedActivities(Collection<Activity> recordedActivities) {
+        // Nothing to add, the next read summarizes the recorded days
+    }
+
+    @Override
+    public int rebuildMonthlyHours(int usersPageSize) {
+        // Nothing to rebuild
+        return 0;
+    }
+}
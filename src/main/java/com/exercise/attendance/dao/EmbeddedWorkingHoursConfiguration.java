@@ -0,0 +1,32 @@
+package com.exercise.attendance.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+// With the embedded profile, working hours (and the monthly hours derived from them) are kept in process
+// instead of MySQL, in place of WorkingHoursDaoImpl and MonthlyHoursDaoImpl
+@Configuration
+@Profile(EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE)
+public class EmbeddedWorkingHoursConfiguration {
+
+    public static final String EMBEDDED_PROFILE = "embedded";
+
+    @Bean
+    public EmbeddedWorkingHoursDao embeddedWorkingHoursDao(@Value("${attendance.embedded.directory:data}") String directory,
+                                                           @Value("${attendance.embedded.journal.sync-on-write:false}") boolean syncOnWrite,
+                                                           @Value("${attendance.embedded.lock-stripes:64}") int lockStripes,
+                                                           @Value("${attendance.embedded.snapshot-interval:PT10M}") Duration snapshotInterval) throws IOException {
+        return new EmbeddedWorkingHoursDao(new EmbeddedWorkingHoursJournal(Path.of(directory), syncOnWrite), lockStripes, snapshotInterval);
+    }
+
+    @Bean
+    public EmbeddedMonthlyHoursDao embeddedMonthlyHoursDao(EmbeddedWorkingHoursDao embeddedWorkingHoursDao) {
+        return new EmbeddedMonthlyHoursDao(embeddedWorkingHoursDao);
+    }
+}
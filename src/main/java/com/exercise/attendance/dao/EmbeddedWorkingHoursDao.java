@@ -0,0 +1,391 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// In-process working hours store, used instead of the WORKING_HOURS table by the embedded profile.
+// Each user's days are held in two parallel arrays sorted by date: the epoch day, and the from/to times packed in a long,
+// so a day takes 12 bytes and date ranges are found with a binary search.
+// Users are guarded by striped read/write locks, and every change is journaled before it is acknowledged.
+public class EmbeddedWorkingHoursDao implements WorkingHoursDao {
+
+    private static final int INITIAL_USER_CAPACITY = 8;
+
+    private final Logger logger = LoggerFactory.getLogger(EmbeddedWorkingHoursDao.class);
+
+    private final Map<String, UserDays> users = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] locks;
+    private final EmbeddedWorkingHoursJournal journal;
+    private final ScheduledExecutorService snapshotScheduler;
+
+    // The journal is recovered into the store, and a snapshot is taken every snapshotInterval (if not zero) and on close
+    public EmbeddedWorkingHoursDao(EmbeddedWorkingHoursJournal journal, int lockStripes, Duration snapshotInterval) throws IOException {
+        this.journal = journal;
+        this.locks = new ReadWriteLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        journal.recover(new EmbeddedWorkingHoursJournal.Recovery() {
+            @Override
+            public void restoreUser(String user, int[] epochDays, long[] times) {
+                users.put(user, new UserDays(epochDays, times, epochDays.length));
+            }
+
+            @Override
+            public void restoreDay(String user, int epochDay, long times) {
+                users.computeIfAbsent(user, newUser -> new UserDays()).put(epochDay, times);
+            }
+        });
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "working-hours-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!snapshotInterval.isZero()) {
+            snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        readDays(filter.getUser(), filter.getFromDate(), filter.getToDate(), workingHours::add);
+        return workingHours;
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter) {
+        return getWorkingHours(filter);
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit) {
+        String user = filter.getUser();
+        List<WorkingHours> workingHours = new ArrayList<>();
+        Lock lock = lockOf(user).readLock();
+        lock.lock();
+        try {
+            UserDays days = users.get(user);
+            if (days == null) {
+                return workingHours;
+            }
+            int toEpochDay = toEpochDay(filter.getToDate());
+            for (int i = days.lowerBound(toEpochDay(afterDate) + 1); i < days.size && days.epochDays[i] <= toEpochDay && workingHours.size() < limit; i++) {
+                workingHours.add(toWorkingHours(user, days.epochDays[i], days.times[i]));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return workingHours;
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter) {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        for (String user : new TreeSet<>(filter.getUsers())) {
+            readDays(user, filter.getFromDate(), filter.getToDate(), workingHours::add);
+        }
+        return workingHours;
+    }
+
+    // The range is copied under the lock as primitives, and handed to the consumer once the lock was released
+    @Override
+    public void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
+        String user = filter.getUser();
+        int[] epochDays;
+        long[] times;
+        Lock lock = lockOf(user).readLock();
+        lock.lock();
+        try {
+            UserDays days = users.get(user);
+            if (days == null) {
+                return;
+            }
+            int from = days.lowerBound(toEpochDay(filter.getFromDate()));
+            int to = days.lowerBound(toEpochDay(filter.getToDate()) + 1);
+            epochDays = Arrays.copyOfRange(days.epochDays, from, to);
+            times = Arrays.copyOfRange(days.times, from, to);
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < epochDays.length; i++) {
+            consumer.accept(toWorkingHours(user, epochDays[i], times[i]));
+        }
+    }
+
+    @Override
+    public void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer) {
+        for (String user : users.keySet()) {
+            readDays(user, date, date, consumer);
+        }
+    }
+
+    // Same totals as the SQL aggregation of WorkingHoursDaoImpl
+    @Override
+    public HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        return summarize(filter.getUser(), filter.getFromDate(), filter.getToDate(), overtimeThreshold.getSeconds());
+    }
+
+    @Override
+    public void upsertWorkingHours(WorkingHours workingHours) {
+        String user = workingHours.getUser();
+        Lock lock = lockOf(user).writeLock();
+        lock.lock();
+        try {
+            putDay(user, toEpochDay(workingHours.getDate()), packTimes(workingHours.getFromTime(), workingHours.getToTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void upsertWorkingHours(List<WorkingHours> workingHours) {
+        workingHours.forEach(this::upsertWorkingHours);
+    }
+
+    @Override
+    public ActivityRecordResult recordActivity(Activity activity) {
+        String user = activity.getUser();
+        int epochDay = toEpochDay(activity.getReportDateTime().toLocalDate());
+        int seconds = activity.getReportDateTime().toLocalTime().toSecondOfDay();
+        Lock lock = lockOf(user).writeLock();
+        lock.lock();
+        try {
+            UserDays days = users.get(user);
+            int index = days == null ? -1 : days.indexOf(epochDay);
+            long times = index < 0 ? 0 : days.times[index];
+            switch (activity.getActivityType()) {
+                case ENTRY:
+                default:
+                    if (index < 0) {
+                        putDay(user, epochDay, packTimes(seconds, -1));
+                        return ActivityRecordResult.recorded();
+                    }
+                    break;
+                case EXIT:
+                    if (index >= 0 && toSeconds(times) < 0) {
+                        putDay(user, epochDay, packTimes(fromSeconds(times), seconds));
+                        return ActivityRecordResult.recorded();
+                    }
+                    break;
+            }
+            return ActivityRecordResult.conflict(index < 0 ? Optional.empty() : Optional.of(toWorkingHours(user, epochDay, times)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Each activity is recorded (and journaled) on its own, as the store has no transactions to batch them in
+    @Override
+    public List<ActivityRecordResult> recordActivities(List<Activity> activities) {
+        return activities.stream().map(this::recordActivity).collect(Collectors.toList());
+    }
+
+    // Summarizes each user's days of the month, for the users with any day in the month, sorted by user
+    List<MonthlyHours> getMonthlyHours(YearMonth month) {
+        List<MonthlyHours> monthlyHours = new ArrayList<>();
+        for (String user : new TreeSet<>(users.keySet())) {
+            HoursSummary summary = summarize(user, month.atDay(1), month.atEndOfMonth(), 0);
+            if (summary.getWorkedDays() + summary.getOpenDays() > 0) {
+                monthlyHours.add(new MonthlyHours(user, month, summary.getTotalWorkedSeconds(), summary.getWorkedDays(), summary.getOpenDays()));
+            }
+        }
+        return monthlyHours;
+    }
+
+    // Writes each user's days as copied under the user's read lock, so the snapshot is never blocking all the users
+    public void snapshot() throws IOException {
+        journal.snapshot(writer -> {
+            for (String user : users.keySet()) {
+                int[] epochDays;
+                long[] times;
+                Lock lock = lockOf(user).readLock();
+                lock.lock();
+                try {
+                    UserDays days = users.get(user);
+                    epochDays = Arrays.copyOf(days.epochDays, days.size);
+                    times = Arrays.copyOf(days.times, days.size);
+                } finally {
+                    lock.unlock();
+                }
+                writer.writeUser(user, epochDays, times, epochDays.length);
+            }
+        });
+    }
+
+    public void close() throws IOException, InterruptedException {
+        snapshotScheduler.shutdown();
+        snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot();
+        journal.close();
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Working hours snapshot failed, the journal keeps growing until the next one", ex);
+        }
+    }
+
+    private void readDays(String user, LocalDate fromDate, LocalDate toDate, Consumer<WorkingHours> consumer) {
+        Lock lock = lockOf(user).readLock();
+        lock.lock();
+        try {
+            UserDays days = users.get(user);
+            if (days == null) {
+                return;
+            }
+            int toEpochDay = toEpochDay(toDate);
+            for (int i = days.lowerBound(toEpochDay(fromDate)); i < days.size && days.epochDays[i] <= toEpochDay; i++) {
+                consumer.accept(toWorkingHours(user, days.epochDays[i], days.times[i]));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // As in SQL, a day without exit is open, and a day with exit is worked even when its entry is missing
+    private HoursSummary summarize(String user, LocalDate fromDate, LocalDate toDate, long overtimeThresholdSeconds) {
+        long totalWorkedSeconds = 0;
+        long workedDays = 0;
+        long openDays = 0;
+        long overtimeSeconds = 0;
+        Lock lock = lockOf(user).readLock();
+        lock.lock();
+        try {
+            UserDays days = users.get(user);
+            if (days == null) {
+                return HoursSummary.EMPTY;
+            }
+            int toEpochDay = toEpochDay(toDate);
+            for (int i = days.lowerBound(toEpochDay(fromDate)); i < days.size && days.epochDays[i] <= toEpochDay; i++) {
+                long times = days.times[i];
+                int from = fromSeconds(times);
+                int to = toSeconds(times);
+                if (to < 0) {
+                    openDays++;
+                    continue;
+                }
+                workedDays++;
+                if (from >= 0) {
+                    long workedSeconds = to - from;
+                    totalWorkedSeconds += workedSeconds;
+                    overtimeSeconds += Math.max(workedSeconds - overtimeThresholdSeconds, 0);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new HoursSummary(totalWorkedSeconds, workedDays, openDays, overtimeSeconds);
+    }
+
+    // Called with the user's write lock held, so the journal order of a day matches the order of its changes.
+    // The day is changed only once journaled, so a failed write leaves the store as it was.
+    private void putDay(String user, int epochDay, long times) {
+        try {
+            journal.append(user, epochDay, times);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to journal working hours of " + user, ex);
+        }
+        users.computeIfAbsent(user, newUser -> new UserDays()).put(epochDay, times);
+    }
+
+    private ReadWriteLock lockOf(String user) {
+        return locks[Math.floorMod(user.hashCode(), locks.length)];
+    }
+
+    private WorkingHours toWorkingHours(String user, int epochDay, long times) {
+        return new WorkingHours(user, LocalDate.ofEpochDay(epochDay), toLocalTime(fromSeconds(times)), toLocalTime(toSeconds(times)));
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    // Seconds of the day are stored plus one, so 0 stands for a missing time
+    static long packTimes(int fromSeconds, int toSeconds) {
+        return ((long) (fromSeconds + 1) << 32) | (toSeconds + 1);
+    }
+
+    static long packTimes(LocalTime fromTime, LocalTime toTime) {
+        return packTimes(fromTime == null ? -1 : fromTime.toSecondOfDay(), toTime == null ? -1 : toTime.toSecondOfDay());
+    }
+
+    static int fromSeconds(long times) {
+        return (int) (times >>> 32) - 1;
+    }
+
+    static int toSeconds(long times) {
+        return (int) times - 1;
+    }
+
+    private static LocalTime toLocalTime(int seconds) {
+        return seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds);
+    }
+
+    // A user's days, sorted by epoch day. Only the first size elements of the arrays are used.
+    private static class UserDays {
+        private int[] epochDays;
+        private long[] times;
+        private int size;
+
+        UserDays() {
+            this(new int[INITIAL_USER_CAPACITY], new long[INITIAL_USER_CAPACITY], 0);
+        }
+
+        UserDays(int[] epochDays, long[] times, int size) {
+            this.epochDays = epochDays;
+            this.times = times;
+            this.size = size;
+        }
+
+        int indexOf(int epochDay) {
+            return Arrays.binarySearch(epochDays, 0, size, epochDay);
+        }
+
+        // Index of the first day on or after the epoch day
+        int lowerBound(int epochDay) {
+            int index = indexOf(epochDay);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        // Days are usually reported in order, so appending is the common case
+        void put(int epochDay, long dayTimes) {
+            int index = size == 0 || epochDays[size - 1] < epochDay ? -size - 1 : indexOf(epochDay);
+            if (index >= 0) {
+                times[index] = dayTimes;
+                return;
+            }
+            int insertionPoint = -index - 1;
+            if (size == epochDays.length) {
+                int capacity = Math.max(INITIAL_USER_CAPACITY, size + (size >> 1));
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                times = Arrays.copyOf(times, capacity);
+            }
+            System.arraycopy(epochDays, insertionPoint, epochDays, insertionPoint + 1, size - insertionPoint);
+            System.arraycopy(times, insertionPoint, times, insertionPoint + 1, size - insertionPoint);
+            epochDays[insertionPoint] = epochDay;
+            times[insertionPoint] = dayTimes;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.exercise.attendance.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Durability of EmbeddedWorkingHoursDao: every change of a day is appended to the current journal segment,
+// and snapshots of all the days periodically replace the segments written before them.
+// A journal record holds the whole state of the day (not a delta), so replaying a record more than once is harmless.
+// Files of the directory:
+// - journal-<n>.log - the changes made while segment n was current
+// - snapshot-<n>.dat - all the days, including every change of the segments before n
+public class EmbeddedWorkingHoursJournal implements Closeable {
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.dat");
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int SNAPSHOT_MAGIC = 0x41545331;
+
+    private final Logger logger = LoggerFactory.getLogger(EmbeddedWorkingHoursJournal.class);
+
+    private final Path directory;
+    private final boolean syncOnWrite;
+    private final Object snapshotLock = new Object();
+
+    private long segment;
+    private FileOutputStream journalFile;
+    private DataOutputStream journal;
+
+    // With syncOnWrite, each record is forced to the disk before the change is acknowledged.
+    // Otherwise it is only handed to the OS, so it survives a crash of the process but not of the machine.
+    public EmbeddedWorkingHoursJournal(Path directory, boolean syncOnWrite) {
+        this.directory = directory;
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    // Receives the recovered days: first the users of the snapshot, then the journal records in the order they were written
+    public interface Recovery {
+        void restoreUser(String user, int[] epochDays, long[] times);
+
+        void restoreDay(String user, int epochDay, long times);
+    }
+
+    public interface SnapshotWriter {
+        void writeUser(String user, int[] epochDays, long[] times, int size) throws IOException;
+    }
+
+    public interface SnapshotContents {
+        void writeTo(SnapshotWriter writer) throws IOException;
+    }
+
+    // Loads the latest snapshot, replays the journal segments written since, and starts a new segment
+    public synchronized void recover(Recovery recovery) throws IOException {
+        Files.createDirectories(directory);
+        deleteTemporaryFiles();
+        long snapshotSegment = latest(SNAPSHOT_FILE);
+        if (snapshotSegment > 0) {
+            readSnapshot(snapshotFile(snapshotSegment), recovery);
+        }
+        long lastSegment = snapshotSegment;
+        for (long journalSegment : segments(JOURNAL_FILE)) {
+            if (journalSegment >= snapshotSegment) {
+                replay(journalFile(journalSegment), recovery);
+            }
+            lastSegment = Math.max(lastSegment, journalSegment);
+        }
+        openSegment(lastSegment + 1);
+        logger.info("Recovered working hours from " + directory + ", snapshot segment " + snapshotSegment + ", journal segment " + segment);
+    }
+
+    public synchronized void append(String user, int epochDay, long times) throws IOException {
+        journal.writeUTF(user);
+        journal.writeInt(epochDay);
+        journal.writeLong(times);
+        journal.flush();
+        if (syncOnWrite) {
+            journalFile.getChannel().force(false);
+        }
+    }
+
+    // The contents are written while appends continue on a new segment, so they may include changes of that segment too,
+    // which are then replayed over the snapshot on recovery
+    public void snapshot(SnapshotContents contents) throws IOException {
+        synchronized (snapshotLock) {
+            long snapshotSegment = rotate();
+            Path snapshotFile = snapshotFile(snapshotSegment);
+            Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + TEMPORARY_SUFFIX);
+            try (FileOutputStream file = new FileOutputStream(temporaryFile.toFile());
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+                output.writeInt(SNAPSHOT_MAGIC);
+                contents.writeTo((user, epochDays, times, size) -> {
+                    output.writeBoolean(true);
+                    output.writeUTF(user);
+                    output.writeInt(size);
+                    for (int i = 0; i < size; i++) {
+                        output.writeInt(epochDays[i]);
+                        output.writeLong(times[i]);
+                    }
+                });
+                output.writeBoolean(false);
+                output.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+            for (long journalSegment : segments(JOURNAL_FILE)) {
+                if (journalSegment < snapshotSegment) {
+                    Files.deleteIfExists(journalFile(journalSegment));
+                }
+            }
+            for (long previousSnapshotSegment : segments(SNAPSHOT_FILE)) {
+                if (previousSnapshotSegment < snapshotSegment) {
+                    Files.deleteIfExists(snapshotFile(previousSnapshotSegment));
+                }
+            }
+            logger.debug("Wrote working hours snapshot " + snapshotFile);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private synchronized long rotate() throws IOException {
+        journal.close();
+        openSegment(segment + 1);
+        return segment;
+    }
+
+    private void openSegment(long newSegment) throws IOException {
+        segment = newSegment;
+        journalFile = new FileOutputStream(journalFile(segment).toFile(), true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+
+    private void readSnapshot(Path file, Recovery recovery) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a working hours snapshot: " + file);
+            }
+            while (input.readBoolean()) {
+                String user = input.readUTF();
+                int size = input.readInt();
+                int[] epochDays = new int[size];
+                long[] times = new long[size];
+                for (int i = 0; i < size; i++) {
+                    epochDays[i] = input.readInt();
+                    times[i] = input.readLong();
+                }
+                recovery.restoreUser(user, epochDays, times);
+            }
+        }
+    }
+
+    // A record cut short by a crash ends the segment, since it was never acknowledged
+    private void replay(Path file, Recovery recovery) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                String user;
+                int epochDay;
+                long times;
+                try {
+                    user = input.readUTF();
+                    epochDay = input.readInt();
+                    times = input.readLong();
+                } catch (EOFException ex) {
+                    return;
+                }
+                recovery.restoreDay(user, epochDay, times);
+            }
+        }
+    }
+
+    private void deleteTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private long latest(Pattern pattern) throws IOException {
+        List<Long> segments = segments(pattern);
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+
+    // Sorted ascending
+    private List<Long> segments(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path journalFile(long journalSegment) {
+        return directory.resolve("journal-" + journalSegment + ".log");
+    }
+
+    private Path snapshotFile(long snapshotSegment) {
+        return directory.resolve("snapshot-" + snapshotSegment + ".dat");
+    }
+}
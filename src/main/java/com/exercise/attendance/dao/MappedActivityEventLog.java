@@ -0,0 +1,230 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Appends the activities to memory-mapped segment files (activities-<n>.log) of a fixed size, so an append is a copy
+// into the page cache, and the segment is rotated when the next activity does not fit.
+// A record is [payload length][payload CRC32][payload], where the payload is [type][epoch second][nano][user (UTF-8)].
+// The unwritten part of a segment is zero, so the log ends at the first zero length, or at a record torn by a crash
+// (whose CRC does not match), and appends continue from there after a restart.
+@Component
+@ConditionalOnProperty(name = "attendance.event-log.enabled", havingValue = "true")
+public class MappedActivityEventLog implements ActivityEventLog {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("activities-(\\d+)\\.log");
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 1 + 8 + 4;
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final Logger logger = LoggerFactory.getLogger(MappedActivityEventLog.class);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ActivityEventLogSync sync;
+    private final ScheduledExecutorService syncScheduler;
+    private final CRC32 crc = new CRC32();
+
+    private long segment;
+    private MappedByteBuffer buffer;
+    private boolean closed;
+
+    public MappedActivityEventLog(@Value("${attendance.event-log.directory:events}") String directory,
+                                  @Value("${attendance.event-log.segment-size:64MB}") DataSize segmentSize,
+                                  @Value("${attendance.event-log.sync:INTERVAL}") ActivityEventLogSync sync,
+                                  @Value("${attendance.event-log.sync-interval:PT1S}") Duration syncInterval) throws IOException {
+        if (segmentSize.toBytes() > Integer.MAX_VALUE || segmentSize.toBytes() <= HEADER_BYTES + FIXED_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Invalid event log segment size " + segmentSize);
+        }
+        this.directory = Path.of(directory);
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.sync = sync;
+        Files.createDirectories(this.directory);
+        List<Long> segments = segments();
+        openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1));
+        buffer.position(endOf(buffer));
+        logger.info("Appending activities to " + segmentFile(segment) + " at " + buffer.position());
+
+        this.syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activity-event-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sync == ActivityEventLogSync.INTERVAL) {
+            syncScheduler.scheduleWithFixedDelay(this::force, syncInterval.toMillis(), syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void append(Activity activity) {
+        int start = write(activity);
+        if (sync == ActivityEventLogSync.ALWAYS) {
+            buffer.force(start, buffer.position() - start);
+        }
+    }
+
+    // The activities are forced together, once all were written
+    @Override
+    public synchronized void append(List<Activity> activities) {
+        activities.forEach(this::write);
+        if (sync == ActivityEventLogSync.ALWAYS) {
+            buffer.force();
+        }
+    }
+
+    // Appends wait until the replay completed, so it ends at the last appended activity
+    @Override
+    public synchronized void replay(Consumer<Activity> consumer) {
+        try {
+            for (long replayedSegment : segments()) {
+                try (FileChannel replayedChannel = FileChannel.open(segmentFile(replayedSegment))) {
+                    MappedByteBuffer replayedBuffer = replayedChannel.map(FileChannel.MapMode.READ_ONLY, 0, replayedChannel.size());
+                    readRecords(replayedBuffer, consumer);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to replay the event log", ex);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        syncScheduler.shutdown();
+        if (!closed) {
+            buffer.force();
+            closed = true;
+        }
+    }
+
+    private synchronized void force() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    // Returns the position of the written record
+    private int write(Activity activity) {
+        byte[] user = activity.getUser().getBytes(StandardCharsets.UTF_8);
+        int payloadLength = FIXED_PAYLOAD_BYTES + user.length;
+        if (HEADER_BYTES + payloadLength > segmentSize) {
+            throw new IllegalArgumentException("Activity does not fit an event log segment. User: " + activity.getUser());
+        }
+        try {
+            if (buffer.remaining() < HEADER_BYTES + payloadLength) {
+                rotate();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to rotate the event log", ex);
+        }
+        int start = buffer.position();
+        LocalDateTime reportDateTime = activity.getReportDateTime();
+        // The payload and CRC are written before the length, so a non-zero length is never followed by a missing payload
+        buffer.position(start + HEADER_BYTES);
+        buffer.put((byte) activity.getActivityType().ordinal());
+        buffer.putLong(reportDateTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(reportDateTime.getNano());
+        buffer.put(user);
+        crc.reset();
+        crc.update(buffer.slice(start + HEADER_BYTES, payloadLength));
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, payloadLength);
+        return start;
+    }
+
+    private void rotate() throws IOException {
+        if (sync != ActivityEventLogSync.NEVER) {
+            buffer.force();
+        }
+        openSegment(segment + 1);
+        logger.debug("Rotated event log to " + segmentFile(segment));
+    }
+
+    private void openSegment(long newSegment) throws IOException {
+        segment = newSegment;
+        // The mapping stays valid once the channel is closed, until the buffer is garbage collected
+        try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    // Returns the position after the last valid record
+    private int endOf(ByteBuffer segmentBuffer) {
+        return readRecords(segmentBuffer.duplicate(), activity -> {
+        });
+    }
+
+    private int readRecords(ByteBuffer segmentBuffer, Consumer<Activity> consumer) {
+        CRC32 recordCrc = new CRC32();
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBuffer.limit()) {
+            int payloadLength = segmentBuffer.getInt(position);
+            if (payloadLength < FIXED_PAYLOAD_BYTES || position + HEADER_BYTES + payloadLength > segmentBuffer.limit()) {
+                break;
+            }
+            ByteBuffer payload = segmentBuffer.slice(position + HEADER_BYTES, payloadLength);
+            recordCrc.reset();
+            recordCrc.update(payload.duplicate());
+            if ((int) recordCrc.getValue() != segmentBuffer.getInt(position + 4)) {
+                logger.warn("Event log segment ends with a torn record at " + position);
+                break;
+            }
+            consumer.accept(readActivity(payload));
+            position += HEADER_BYTES + payloadLength;
+        }
+        return position;
+    }
+
+    private Activity readActivity(ByteBuffer payload) {
+        ActivityType activityType = ACTIVITY_TYPES[payload.get()];
+        LocalDateTime reportDateTime = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        byte[] user = new byte[payload.remaining()];
+        payload.get(user);
+        return new Activity(new String(user, StandardCharsets.UTF_8), activityType, reportDateTime);
+    }
+
+    // Sorted ascending
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> SEGMENT_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentFile(long logSegment) {
+        return directory.resolve("activities-" + logSegment + ".log");
+    }
+}
@@ -0,0 +1,29 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+// Monthly rollup of WORKING_HOURS, per user
+public interface MonthlyHoursDao {
+
+    // Returns the monthly hours of all the users, sorted by user
+    List<MonthlyHours> getMonthlyHours(YearMonth month);
+
+    // Recomputes the monthly hours of the users and months of the updated working hours
+    void refreshMonthlyHours(Collection<WorkingHours> updatedWorkingHours);
+
+    // Adds the exits of the activities to the monthly hours of their users and months. Entries are not added,
+    // as the open days are counted when the monthly hours are read.
+    // Expected to run in the transaction which recorded the activities (by the conditional statements),
+    // so each recorded activity is added exactly once.
+    void addRecordedActivities(Collection<Activity> recordedActivities);
+
+    // Recomputes the monthly hours of all users and months, a page of users at a time, and clears the months which
+    // have no working hours anymore. Returns the number of months rebuilt.
+    int rebuildMonthlyHours(int usersPageSize);
+}
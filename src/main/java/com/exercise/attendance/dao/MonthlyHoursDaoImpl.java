@@ -0,0 +1,195 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+// Recorded exits are added to their month as deltas, in the transaction which recorded them. The conditional
+// statements record each exit at most once, and its row locks order the delta with the other writes of the day.
+// Entries are not rolled up, so an entry punch writes its day only: the open days of a month are counted when it is
+// read, from the WORKING_HOURS_OPEN_IX index of the open days, which are few (today's, and the ones never closed).
+// Upserted days (which may replace any earlier state) recompute their month from its (at most 31) WORKING_HOURS rows,
+// using the (USER, DATE) unique key, so concurrent and repeated refreshes converge to the same totals.
+@Component
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class MonthlyHoursDaoImpl implements MonthlyHoursDao {
+
+    private static final String FETCH_MONTHLY_HOURS_SQL = "SELECT USER,TOTAL_WORKED_SECONDS,WORKED_DAYS FROM MONTHLY_HOURS " +
+            "WHERE REPORT_YEAR= :year " +
+            "AND REPORT_MONTH= :month " +
+            "ORDER BY USER";
+    private static final String FETCH_OPEN_DAYS_SQL = "SELECT USER,COUNT(*) AS OPEN_DAYS FROM WORKING_HOURS " +
+            "WHERE TO_TIME IS NULL " +
+            "AND DATE >= :fromDate " +
+            "AND DATE <= :toDate " +
+            "GROUP BY USER";
+    private static final String REFRESH_MONTHLY_HOURS_SQL = "INSERT INTO MONTHLY_HOURS (USER, REPORT_YEAR, REPORT_MONTH, TOTAL_WORKED_SECONDS, WORKED_DAYS) " +
+            "SELECT :user, :year, :month, " +
+            "COALESCE(SUM(TIMESTAMPDIFF(SECOND, FROM_TIME, TO_TIME)), 0), COUNT(TO_TIME) " +
+            "FROM WORKING_HOURS " +
+            "WHERE USER= :user " +
+            "AND DATE >= :fromDate " +
+            "AND DATE <= :toDate " +
+            "ON DUPLICATE KEY UPDATE TOTAL_WORKED_SECONDS=VALUES(TOTAL_WORKED_SECONDS), WORKED_DAYS=VALUES(WORKED_DAYS)";
+    // An exit closes its day, whose worked seconds are read from the single WORKING_HOURS row of the day
+    private static final String ADD_EXIT_SQL = "INSERT INTO MONTHLY_HOURS (USER, REPORT_YEAR, REPORT_MONTH, TOTAL_WORKED_SECONDS, WORKED_DAYS) " +
+            "SELECT USER, :year, :month, TIMESTAMPDIFF(SECOND, FROM_TIME, TO_TIME), 1 " +
+            "FROM WORKING_HOURS " +
+            "WHERE USER= :user " +
+            "AND DATE= :date " +
+            "AND TO_TIME IS NOT NULL " +
+            "ON DUPLICATE KEY UPDATE TOTAL_WORKED_SECONDS=MONTHLY_HOURS.TOTAL_WORKED_SECONDS + VALUES(TOTAL_WORKED_SECONDS), " +
+            "WORKED_DAYS=MONTHLY_HOURS.WORKED_DAYS + 1";
+    // The rebuild pages through the users with the (USER, DATE) unique key, so each statement locks a range of users
+    private static final String FETCH_USERS_PAGE_SQL = "SELECT DISTINCT USER FROM WORKING_HOURS " +
+            "WHERE USER > :afterUser " +
+            "ORDER BY USER " +
+            "LIMIT :limit";
+    private static final String REBUILD_MONTHLY_HOURS_SQL = "INSERT INTO MONTHLY_HOURS (USER, REPORT_YEAR, REPORT_MONTH, TOTAL_WORKED_SECONDS, WORKED_DAYS) " +
+            "SELECT USER, YEAR(DATE), MONTH(DATE), " +
+            "COALESCE(SUM(TIMESTAMPDIFF(SECOND, FROM_TIME, TO_TIME)), 0), COUNT(TO_TIME) " +
+            "FROM WORKING_HOURS " +
+            "WHERE USER > :afterUser " +
+            "AND USER <= :lastUser " +
+            "GROUP BY USER, YEAR(DATE), MONTH(DATE) " +
+            "ON DUPLICATE KEY UPDATE TOTAL_WORKED_SECONDS=VALUES(TOTAL_WORKED_SECONDS), WORKED_DAYS=VALUES(WORKED_DAYS)";
+    // Months whose working hours were all removed are deleted
+    private static final String CLEAR_STALE_MONTHLY_HOURS_SQL = "DELETE FROM MONTHLY_HOURS " +
+            "WHERE USER > :afterUser " +
+            "AND USER <= :lastUser " +
+            "AND NOT EXISTS (SELECT 1 FROM WORKING_HOURS W " +
+            "WHERE W.USER=MONTHLY_HOURS.USER " +
+            "AND YEAR(W.DATE)=MONTHLY_HOURS.REPORT_YEAR " +
+            "AND MONTH(W.DATE)=MONTHLY_HOURS.REPORT_MONTH)";
+    // The users after the last user of WORKING_HOURS have no working hours left at all
+    private static final String CLEAR_MONTHLY_HOURS_AFTER_SQL = "DELETE FROM MONTHLY_HOURS " +
+            "WHERE USER > :afterUser";
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public MonthlyHoursDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    // The users with open days only (e.g. in their first days of the month) have no worked time
+    @Override
+    public List<MonthlyHours> getMonthlyHours(YearMonth month) {
+        Map<String, Long> openDays = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                FETCH_OPEN_DAYS_SQL,
+                Map.of("fromDate", month.atDay(1),
+                        "toDate", month.atEndOfMonth()),
+                (RowCallbackHandler) rs -> openDays.put(rs.getString("USER"), rs.getLong("OPEN_DAYS")));
+        Map<String, MonthlyHours> monthlyHours = new TreeMap<>();
+        namedParameterJdbcTemplate.query(
+                FETCH_MONTHLY_HOURS_SQL,
+                Map.of("year", month.getYear(),
+                        "month", month.getMonthValue()),
+                (RowCallbackHandler) rs -> {
+                    String user = rs.getString("USER");
+                    monthlyHours.put(user, new MonthlyHours(user, month, rs.getLong("TOTAL_WORKED_SECONDS"),
+                            rs.getLong("WORKED_DAYS"), openDays.getOrDefault(user, 0L)));
+                });
+        openDays.forEach((user, userOpenDays) -> monthlyHours.computeIfAbsent(user, key -> new MonthlyHours(user, month, 0, 0, userOpenDays)));
+        return new ArrayList<>(monthlyHours.values());
+    }
+
+    @Override
+    public void refreshMonthlyHours(Collection<WorkingHours> updatedWorkingHours) {
+        Set<UserMonth> userMonths = new LinkedHashSet<>();
+        updatedWorkingHours.forEach(workingHours -> userMonths.add(new UserMonth(workingHours.getUser(), YearMonth.from(workingHours.getDate()))));
+        if (userMonths.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.batchUpdate(
+                REFRESH_MONTHLY_HOURS_SQL,
+                userMonths.stream()
+                        .map(userMonth -> new MapSqlParameterSource(createRefreshParamsMap(userMonth)))
+                        .toArray(SqlParameterSource[]::new)
+        );
+    }
+
+    @Override
+    public void addRecordedActivities(Collection<Activity> recordedActivities) {
+        SqlParameterSource[] params = recordedActivities.stream()
+                .filter(activity -> activity.getActivityType() == ActivityType.EXIT)
+                .map(activity -> new MapSqlParameterSource(createActivityParamsMap(activity)))
+                .toArray(SqlParameterSource[]::new);
+        if (params.length > 0) {
+            namedParameterJdbcTemplate.batchUpdate(ADD_EXIT_SQL, params);
+        }
+    }
+
+    // Each page of users is rebuilt by its own statements, so the rebuild never holds locks on the whole table
+    @Override
+    public int rebuildMonthlyHours(int usersPageSize) {
+        int rebuiltMonths = 0;
+        String afterUser = "";
+        while (true) {
+            List<String> users = namedParameterJdbcTemplate.queryForList(
+                    FETCH_USERS_PAGE_SQL,
+                    Map.of("afterUser", afterUser,
+                            "limit", usersPageSize),
+                    String.class);
+            if (users.isEmpty()) {
+                return rebuiltMonths + namedParameterJdbcTemplate.update(CLEAR_MONTHLY_HOURS_AFTER_SQL, Map.of("afterUser", afterUser));
+            }
+            Map<String, Object> usersRange = Map.of("afterUser", afterUser,
+                    "lastUser", users.get(users.size() - 1));
+            rebuiltMonths += namedParameterJdbcTemplate.update(REBUILD_MONTHLY_HOURS_SQL, usersRange);
+            rebuiltMonths += namedParameterJdbcTemplate.update(CLEAR_STALE_MONTHLY_HOURS_SQL, usersRange);
+            afterUser = users.get(users.size() - 1);
+        }
+    }
+
+    private Map<String, Object> createActivityParamsMap(Activity activity) {
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        return Map.of("user", activity.getUser(),
+                "year", date.getYear(),
+                "month", date.getMonthValue(),
+                "date", date);
+    }
+
+    private Map<String, Object> createRefreshParamsMap(UserMonth userMonth) {
+        return Map.of("user", userMonth.user,
+                "year", userMonth.month.getYear(),
+                "month", userMonth.month.getMonthValue(),
+                "fromDate", userMonth.month.atDay(1),
+                "toDate", userMonth.month.atEndOfMonth());
+    }
+
+    private static class UserMonth {
+        private final String user;
+        private final YearMonth month;
+
+        private UserMonth(String user, YearMonth month) {
+            this.user = user;
+            this.month = month;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            UserMonth userMonth = (UserMonth) o;
+            return user.equals(userMonth.user) &&
+                    month.equals(userMonth.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, month);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHoursRecord;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Open days are working hours with an entry and no exit
+public interface OpenWorkingHoursDao {
+
+    // Returns up to limit open days dated up to cutoffDate, which were not flagged as auto-closed,
+    // with an ID after afterId, sorted by ID
+    List<WorkingHoursRecord> getOpenWorkingHours(LocalDate cutoffDate, long afterId, int limit);
+
+    // Sets the exit of each open day to the exit of its record (or leaves it open when that is empty),
+    // and flags it as auto-closed. A day which is no longer open (e.g. its exit was reported meanwhile) is left as is.
+    // Returns the records which were updated.
+    List<WorkingHoursRecord> autoClose(List<WorkingHoursRecord> closedWorkingHours);
+}
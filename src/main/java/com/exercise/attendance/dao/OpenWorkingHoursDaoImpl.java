@@ -0,0 +1,97 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.metrics.QueryTimer;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pages are read by ID (keyset pagination) from the WORKING_HOURS_OPEN_IX index, so each page is a short range read
+// no matter how many days were already swept. The closing updates of a page are sent as a single JDBC batch, which the
+// driver rewrites into few round trips (rewriteBatchedStatements), and are expected to run in the transaction of the page.
+@Component
+@ConditionalOnProperty(name = "attendance.auto-close.enabled", havingValue = "true")
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class OpenWorkingHoursDaoImpl implements OpenWorkingHoursDao {
+
+    private static final String FETCH_OPEN_WORKING_HOURS_SQL = "SELECT ID,USER,DATE,FROM_TIME FROM WORKING_HOURS " +
+            "WHERE TO_TIME IS NULL " +
+            "AND AUTO_CLOSED = FALSE " +
+            "AND ID > :afterId " +
+            "AND DATE <= :cutoffDate " +
+            "ORDER BY ID " +
+            "LIMIT :limit";
+    // DATE prunes the partitions, and TO_TIME IS NULL keeps an exit reported since the page was read
+    private static final String AUTO_CLOSE_SQL = "UPDATE WORKING_HOURS SET TO_TIME= :toTime, AUTO_CLOSED = TRUE " +
+            "WHERE ID= :id " +
+            "AND DATE= :date " +
+            "AND TO_TIME IS NULL " +
+            "AND AUTO_CLOSED = FALSE";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final QueryTimer queryTimer;
+
+    public OpenWorkingHoursDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate, MeterRegistry meterRegistry) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.queryTimer = new QueryTimer(meterRegistry, "attendance.dao.query");
+    }
+
+    @Override
+    public List<WorkingHoursRecord> getOpenWorkingHours(LocalDate cutoffDate, long afterId, int limit) {
+        return queryTimer.execute("open_working_hours", () -> namedParameterJdbcTemplate.query(
+                FETCH_OPEN_WORKING_HOURS_SQL,
+                Map.of("afterId", afterId,
+                        "cutoffDate", cutoffDate,
+                        "limit", limit),
+                (rs, rowNum) -> new WorkingHoursRecord(rs.getLong("ID"), new WorkingHours(
+                        rs.getString("USER"),
+                        rs.getObject("DATE", LocalDate.class),
+                        rs.getObject("FROM_TIME", LocalTime.class)))
+        ));
+    }
+
+    @Override
+    public List<WorkingHoursRecord> autoClose(List<WorkingHoursRecord> closedWorkingHours) {
+        if (closedWorkingHours.isEmpty()) {
+            return closedWorkingHours;
+        }
+        int[] updatedRows = queryTimer.execute("auto_close", () -> namedParameterJdbcTemplate.batchUpdate(
+                AUTO_CLOSE_SQL,
+                closedWorkingHours.stream()
+                        .map(record -> new MapSqlParameterSource(createAutoCloseParamsMap(record)))
+                        .toArray(SqlParameterSource[]::new)
+        ));
+        List<WorkingHoursRecord> updated = new ArrayList<>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            // The driver rewrites a batch of updates into multiple statements, each with its own count. Without a count
+            // a day closed meanwhile by its exit cannot be told apart, so the batch fails (and is rolled back).
+            if (updatedRows[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("No update count for auto-closed day " + closedWorkingHours.get(i).getId());
+            } else if (updatedRows[i] > 0) {
+                updated.add(closedWorkingHours.get(i));
+            }
+        }
+        return updated;
+    }
+
+    private Map<String, Object> createAutoCloseParamsMap(WorkingHoursRecord record) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", record.getId());
+        map.put("date", record.getWorkingHours().getDate());
+        map.put("toTime", record.getWorkingHours().getToTime());
+        return map;
+    }
+}
@@ -0,0 +1,36 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Thrown when a batch of activities was committed by some of the shards it was split between, and failed on the others.
+// Holds the result of each activity in the order of the batch, which is null for the activities of a failed shard,
+// so only those are recorded again.
+public class PartiallyRecordedActivitiesException extends IllegalStateException {
+
+    private final List<ActivityRecordResult> recordResults;
+
+    public PartiallyRecordedActivitiesException(String message, ActivityRecordResult[] recordResults, Throwable cause) {
+        super(message, cause);
+        this.recordResults = Collections.unmodifiableList(Arrays.asList(recordResults.clone()));
+    }
+
+    public List<ActivityRecordResult> getRecordResults() {
+        return recordResults;
+    }
+
+    public List<Activity> unrecordedActivities(List<Activity> activities) {
+        List<Activity> unrecordedActivities = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            if (recordResults.get(i) == null) {
+                unrecordedActivities.add(activities.get(i));
+            }
+        }
+        return unrecordedActivities;
+    }
+}
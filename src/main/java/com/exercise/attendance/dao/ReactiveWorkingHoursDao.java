@@ -0,0 +1,24 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Non-blocking counterpart of WorkingHoursDao, used by the reactive stack
+public interface ReactiveWorkingHoursDao {
+
+    // Emits the working hours sorted by date, as they are read from the database
+    Flux<WorkingHours> getWorkingHours(WorkingHoursFilter filter);
+
+    // Same aggregation as WorkingHoursDao.getHoursSummary
+    Mono<HoursSummary> getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold);
+
+    // Same conditional statements as WorkingHoursDao.recordActivity
+    Mono<ActivityRecordResult> recordActivity(Activity activity);
+}
@@ -0,0 +1,86 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+
+// Runs the statements of WorkingHoursDaoImpl with R2DBC, so no thread is blocked while waiting for the database
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWorkingHoursDaoImpl implements ReactiveWorkingHoursDao {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveWorkingHoursDaoImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
+        return databaseClient.sql(WorkingHoursDaoImpl.FETCH_WORKING_HOURS_SQL)
+                .bind("user", filter.getUser())
+                .bind("fromDate", filter.getFromDate())
+                .bind("toDate", filter.getToDate())
+                .map(this::mapWorkingHours)
+                .all();
+    }
+
+    @Override
+    public Mono<HoursSummary> getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        return databaseClient.sql(WorkingHoursDaoImpl.FETCH_HOURS_SUMMARY_SQL)
+                .bind("user", filter.getUser())
+                .bind("fromDate", filter.getFromDate())
+                .bind("toDate", filter.getToDate())
+                .bind("overtimeThresholdSeconds", overtimeThreshold.getSeconds())
+                .map(row -> new HoursSummary(
+                        getLong(row, "TOTAL_WORKED_SECONDS"),
+                        getLong(row, "WORKED_DAYS"),
+                        getLong(row, "OPEN_DAYS"),
+                        getLong(row, "OVERTIME_SECONDS")))
+                .one();
+    }
+
+    @Override
+    public Mono<ActivityRecordResult> recordActivity(Activity activity) {
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        return databaseClient.sql(WorkingHoursDaoImpl.recordActivitySql(activity))
+                .bind("user", activity.getUser())
+                .bind("date", date)
+                .bind("time", activity.getReportDateTime().toLocalTime())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updatedRows -> updatedRows > 0 ?
+                        Mono.just(ActivityRecordResult.recorded()) :
+                        getWorkingHours(new WorkingHoursFilter(activity.getUser(), date, date))
+                                .next()
+                                .map(conflictingWorkingHours -> ActivityRecordResult.conflict(Optional.of(conflictingWorkingHours)))
+                                .defaultIfEmpty(ActivityRecordResult.conflict(Optional.empty())));
+    }
+
+    // Same column order as WorkingHoursRowMapper
+    private WorkingHours mapWorkingHours(Readable row) {
+        return new WorkingHours(
+                row.get(0, String.class),
+                row.get(1, LocalDate.class),
+                row.get(2, LocalTime.class),
+                row.get(3, LocalTime.class));
+    }
+
+    // Sums are decimals in MySQL, so the aggregates are read as any number
+    private long getLong(Readable row, String column) {
+        return ((Number) row.get(column)).longValue();
+    }
+}
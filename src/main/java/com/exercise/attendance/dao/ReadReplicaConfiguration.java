@@ -0,0 +1,52 @@
+package com.exercise.attendance.dao;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Each replica gets a connection pool of its own, which is not a bean, so the primary stays the only data source
+// of the application. A replica which is down at startup does not fail the startup, and is skipped until it is up.
+@Configuration
+@ConditionalOnProperty(name = "attendance.replicas.enabled", havingValue = "true")
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class ReadReplicaConfiguration {
+
+    @Bean
+    public ReadReplicas readReplicas(DataSource dataSource,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${attendance.replicas.urls}") List<String> urls,
+                                     @Value("${attendance.replicas.username:${spring.datasource.username:}}") String username,
+                                     @Value("${attendance.replicas.password:${spring.datasource.password:}}") String password,
+                                     @Value("${attendance.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                     @Value("${attendance.replicas.connection-timeout:PT1S}") Duration connectionTimeout,
+                                     @Value("${attendance.replicas.retry-interval:PT10S}") Duration retryInterval,
+                                     @Value("${attendance.replicas.max-lag:PT30S}") Duration maxLag,
+                                     @Value("${attendance.replicas.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                     @Value("${attendance.replicas.lag-check-interval:PT5S}") Duration lagCheckInterval) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            config.setInitializationFailTimeout(-1);
+            config.setReadOnly(true);
+            config.setMetricRegistry(meterRegistry);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReadReplicas(replicas, dataSource, retryInterval, maxLag, lagQuery, lagCheckInterval, meterRegistry);
+    }
+}
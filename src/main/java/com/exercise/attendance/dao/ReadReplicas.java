@@ -0,0 +1,188 @@
+package com.exercise.attendance.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Balances the connections of report reads between the read replicas, round robin.
+// A replica which fails to provide a connection is skipped by the following reads until the retry interval elapsed,
+// and then the next read tries it again. When no replica is available, the connection is taken from the primary.
+// The replication lag of each replica is checked every lag check interval (when positive), and a replica which lags
+// beyond the max lag (or does not replicate) is skipped until a later check finds it caught up.
+// Unavailable replicas are counted by attendance.db.replica.unavailable, tagged by replica (1 based).
+public class ReadReplicas implements Closeable {
+
+    // MySQL reports the lag of a replica in this column of SHOW REPLICA STATUS
+    static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final Logger logger = LoggerFactory.getLogger(ReadReplicas.class);
+
+    private final List<DataSource> replicas;
+    private final DataSource primary;
+    private final long retryIntervalNanos;
+    private final long maxLagSeconds;
+    private final String lagQuery;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // System.nanoTime until which each replica is skipped, 0 when it is available
+    private final AtomicLongArray unavailableUntil;
+    // 1 while the last lag check found the replica lagging (or not replicating)
+    private final AtomicIntegerArray lagging;
+    private final DataSource dataSource = new BalancingDataSource();
+    private final ScheduledExecutorService lagChecker;
+
+    public ReadReplicas(List<DataSource> replicas, DataSource primary, Duration retryInterval,
+                        Duration maxLag, String lagQuery, Duration lagCheckInterval, MeterRegistry meterRegistry) {
+        if (replicas.isEmpty())
+            throw new IllegalArgumentException("At least one read replica is required");
+        this.replicas = List.copyOf(replicas);
+        this.primary = primary;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.maxLagSeconds = maxLag.toSeconds();
+        this.lagQuery = lagQuery;
+        this.meterRegistry = meterRegistry;
+        this.unavailableUntil = new AtomicLongArray(replicas.size());
+        this.lagging = new AtomicIntegerArray(replicas.size());
+        this.lagChecker = lagCheckInterval.isZero() || lagCheckInterval.isNegative() ? null : startLagChecker(lagCheckInterval);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // Runs every lag check interval on the lag checker thread, one replica after the other
+    void checkReplicas() {
+        for (int replica = 0; replica < replicas.size(); replica++) {
+            checkReplica(replica);
+        }
+    }
+
+    private ScheduledExecutorService startLagChecker(Duration lagCheckInterval) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkReplicas, 0, lagCheckInterval.toNanos(), TimeUnit.NANOSECONDS);
+        return scheduler;
+    }
+
+    private void checkReplica(int replica) {
+        OptionalLong lagSeconds;
+        try (Connection connection = replicas.get(replica).getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            lagSeconds = readLagSeconds(rs);
+        } catch (SQLException | RuntimeException ex) {
+            markUnavailable(replica, ex.getMessage(), retryIntervalNanos);
+            return;
+        }
+        if (lagSeconds.isEmpty()) {
+            markLagging(replica, "Replication is not running.");
+        } else if (lagSeconds.getAsLong() > maxLagSeconds) {
+            markLagging(replica, "Replication lags " + lagSeconds.getAsLong() + " seconds behind.");
+        } else if (lagging.getAndSet(replica, 0) == 1) {
+            logger.info("Read replica " + (replica + 1) + " caught up, lagging " + lagSeconds.getAsLong() + " seconds behind.");
+        }
+    }
+
+    private void markLagging(int replica, String reason) {
+        if (lagging.getAndSet(replica, 1) == 0) {
+            meterRegistry.counter("attendance.db.replica.unavailable", "replica", String.valueOf(replica + 1)).increment();
+            logger.warn("Read replica " + (replica + 1) + " is unavailable, skipping it until it catches up. " + reason);
+        }
+    }
+
+    // The lag is read from the LAG_COLUMN, or from the first column of a custom lag query.
+    // Empty when the replica does not replicate (no row, or no lag).
+    private static OptionalLong readLagSeconds(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return OptionalLong.empty();
+        }
+        int lagColumn = 1;
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            if (LAG_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                lagColumn = column;
+            }
+        }
+        long lagSeconds = rs.getLong(lagColumn);
+        return rs.wasNull() ? OptionalLong.empty() : OptionalLong.of(lagSeconds);
+    }
+
+    private Connection getConnection(ConnectionFactory connectionFactory) throws SQLException {
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (first + i) % replicas.size();
+            long until = unavailableUntil.get(replica);
+            if (lagging.get(replica) == 1 || until != 0 && System.nanoTime() - until < 0) {
+                continue;
+            }
+            try {
+                Connection connection = connectionFactory.getConnection(replicas.get(replica));
+                unavailableUntil.set(replica, 0);
+                return connection;
+            } catch (SQLException ex) {
+                markUnavailable(replica, ex.getMessage(), retryIntervalNanos);
+            }
+        }
+        logger.debug("No read replica is available, reading from the primary");
+        return connectionFactory.getConnection(primary);
+    }
+
+    private void markUnavailable(int replica, String reason, long forNanos) {
+        // Zero is reserved for available replicas
+        long until = System.nanoTime() + forNanos;
+        unavailableUntil.set(replica, until == 0 ? 1 : until);
+        meterRegistry.counter("attendance.db.replica.unavailable", "replica", String.valueOf(replica + 1)).increment();
+        logger.warn("Read replica " + (replica + 1) + " is unavailable, skipping it for " + Duration.ofNanos(forNanos) + ". " + reason);
+    }
+
+    private interface ConnectionFactory {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    private class BalancingDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return ReadReplicas.this.getConnection(DataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return ReadReplicas.this.getConnection(replica -> replica.getConnection(username, password));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+// Moves the users whose shard changed (once shards were appended) to their new shard, one user at a time,
+// while the application keeps serving them.
+// The shards are first scanned (in parallel) for such users, which are routed to their old shard until moved.
+// While a user is moved its queries wait, its days are copied to the new shard and its monthly hours are recomputed
+// there in a transaction of the new shard, its working hours and monthly hours are deleted from the old shard in a
+// transaction of the old one, and only then it is routed to the new shard. Returns the number of moved users.
+// A copy never overwrites a day of the new shard. When the delete fails, the user is still routed to the new shard,
+// which holds all its days, and the next rebalance deletes what was left on the old shard instead of moving it again.
+public class ShardRebalancer {
+
+    private static final String FETCH_USERS_SQL = "SELECT DISTINCT USER FROM WORKING_HOURS";
+    private static final String FETCH_USER_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE USER= :user " +
+            "ORDER BY DATE";
+    private static final String FETCH_USER_DATES_SQL = "SELECT DATE FROM WORKING_HOURS WHERE USER= :user";
+    private static final String COPY_WORKING_HOURS_SQL = "INSERT IGNORE INTO WORKING_HOURS (USER, DATE, FROM_TIME, TO_TIME) " +
+            "VALUES (:user, :date, :fromTime, :toTime)";
+    private static final String DELETE_WORKING_HOURS_SQL = "DELETE FROM WORKING_HOURS WHERE USER= :user";
+    private static final String DELETE_MONTHLY_HOURS_SQL = "DELETE FROM MONTHLY_HOURS WHERE USER= :user";
+
+    private final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final WorkingHoursShards shards;
+
+    public ShardRebalancer(WorkingHoursShards shards) {
+        this.shards = shards;
+    }
+
+    public int rebalance() {
+        int misplacedUsers = startMoves();
+        int movedUsers = 0;
+        for (Map.Entry<String, Integer> movingUser : new ArrayList<>(shards.getMovingUsers().entrySet())) {
+            moveUser(movingUser.getKey(), movingUser.getValue(), shards.ringShardOf(movingUser.getKey()));
+            movedUsers++;
+        }
+        logger.info("Rebalanced " + shards.size() + " shards. Misplaced users: " + misplacedUsers + ", moved users: " + movedUsers);
+        return movedUsers;
+    }
+
+    // Routes the users found on a shard other than their ring shard to the shard holding them, until they are moved.
+    // Should run before the application serves punches, as until then the users are routed to their ring shard.
+    // A user whose days are all on its ring shard was already moved, so it is deleted from the other shard instead.
+    public int startMoves() {
+        List<Callable<Integer>> shardScans = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int sourceShard = shard;
+            shardScans.add(() -> startMovesOf(sourceShard));
+        }
+        return shards.inParallel(shardScans).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private int startMovesOf(int sourceShard) {
+        NamedParameterJdbcTemplate source = shards.get(sourceShard).getJdbcTemplate();
+        int misplacedUsers = 0;
+        for (String user : source.queryForList(FETCH_USERS_SQL, Collections.emptyMap(), String.class)) {
+            int ringShard = shards.ringShardOf(user);
+            if (ringShard == sourceShard) {
+                continue;
+            }
+            if (isCopied(user, source, shards.get(ringShard).getJdbcTemplate())) {
+                deleteMovedUser(user, sourceShard);
+            } else {
+                shards.startMove(user, sourceShard);
+                misplacedUsers++;
+            }
+        }
+        return misplacedUsers;
+    }
+
+    private boolean isCopied(String user, NamedParameterJdbcTemplate source, NamedParameterJdbcTemplate target) {
+        Map<String, String> params = Map.of("user", user);
+        Set<LocalDate> targetDates = new HashSet<>(target.queryForList(FETCH_USER_DATES_SQL, params, LocalDate.class));
+        return targetDates.containsAll(source.queryForList(FETCH_USER_DATES_SQL, params, LocalDate.class));
+    }
+
+    private void moveUser(String user, int sourceShard, int targetShard) {
+        NamedParameterJdbcTemplate source = shards.get(sourceShard).getJdbcTemplate();
+        WorkingHoursShards.Shard target = shards.get(targetShard);
+        shards.move(user, () -> {
+            List<WorkingHours> workingHours = source.query(FETCH_USER_WORKING_HOURS_SQL, Map.of("user", user), new WorkingHoursRowMapper());
+
+            target.getTransactionOperations().executeWithoutResult(status -> {
+                target.getJdbcTemplate().batchUpdate(COPY_WORKING_HOURS_SQL, workingHours.stream()
+                        .map(this::createCopyParams)
+                        .toArray(SqlParameterSource[]::new));
+                target.getMonthlyHoursDao().refreshMonthlyHours(workingHours);
+            });
+            logger.debug("Copied " + workingHours.size() + " working hours of " + user + " from shard " + sourceShard + " to shard " + targetShard);
+
+            deleteMovedUser(user, sourceShard);
+        });
+    }
+
+    // The working hours and monthly hours are deleted together, so the old shard never keeps the monthly hours of a user
+    // without its working hours. The copy is committed, so a failed delete does not fail the move.
+    private void deleteMovedUser(String user, int sourceShard) {
+        WorkingHoursShards.Shard source = shards.get(sourceShard);
+        try {
+            source.getTransactionOperations().executeWithoutResult(status -> {
+                source.getJdbcTemplate().update(DELETE_WORKING_HOURS_SQL, Map.of("user", user));
+                source.getJdbcTemplate().update(DELETE_MONTHLY_HOURS_SQL, Map.of("user", user));
+            });
+        } catch (RuntimeException ex) {
+            logger.error("Failed deleting moved user " + user + " from shard " + sourceShard + ". It is deleted by the next rebalance.", ex);
+        }
+    }
+
+    private SqlParameterSource createCopyParams(WorkingHours workingHours) {
+        return new MapSqlParameterSource()
+                .addValue("user", workingHours.getUser())
+                .addValue("date", workingHours.getDate())
+                .addValue("fromTime", workingHours.getFromTime())
+                .addValue("toTime", workingHours.getToTime());
+    }
+}
@@ -0,0 +1,62 @@
+package com.exercise.attendance.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Consistent hashing of users to shards: each shard owns virtualNodes points of a hash ring,
+// and a user belongs to the shard of the first point at or after the hash of the user (wrapping around).
+// The points of a shard depend only on its index, so appending a shard moves only the users of the ring segments
+// taken by its points (about 1/N of the users), and all of them move to the new shard.
+// MD5 is used for its spread and since it is the same on every JVM, not for security.
+public class ShardRing {
+
+    private final int shardCount;
+    private final long[] points;
+    private final int[] pointShards;
+
+    public ShardRing(int shardCount, int virtualNodes) {
+        if (shardCount <= 0 || virtualNodes <= 0)
+            throw new IllegalArgumentException("Shard count and virtual nodes should be positive");
+        this.shardCount = shardCount;
+        TreeMap<Long, Integer> ring = new TreeMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.pointShards = new int[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            pointShards[i] = point.getValue();
+            i++;
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String user) {
+        int index = Arrays.binarySearch(points, hash(user));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return pointShards[index == points.length ? 0 : index];
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is required by every Java platform", ex);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+// The monthly hours of a user are rolled up in the shard of the user, next to its working hours, and like them are not
+// queried while the user is moved.
+// Reads and rebuilds of all the users run on the shards in parallel.
+public class ShardedMonthlyHoursDao implements MonthlyHoursDao {
+
+    private final WorkingHoursShards shards;
+
+    public ShardedMonthlyHoursDao(WorkingHoursShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public List<MonthlyHours> getMonthlyHours(YearMonth month) {
+        List<MonthlyHours> monthlyHours = new ArrayList<>();
+        shards.inParallel(allShards(monthlyHoursDao -> monthlyHoursDao.getMonthlyHours(month))).forEach(monthlyHours::addAll);
+        monthlyHours.sort(Comparator.comparing(MonthlyHours::getUser));
+        return monthlyHours;
+    }
+
+    @Override
+    public void refreshMonthlyHours(Collection<WorkingHours> updatedWorkingHours) {
+        shards.routed(WorkingHoursShards.usersOf(updatedWorkingHours, WorkingHours::getUser), () -> {
+            Map<Integer, List<WorkingHours>> workingHoursByShard = new TreeMap<>();
+            for (WorkingHours workingHours : updatedWorkingHours) {
+                workingHoursByShard.computeIfAbsent(shards.shardOf(workingHours.getUser()), shard -> new ArrayList<>()).add(workingHours);
+            }
+            workingHoursByShard.forEach((shard, shardWorkingHours) -> shards.get(shard).getMonthlyHoursDao().refreshMonthlyHours(shardWorkingHours));
+            return null;
+        });
+    }
+
+    // The activities were already added by ShardedWorkingHoursDao, in the transaction of the shard which recorded them,
+    // since the transaction of the caller (on the primary database) would not cover the shard
+    @Override
+    public void addRecordedActivities(Collection<Activity> recordedActivities) {
+    }
+
+    @Override
+    public int rebuildMonthlyHours(int usersPageSize) {
+        return shards.inParallel(allShards(monthlyHoursDao -> monthlyHoursDao.rebuildMonthlyHours(usersPageSize))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private <T> List<Callable<T>> allShards(Function<MonthlyHoursDao, T> query) {
+        List<Callable<T>> queries = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            MonthlyHoursDao monthlyHoursDao = shards.get(shard).getMonthlyHoursDao();
+            queries.add(() -> query.apply(monthlyHoursDao));
+        }
+        return queries;
+    }
+}
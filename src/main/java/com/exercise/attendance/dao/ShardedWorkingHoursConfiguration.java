@@ -0,0 +1,70 @@
+package com.exercise.attendance.dao;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// With the sharded profile, working hours (and the monthly hours derived from them) are spread between the shard
+// databases by user, in place of WorkingHoursDaoImpl and MonthlyHoursDaoImpl. Teams stay in spring.datasource.
+// Shards are identified by their position in attendance.shards.urls, so new shards should only be appended.
+@Configuration
+@Profile(ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class ShardedWorkingHoursConfiguration {
+
+    public static final String SHARDED_PROFILE = "sharded";
+
+    @Bean
+    public WorkingHoursShards workingHoursShards(MeterRegistry meterRegistry,
+                                                 @Value("${attendance.shards.urls}") List<String> urls,
+                                                 @Value("${attendance.shards.username:${spring.datasource.username:}}") String username,
+                                                 @Value("${attendance.shards.password:${spring.datasource.password:}}") String password,
+                                                 @Value("${attendance.shards.maximum-pool-size:10}") int maximumPoolSize,
+                                                 @Value("${attendance.shards.virtual-nodes:128}") int virtualNodes,
+                                                 @Value("${attendance.report.stream.fetch-size:" + Integer.MIN_VALUE + "}") int streamFetchSize,
+                                                 @Value("${attendance.report.users-chunk-size:500}") int usersChunkSize) {
+        List<WorkingHoursShards.Shard> shards = new ArrayList<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + (shards.size() + 1));
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setMetricRegistry(meterRegistry);
+            HikariDataSource dataSource = new HikariDataSource(config);
+            NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+            shards.add(new WorkingHoursShards.Shard(jdbcTemplate,
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                    new WorkingHoursDaoImpl(jdbcTemplate, meterRegistry, streamFetchSize, usersChunkSize, Optional.empty()),
+                    new MonthlyHoursDaoImpl(jdbcTemplate),
+                    dataSource));
+        }
+        return new WorkingHoursShards(shards, virtualNodes);
+    }
+
+    @Bean
+    public ShardedWorkingHoursDao shardedWorkingHoursDao(WorkingHoursShards workingHoursShards) {
+        return new ShardedWorkingHoursDao(workingHoursShards);
+    }
+
+    @Bean
+    public ShardedMonthlyHoursDao shardedMonthlyHoursDao(WorkingHoursShards workingHoursShards) {
+        return new ShardedMonthlyHoursDao(workingHoursShards);
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(WorkingHoursShards workingHoursShards) {
+        return new ShardRebalancer(workingHoursShards);
+    }
+}
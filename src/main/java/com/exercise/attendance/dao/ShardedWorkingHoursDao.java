@@ -0,0 +1,181 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Routes the working hours of a user (its reads and punches) to the shard of the user, which is the shard still holding
+// the user while a rebalance moves it. Queries of a user are not run while the user is moved.
+// Queries of several users are split by shard, run on the shards in parallel, and merged by user and date.
+// Recorded activities are added to the monthly hours of their shard in the transaction of the shard which records them,
+// as the transaction of the primary database covers neither.
+public class ShardedWorkingHoursDao implements WorkingHoursDao {
+
+    private static final Comparator<WorkingHours> BY_USER_AND_DATE =
+            Comparator.comparing(WorkingHours::getUser).thenComparing(WorkingHours::getDate);
+
+    private final WorkingHoursShards shards;
+
+    public ShardedWorkingHoursDao(WorkingHoursShards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
+        return shards.routed(filter.getUser(), () -> daoOf(filter.getUser()).getWorkingHours(filter));
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter) {
+        return shards.routed(filter.getUser(), () -> daoOf(filter.getUser()).getWorkingHoursForUpdate(filter));
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit) {
+        return shards.routed(filter.getUser(), () -> daoOf(filter.getUser()).getWorkingHours(filter, afterDate, limit));
+    }
+
+    // Each shard returns its users sorted by user and date, so the merge sorts presorted runs
+    @Override
+    public List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter) {
+        return shards.routed(filter.getUsers(), () -> {
+            List<Callable<List<WorkingHours>>> queries = new ArrayList<>();
+            groupByShard(filter.getUsers(), Function.identity()).forEach((shard, users) -> queries.add(() -> shards.get(shard).getWorkingHoursDao()
+                    .getWorkingHours(new UsersWorkingHoursFilter(new HashSet<>(users), filter.getFromDate(), filter.getToDate()))));
+
+            List<WorkingHours> workingHours = new ArrayList<>();
+            shards.inParallel(queries).forEach(workingHours::addAll);
+            workingHours.sort(BY_USER_AND_DATE);
+            return workingHours;
+        });
+    }
+
+    @Override
+    public void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
+        shards.routed(filter.getUser(), () -> {
+            daoOf(filter.getUser()).streamWorkingHours(filter, consumer);
+            return null;
+        });
+    }
+
+    // The shards are read one after the other, so the consumer is never called concurrently
+    @Override
+    public void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            shards.get(shard).getWorkingHoursDao().streamWorkingHours(date, consumer);
+        }
+    }
+
+    @Override
+    public HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        return shards.routed(filter.getUser(), () -> daoOf(filter.getUser()).getHoursSummary(filter, overtimeThreshold));
+    }
+
+    @Override
+    public void upsertWorkingHours(WorkingHours workingHours) {
+        shards.routed(workingHours.getUser(), () -> {
+            daoOf(workingHours.getUser()).upsertWorkingHours(workingHours);
+            return null;
+        });
+    }
+
+    // Each shard gets a batch of its own, and the batches are written in parallel
+    @Override
+    public void upsertWorkingHours(List<WorkingHours> workingHours) {
+        shards.routed(WorkingHoursShards.usersOf(workingHours, WorkingHours::getUser), () -> {
+            List<Callable<Void>> batches = new ArrayList<>();
+            groupByShard(workingHours, WorkingHours::getUser).forEach((shard, shardWorkingHours) -> batches.add(() -> {
+                shards.get(shard).getWorkingHoursDao().upsertWorkingHours(shardWorkingHours);
+                return null;
+            }));
+            return shards.inParallel(batches);
+        });
+    }
+
+    @Override
+    public ActivityRecordResult recordActivity(Activity activity) {
+        return shards.routed(activity.getUser(), () -> {
+            WorkingHoursShards.Shard shard = shards.of(activity.getUser());
+            return shard.getTransactionOperations().execute(status -> {
+                ActivityRecordResult recordResult = shard.getWorkingHoursDao().recordActivity(activity);
+                if (recordResult.isRecorded()) {
+                    shard.getMonthlyHoursDao().addRecordedActivities(List.of(activity));
+                }
+                return recordResult;
+            });
+        });
+    }
+
+    // The activities of each shard are recorded by its DAO in their order, in parallel with the other shards.
+    // Each shard commits its own batch, so when some of the shards fail, the batches of the others stay committed, and
+    // the exception tells which activities were recorded.
+    @Override
+    public List<ActivityRecordResult> recordActivities(List<Activity> activities) {
+        return shards.routed(WorkingHoursShards.usersOf(activities, Activity::getUser), () -> recordActivitiesOnShards(activities));
+    }
+
+    private List<ActivityRecordResult> recordActivitiesOnShards(List<Activity> activities) {
+        ActivityRecordResult[] results = new ActivityRecordResult[activities.size()];
+        List<Integer> indexes = new ArrayList<>(activities.size());
+        for (int i = 0; i < activities.size(); i++) {
+            indexes.add(i);
+        }
+        List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Callable<Void>> batches = new ArrayList<>();
+        groupByShard(indexes, i -> activities.get(i).getUser()).forEach((shard, shardIndexes) -> batches.add(() -> {
+            List<Activity> shardActivities = new ArrayList<>(shardIndexes.size());
+            shardIndexes.forEach(i -> shardActivities.add(activities.get(i)));
+            try {
+                List<ActivityRecordResult> shardResults = recordActivitiesOnShard(shards.get(shard), shardActivities);
+                for (int j = 0; j < shardIndexes.size(); j++) {
+                    results[shardIndexes.get(j)] = shardResults.get(j);
+                }
+            } catch (RuntimeException ex) {
+                failures.add(ex);
+            }
+            return null;
+        }));
+        shards.inParallel(batches);
+
+        if (!failures.isEmpty()) {
+            PartiallyRecordedActivitiesException ex = new PartiallyRecordedActivitiesException(
+                    "Failed recording activities on " + failures.size() + " of " + batches.size() + " shards", results, failures.get(0));
+            failures.subList(1, failures.size()).forEach(ex::addSuppressed);
+            throw ex;
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<ActivityRecordResult> recordActivitiesOnShard(WorkingHoursShards.Shard shard, List<Activity> activities) {
+        return shard.getTransactionOperations().execute(status -> {
+            List<ActivityRecordResult> recordResults = shard.getWorkingHoursDao().recordActivities(activities);
+            List<Activity> recordedActivities = new ArrayList<>();
+            for (int i = 0; i < activities.size(); i++) {
+                if (recordResults.get(i).isRecorded()) {
+                    recordedActivities.add(activities.get(i));
+                }
+            }
+            if (!recordedActivities.isEmpty()) {
+                shard.getMonthlyHoursDao().addRecordedActivities(recordedActivities);
+            }
+            return recordResults;
+        });
+    }
+
+    private WorkingHoursDao daoOf(String user) {
+        return shards.of(user).getWorkingHoursDao();
+    }
+
+    private <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, String> user) {
+        Map<Integer, List<T>> itemsByShard = new TreeMap<>();
+        for (T item : items) {
+            itemsByShard.computeIfAbsent(shards.shardOf(user.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return itemsByShard;
+    }
+}
@@ -0,0 +1,7 @@
+package com.exercise.attendance.dao;
+
+import java.util.List;
+
+public interface TeamDao {
+    List<String> getTeamMembers(String team);
+}
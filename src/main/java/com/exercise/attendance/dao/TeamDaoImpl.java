@@ -0,0 +1,29 @@
+package com.exercise.attendance.dao;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class TeamDaoImpl implements TeamDao {
+
+    private static final String FETCH_TEAM_MEMBERS_SQL = "SELECT USER FROM TEAM_MEMBERS " +
+            "WHERE TEAM= :team " +
+            "ORDER BY USER";
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public TeamDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    @Override
+    public List<String> getTeamMembers(String team) {
+        return namedParameterJdbcTemplate.queryForList(
+                FETCH_TEAM_MEMBERS_SQL,
+                Map.of("team", team),
+                String.class
+        );
+    }
+}
@@ -0,0 +1,27 @@
+package com.exercise.attendance.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "attendance.cache.enabled", havingValue = "true")
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class WorkingHoursCacheConfiguration {
+
+    @Bean
+    @Primary
+    public CachingWorkingHoursDao cachingWorkingHoursDao(WorkingHoursDaoImpl workingHoursDao,
+                                                  MeterRegistry meterRegistry,
+                                                  @Value("${attendance.cache.maximum-days:1000000}") long maximumCachedDays,
+                                                  @Value("${attendance.cache.current-month-ttl:PT1M}") Duration currentMonthTimeToLive,
+                                                  @Value("${attendance.cache.past-month-ttl:PT24H}") Duration pastMonthTimeToLive) {
+        return new CachingWorkingHoursDao(workingHoursDao, meterRegistry, maximumCachedDays, currentMonthTimeToLive, pastMonthTimeToLive);
+    }
+}
@@ -1,12 +1,53 @@
 package com.exercise.attendance.dao;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
 import com.exercise.attendance.model.WorkingHours;
 import com.exercise.attendance.model.WorkingHoursFilter;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
+// The report reads (getWorkingHours, streamWorkingHours and getHoursSummary) may be served by a read replica,
+// which lags behind the writes.
 public interface WorkingHoursDao {
     List<WorkingHours> getWorkingHours(WorkingHoursFilter filter);
 
+    // Same as getWorkingHours, but always reads the latest writes, for working hours which are about to be updated
+    List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter);
+
+    // Returns up to limit working hours of the filter after afterDate, sorted by date (a page of the report)
+    List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit);
+
+    // Returns the working hours of all the users, sorted by user and date
+    List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter);
+
+    // Passes the working hours to the consumer one by one, sorted by date, without holding them in memory
+    void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer);
+
+    // Passes the working hours of all the users on the date to the consumer one by one, in no particular order.
+    // Always reads the latest writes.
+    void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer);
+
+    // Aggregates the working hours in the database, so only the totals are returned.
+    // Overtime is the time worked beyond the threshold on each day.
+    HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold);
+
     void upsertWorkingHours(WorkingHours workingHours);
+
+    void upsertWorkingHours(List<WorkingHours> workingHours);
+
+    // Records the activity with a single conditional statement:
+    // ENTRY is inserted only if the day has no working hours, EXIT is set only if the day has an entry without exit.
+    // When the condition is not met, the conflicting working hours of the day are returned.
+    ActivityRecordResult recordActivity(Activity activity);
+
+    // Records the activities in their order with batches of the same conditional statements,
+    // and returns the result of each activity in the same order.
+    // Expected to run in a transaction, so the batches are committed (or rolled back) together.
+    List<ActivityRecordResult> recordActivities(List<Activity> activities);
 }
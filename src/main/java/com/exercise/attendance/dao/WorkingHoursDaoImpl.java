@@ -1,52 +1,370 @@
 package com.exercise.attendance.dao;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
 import com.exercise.attendance.model.WorkingHours;
 import com.exercise.attendance.model.WorkingHoursFilter;
-import org.springframework.jdbc.core.RowMapper;
+import com.exercise.attendance.metrics.QueryTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Time;
+import java.sql.Statement;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
 public class WorkingHoursDaoImpl implements WorkingHoursDao {
 
-    private static final String FETCH_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+    // The package-private statements are shared with ReactiveWorkingHoursDaoImpl
+    static final String FETCH_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE USER= :user " +
+            "AND DATE >= :fromDate " +
+            "AND DATE <= :toDate " +
+            "ORDER BY DATE";
+    // A seek on the (USER, DATE) key, so a page costs the same wherever it starts in the range
+    private static final String FETCH_WORKING_HOURS_PAGE_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE USER= :user " +
+            "AND DATE > :afterDate " +
+            "AND DATE <= :toDate " +
+            "ORDER BY DATE " +
+            "LIMIT :limit";
+    private static final String FETCH_USERS_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE USER IN (:users) " +
+            "AND DATE >= :fromDate " +
+            "AND DATE <= :toDate " +
+            "ORDER BY USER, DATE";
+    // A row value IN, so the days of a batch of activities are read with a single statement
+    private static final String FETCH_DAYS_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE (USER, DATE) IN (:days)";
+    static final String FETCH_DAY_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE DATE = :date";
+    // Open days (TO_TIME IS NULL) are counted, and ignored by the SUMs since their TIMESTAMPDIFF is null
+    static final String FETCH_HOURS_SUMMARY_SQL = "SELECT " +
+            "COALESCE(SUM(TIMESTAMPDIFF(SECOND, FROM_TIME, TO_TIME)), 0) AS TOTAL_WORKED_SECONDS, " +
+            "COUNT(TO_TIME) AS WORKED_DAYS, " +
+            "COUNT(*) - COUNT(TO_TIME) AS OPEN_DAYS, " +
+            "COALESCE(SUM(GREATEST(TIMESTAMPDIFF(SECOND, FROM_TIME, TO_TIME) - :overtimeThresholdSeconds, 0)), 0) AS OVERTIME_SECONDS " +
+            "FROM WORKING_HOURS " +
             "WHERE USER= :user " +
             "AND DATE >= :fromDate " +
             "AND DATE <= :toDate";
     private static final String UPSERT_WORKING_HOURS_SQL = "INSERT INTO WORKING_HOURS (USER, DATE, FROM_TIME, TO_TIME) " +
             "VALUES (:user, :date, :fromTime, :toTime) " +
             "ON DUPLICATE KEY UPDATE FROM_TIME=:fromTime, TO_TIME=:toTime";
-    private WorkingHoursRowMapper mapper = new WorkingHoursRowMapper();
+    // The unique key on (USER, DATE) makes the entry insert a no-op when the day already has working hours
+    static final String RECORD_ENTRY_SQL = "INSERT IGNORE INTO WORKING_HOURS (USER, DATE, FROM_TIME) " +
+            "VALUES (:user, :date, :time)";
+    // The batched entries select their row, as the driver rewrites a batch of INSERT ... VALUES into a single multi-row
+    // INSERT (rewriteBatchedStatements) whose rows have no update count of their own. A batch of this statement is sent
+    // as a multi-statement instead, which keeps the update count of each entry.
+    private static final String BATCH_RECORD_ENTRY_SQL = "INSERT IGNORE INTO WORKING_HOURS (USER, DATE, FROM_TIME) " +
+            "SELECT :user, :date, :time FROM DUAL";
+    static final String RECORD_EXIT_SQL = "UPDATE WORKING_HOURS SET TO_TIME=:time " +
+            "WHERE USER= :user " +
+            "AND DATE = :date " +
+            "AND TO_TIME IS NULL";
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private NamedParameterJdbcTemplate reportJdbcTemplate;
+    private NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private NamedParameterJdbcTemplate primaryStreamingJdbcTemplate;
+    private int usersChunkSize;
+    private QueryTimer queryTimer;
 
-    public WorkingHoursDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    // The default stream fetch size (Integer.MIN_VALUE) makes MySQL stream the result set row by row,
+    // instead of reading it into memory as a whole.
+    // Multiple users are fetched with an IN clause of up to usersChunkSize users per query.
+    // Statements are timed by attendance.dao.query, tagged by query name, stage and outcome.
+    // When read replicas are enabled, the report reads are balanced between them, while the writes and the reads
+    // for update (including the conflicting working hours of a punch) stay on the primary.
+    public WorkingHoursDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${attendance.report.stream.fetch-size:" + Integer.MIN_VALUE + "}") int streamFetchSize,
+                               @Value("${attendance.report.users-chunk-size:500}") int usersChunkSize,
+                               Optional<ReadReplicas> readReplicas) {
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.reportJdbcTemplate = readReplicas
+                .map(replicas -> new NamedParameterJdbcTemplate(replicas.getDataSource()))
+                .orElse(namedParameterJdbcTemplate);
+        this.streamingJdbcTemplate = createStreamingJdbcTemplate(reportJdbcTemplate, streamFetchSize);
+        this.primaryStreamingJdbcTemplate = createStreamingJdbcTemplate(namedParameterJdbcTemplate, streamFetchSize);
+        this.usersChunkSize = usersChunkSize;
+        this.queryTimer = new QueryTimer(meterRegistry, "attendance.dao.query");
+    }
+
+    private NamedParameterJdbcTemplate createStreamingJdbcTemplate(NamedParameterJdbcTemplate namedParameterJdbcTemplate, int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        jdbcTemplate.setFetchSize(fetchSize);
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     @Override
     public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter) {
-        return namedParameterJdbcTemplate.query(
-                FETCH_WORKING_HOURS_SQL,
-                Map.of("user", filter.getUser(),
-                        "fromDate", filter.getFromDate(),
-                        "toDate", filter.getToDate()),
-                mapper
+        return fetchWorkingHours("working_hours", reportJdbcTemplate, filter);
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHoursForUpdate(WorkingHoursFilter filter) {
+        return fetchWorkingHours("working_hours_for_update", namedParameterJdbcTemplate, filter);
+    }
+
+    private List<WorkingHours> fetchWorkingHours(String queryName, NamedParameterJdbcTemplate jdbcTemplate, WorkingHoursFilter filter) {
+        return queryTimer.query(queryName,
+                extractor -> jdbcTemplate.query(
+                        FETCH_WORKING_HOURS_SQL,
+                        createFetchParamsMap(filter),
+                        extractor),
+                new RowMapperResultSetExtractor<>(new WorkingHoursRowMapper())
         );
     }
 
+    @Override
+    public List<WorkingHours> getWorkingHours(WorkingHoursFilter filter, LocalDate afterDate, int limit) {
+        return queryTimer.query("working_hours_page",
+                extractor -> reportJdbcTemplate.query(
+                        FETCH_WORKING_HOURS_PAGE_SQL,
+                        Map.of("user", filter.getUser(),
+                                "afterDate", afterDate,
+                                "toDate", filter.getToDate(),
+                                "limit", limit),
+                        extractor),
+                new RowMapperResultSetExtractor<>(new WorkingHoursRowMapper())
+        );
+    }
+
+    @Override
+    public List<WorkingHours> getWorkingHours(UsersWorkingHoursFilter filter) {
+        List<String> sortedUsers = new ArrayList<>(new TreeSet<>(filter.getUsers()));
+        List<WorkingHours> workingHours = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < sortedUsers.size(); chunkStart += usersChunkSize) {
+            List<String> usersChunk = sortedUsers.subList(chunkStart, Math.min(chunkStart + usersChunkSize, sortedUsers.size()));
+            workingHours.addAll(queryTimer.query("users_working_hours",
+                    extractor -> reportJdbcTemplate.query(
+                            FETCH_USERS_WORKING_HOURS_SQL,
+                            Map.of("users", usersChunk,
+                                    "fromDate", filter.getFromDate(),
+                                    "toDate", filter.getToDate()),
+                            extractor),
+                    new RowMapperResultSetExtractor<>(new WorkingHoursRowMapper())
+            ));
+        }
+        return workingHours;
+    }
+
+    @Override
+    // The mapping stage of a stream includes the consumer
+    public void streamWorkingHours(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
+        WorkingHoursRowMapper mapper = new WorkingHoursRowMapper();
+        queryTimer.<Void>query("stream_working_hours",
+                extractor -> streamingJdbcTemplate.query(
+                        FETCH_WORKING_HOURS_SQL,
+                        createFetchParamsMap(filter),
+                        extractor),
+                resultSet -> {
+                    while (resultSet.next()) {
+                        consumer.accept(mapper.mapRow(resultSet, resultSet.getRow()));
+                    }
+                    return null;
+                }
+        );
+    }
+
+    // Read from the WORKING_HOURS_DATE_IX index alone, which covers the query
+    @Override
+    public void streamWorkingHours(LocalDate date, Consumer<WorkingHours> consumer) {
+        WorkingHoursRowMapper mapper = new WorkingHoursRowMapper();
+        queryTimer.<Void>query("stream_day_working_hours",
+                extractor -> primaryStreamingJdbcTemplate.query(
+                        FETCH_DAY_WORKING_HOURS_SQL,
+                        Map.of("date", date),
+                        extractor),
+                resultSet -> {
+                    while (resultSet.next()) {
+                        consumer.accept(mapper.mapRow(resultSet, resultSet.getRow()));
+                    }
+                    return null;
+                }
+        );
+    }
+
+    @Override
+    public HoursSummary getHoursSummary(WorkingHoursFilter filter, Duration overtimeThreshold) {
+        Map<String, Object> params = new HashMap<>(createFetchParamsMap(filter));
+        params.put("overtimeThresholdSeconds", overtimeThreshold.getSeconds());
+        return queryTimer.execute("hours_summary", () -> reportJdbcTemplate.queryForObject(
+                FETCH_HOURS_SUMMARY_SQL,
+                params,
+                (rs, rowNum) -> new HoursSummary(
+                        rs.getLong("TOTAL_WORKED_SECONDS"),
+                        rs.getLong("WORKED_DAYS"),
+                        rs.getLong("OPEN_DAYS"),
+                        rs.getLong("OVERTIME_SECONDS"))
+        ));
+    }
+
     @Override
     public void upsertWorkingHours(WorkingHours workingHours) {
-        namedParameterJdbcTemplate.update(
+        queryTimer.execute("upsert", () -> namedParameterJdbcTemplate.update(
                 UPSERT_WORKING_HOURS_SQL,
                 createUpsertParamsMap(workingHours)
-        );
+        ));
+    }
+
+    @Override
+    public void upsertWorkingHours(List<WorkingHours> workingHours) {
+        queryTimer.execute("batch_upsert", () -> namedParameterJdbcTemplate.batchUpdate(
+                UPSERT_WORKING_HOURS_SQL,
+                workingHours.stream()
+                        .map(hours -> new MapSqlParameterSource(createUpsertParamsMap(hours)))
+                        .toArray(SqlParameterSource[]::new)
+        ));
+    }
+
+    @Override
+    public ActivityRecordResult recordActivity(Activity activity) {
+        int updatedRows = queryTimer.execute("record_" + activity.getActivityType().name().toLowerCase(), () -> namedParameterJdbcTemplate.update(
+                recordActivitySql(activity),
+                createRecordParamsMap(activity)
+        ));
+        if (updatedRows > 0) {
+            return ActivityRecordResult.recorded();
+        }
+        // Conflicts are rare, so the extra query is paid only when the activity is rejected
+        return ActivityRecordResult.conflict(getDayWorkingHours(activity).stream().findFirst());
+    }
+
+    // The activities are split into rounds, each with at most one activity of a user's day (the activities of a day go to
+    // consecutive rounds, in their order), so the entries and the exits of a round are two independent batches.
+    // An update count of 0 is a conflict, as in recordActivity, and the conflicting days of a round are read with one query.
+    @Override
+    public List<ActivityRecordResult> recordActivities(List<Activity> activities) {
+        ActivityRecordResult[] results = new ActivityRecordResult[activities.size()];
+        for (List<Integer> round : splitIntoRounds(activities)) {
+            recordRound(activities, round, results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<List<Integer>> splitIntoRounds(List<Activity> activities) {
+        List<List<Integer>> rounds = new ArrayList<>();
+        Map<List<Object>, Integer> dayActivities = new HashMap<>();
+        for (int i = 0; i < activities.size(); i++) {
+            int round = dayActivities.merge(dayKey(activities.get(i)), 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(i);
+        }
+        return rounds;
+    }
+
+    // A batch without update counts leaves the recorded activities unknown, so it fails (and its transaction is rolled
+    // back) rather than guessing them
+    private void recordRound(List<Activity> activities, List<Integer> round, ActivityRecordResult[] results) {
+        List<Integer> rejected = new ArrayList<>();
+        for (ActivityType activityType : ActivityType.values()) {
+            List<Integer> batch = round.stream()
+                    .filter(i -> activities.get(i).getActivityType() == activityType)
+                    .collect(Collectors.toList());
+            if (batch.isEmpty()) {
+                continue;
+            }
+            int[] updatedRows = queryTimer.execute("batch_record_" + activityType.name().toLowerCase(), () -> namedParameterJdbcTemplate.batchUpdate(
+                    batchRecordActivitySql(activityType),
+                    batch.stream()
+                            .map(i -> new MapSqlParameterSource(createRecordParamsMap(activities.get(i))))
+                            .toArray(SqlParameterSource[]::new)
+            ));
+            for (int j = 0; j < batch.size(); j++) {
+                if (updatedRows[j] == Statement.SUCCESS_NO_INFO) {
+                    throw new IllegalStateException("No update count for batched " + activityType + " of user " + activities.get(batch.get(j)).getUser());
+                } else if (updatedRows[j] > 0) {
+                    results[batch.get(j)] = ActivityRecordResult.recorded();
+                } else {
+                    rejected.add(batch.get(j));
+                }
+            }
+        }
+        if (rejected.isEmpty()) {
+            return;
+        }
+        List<Activity> rejectedActivities = rejected.stream().map(activities::get).collect(Collectors.toList());
+        Map<List<Object>, WorkingHours> days = getDaysWorkingHours(rejectedActivities);
+        for (int i : rejected) {
+            results[i] = ActivityRecordResult.conflict(Optional.ofNullable(days.get(dayKey(activities.get(i)))));
+        }
+    }
+
+    private Map<List<Object>, WorkingHours> getDaysWorkingHours(List<Activity> activities) {
+        List<Object[]> days = activities.stream()
+                .map(activity -> new Object[]{activity.getUser(), activity.getReportDateTime().toLocalDate()})
+                .collect(Collectors.toList());
+        Map<List<Object>, WorkingHours> workingHours = new HashMap<>();
+        for (int chunkStart = 0; chunkStart < days.size(); chunkStart += usersChunkSize) {
+            List<Object[]> daysChunk = days.subList(chunkStart, Math.min(chunkStart + usersChunkSize, days.size()));
+            queryTimer.query("days_working_hours",
+                    extractor -> namedParameterJdbcTemplate.query(
+                            FETCH_DAYS_WORKING_HOURS_SQL,
+                            Map.of("days", daysChunk),
+                            extractor),
+                    new RowMapperResultSetExtractor<>(new WorkingHoursRowMapper())
+            ).forEach(day -> workingHours.put(List.of(day.getUser(), day.getDate()), day));
+        }
+        return workingHours;
+    }
+
+    private static List<Object> dayKey(Activity activity) {
+        return List.of(activity.getUser(), activity.getReportDateTime().toLocalDate());
+    }
+
+    static String recordActivitySql(Activity activity) {
+        switch (activity.getActivityType()) {
+            case ENTRY:
+            default:
+                return RECORD_ENTRY_SQL;
+            case EXIT:
+                return RECORD_EXIT_SQL;
+        }
+    }
+
+    private static String batchRecordActivitySql(ActivityType activityType) {
+        switch (activityType) {
+            case ENTRY:
+            default:
+                return BATCH_RECORD_ENTRY_SQL;
+            case EXIT:
+                return RECORD_EXIT_SQL;
+        }
+    }
+
+    private List<WorkingHours> getDayWorkingHours(Activity activity) {
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        return getWorkingHoursForUpdate(new WorkingHoursFilter(activity.getUser(), date, date));
+    }
+
+    private Map<String, Object> createFetchParamsMap(WorkingHoursFilter filter) {
+        return Map.of("user", filter.getUser(),
+                "fromDate", filter.getFromDate(),
+                "toDate", filter.getToDate());
+    }
+
+    private Map<String, Object> createRecordParamsMap(Activity activity) {
+        return Map.of("user", activity.getUser(),
+                "date", activity.getReportDateTime().toLocalDate(),
+                "time", activity.getReportDateTime().toLocalTime());
     }
 
     private Map<String, Object> createUpsertParamsMap(WorkingHours workingHours) {
@@ -58,17 +376,4 @@ public class WorkingHoursDaoImpl implements WorkingHoursDao {
         return map;
     }
 
-    private class WorkingHoursRowMapper implements RowMapper<WorkingHours> {
-
-        @Override
-        public WorkingHours mapRow(ResultSet rs, int rowNum) throws SQLException {
-            String user = rs.getString("USER");
-            LocalDate date = rs.getDate("DATE", Calendar.getInstance(TimeZone.getDefault())).toLocalDate();
-            LocalTime fromTime = rs.getTime("FROM_TIME", Calendar.getInstance(TimeZone.getDefault())).toLocalTime();
-            Time toTimeInRs = rs.getTime("TO_TIME", Calendar.getInstance(TimeZone.getDefault()));
-            LocalTime toTime = toTimeInRs != null ? toTimeInRs.toLocalTime() : null;
-            return new WorkingHours(user, date, fromTime, toTime);
-        }
-    }
-
 }
@@ -0,0 +1,19 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// The users of an export are split into ranges by their order in the database, so the ranges can be read in parallel
+public interface WorkingHoursExportDao {
+
+    // Returns the first user of every usersPerChunk users with working hours matching the filter, sorted.
+    // Each user starts a range which ends before the next one, while the last range has no end.
+    List<String> getChunkFirstUsers(WorkingHoursExportFilter filter, int usersPerChunk);
+
+    // Passes the working hours matching the filter of the users from fromUser (inclusive) to toUser (exclusive,
+    // empty for no end) to the consumer one by one, sorted by user and date, without holding them in memory
+    void exportWorkingHours(WorkingHoursExportFilter filter, String fromUser, String toUser, Consumer<WorkingHours> consumer);
+}
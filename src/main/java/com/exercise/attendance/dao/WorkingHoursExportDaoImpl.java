@@ -0,0 +1,125 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.metrics.QueryTimer;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Both queries go through the (USER, DATE, FROM_TIME, TO_TIME) index, and are streamed row by row like the report
+// stream of WorkingHoursDaoImpl, so neither the users nor the working hours are held in memory.
+// The exports are report reads, so they are balanced between the read replicas when those are enabled.
+@Component
+@ConditionalOnProperty(name = "attendance.export.enabled", havingValue = "true")
+@Profile("!" + EmbeddedWorkingHoursConfiguration.EMBEDDED_PROFILE + " & !" + ShardedWorkingHoursConfiguration.SHARDED_PROFILE)
+public class WorkingHoursExportDaoImpl implements WorkingHoursExportDao {
+
+    private static final String FETCH_USERS_SQL = "SELECT DISTINCT USER FROM WORKING_HOURS " +
+            "WHERE DATE >= :fromDate " +
+            "AND DATE <= :toDate" +
+            "%s " +
+            "ORDER BY USER";
+    private static final String EXPORT_WORKING_HOURS_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS " +
+            "WHERE DATE >= :fromDate " +
+            "AND DATE <= :toDate" +
+            "%s " +
+            "ORDER BY USER, DATE";
+    private static final String USER_PREFIX_CONDITION = " AND USER LIKE :userPattern";
+    private static final String TEAM_CONDITION = " AND USER IN (SELECT USER FROM TEAM_MEMBERS WHERE TEAM= :team)";
+    private static final String FROM_USER_CONDITION = " AND USER >= :fromUser";
+    private static final String TO_USER_CONDITION = " AND USER < :toUser";
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final QueryTimer queryTimer;
+
+    public WorkingHoursExportDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${attendance.export.fetch-size:${attendance.report.stream.fetch-size:" + Integer.MIN_VALUE + "}}") int fetchSize,
+                                     Optional<ReadReplicas> readReplicas) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(readReplicas
+                .map(ReadReplicas::getDataSource)
+                .orElse(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource()));
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.queryTimer = new QueryTimer(meterRegistry, "attendance.dao.query");
+    }
+
+    @Override
+    public List<String> getChunkFirstUsers(WorkingHoursExportFilter filter, int usersPerChunk) {
+        Map<String, Object> params = createParamsMap(filter);
+        String sql = String.format(FETCH_USERS_SQL, createConditions(filter, params));
+        return queryTimer.query("export_users",
+                extractor -> streamingJdbcTemplate.query(sql, params, extractor),
+                resultSet -> {
+                    List<String> firstUsers = new ArrayList<>();
+                    for (int users = 0; resultSet.next(); users++) {
+                        if (users % usersPerChunk == 0) {
+                            firstUsers.add(resultSet.getString(1));
+                        }
+                    }
+                    return firstUsers;
+                });
+    }
+
+    @Override
+    // The mapping stage of an export includes the consumer
+    public void exportWorkingHours(WorkingHoursExportFilter filter, String fromUser, String toUser, Consumer<WorkingHours> consumer) {
+        Map<String, Object> params = createParamsMap(filter);
+        StringBuilder conditions = new StringBuilder(createConditions(filter, params));
+        if (fromUser != null) {
+            conditions.append(FROM_USER_CONDITION);
+            params.put("fromUser", fromUser);
+        }
+        if (toUser != null) {
+            conditions.append(TO_USER_CONDITION);
+            params.put("toUser", toUser);
+        }
+        String sql = String.format(EXPORT_WORKING_HOURS_SQL, conditions);
+        WorkingHoursRowMapper mapper = new WorkingHoursRowMapper();
+        queryTimer.<Void>query("export_working_hours",
+                extractor -> streamingJdbcTemplate.query(sql, params, extractor),
+                resultSet -> {
+                    while (resultSet.next()) {
+                        consumer.accept(mapper.mapRow(resultSet, resultSet.getRow()));
+                    }
+                    return null;
+                });
+    }
+
+    private Map<String, Object> createParamsMap(WorkingHoursExportFilter filter) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("fromDate", filter.getFromDate());
+        params.put("toDate", filter.getToDate());
+        return params;
+    }
+
+    private String createConditions(WorkingHoursExportFilter filter, Map<String, Object> params) {
+        StringBuilder conditions = new StringBuilder();
+        if (filter.getUserPrefix() != null) {
+            conditions.append(USER_PREFIX_CONDITION);
+            params.put("userPattern", escapeLikePattern(filter.getUserPrefix()) + "%");
+        }
+        if (filter.getTeam() != null) {
+            conditions.append(TEAM_CONDITION);
+            params.put("team", filter.getTeam());
+        }
+        return conditions.toString();
+    }
+
+    // Backslash is the default escape character of LIKE
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
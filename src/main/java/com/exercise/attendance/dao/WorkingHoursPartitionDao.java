@@ -0,0 +1,28 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// The monthly range partitions of WORKING_HOURS on DATE, named pYYYYMM,
+// followed by the p_future partition which holds the rows after the last month
+public interface WorkingHoursPartitionDao {
+
+    // Whether the table has the p_future partition, which it has once db/online/partition_working_hours_by_month.sql
+    // was applied
+    boolean isPartitioned();
+
+    List<YearMonth> getPartitionMonths();
+
+    Optional<YearMonth> getFirstFutureMonth();
+
+    // Splits the given months, which follow the last month, off p_future
+    void addPartitions(List<YearMonth> months);
+
+    void exportPartition(YearMonth month, Consumer<WorkingHours> consumer);
+
+    void dropPartition(YearMonth month);
+}
@@ -0,0 +1,101 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Partition names are built from months rather than from requests, so they are safe to concatenate into the DDL.
+// A partition is dropped as a whole, which takes a metadata change rather than a delete of each of its rows.
+@Component
+@ConditionalOnProperty(name = "attendance.partitions.enabled", havingValue = "true")
+public class WorkingHoursPartitionDaoImpl implements WorkingHoursPartitionDao {
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String FETCH_PARTITIONS_SQL = "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() " +
+            "AND TABLE_NAME = 'WORKING_HOURS' " +
+            "AND PARTITION_NAME <> '" + FUTURE_PARTITION + "' " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String COUNT_FUTURE_PARTITIONS_SQL = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() " +
+            "AND TABLE_NAME = 'WORKING_HOURS' " +
+            "AND PARTITION_NAME = '" + FUTURE_PARTITION + "'";
+    private static final String FETCH_FIRST_FUTURE_DATE_SQL = "SELECT MIN(DATE) FROM WORKING_HOURS PARTITION (" + FUTURE_PARTITION + ")";
+    private static final String ADD_PARTITIONS_SQL = "ALTER TABLE WORKING_HOURS REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (%s, " +
+            "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))";
+    private static final String PARTITION_SQL = "PARTITION %s VALUES LESS THAN ('%s')";
+    private static final String EXPORT_PARTITION_SQL = "SELECT USER,DATE,FROM_TIME,TO_TIME FROM WORKING_HOURS PARTITION (%s)";
+    private static final String DROP_PARTITION_SQL = "ALTER TABLE WORKING_HOURS DROP PARTITION %s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    // The export is streamed row by row, like the report stream of WorkingHoursDaoImpl
+    public WorkingHoursPartitionDaoImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                        @Value("${attendance.report.stream.fetch-size:" + Integer.MIN_VALUE + "}") int streamFetchSize) {
+        this.jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(streamFetchSize);
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(COUNT_FUTURE_PARTITIONS_SQL, Integer.class);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public List<YearMonth> getPartitionMonths() {
+        return jdbcTemplate.queryForList(FETCH_PARTITIONS_SQL, String.class).stream()
+                .map(WorkingHoursPartitionDaoImpl::monthOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<YearMonth> getFirstFutureMonth() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(FETCH_FIRST_FUTURE_DATE_SQL, LocalDate.class))
+                .map(YearMonth::from);
+    }
+
+    @Override
+    public void addPartitions(List<YearMonth> months) {
+        String partitions = months.stream()
+                .map(month -> String.format(PARTITION_SQL, partitionOf(month), month.plusMonths(1).atDay(1)))
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute(String.format(ADD_PARTITIONS_SQL, partitions));
+    }
+
+    @Override
+    public void exportPartition(YearMonth month, Consumer<WorkingHours> consumer) {
+        WorkingHoursRowMapper mapper = new WorkingHoursRowMapper();
+        streamingJdbcTemplate.query(String.format(EXPORT_PARTITION_SQL, partitionOf(month)),
+                resultSet -> {
+                    consumer.accept(mapper.mapRow(resultSet, resultSet.getRow()));
+                });
+    }
+
+    @Override
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute(String.format(DROP_PARTITION_SQL, partitionOf(month)));
+    }
+
+    private static String partitionOf(YearMonth month) {
+        return PARTITION_NAME_FORMAT.format(month);
+    }
+
+    private static YearMonth monthOf(String partition) {
+        return YearMonth.parse(partition, PARTITION_NAME_FORMAT);
+    }
+}
@@ -0,0 +1,39 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Maps rows selected as USER,DATE,FROM_TIME,TO_TIME, by column index.
+// DATE and TIME columns are decoded straight to LocalDate/LocalTime, without java.sql.Date/Time and Calendar conversions.
+// Consecutive rows of the same user share the user string, so a large report holds a single copy of it.
+// The mapper keeps the last mapped user, so a new mapper is used per query.
+class WorkingHoursRowMapper implements RowMapper<WorkingHours> {
+
+    private static final int USER_COLUMN = 1;
+    private static final int DATE_COLUMN = 2;
+    private static final int FROM_TIME_COLUMN = 3;
+    private static final int TO_TIME_COLUMN = 4;
+
+    private String lastUser;
+
+    @Override
+    public WorkingHours mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new WorkingHours(
+                reuseLastUser(rs.getString(USER_COLUMN)),
+                rs.getObject(DATE_COLUMN, LocalDate.class),
+                rs.getObject(FROM_TIME_COLUMN, LocalTime.class),
+                rs.getObject(TO_TIME_COLUMN, LocalTime.class));
+    }
+
+    private String reuseLastUser(String user) {
+        if (!user.equals(lastUser)) {
+            lastUser = user;
+        }
+        return lastUser;
+    }
+}
@@ -0,0 +1,230 @@
+package com.exercise.attendance.dao;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// The databases of the sharded profile, each holding the working hours (and monthly hours) of the users hashed to it.
+// Queries of several shards run in parallel, each on a virtual thread, since they only wait for their database.
+// A user being moved by a rebalance is routed to the shard which holds it until its copy on its ring shard is committed.
+// Queries of a user hold a striped read lock of the user (until their transaction completes), and a move holds its
+// write lock, so a punch is never split between the shards of a move.
+// Each shard has transactions of its own, as the transactions of the primary database do not cover the shards.
+public class WorkingHoursShards implements Closeable {
+
+    private static final int MOVE_LOCK_STRIPES = 64;
+
+    private final List<Shard> shards;
+    private final ShardRing ring;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Integer> movingUsers = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] moveLocks = new ReadWriteLock[MOVE_LOCK_STRIPES];
+    private final Lock moveLock = new ReentrantLock();
+
+    public WorkingHoursShards(List<Shard> shards, int virtualNodes) {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        this.shards = List.copyOf(shards);
+        this.ring = new ShardRing(shards.size(), virtualNodes);
+        for (int i = 0; i < MOVE_LOCK_STRIPES; i++) {
+            moveLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public static class Shard {
+        private final NamedParameterJdbcTemplate jdbcTemplate;
+        private final TransactionOperations transactionOperations;
+        private final WorkingHoursDao workingHoursDao;
+        private final MonthlyHoursDao monthlyHoursDao;
+        private final Closeable dataSource;
+
+        public Shard(NamedParameterJdbcTemplate jdbcTemplate, TransactionOperations transactionOperations,
+                     WorkingHoursDao workingHoursDao, MonthlyHoursDao monthlyHoursDao, Closeable dataSource) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionOperations = transactionOperations;
+            this.workingHoursDao = workingHoursDao;
+            this.monthlyHoursDao = monthlyHoursDao;
+            this.dataSource = dataSource;
+        }
+
+        public NamedParameterJdbcTemplate getJdbcTemplate() {
+            return jdbcTemplate;
+        }
+
+        public TransactionOperations getTransactionOperations() {
+            return transactionOperations;
+        }
+
+        public WorkingHoursDao getWorkingHoursDao() {
+            return workingHoursDao;
+        }
+
+        public MonthlyHoursDao getMonthlyHoursDao() {
+            return monthlyHoursDao;
+        }
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public Shard get(int shard) {
+        return shards.get(shard);
+    }
+
+    public int shardOf(String user) {
+        Integer movingFromShard = movingUsers.get(user);
+        return movingFromShard != null ? movingFromShard : ring.shardOf(user);
+    }
+
+    public Shard of(String user) {
+        return shards.get(shardOf(user));
+    }
+
+    // The shard of the user by the hash ring, which the user is moved to by a rebalance
+    public int ringShardOf(String user) {
+        return ring.shardOf(user);
+    }
+
+    // Keeps routing the user to the shard holding it, until it is moved
+    public void startMove(String user, int sourceShard) {
+        movingUsers.putIfAbsent(user, sourceShard);
+    }
+
+    public Map<String, Integer> getMovingUsers() {
+        return Collections.unmodifiableMap(movingUsers);
+    }
+
+    // Runs the move of the user once its queries (and their transactions) completed, holding off new ones, and
+    // routes the user to its ring shard once the move succeeded. A failed move leaves the user on its old shard.
+    // Users are moved one at a time, so queries of several users never wait for two moves.
+    public void move(String user, Runnable move) {
+        moveLock.lock();
+        Lock lock = moveLockOf(user).writeLock();
+        lock.lock();
+        try {
+            move.run();
+            movingUsers.remove(user);
+        } finally {
+            lock.unlock();
+            moveLock.unlock();
+        }
+    }
+
+    // Runs a query of the users on the shards they are routed to, while none of them is moved.
+    // Within a transaction the users are not moved until it completes, as it may still write them.
+    public <T> T routed(Collection<String> users, Supplier<T> query) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        Set<Integer> lockedStripes = inTransaction ? transactionStripes() : new HashSet<>();
+        List<Lock> locks = new ArrayList<>();
+        users.stream().mapToInt(this::moveStripeOf).distinct().sorted().filter(lockedStripes::add).forEach(stripe -> {
+            Lock lock = moveLocks[stripe].readLock();
+            lock.lock();
+            locks.add(lock);
+        });
+        if (inTransaction) {
+            return query.get();
+        }
+        try {
+            return query.get();
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    public <T> T routed(String user, Supplier<T> query) {
+        return routed(List.of(user), query);
+    }
+
+    static <T> Set<String> usersOf(Collection<T> items, Function<T, String> user) {
+        Set<String> users = new HashSet<>();
+        items.forEach(item -> users.add(user.apply(item)));
+        return users;
+    }
+
+    // The stripes locked by the current transaction, unlocked once it completes
+    @SuppressWarnings("unchecked")
+    private Set<Integer> transactionStripes() {
+        Set<Integer> stripes = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+        if (stripes != null) {
+            return stripes;
+        }
+        Set<Integer> newStripes = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(this, newStripes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(WorkingHoursShards.this);
+                newStripes.forEach(stripe -> moveLocks[stripe].readLock().unlock());
+            }
+        });
+        return newStripes;
+    }
+
+    private ReadWriteLock moveLockOf(String user) {
+        return moveLocks[moveStripeOf(user)];
+    }
+
+    private int moveStripeOf(String user) {
+        return Math.floorMod(user.hashCode(), MOVE_LOCK_STRIPES);
+    }
+
+    // Returns the results in the order of the tasks. A failure of any task fails the whole query.
+    public <T> List<T> inParallel(List<Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            try {
+                return List.of(tasks.get(0).call());
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        for (Shard shard : shards) {
+            shard.dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.exercise.attendance.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Times database statements, tagged by query name.
+// A query is timed in two separate stages: execute (until its result set is available) and mapping (reading its rows),
+// so slow statements can be told apart from slow row handling.
+public class QueryTimer {
+
+    private final StageTimer stageTimer;
+
+    public QueryTimer(MeterRegistry meterRegistry, String name) {
+        this.stageTimer = new StageTimer(meterRegistry, name);
+    }
+
+    // The execution is given an extractor, which times the extractor passed here
+    public <T> T query(String query, Function<ResultSetExtractor<T>, T> execution, ResultSetExtractor<T> extractor) {
+        Tags tags = Tags.of("query", query);
+        long start = System.nanoTime();
+        QueryState state = new QueryState();
+        try {
+            return execution.apply(resultSet -> {
+                long mappingStart = System.nanoTime();
+                state.executed = true;
+                stageTimer.record("execute", tags, StageTimer.SUCCESS, mappingStart - start);
+                String outcome = StageTimer.ERROR;
+                try {
+                    T result = extractor.extractData(resultSet);
+                    outcome = StageTimer.SUCCESS;
+                    return result;
+                } finally {
+                    stageTimer.record("mapping", tags, outcome, System.nanoTime() - mappingStart);
+                }
+            });
+        } catch (RuntimeException ex) {
+            if (!state.executed) {
+                stageTimer.record("execute", tags, StageTimer.ERROR, System.nanoTime() - start);
+            }
+            throw ex;
+        }
+    }
+
+    // Statements timed as a whole, in a single execute stage (e.g. updates, or aggregations returning a single row)
+    public <T> T execute(String query, Supplier<T> execution) {
+        return stageTimer.record("execute", Tags.of("query", query), execution);
+    }
+
+    private static class QueryState {
+        private boolean executed;
+    }
+}
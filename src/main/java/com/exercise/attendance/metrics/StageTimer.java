@@ -0,0 +1,46 @@
+package com.exercise.attendance.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Times the stages of an operation with a single timer, tagged by stage and outcome (success or error)
+public class StageTimer {
+
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final String name;
+
+    public StageTimer(MeterRegistry meterRegistry, String name) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+    }
+
+    public <T> T record(String stage, Tags tags, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = ERROR;
+        try {
+            T result = action.get();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            record(stage, tags, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public void record(String stage, Tags tags, Runnable action) {
+        record(stage, tags, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void record(String stage, Tags tags, String outcome, long durationNanos) {
+        meterRegistry.timer(name, tags.and("stage", stage, "outcome", outcome))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,13 +1,20 @@
 package com.exercise.attendance.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 public class Activity {
     private final String user;
     private final ActivityType activityType;
     private final LocalDateTime reportDateTime;
 
-    public Activity(String user, ActivityType activityType, LocalDateTime reportDateTime) {
+    @JsonCreator
+    public Activity(@JsonProperty("user") String user,
+                    @JsonProperty("activityType") ActivityType activityType,
+                    @JsonProperty("reportDateTime") LocalDateTime reportDateTime) {
         this.user = user;
         this.activityType = activityType;
         this.reportDateTime = reportDateTime;
@@ -34,4 +41,18 @@ public class Activity {
                 '}';
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Activity activity = (Activity) o;
+        return Objects.equals(user, activity.user) &&
+                activityType == activity.activityType &&
+                Objects.equals(reportDateTime, activity.reportDateTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(user, activityType, reportDateTime);
+    }
 }
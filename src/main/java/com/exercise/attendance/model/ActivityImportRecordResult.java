@@ -0,0 +1,45 @@
+package com.exercise.attendance.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActivityImportRecordResult {
+    private final int index;
+    private final boolean accepted;
+    private final String message;
+
+    private ActivityImportRecordResult(int index, boolean accepted, String message) {
+        this.index = index;
+        this.accepted = accepted;
+        this.message = message;
+    }
+
+    public static ActivityImportRecordResult accepted(int index) {
+        return new ActivityImportRecordResult(index, true, null);
+    }
+
+    public static ActivityImportRecordResult rejected(int index, String message) {
+        return new ActivityImportRecordResult(index, false, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityImportRecordResult{" +
+                "index=" + index +
+                ", accepted=" + accepted +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.exercise.attendance.model;
+
+import java.util.List;
+
+public class ActivityImportReport {
+    private final int accepted;
+    private final int rejected;
+    private final List<ActivityImportRecordResult> results;
+
+    // The results are expected to be ordered by the record index
+    public ActivityImportReport(List<ActivityImportRecordResult> results) {
+        this.results = results;
+        this.accepted = (int) results.stream().filter(ActivityImportRecordResult::isAccepted).count();
+        this.rejected = results.size() - accepted;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<ActivityImportRecordResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityImportReport{" +
+                "accepted=" + accepted +
+                ", rejected=" + rejected +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.exercise.attendance.model;
+
+import java.util.Optional;
+
+public class ActivityRecordResult {
+
+    private static final ActivityRecordResult RECORDED = new ActivityRecordResult(true, null);
+
+    private final boolean recorded;
+    private final WorkingHours conflictingWorkingHours;
+
+    private ActivityRecordResult(boolean recorded, WorkingHours conflictingWorkingHours) {
+        this.recorded = recorded;
+        this.conflictingWorkingHours = conflictingWorkingHours;
+    }
+
+    public static ActivityRecordResult recorded() {
+        return RECORDED;
+    }
+
+    // The conflicting working hours are empty when the day has no working hours at all (e.g. exit without entry)
+    public static ActivityRecordResult conflict(Optional<WorkingHours> conflictingWorkingHours) {
+        return new ActivityRecordResult(false, conflictingWorkingHours.orElse(null));
+    }
+
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    public Optional<WorkingHours> getConflictingWorkingHours() {
+        return Optional.ofNullable(conflictingWorkingHours);
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityRecordResult{" +
+                "recorded=" + recorded +
+                ", conflictingWorkingHours=" + conflictingWorkingHours +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.exercise.attendance.model;
+
+// How the auto-close sweeper closes a day which has an entry without exit
+public enum AutoClosePolicy {
+    // Exit at a fixed time of the day, or at the entry when the entry is later than that
+    FIXED_TIME,
+    // Exit a maximum shift length after the entry, or at the end of the day when that is earlier
+    MAX_SHIFT,
+    // Only flag the day as auto-closed, leaving it open
+    FLAG_ONLY
+}
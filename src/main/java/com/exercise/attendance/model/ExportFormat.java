@@ -0,0 +1,19 @@
+package com.exercise.attendance.model;
+
+// Both formats are gzip compressed
+public enum ExportFormat {
+    // user,date,from_time,to_time,worked_seconds rows, with a header row
+    CSV(".csv.gz"),
+    // Row groups of columns, see WorkingHoursColumnarWriter
+    COLUMNAR(".whc.gz");
+
+    private final String fileExtension;
+
+    ExportFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,114 @@
+package com.exercise.attendance.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+// A snapshot of an export job. The users are exported in chunks, so progress is the share of completed chunks.
+public class ExportJob {
+
+    private final String id;
+    private final WorkingHoursExportFilter filter;
+    private final ExportFormat format;
+    private final ExportJobStatus status;
+    private final int totalChunks;
+    private final int completedChunks;
+    private final long exportedRows;
+    private final Instant submittedAt;
+    private final Instant finishedAt;
+    private final String error;
+
+    public ExportJob(String id, WorkingHoursExportFilter filter, ExportFormat format, ExportJobStatus status,
+                     int totalChunks, int completedChunks, long exportedRows,
+                     Instant submittedAt, Instant finishedAt, String error) {
+        this.id = id;
+        this.filter = filter;
+        this.format = format;
+        this.status = status;
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.exportedRows = exportedRows;
+        this.submittedAt = submittedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public WorkingHoursExportFilter getFilter() {
+        return filter;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public ExportJobStatus getStatus() {
+        return status;
+    }
+
+    // 0 until the chunks of the users are known
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public long getExportedRows() {
+        return exportedRows;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    // Empty until the job is completed or failed
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    // Empty unless the job failed
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExportJob exportJob = (ExportJob) o;
+        return totalChunks == exportJob.totalChunks &&
+                completedChunks == exportJob.completedChunks &&
+                exportedRows == exportJob.exportedRows &&
+                id.equals(exportJob.id) &&
+                format == exportJob.format &&
+                status == exportJob.status &&
+                Objects.equals(submittedAt, exportJob.submittedAt) &&
+                Objects.equals(finishedAt, exportJob.finishedAt) &&
+                Objects.equals(error, exportJob.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, format, status, totalChunks, completedChunks, exportedRows, submittedAt, finishedAt, error);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob{" +
+                "id='" + id + '\'' +
+                ", filter=" + filter +
+                ", format=" + format +
+                ", status=" + status +
+                ", totalChunks=" + totalChunks +
+                ", completedChunks=" + completedChunks +
+                ", exportedRows=" + exportedRows +
+                ", submittedAt=" + submittedAt +
+                ", finishedAt=" + finishedAt +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
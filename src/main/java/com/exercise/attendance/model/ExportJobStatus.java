@@ -0,0 +1,8 @@
+package com.exercise.attendance.model;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -1,5 +1,7 @@
 package com.exercise.attendance.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.LocalDate;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -7,11 +9,31 @@ import java.util.TreeMap;
 public class HoursReport {
 
     private SortedMap<LocalDate, WorkingHours> report = new TreeMap<>();
+    private HoursSummary summary = HoursSummary.EMPTY;
+    // Set on a page of the report which is followed by more days, and passed back to get the next page
+    private String nextCursor;
 
     public SortedMap<LocalDate, WorkingHours> getReport() {
         return report;
     }
 
+    public HoursSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(HoursSummary summary) {
+        this.summary = summary;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public void addDailyReport(WorkingHours workingHours) {
         if (report.containsKey(workingHours.getDate()))
             throw new IllegalArgumentException("Working hours are already filled for date: " + workingHours.getDate());
@@ -23,6 +45,8 @@ public class HoursReport {
     public String toString() {
         return "HoursReport{" +
                 "report=" + report +
+                ", summary=" + summary +
+                ", nextCursor='" + nextCursor + '\'' +
                 '}';
     }
 }
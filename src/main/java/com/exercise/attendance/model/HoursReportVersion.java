@@ -0,0 +1,36 @@
+package com.exercise.attendance.model;
+
+import java.util.Objects;
+
+// Identifies the content of an hours report: the tag changes whenever the served working hours of the report change.
+public class HoursReportVersion {
+    private final String tag;
+
+    public HoursReportVersion(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return "HoursReportVersion{" +
+                "tag='" + tag + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HoursReportVersion that = (HoursReportVersion) o;
+        return tag.equals(that.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag);
+    }
+}
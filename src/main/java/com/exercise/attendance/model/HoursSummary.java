@@ -0,0 +1,64 @@
+package com.exercise.attendance.model;
+
+import java.util.Objects;
+
+// Totals of an hours report. Open days (entry without exit) are counted, but not included in the worked time.
+// Overtime is the time worked beyond the daily overtime threshold, summed over the days.
+public class HoursSummary {
+
+    public static final HoursSummary EMPTY = new HoursSummary(0, 0, 0, 0);
+
+    private long totalWorkedSeconds;
+    private long workedDays;
+    private long openDays;
+    private long overtimeSeconds;
+
+    public HoursSummary(long totalWorkedSeconds, long workedDays, long openDays, long overtimeSeconds) {
+        this.totalWorkedSeconds = totalWorkedSeconds;
+        this.workedDays = workedDays;
+        this.openDays = openDays;
+        this.overtimeSeconds = overtimeSeconds;
+    }
+
+    public long getTotalWorkedSeconds() {
+        return totalWorkedSeconds;
+    }
+
+    public long getWorkedDays() {
+        return workedDays;
+    }
+
+    public long getOpenDays() {
+        return openDays;
+    }
+
+    public long getOvertimeSeconds() {
+        return overtimeSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "HoursSummary{" +
+                "totalWorkedSeconds=" + totalWorkedSeconds +
+                ", workedDays=" + workedDays +
+                ", openDays=" + openDays +
+                ", overtimeSeconds=" + overtimeSeconds +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HoursSummary summary = (HoursSummary) o;
+        return totalWorkedSeconds == summary.totalWorkedSeconds &&
+                workedDays == summary.workedDays &&
+                openDays == summary.openDays &&
+                overtimeSeconds == summary.overtimeSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(totalWorkedSeconds, workedDays, openDays, overtimeSeconds);
+    }
+}
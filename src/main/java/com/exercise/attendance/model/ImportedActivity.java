@@ -0,0 +1,44 @@
+package com.exercise.attendance.model;
+
+import java.util.Optional;
+
+public class ImportedActivity {
+    private final int index;
+    private final Activity activity;
+    private final String error;
+
+    private ImportedActivity(int index, Activity activity, String error) {
+        this.index = index;
+        this.activity = activity;
+        this.error = error;
+    }
+
+    public static ImportedActivity parsed(int index, Activity activity) {
+        return new ImportedActivity(index, activity, null);
+    }
+
+    public static ImportedActivity malformed(int index, String error) {
+        return new ImportedActivity(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Optional<Activity> getActivity() {
+        return Optional.ofNullable(activity);
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportedActivity{" +
+                "index=" + index +
+                ", activity=" + activity +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.exercise.attendance.model;
+
+import java.time.YearMonth;
+import java.util.Objects;
+
+// Rollup of a user's working hours in a month. Open days (entry without exit) have no worked time.
+public class MonthlyHours {
+    private String user;
+    private YearMonth month;
+    private long totalWorkedSeconds;
+    private long workedDays;
+    private long openDays;
+
+    public MonthlyHours(String user, YearMonth month, long totalWorkedSeconds, long workedDays, long openDays) {
+        this.user = user;
+        this.month = month;
+        this.totalWorkedSeconds = totalWorkedSeconds;
+        this.workedDays = workedDays;
+        this.openDays = openDays;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public long getTotalWorkedSeconds() {
+        return totalWorkedSeconds;
+    }
+
+    public long getWorkedDays() {
+        return workedDays;
+    }
+
+    public long getOpenDays() {
+        return openDays;
+    }
+
+    @Override
+    public String toString() {
+        return "MonthlyHours{" +
+                "user='" + user + '\'' +
+                ", month=" + month +
+                ", totalWorkedSeconds=" + totalWorkedSeconds +
+                ", workedDays=" + workedDays +
+                ", openDays=" + openDays +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MonthlyHours that = (MonthlyHours) o;
+        return totalWorkedSeconds == that.totalWorkedSeconds &&
+                workedDays == that.workedDays &&
+                openDays == that.openDays &&
+                user.equals(that.user) &&
+                month.equals(that.month);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(user, month, totalWorkedSeconds, workedDays, openDays);
+    }
+}
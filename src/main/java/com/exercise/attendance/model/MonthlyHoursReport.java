@@ -0,0 +1,31 @@
+package com.exercise.attendance.model;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public class MonthlyHoursReport {
+
+    private YearMonth month;
+    private List<MonthlyHours> report;
+
+    public MonthlyHoursReport(YearMonth month, List<MonthlyHours> report) {
+        this.month = month;
+        this.report = report;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public List<MonthlyHours> getReport() {
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return "MonthlyHoursReport{" +
+                "month=" + month +
+                ", report=" + report +
+                '}';
+    }
+}
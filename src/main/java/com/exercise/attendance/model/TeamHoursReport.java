@@ -0,0 +1,27 @@
+package com.exercise.attendance.model;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class TeamHoursReport {
+
+    private SortedMap<String, HoursReport> reports = new TreeMap<>();
+
+    public SortedMap<String, HoursReport> getReports() {
+        return reports;
+    }
+
+    public void addUserReport(String user, HoursReport hoursReport) {
+        if (reports.containsKey(user))
+            throw new IllegalArgumentException("Hours report is already filled for user: " + user);
+
+        reports.put(user, hoursReport);
+    }
+
+    @Override
+    public String toString() {
+        return "TeamHoursReport{" +
+                "reports=" + reports +
+                '}';
+    }
+}
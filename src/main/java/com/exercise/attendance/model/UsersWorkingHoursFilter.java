@@ -0,0 +1,38 @@
+package com.exercise.attendance.model;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+public class UsersWorkingHoursFilter {
+
+    private Set<String> users;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    public UsersWorkingHoursFilter(Set<String> users, LocalDate fromDate, LocalDate toDate) {
+        this.users = users;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    public Set<String> getUsers() {
+        return users;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    @Override
+    public String toString() {
+        return "UsersWorkingHoursFilter{" +
+                "users=" + users +
+                ", fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                '}';
+    }
+}
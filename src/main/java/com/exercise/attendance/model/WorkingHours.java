@@ -1,5 +1,6 @@
 package com.exercise.attendance.model;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Objects;
@@ -39,6 +40,13 @@ public class WorkingHours {
         return toTime;
     }
 
+    // Empty while the day is open (entry without exit)
+    public Long getWorkedSeconds() {
+        if (fromTime == null || toTime == null)
+            return null;
+        return Duration.between(fromTime, toTime).getSeconds();
+    }
+
     @Override
     public String toString() {
         return "WorkingHours{" +
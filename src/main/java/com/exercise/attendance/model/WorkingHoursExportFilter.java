@@ -0,0 +1,48 @@
+package com.exercise.attendance.model;
+
+import java.time.LocalDate;
+
+// Selects the working hours of all the users in a date range, optionally only of users whose name starts with
+// userPrefix, or who are members of team
+public class WorkingHoursExportFilter {
+
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String userPrefix;
+    private String team;
+
+    public WorkingHoursExportFilter(LocalDate fromDate, LocalDate toDate, String userPrefix, String team) {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.userPrefix = userPrefix;
+        this.team = team;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    // Empty for all the users
+    public String getUserPrefix() {
+        return userPrefix;
+    }
+
+    // Empty for all the users
+    public String getTeam() {
+        return team;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkingHoursExportFilter{" +
+                "fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", userPrefix='" + userPrefix + '\'' +
+                ", team='" + team + '\'' +
+                '}';
+    }
+}
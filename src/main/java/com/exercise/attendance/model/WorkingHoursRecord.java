@@ -0,0 +1,45 @@
+package com.exercise.attendance.model;
+
+import java.util.Objects;
+
+// Working hours with the ID of their row, for batch jobs which page through WORKING_HOURS by ID
+public class WorkingHoursRecord {
+
+    private final long id;
+    private final WorkingHours workingHours;
+
+    public WorkingHoursRecord(long id, WorkingHours workingHours) {
+        this.id = id;
+        this.workingHours = workingHours;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public WorkingHours getWorkingHours() {
+        return workingHours;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WorkingHoursRecord that = (WorkingHoursRecord) o;
+        return id == that.id &&
+                workingHours.equals(that.workingHours);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, workingHours);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkingHoursRecord{" +
+                "id=" + id +
+                ", workingHours=" + workingHours +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.PartiallyRecordedActivitiesException;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Records batches of activities (of write-behind ingestion and imports) with the conditional statements of the punches,
+// batched in a single transaction, so a batch costs a few round trips and one commit, and never overwrites (or reopens)
+// a day which was written concurrently by a punch or by another instance.
+// The recorded activities are added to the monthly hours in the same transaction, while they are
+// appended to the activity event log (when enabled) only once it is committed.
+@Component
+public class ActivityBatchRecorder {
+
+    private final Logger logger = LoggerFactory.getLogger(ActivityBatchRecorder.class);
+
+    private final WorkingHoursDao dao;
+    private final MonthlyHoursDao monthlyHoursDao;
+    private final Optional<ActivityEventLog> eventLog;
+    private final TransactionOperations transactionOperations;
+
+    public ActivityBatchRecorder(WorkingHoursDao dao, MonthlyHoursDao monthlyHoursDao, Optional<ActivityEventLog> eventLog,
+                                 TransactionOperations transactionOperations) {
+        this.dao = dao;
+        this.monthlyHoursDao = monthlyHoursDao;
+        this.eventLog = eventLog;
+        this.transactionOperations = transactionOperations;
+    }
+
+    // Returns the result of each activity, in the order of the activities.
+    // Nothing of the batch is recorded when an exception is thrown, so the batch may be recorded again, except for a
+    // PartiallyRecordedActivitiesException of the sharded store, whose committed activities are logged as recorded.
+    public List<ActivityRecordResult> record(List<Activity> activities) {
+        List<ActivityRecordResult> recordResults;
+        try {
+            recordResults = transactionOperations.execute(status -> {
+                List<ActivityRecordResult> results = dao.recordActivities(activities);
+                List<Activity> recordedActivities = recordedActivities(activities, results);
+                if (!recordedActivities.isEmpty()) {
+                    monthlyHoursDao.addRecordedActivities(recordedActivities);
+                }
+                return results;
+            });
+        } catch (PartiallyRecordedActivitiesException ex) {
+            appendToEventLog(recordedActivities(activities, ex.getRecordResults()));
+            throw ex;
+        }
+        appendToEventLog(recordedActivities(activities, recordResults));
+        return recordResults;
+    }
+
+    // The batch is already committed, so a failure of the log is not a failure of the batch
+    private void appendToEventLog(List<Activity> recordedActivities) {
+        if (eventLog.isEmpty() || recordedActivities.isEmpty()) {
+            return;
+        }
+        try {
+            eventLog.get().append(recordedActivities);
+        } catch (RuntimeException ex) {
+            logger.error("Failed appending " + recordedActivities.size() + " recorded activities to the event log.", ex);
+        }
+    }
+
+    private static List<Activity> recordedActivities(List<Activity> activities, List<ActivityRecordResult> results) {
+        List<Activity> recordedActivities = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            if (results.get(i) != null && results.get(i).isRecorded()) {
+                recordedActivities.add(activities.get(i));
+            }
+        }
+        return recordedActivities;
+    }
+}
@@ -0,0 +1,12 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.ActivityImportReport;
+import com.exercise.attendance.model.ImportedActivity;
+
+import java.util.List;
+
+public interface ActivityImportService {
+
+    // Imports a chunk of the records as a single batch, and returns the results in the order of the chunk
+    ActivityImportReport importActivities(List<ImportedActivity> importedActivities);
+}
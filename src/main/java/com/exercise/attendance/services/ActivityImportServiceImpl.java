@@ -0,0 +1,87 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// Imports activities reported offline (e.g. buffered by badge terminals), a chunk of the import at a time.
+// The activities of a chunk are sorted by time, and recorded by the batch recorder with the conditional statements
+// of the punches in a single transaction, so the database decides on each activity against the latest working hours,
+// and an import never overwrites (or reopens) a day written concurrently by a punch or by another import.
+@Service
+public class ActivityImportServiceImpl implements ActivityImportService {
+
+    private final Logger logger = LoggerFactory.getLogger(ActivityImportServiceImpl.class);
+
+    private static final Comparator<Activity> BY_REPORT_DATE_TIME = Comparator.comparing(Activity::getReportDateTime);
+
+    private final HoursReportValidator validator;
+    private final WorkingHoursCalculator calculator;
+    private final ActivityBatchRecorder recorder;
+
+    public ActivityImportServiceImpl(HoursReportValidator validator,
+                                     WorkingHoursCalculator calculator,
+                                     ActivityBatchRecorder recorder) {
+        this.validator = validator;
+        this.calculator = calculator;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public ActivityImportReport importActivities(List<ImportedActivity> importedActivities) {
+        logger.debug("Importing " + importedActivities.size() + " activities.");
+        ActivityImportRecordResult[] results = new ActivityImportRecordResult[importedActivities.size()];
+
+        List<Integer> validPositions = validateActivities(importedActivities, results);
+        // Stable sort, so activities reported at the same time keep their order in the import
+        validPositions.sort(Comparator.comparing(position -> importedActivities.get(position).getActivity().get(), BY_REPORT_DATE_TIME));
+
+        List<Activity> activities = new ArrayList<>(validPositions.size());
+        validPositions.forEach(position -> activities.add(importedActivities.get(position).getActivity().get()));
+        if (!activities.isEmpty()) {
+            List<ActivityRecordResult> recordResults = recorder.record(activities);
+            for (int i = 0; i < activities.size(); i++) {
+                int position = validPositions.get(i);
+                results[position] = importResult(importedActivities.get(position).getIndex(), activities.get(i), recordResults.get(i));
+            }
+        }
+        return new ActivityImportReport(Arrays.asList(results));
+    }
+
+    // Rejects the malformed and invalid records, and returns the positions of the valid ones
+    private List<Integer> validateActivities(List<ImportedActivity> importedActivities, ActivityImportRecordResult[] results) {
+        List<Integer> validPositions = new ArrayList<>(importedActivities.size());
+        for (int position = 0; position < importedActivities.size(); position++) {
+            ImportedActivity importedActivity = importedActivities.get(position);
+            if (importedActivity.getActivity().isEmpty()) {
+                results[position] = ActivityImportRecordResult.rejected(importedActivity.getIndex(), importedActivity.getError());
+                continue;
+            }
+            try {
+                validator.validateActivity(importedActivity.getActivity().get());
+                validPositions.add(position);
+            } catch (IllegalArgumentException ex) {
+                results[position] = ActivityImportRecordResult.rejected(importedActivity.getIndex(), ex.getMessage());
+            }
+        }
+        return validPositions;
+    }
+
+    // The database rejected the activity, so the calculation on the conflicting working hours is expected to fail
+    // with the matching validation error
+    private ActivityImportRecordResult importResult(int index, Activity activity, ActivityRecordResult recordResult) {
+        if (recordResult.isRecorded()) {
+            return ActivityImportRecordResult.accepted(index);
+        }
+        try {
+            calculator.calculateWorkingHours(recordResult.getConflictingWorkingHours(), activity);
+            return ActivityImportRecordResult.rejected(index, "Cannot report " + activity.getActivityType()
+                    + ". Working hours were updated concurrently for " + activity.getReportDateTime().toLocalDate());
+        } catch (IllegalArgumentException ex) {
+            return ActivityImportRecordResult.rejected(index, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+
+public interface ActivityIngestionService {
+
+    // Accepts the activity for asynchronous recording.
+    // Throws IngestionQueueFullException when the activity cannot be accepted.
+    void submit(Activity activity);
+}
@@ -0,0 +1,23 @@
+package com.exercise.attendance.services;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Rebuilds the working hours from the activity event log on startup, when started with --attendance.event-log.replay=true
+@Component
+@ConditionalOnProperty(name = "attendance.event-log.replay", havingValue = "true")
+public class ActivityReplayRunner implements ApplicationRunner {
+
+    private final ActivityReplayService service;
+
+    public ActivityReplayRunner(ActivityReplayService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        service.replay();
+    }
+}
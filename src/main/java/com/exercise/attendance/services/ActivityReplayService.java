@@ -0,0 +1,8 @@
+package com.exercise.attendance.services;
+
+// Rebuilds the working hours (a projection of the activities) from the activity event log
+public interface ActivityReplayService {
+
+    // Returns the number of working hours (user days) rebuilt
+    int replay();
+}
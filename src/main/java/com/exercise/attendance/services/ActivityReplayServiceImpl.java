@@ -0,0 +1,122 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Folds the logged activities of each user day in memory, in the order they were logged and with the same rules
+// as a punch, and overwrites the folded days with batch upserts.
+// The log is appended as the activities are committed, so its dates move forward: once it reaches a date more than
+// windowDays after a day, the day is taken as complete, upserted and dropped from memory. So memory is bounded by the
+// days of the window (and a batch of late days), rather than by every user day ever logged.
+// An activity of a day before the window (e.g. imported late) is folded onto the day as it is in the database, which is
+// the folded day when the day was already upserted by the replay.
+// Days with no logged activities (e.g. recorded before the log was enabled) are left as they are.
+@Service
+@ConditionalOnProperty(name = "attendance.event-log.enabled", havingValue = "true")
+public class ActivityReplayServiceImpl implements ActivityReplayService {
+
+    private final Logger logger = LoggerFactory.getLogger(ActivityReplayServiceImpl.class);
+
+    private final WorkingHoursCalculator calculator;
+    private final WorkingHoursDao dao;
+    private final MonthlyHoursDao monthlyHoursDao;
+    private final ActivityEventLog eventLog;
+    private final int batchSize;
+    private final int windowDays;
+
+    public ActivityReplayServiceImpl(WorkingHoursCalculator calculator,
+                                     WorkingHoursDao dao,
+                                     MonthlyHoursDao monthlyHoursDao,
+                                     ActivityEventLog eventLog,
+                                     @Value("${attendance.import.batch-size:1000}") int batchSize,
+                                     @Value("${attendance.event-log.replay.window-days:2}") int windowDays) {
+        this.calculator = calculator;
+        this.dao = dao;
+        this.monthlyHoursDao = monthlyHoursDao;
+        this.eventLog = eventLog;
+        this.batchSize = batchSize;
+        this.windowDays = windowDays;
+    }
+
+    @Override
+    public int replay() {
+        Replay replay = new Replay();
+        eventLog.replay(replay::fold);
+        replay.save(replay.days);
+        logger.info("Replayed the activity event log into " + replay.replayed + " working hours. Rejected activities: " + replay.rejected);
+        return replay.replayed;
+    }
+
+    private int saveWorkingHours(List<WorkingHours> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<WorkingHours> savedWorkingHours = List.copyOf(batch);
+        dao.upsertWorkingHours(savedWorkingHours);
+        monthlyHoursDao.refreshMonthlyHours(savedWorkingHours);
+        batch.clear();
+        return savedWorkingHours.size();
+    }
+
+    // The folded days of a replay, by date and user. The days before completedBefore were saved already.
+    private class Replay {
+        private final NavigableMap<LocalDate, Map<String, WorkingHours>> days = new TreeMap<>();
+        private LocalDate completedBefore = LocalDate.MIN;
+        private int lateDays;
+        private int replayed;
+        private int rejected;
+
+        private void fold(Activity activity) {
+            LocalDate date = activity.getReportDateTime().toLocalDate();
+            Map<String, WorkingHours> dateDays = days.computeIfAbsent(date, key -> new HashMap<>());
+            Optional<WorkingHours> day = Optional.ofNullable(dateDays.get(activity.getUser()));
+            if (day.isEmpty() && date.isBefore(completedBefore)) {
+                day = dao.getWorkingHoursForUpdate(new WorkingHoursFilter(activity.getUser(), date, date)).stream().findFirst();
+                day.ifPresent(savedDay -> dateDays.put(activity.getUser(), savedDay));
+                lateDays++;
+            }
+            try {
+                dateDays.put(activity.getUser(), calculator.calculateWorkingHours(day, activity));
+            } catch (IllegalArgumentException ex) {
+                rejected++;
+                logger.debug("Logged activity was rejected by replay. Activity: " + activity + ". " + ex.getMessage());
+            }
+
+            LocalDate windowStart = date.minusDays(windowDays);
+            if (windowStart.isAfter(completedBefore)) {
+                completedBefore = windowStart;
+                save(days.headMap(completedBefore, false));
+            } else if (lateDays >= batchSize) {
+                save(days.headMap(completedBefore, false));
+            }
+        }
+
+        // Saves the days in batches, and drops them from memory
+        private void save(SortedMap<LocalDate, Map<String, WorkingHours>> savedDays) {
+            List<WorkingHours> batch = new ArrayList<>(batchSize);
+            for (Map<String, WorkingHours> dateDays : savedDays.values()) {
+                for (WorkingHours workingHours : dateDays.values()) {
+                    batch.add(workingHours);
+                    if (batch.size() >= batchSize) {
+                        replayed += saveWorkingHours(batch);
+                    }
+                }
+            }
+            replayed += saveWorkingHours(batch);
+            savedDays.clear();
+            lateDays = 0;
+        }
+    }
+}
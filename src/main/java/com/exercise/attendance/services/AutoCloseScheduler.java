@@ -0,0 +1,51 @@
+package com.exercise.attendance.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sweeps the open days after the initial delay (right on startup by default), and every interval after that
+@Component
+@ConditionalOnProperty(name = "attendance.auto-close.enabled", havingValue = "true")
+public class AutoCloseScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(AutoCloseScheduler.class);
+
+    private final AutoCloseService service;
+    private final ScheduledExecutorService scheduler;
+
+    public AutoCloseScheduler(AutoCloseService service,
+                              @Value("${attendance.auto-close.initial-delay:PT0S}") Duration initialDelay,
+                              @Value("${attendance.auto-close.interval:PT1H}") Duration interval) {
+        this.service = service;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auto-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweep, initialDelay.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void sweep() {
+        try {
+            service.autoClose(LocalDate.now());
+        } catch (RuntimeException ex) {
+            logger.error("Auto-close of open days failed, it is retried on the next interval", ex);
+        }
+    }
+}
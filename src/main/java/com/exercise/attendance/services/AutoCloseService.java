@@ -0,0 +1,9 @@
+package com.exercise.attendance.services;
+
+import java.time.LocalDate;
+
+public interface AutoCloseService {
+
+    // Closes (or flags) the days left open before the cutoff relative to today. Returns the number of days updated.
+    int autoClose(LocalDate today);
+}
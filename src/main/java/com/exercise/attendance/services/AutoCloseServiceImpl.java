@@ -0,0 +1,159 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.CachingWorkingHoursDao;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.OpenWorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.AutoClosePolicy;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Days which are still open afterDays days after their date are closed by the policy, batchSize days at a time,
+// so memory is bounded by the batch size. Each batch is closed, and the monthly hours of its closed days refreshed,
+// in a single transaction, and the cached months of its days (when the cache is enabled) are evicted once it commits.
+// The exits of the closed days are appended to the activity event log (when enabled) once the batch is committed,
+// so a replay of the log closes these days again rather than reopening them.
+// Closed and flagged days are counted by attendance.auto-close.days, tagged by policy and outcome
+// (closed, flagged, or skipped when the day was closed meanwhile).
+@Service
+@ConditionalOnProperty(name = "attendance.auto-close.enabled", havingValue = "true")
+public class AutoCloseServiceImpl implements AutoCloseService {
+
+    private static final int LAST_SECOND_OF_DAY = LocalTime.MAX.toSecondOfDay();
+
+    private final Logger logger = LoggerFactory.getLogger(AutoCloseServiceImpl.class);
+
+    private final OpenWorkingHoursDao dao;
+    private final MonthlyHoursDao monthlyHoursDao;
+    private final Optional<CachingWorkingHoursDao> cachingDao;
+    private final Optional<ActivityEventLog> eventLog;
+    private final TransactionOperations transactionOperations;
+    private final MeterRegistry meterRegistry;
+    private final AutoClosePolicy policy;
+    private final LocalTime fixedTime;
+    private final Duration maxShift;
+    private final int afterDays;
+    private final int batchSize;
+
+    public AutoCloseServiceImpl(OpenWorkingHoursDao dao,
+                                MonthlyHoursDao monthlyHoursDao,
+                                Optional<CachingWorkingHoursDao> cachingDao,
+                                Optional<ActivityEventLog> eventLog,
+                                TransactionOperations transactionOperations,
+                                MeterRegistry meterRegistry,
+                                @Value("${attendance.auto-close.policy:MAX_SHIFT}") AutoClosePolicy policy,
+                                @Value("${attendance.auto-close.fixed-time:17:00}") String fixedTime,
+                                @Value("${attendance.auto-close.max-shift:PT12H}") Duration maxShift,
+                                @Value("${attendance.auto-close.after-days:1}") int afterDays,
+                                @Value("${attendance.auto-close.batch-size:1000}") int batchSize) {
+        this.dao = dao;
+        this.monthlyHoursDao = monthlyHoursDao;
+        this.cachingDao = cachingDao;
+        this.eventLog = eventLog;
+        this.transactionOperations = transactionOperations;
+        this.meterRegistry = meterRegistry;
+        this.policy = policy;
+        this.fixedTime = LocalTime.parse(fixedTime);
+        this.maxShift = maxShift;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int autoClose(LocalDate today) {
+        LocalDate cutoffDate = today.minusDays(afterDays);
+        int updatedDays = 0;
+        long afterId = 0;
+        List<WorkingHoursRecord> openWorkingHours;
+        do {
+            openWorkingHours = dao.getOpenWorkingHours(cutoffDate, afterId, batchSize);
+            if (openWorkingHours.isEmpty()) {
+                break;
+            }
+            List<WorkingHoursRecord> closedWorkingHours = openWorkingHours.stream()
+                    .map(this::close)
+                    .collect(Collectors.toList());
+            List<WorkingHoursRecord> updated = transactionOperations.execute(status -> closeBatch(closedWorkingHours));
+            appendToEventLog(updated);
+            count(policy == AutoClosePolicy.FLAG_ONLY ? "flagged" : "closed", updated.size());
+            count("skipped", openWorkingHours.size() - updated.size());
+            updatedDays += updated.size();
+            afterId = openWorkingHours.get(openWorkingHours.size() - 1).getId();
+        } while (openWorkingHours.size() == batchSize);
+        if (updatedDays > 0) {
+            logger.info("Auto-closed (" + policy + ") " + updatedDays + " days left open until " + cutoffDate);
+        }
+        return updatedDays;
+    }
+
+    private List<WorkingHoursRecord> closeBatch(List<WorkingHoursRecord> closedWorkingHours) {
+        List<WorkingHoursRecord> updated = dao.autoClose(closedWorkingHours);
+        List<WorkingHours> updatedWorkingHours = updated.stream()
+                .map(WorkingHoursRecord::getWorkingHours)
+                .collect(Collectors.toList());
+        if (policy != AutoClosePolicy.FLAG_ONLY) {
+            monthlyHoursDao.refreshMonthlyHours(updatedWorkingHours);
+        }
+        cachingDao.ifPresent(cache -> cache.evictWorkingHours(updatedWorkingHours));
+        return updated;
+    }
+
+    // The batch is already committed, so a failure of the log is not a failure of the sweep.
+    // Flagged days have no exit, and are left open by a replay as they are in the database.
+    private void appendToEventLog(List<WorkingHoursRecord> updated) {
+        if (eventLog.isEmpty() || policy == AutoClosePolicy.FLAG_ONLY || updated.isEmpty()) {
+            return;
+        }
+        List<Activity> exits = updated.stream()
+                .map(WorkingHoursRecord::getWorkingHours)
+                .map(workingHours -> new Activity(workingHours.getUser(), ActivityType.EXIT,
+                        workingHours.getDate().atTime(workingHours.getToTime())))
+                .collect(Collectors.toList());
+        try {
+            eventLog.get().append(exits);
+        } catch (RuntimeException ex) {
+            logger.error("Failed appending " + exits.size() + " auto-closed exits to the event log.", ex);
+        }
+    }
+
+    private WorkingHoursRecord close(WorkingHoursRecord record) {
+        WorkingHours workingHours = record.getWorkingHours();
+        return new WorkingHoursRecord(record.getId(), new WorkingHours(workingHours.getUser(), workingHours.getDate(),
+                workingHours.getFromTime(), exitOf(workingHours.getFromTime())));
+    }
+
+    private LocalTime exitOf(LocalTime entry) {
+        switch (policy) {
+            case FIXED_TIME:
+                return entry.isAfter(fixedTime) ? entry : fixedTime;
+            case MAX_SHIFT:
+                // A day does not pass midnight, so the exit is capped at its last second
+                return LocalTime.ofSecondOfDay(Math.min(entry.toSecondOfDay() + maxShift.getSeconds(), LAST_SECOND_OF_DAY));
+            case FLAG_ONLY:
+            default:
+                return null;
+        }
+    }
+
+    private void count(String outcome, int days) {
+        if (days > 0) {
+            meterRegistry.counter("attendance.auto-close.days", "policy", policy.name(), "outcome", outcome).increment(days);
+        }
+    }
+}
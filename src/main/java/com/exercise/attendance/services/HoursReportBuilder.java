@@ -0,0 +1,38 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+// Builds hours reports, with their summary, from fetched working hours.
+// Shared by the single user and the team reports, so both use the same overtime threshold.
+@Component
+public class HoursReportBuilder {
+
+    private final Duration overtimeThreshold;
+
+    public HoursReportBuilder(@Value("${attendance.report.overtime-threshold:PT8H}") Duration overtimeThreshold) {
+        this.overtimeThreshold = overtimeThreshold;
+    }
+
+    public Duration getOvertimeThreshold() {
+        return overtimeThreshold;
+    }
+
+    public HoursReport buildHoursReport(List<WorkingHours> workingHours) {
+        HoursReport report = new HoursReport();
+        HoursSummaryAccumulator summaryAccumulator = newSummaryAccumulator();
+        workingHours.forEach(report::addDailyReport);
+        workingHours.forEach(summaryAccumulator);
+        report.setSummary(summaryAccumulator.getSummary());
+        return report;
+    }
+
+    HoursSummaryAccumulator newSummaryAccumulator() {
+        return new HoursSummaryAccumulator(overtimeThreshold.getSeconds());
+    }
+}
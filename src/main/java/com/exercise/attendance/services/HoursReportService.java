@@ -2,12 +2,30 @@ package com.exercise.attendance.services;
 
 import com.exercise.attendance.model.Activity;
 import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.HoursReportVersion;
+import com.exercise.attendance.model.HoursSummary;
 import com.exercise.attendance.model.WorkingHours;
 import com.exercise.attendance.model.WorkingHoursFilter;
 
+import java.util.function.Consumer;
+
 public interface HoursReportService {
 
     HoursReport getReport(WorkingHoursFilter filter);
 
+    // A page of up to limit days of the report, after the cursor of the previous page (from the start of the range
+    // when null). The limit defaults to the maximum page size. The summary is of the days of the page.
+    HoursReport getReportPage(WorkingHoursFilter filter, String cursor, Integer limit);
+
+    // The shallow version (a content hash) of the report or page as read, so it always matches the report it is sent with
+    HoursReportVersion getReportVersion(HoursReport report);
+
+    // Validates the filter before passing the first working hours to the consumer.
+    // Returns the summary of the streamed working hours.
+    HoursSummary streamReport(WorkingHoursFilter filter, Consumer<WorkingHours> consumer);
+
+    // Summary only, aggregated by the database
+    HoursSummary getSummary(WorkingHoursFilter filter);
+
     WorkingHours reportActivity(Activity activity);
 }
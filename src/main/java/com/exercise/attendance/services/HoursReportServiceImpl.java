@@ -1,107 +1,236 @@
 package com.exercise.attendance.services;
 
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
 import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.metrics.StageTimer;
 import com.exercise.attendance.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.function.Consumer;
+
+// Report stages are timed by attendance.report (tagged by endpoint, stage and outcome), and the number of rows
+// of each report by attendance.report.rows. Punch stages are timed by attendance.punch (tagged by activity type,
+// stage and outcome), and rejected punches are counted by attendance.punch.rejected.
+// Recorded punches are also appended to the activity event log, when it is enabled.
+// Punches of the same user are serialized by the punch locks, so they never race each other within this node.
+// When the punch index is enabled, punches which today's indexed working hours reject are answered without the database.
 @Service
 public class HoursReportServiceImpl implements HoursReportService {
 
+    private static final Tags REPORT_TAGS = Tags.of("endpoint", "report");
+    private static final Tags PAGE_TAGS = Tags.of("endpoint", "page");
+    private static final Tags STREAM_TAGS = Tags.of("endpoint", "stream");
+    private static final Tags SUMMARY_TAGS = Tags.of("endpoint", "summary");
+
     private final Logger logger = LoggerFactory.getLogger(HoursReportServiceImpl.class);
 
     private final HoursReportValidator validator;
+    private final WorkingHoursCalculator calculator;
     private final WorkingHoursDao dao;
-
-    public HoursReportServiceImpl(HoursReportValidator validator, WorkingHoursDao dao) {
+    private final HoursReportBuilder reportBuilder;
+    private final MonthlyHoursDao monthlyHoursDao;
+    private final MeterRegistry meterRegistry;
+    private final Optional<ActivityEventLog> eventLog;
+    private final PunchLocks punchLocks;
+    private final Optional<PunchIndex> punchIndex;
+    private final TransactionOperations transactionOperations;
+    private final int maxPageSize;
+    private final StageTimer reportTimer;
+    private final StageTimer punchTimer;
+
+    public HoursReportServiceImpl(HoursReportValidator validator, WorkingHoursCalculator calculator, WorkingHoursDao dao, HoursReportBuilder reportBuilder, MonthlyHoursDao monthlyHoursDao, MeterRegistry meterRegistry, Optional<ActivityEventLog> eventLog,
+                                  PunchLocks punchLocks, Optional<PunchIndex> punchIndex, TransactionOperations transactionOperations,
+                                  @Value("${attendance.report.max-page-size:366}") int maxPageSize) {
         this.validator = validator;
+        this.calculator = calculator;
         this.dao = dao;
+        this.reportBuilder = reportBuilder;
+        this.monthlyHoursDao = monthlyHoursDao;
+        this.meterRegistry = meterRegistry;
+        this.eventLog = eventLog;
+        this.punchLocks = punchLocks;
+        this.punchIndex = punchIndex;
+        this.transactionOperations = transactionOperations;
+        this.maxPageSize = maxPageSize;
+        this.reportTimer = new StageTimer(meterRegistry, "attendance.report");
+        this.punchTimer = new StageTimer(meterRegistry, "attendance.punch");
     }
 
     @Override
     public HoursReport getReport(WorkingHoursFilter filter) {
 
-        validator.validateFilter(filter);
+        reportTimer.record("validation", REPORT_TAGS, () -> validator.validateFilter(filter));
         logger.debug("Fetching hours report. Filter: " + filter);
 
-        List<WorkingHours> workingHours = dao.getWorkingHours(filter);
+        List<WorkingHours> workingHours = reportTimer.record("fetch", REPORT_TAGS, () -> dao.getWorkingHours(filter));
         logger.debug("Fetched " + workingHours.size() + " for hour report. Filter: " + filter);
+        meterRegistry.summary("attendance.report.rows", REPORT_TAGS).record(workingHours.size());
 
-        return buildHoursReport(workingHours);
+        return reportTimer.record("build", REPORT_TAGS, () -> reportBuilder.buildHoursReport(workingHours));
     }
 
+    // One more day than the page is read, so the next cursor is returned only when more days follow
     @Override
-    public WorkingHours reportActivity(Activity activity) {
-        logger.debug("Reporting activity.");
-        Optional<WorkingHours> existingDayWorkingHours = getExistingWorkingHours(activity.getUser(), activity.getReportDateTime());
+    public HoursReport getReportPage(WorkingHoursFilter filter, String cursor, Integer limit) {
+
+        int pageSize = limit == null ? maxPageSize : limit;
+        reportTimer.record("validation", PAGE_TAGS, () -> {
+            validator.validateFilter(filter);
+            validator.validatePageSize(pageSize, maxPageSize);
+        });
+        LocalDate beforeFromDate = filter.getFromDate().minusDays(1);
+        LocalDate afterDate = cursor == null ? beforeFromDate : ObjectUtils.max(ReportCursor.decode(cursor), beforeFromDate);
+        logger.debug("Fetching hours report page after " + afterDate + ". Filter: " + filter);
+
+        List<WorkingHours> workingHours = reportTimer.record("fetch", PAGE_TAGS, () -> dao.getWorkingHours(filter, afterDate, pageSize + 1));
+        List<WorkingHours> page = workingHours.size() > pageSize ? workingHours.subList(0, pageSize) : workingHours;
+        meterRegistry.summary("attendance.report.rows", PAGE_TAGS).record(page.size());
+
+        HoursReport report = reportTimer.record("build", PAGE_TAGS, () -> reportBuilder.buildHoursReport(page));
+        if (page.size() < workingHours.size()) {
+            report.setNextCursor(ReportCursor.encode(page.get(page.size() - 1).getDate()));
+        }
+        return report;
+    }
 
-        logger.debug("Calculating updated working hours. Existing working hours: " + existingDayWorkingHours);
-        WorkingHours updatedWorkingHours = calculateWorkingHours(activity.getUser(), activity.getActivityType(), activity.getReportDateTime());
+    // The tag is a hash of the report as it is served: its days, its summary and the cursor of its next page.
+    // It is computed from a report which was already read and built, so it saves writing the report only.
+    // It is taken from the working hours actually read (which may come from the cache of months or a read replica),
+    // so a report is never sent under the tag of other working hours than its own.
+    @Override
+    public HoursReportVersion getReportVersion(HoursReport report) {
+        StringBuilder versionKey = new StringBuilder();
+        for (WorkingHours workingHours : report.getReport().values()) {
+            versionKey.append(workingHours.getDate()).append(',')
+                    .append(workingHours.getFromTime()).append(',')
+                    .append(workingHours.getToTime()).append('|');
+        }
+        HoursSummary summary = report.getSummary();
+        versionKey.append(summary.getTotalWorkedSeconds()).append(',')
+                .append(summary.getWorkedDays()).append(',')
+                .append(summary.getOpenDays()).append(',')
+                .append(summary.getOvertimeSeconds()).append('|')
+                .append(report.getNextCursor());
+        return new HoursReportVersion(DigestUtils.md5DigestAsHex(versionKey.toString().getBytes(StandardCharsets.UTF_8)));
+    }
 
-        logger.debug("Saving updated working hours: " + updatedWorkingHours);
-        saveUpdatedWorkingHours(updatedWorkingHours);
+    // The fetch stage of a stream includes writing the working hours to the consumer
+    @Override
+    public HoursSummary streamReport(WorkingHoursFilter filter, Consumer<WorkingHours> consumer) {
 
-        return updatedWorkingHours;
-    }
+        reportTimer.record("validation", STREAM_TAGS, () -> validator.validateFilter(filter));
+        logger.debug("Streaming hours report. Filter: " + filter);
 
-    private void saveUpdatedWorkingHours(WorkingHours updatedWorkingHours) {
-        dao.upsertWorkingHours(updatedWorkingHours);
+        HoursSummaryAccumulator summaryAccumulator = reportBuilder.newSummaryAccumulator();
+        reportTimer.record("fetch", STREAM_TAGS, () -> dao.streamWorkingHours(filter, consumer.andThen(summaryAccumulator)));
+        HoursSummary summary = summaryAccumulator.getSummary();
+        meterRegistry.summary("attendance.report.rows", STREAM_TAGS).record(summary.getWorkedDays() + summary.getOpenDays());
+        return summary;
     }
 
-    private Optional<WorkingHours> getExistingWorkingHours(String user, LocalDateTime reportDateTime) {
-        WorkingHoursFilter todayFilter = new WorkingHoursFilter(user, reportDateTime.toLocalDate(), reportDateTime.toLocalDate());
-        List<WorkingHours> existingWorkingHours = dao.getWorkingHours(todayFilter);
-        return existingWorkingHours.stream().findFirst();
+    @Override
+    public HoursSummary getSummary(WorkingHoursFilter filter) {
+
+        reportTimer.record("validation", SUMMARY_TAGS, () -> validator.validateFilter(filter));
+        logger.debug("Fetching hours summary. Filter: " + filter);
+
+        return reportTimer.record("fetch", SUMMARY_TAGS, () -> dao.getHoursSummary(filter, reportBuilder.getOvertimeThreshold()));
     }
 
-    private WorkingHours calculateWorkingHours(String user, ActivityType activityType, LocalDateTime reportDateTime) {
-        Optional<WorkingHours> existingWorkingHours = getExistingWorkingHours(user, reportDateTime);
+    // The lock of the user is held until the transaction is committed (and the punch index and event log updated),
+    // so the next punch of the user sees this one, and the log keeps the order of the user's punches
+    @Override
+    public WorkingHours reportActivity(Activity activity) {
+        logger.debug("Reporting activity.");
+        Tags tags = Tags.of("activity", activity.getActivityType().name());
+        return punchLocks.withLock(activity.getUser(), () -> {
+            punchIndex.ifPresent(index -> validateIndexedWorkingHours(index, activity, tags));
+            WorkingHours recordedWorkingHours = transactionOperations.execute(status -> recordActivity(activity, tags));
+            punchIndex.ifPresent(index -> index.record(recordedWorkingHours));
+            eventLog.ifPresent(log -> appendToEventLog(log, activity, tags));
+            return recordedWorkingHours;
+        });
+    }
 
-        switch (activityType) {
-            case ENTRY:
-            default:
-                return calculateWorkingHoursForEntry(user, existingWorkingHours, reportDateTime);
-            case EXIT:
-                return calculateWorkingHoursForExit(user, existingWorkingHours, reportDateTime);
+    // The activity is appended only once it is committed, so the log never holds a rolled back punch.
+    // The punch is already recorded, so a failure of the log is not a failure of the punch.
+    private void appendToEventLog(ActivityEventLog log, Activity activity, Tags tags) {
+        try {
+            punchTimer.record("log", tags, () -> log.append(activity));
+        } catch (RuntimeException ex) {
+            logger.error("Failed appending recorded activity to the event log. Activity: " + activity, ex);
         }
     }
 
-    private WorkingHours calculateWorkingHoursForExit(String user, Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
-        WorkingHours workingHours = validateExitReport(existingWorkingHours, reportDateTime);
-        return new WorkingHours(user, reportDateTime.toLocalDate(), workingHours.getFromTime(), reportDateTime.toLocalTime());
+    // Only a day found in the index is validated, as a day missing from it may have been punched by another instance
+    private void validateIndexedWorkingHours(PunchIndex index, Activity activity, Tags tags) {
+        Optional<WorkingHours> indexedWorkingHours = index.getWorkingHours(activity.getUser(), activity.getReportDateTime().toLocalDate());
+        if (indexedWorkingHours.isEmpty()) {
+            return;
+        }
+        try {
+            calculator.calculateWorkingHours(indexedWorkingHours, activity);
+        } catch (IllegalArgumentException ex) {
+            meterRegistry.counter("attendance.punch.rejected", tags).increment();
+            logger.debug("Activity was rejected by the punch index. Indexed working hours: " + indexedWorkingHours);
+            throw ex;
+        }
     }
 
-    private WorkingHours validateExitReport(Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
-        if (existingWorkingHours.isEmpty()) {
-            throw new IllegalArgumentException("Cannot report exit. Entry was not reported at " + reportDateTime.toLocalDate());
+    // An exit is added to the monthly hours in the same transaction, so they never miss (or repeat) a recorded exit.
+    // An entry is not rolled up, the open days are counted when the monthly hours are read.
+    private WorkingHours recordActivity(Activity activity, Tags tags) {
+        ActivityRecordResult recordResult = punchTimer.record("record", tags, () -> dao.recordActivity(activity));
+
+        if (!recordResult.isRecorded()) {
+            meterRegistry.counter("attendance.punch.rejected", tags).increment();
+            logger.debug("Activity was not recorded. Conflicting working hours: " + recordResult.getConflictingWorkingHours());
+            rejectActivity(activity, recordResult.getConflictingWorkingHours());
         }
-        WorkingHours workingHours = existingWorkingHours.get();
-        if (workingHours.getToTime() != null) {
-            throw new IllegalArgumentException("Cannot report exit. Exit was already reported at " + workingHours.getToTime());
+
+        WorkingHours recordedWorkingHours = recordedWorkingHours(activity, tags);
+        if (activity.getActivityType() == ActivityType.EXIT) {
+            punchTimer.record("rollup", tags, () -> monthlyHoursDao.addRecordedActivities(List.of(activity)));
         }
-        return workingHours;
+        return recordedWorkingHours;
     }
 
-    private WorkingHours calculateWorkingHoursForEntry(String user, Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
-        validateEntryReport(existingWorkingHours, reportDateTime);
-        return new WorkingHours(user, reportDateTime.toLocalDate(), reportDateTime.toLocalTime());
+    // An exit is recorded without reading its entry, so its day is read back from the primary, within the transaction
+    // which holds the row of the day. Entries are returned without a read, as the entry is the whole day.
+    private WorkingHours recordedWorkingHours(Activity activity, Tags tags) {
+        if (activity.getActivityType() != ActivityType.EXIT) {
+            return entryWorkingHours(activity);
+        }
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        return punchTimer.record("read", tags,
+                () -> dao.getWorkingHoursForUpdate(new WorkingHoursFilter(activity.getUser(), date, date)).get(0));
     }
 
-    private void validateEntryReport(Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
-        if (existingWorkingHours.isPresent()) {
-            throw new IllegalArgumentException("Cannot report entry for user. Entry was already reported for " + reportDateTime.toLocalDate());
-        }
+    // The database rejected the activity, so the calculation is expected to fail with the matching validation error.
+    // The conflicting working hours were written by another instance (or another writer), so they are indexed.
+    private void rejectActivity(Activity activity, Optional<WorkingHours> conflictingWorkingHours) {
+        conflictingWorkingHours.ifPresent(workingHours -> punchIndex.ifPresent(index -> index.record(workingHours)));
+        calculator.calculateWorkingHours(conflictingWorkingHours, activity);
+        throw new IllegalArgumentException("Cannot report " + activity.getActivityType() + ". Working hours were updated concurrently for " + activity.getReportDateTime().toLocalDate());
     }
 
-    private HoursReport buildHoursReport(List<WorkingHours> workingHours) {
-        HoursReport report = new HoursReport();
-        workingHours.forEach(report::addDailyReport);
-        return report;
+    static WorkingHours entryWorkingHours(Activity activity) {
+        LocalDateTime reportDateTime = activity.getReportDateTime();
+        return new WorkingHours(activity.getUser(), reportDateTime.toLocalDate(), reportDateTime.toLocalTime());
     }
 
 }
@@ -0,0 +1,28 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// An hours report of the reactive stack: the working hours are emitted as they are read,
+// and the summary of the emitted working hours is available once they were all emitted.
+// The summary should be subscribed to only after the working hours completed (e.g. with Flux.concat).
+public class HoursReportStream {
+
+    private final Flux<WorkingHours> workingHours;
+    private final Mono<HoursSummary> summary;
+
+    public HoursReportStream(Flux<WorkingHours> workingHours, Mono<HoursSummary> summary) {
+        this.workingHours = workingHours;
+        this.summary = summary;
+    }
+
+    public Flux<WorkingHours> getWorkingHours() {
+        return workingHours;
+    }
+
+    public Mono<HoursSummary> getSummary() {
+        return summary;
+    }
+}
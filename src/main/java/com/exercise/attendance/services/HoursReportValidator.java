@@ -1,7 +1,18 @@
 package com.exercise.attendance.services;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
 import com.exercise.attendance.model.WorkingHoursFilter;
 
 public interface HoursReportValidator {
     void validateFilter(WorkingHoursFilter filter);
+
+    void validateFilter(UsersWorkingHoursFilter filter);
+
+    void validateFilter(WorkingHoursExportFilter filter);
+
+    void validateActivity(Activity activity);
+
+    void validatePageSize(int pageSize, int maxPageSize);
 }
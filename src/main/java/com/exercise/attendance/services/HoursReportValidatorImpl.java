@@ -1,45 +1,91 @@
 package com.exercise.attendance.services;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
 import com.exercise.attendance.model.WorkingHoursFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+
 @Component
 public class HoursReportValidatorImpl implements HoursReportValidator {
 
     public void validateFilter(WorkingHoursFilter filter) {
         validateUser(filter);
-        validateDateRage(filter);
+        validateDateRage(filter.getFromDate(), filter.getToDate());
+    }
+
+    public void validateFilter(UsersWorkingHoursFilter filter) {
+        validateUsers(filter);
+        validateDateRage(filter.getFromDate(), filter.getToDate());
+    }
+
+    // The user prefix and team are optional, but cannot be blank when given
+    public void validateFilter(WorkingHoursExportFilter filter) {
+        validateDateRage(filter.getFromDate(), filter.getToDate());
+        if (filter.getUserPrefix() != null && StringUtils.isBlank(filter.getUserPrefix()))
+            throw new IllegalArgumentException("userPrefix cannot be blank");
+        if (filter.getTeam() != null && StringUtils.isBlank(filter.getTeam()))
+            throw new IllegalArgumentException("team cannot be blank");
+    }
+
+    public void validateActivity(Activity activity) {
+        validateUserIsNotMissing(activity.getUser());
+        validateActivityTypeIsNotEmpty(activity);
+        validateReportDateTimeIsNotEmpty(activity);
     }
 
-    private void validateDateRage(WorkingHoursFilter filter) {
-        validateFromDateIsNotEmpty(filter);
-        validateToDateIsNotEmpty(filter);
-        validateFromDateIsNotAfterToDate(filter);
+    public void validatePageSize(int pageSize, int maxPageSize) {
+        if (pageSize < 1 || pageSize > maxPageSize)
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
     }
 
-    private void validateFromDateIsNotAfterToDate(WorkingHoursFilter filter) {
-        if (filter.getFromDate().isAfter(filter.getToDate())) {
+    private void validateActivityTypeIsNotEmpty(Activity activity) {
+        if (activity.getActivityType() == null)
+            throw new IllegalArgumentException("activityType cannot be empty");
+    }
+
+    private void validateReportDateTimeIsNotEmpty(Activity activity) {
+        if (activity.getReportDateTime() == null)
+            throw new IllegalArgumentException("reportDateTime cannot be empty");
+    }
+
+    private void validateDateRage(LocalDate fromDate, LocalDate toDate) {
+        validateFromDateIsNotEmpty(fromDate);
+        validateToDateIsNotEmpty(toDate);
+        validateFromDateIsNotAfterToDate(fromDate, toDate);
+    }
+
+    private void validateFromDateIsNotAfterToDate(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
             throw new IllegalArgumentException("fromDate cannot be after toDate");
         }
     }
 
-    private void validateToDateIsNotEmpty(WorkingHoursFilter filter) {
-        if (filter.getToDate() == null)
+    private void validateToDateIsNotEmpty(LocalDate toDate) {
+        if (toDate == null)
             throw new IllegalArgumentException("toDate cannot be empty");
     }
 
-    private void validateFromDateIsNotEmpty(WorkingHoursFilter filter) {
-        if (filter.getFromDate() == null)
+    private void validateFromDateIsNotEmpty(LocalDate fromDate) {
+        if (fromDate == null)
             throw new IllegalArgumentException("fromDate cannot be empty");
     }
 
     private void validateUser(WorkingHoursFilter filter) {
-        ValidateUserIsNotMissing(filter);
+        validateUserIsNotMissing(filter.getUser());
+    }
+
+    private void validateUsers(UsersWorkingHoursFilter filter) {
+        if (filter.getUsers() == null || filter.getUsers().isEmpty())
+            throw new IllegalArgumentException("users cannot be empty");
+        filter.getUsers().forEach(this::validateUserIsNotMissing);
     }
 
-    private void ValidateUserIsNotMissing(WorkingHoursFilter filter) {
-        if (StringUtils.isBlank(filter.getUser()))
+    private void validateUserIsNotMissing(String user) {
+        if (StringUtils.isBlank(user))
             throw new IllegalArgumentException("user cannot be empty");
     }
 }
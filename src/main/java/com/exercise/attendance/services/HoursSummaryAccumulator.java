@@ -0,0 +1,36 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+
+import java.util.function.Consumer;
+
+// Sums the working hours passed to it, so a summary can be built while the working hours are streamed
+class HoursSummaryAccumulator implements Consumer<WorkingHours> {
+
+    private final long overtimeThresholdSeconds;
+    private long totalWorkedSeconds;
+    private long workedDays;
+    private long openDays;
+    private long overtimeSeconds;
+
+    HoursSummaryAccumulator(long overtimeThresholdSeconds) {
+        this.overtimeThresholdSeconds = overtimeThresholdSeconds;
+    }
+
+    @Override
+    public void accept(WorkingHours workingHours) {
+        Long workedSeconds = workingHours.getWorkedSeconds();
+        if (workedSeconds == null) {
+            openDays++;
+            return;
+        }
+        workedDays++;
+        totalWorkedSeconds += workedSeconds;
+        overtimeSeconds += Math.max(workedSeconds - overtimeThresholdSeconds, 0);
+    }
+
+    HoursSummary getSummary() {
+        return new HoursSummary(totalWorkedSeconds, workedDays, openDays, overtimeSeconds);
+    }
+}
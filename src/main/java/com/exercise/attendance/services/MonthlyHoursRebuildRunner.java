@@ -0,0 +1,23 @@
+package com.exercise.attendance.services;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Backfills the monthly hours rollup on startup, when started with --attendance.rollup.rebuild=true
+@Component
+@ConditionalOnProperty(name = "attendance.rollup.rebuild", havingValue = "true")
+public class MonthlyHoursRebuildRunner implements ApplicationRunner {
+
+    private final MonthlyReportService service;
+
+    public MonthlyHoursRebuildRunner(MonthlyReportService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        service.rebuild();
+    }
+}
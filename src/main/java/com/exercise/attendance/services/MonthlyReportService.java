@@ -0,0 +1,14 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.MonthlyHoursReport;
+
+import java.time.YearMonth;
+
+public interface MonthlyReportService {
+
+    // Monthly hours of all the users, read from the rollup
+    MonthlyHoursReport getReport(YearMonth month);
+
+    // Backfills the rollup from the existing working hours. Returns the number of months rebuilt.
+    int rebuild();
+}
@@ -0,0 +1,47 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.MonthlyHoursReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Service
+public class MonthlyReportServiceImpl implements MonthlyReportService {
+
+    private final Logger logger = LoggerFactory.getLogger(MonthlyReportServiceImpl.class);
+
+    private final MonthlyHoursDao dao;
+    private final int rebuildUsersPageSize;
+
+    public MonthlyReportServiceImpl(MonthlyHoursDao dao,
+                                    @Value("${attendance.rollup.rebuild-users-page-size:1000}") int rebuildUsersPageSize) {
+        this.dao = dao;
+        this.rebuildUsersPageSize = rebuildUsersPageSize;
+    }
+
+    @Override
+    public MonthlyHoursReport getReport(YearMonth month) {
+        if (month == null)
+            throw new IllegalArgumentException("month cannot be empty");
+
+        logger.debug("Fetching monthly hours report. Month: " + month);
+        List<MonthlyHours> monthlyHours = dao.getMonthlyHours(month);
+        logger.debug("Fetched " + monthlyHours.size() + " for monthly hours report. Month: " + month);
+
+        return new MonthlyHoursReport(month, monthlyHours);
+    }
+
+    @Override
+    public int rebuild() {
+        logger.info("Rebuilding monthly hours.");
+        int rebuiltMonths = dao.rebuildMonthlyHours(rebuildUsersPageSize);
+        logger.info("Rebuilt monthly hours. Affected rows: " + rebuiltMonths);
+        return rebuiltMonths;
+    }
+}
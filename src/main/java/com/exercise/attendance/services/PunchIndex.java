@@ -0,0 +1,248 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.WorkingHours;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Today's working hours of each user, so punches which are bound to be rejected are answered without the database.
+// A day only moves forward (from no working hours, to open, to closed), so a day found open or closed here is at least
+// as far in the database. A day missing here may have been punched by another instance, and is left to the database.
+// The times of a day are packed in a long, as seconds of the day plus one (0 stands for a missing time).
+// Today is taken in the zone of the clock, the system default zone in which the punches are stamped.
+// The index is warmed from a single query on startup, and rolled over to the next day at midnight of that zone, where
+// it is warmed again from the database with the rows of the new day.
+// Users beyond maxUsers are not indexed, so their punches go to the database as without the index.
+@Component
+@ConditionalOnProperty(name = "attendance.punch.index.enabled", havingValue = "true")
+public class PunchIndex {
+
+    // Packed times are never negative
+    private static final long MISSING = -1;
+
+    private final Logger logger = LoggerFactory.getLogger(PunchIndex.class);
+
+    private final WorkingHoursDao dao;
+    private final Clock clock;
+    private final int maxUsers;
+    private final ScheduledExecutorService scheduler;
+    private volatile IndexedDay day;
+
+    @Autowired
+    public PunchIndex(WorkingHoursDao dao, MeterRegistry meterRegistry,
+                      @Value("${attendance.punch.index.max-users:100000}") int maxUsers) {
+        this(dao, meterRegistry, maxUsers, Clock.systemDefaultZone());
+    }
+
+    PunchIndex(WorkingHoursDao dao, MeterRegistry meterRegistry, int maxUsers, Clock clock) {
+        this.dao = dao;
+        this.clock = clock;
+        this.maxUsers = maxUsers;
+        this.day = new IndexedDay(today());
+        meterRegistry.gauge("attendance.punch.index.users", this, index -> index.day.size());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "punch-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::scheduledRollOver);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    // Empty when the day has no working hours, or when they are unknown to this instance
+    public Optional<WorkingHours> getWorkingHours(String user, LocalDate date) {
+        IndexedDay current = day;
+        if (!current.date.equals(date)) {
+            return Optional.empty();
+        }
+        long times = current.get(user);
+        return times == MISSING ? Optional.empty() : Optional.of(toWorkingHours(user, date, times));
+    }
+
+    // Working hours of other days than the indexed one are ignored, except for a later day, which is rolled over to
+    // (as when a punch is stamped just after midnight, before the scheduled roll over)
+    public void record(WorkingHours workingHours) {
+        IndexedDay current = day;
+        if (workingHours.getDate().isAfter(current.date)) {
+            current = rollOverTo(workingHours.getDate());
+        }
+        if (!current.date.equals(workingHours.getDate())) {
+            return;
+        }
+        current.merge(workingHours.getUser(), packTimes(workingHours.getFromTime(), workingHours.getToTime()), maxUsers);
+    }
+
+    // Rolls over to today, and warms its index from the database
+    void rollOver() {
+        LocalDate today = today();
+        try {
+            rollOverTo(today);
+            dao.streamWorkingHours(today, this::record);
+            logger.info("Punch index of " + today + " was warmed with " + day.size() + " users");
+        } catch (RuntimeException ex) {
+            logger.error("Punch index of " + today + " was not warmed, its users are left to the database until they punch", ex);
+        }
+    }
+
+    // Delayed tasks are dropped on close (by shutdownNow), so the next midnight is not waited for
+    private void scheduledRollOver() {
+        rollOver();
+        Instant nextMidnight = today().plusDays(1).atStartOfDay(clock.getZone()).toInstant();
+        long delay = Math.max(Duration.between(clock.instant(), nextMidnight).toMillis(), 0);
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::scheduledRollOver, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized IndexedDay rollOverTo(LocalDate date) {
+        if (date.isAfter(day.date)) {
+            day = new IndexedDay(date);
+        }
+        return day;
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    // A closed day is never reopened, and a missing time is taken from the other side
+    private static long merge(long indexed, long recorded) {
+        if (toSeconds(indexed) >= 0 && toSeconds(recorded) < 0) {
+            return indexed;
+        }
+        int fromSeconds = fromSeconds(recorded) >= 0 ? fromSeconds(recorded) : fromSeconds(indexed);
+        return packTimes(fromSeconds, toSeconds(recorded));
+    }
+
+    private static WorkingHours toWorkingHours(String user, LocalDate date, long times) {
+        return new WorkingHours(user, date, toLocalTime(fromSeconds(times)), toLocalTime(toSeconds(times)));
+    }
+
+    private static long packTimes(LocalTime fromTime, LocalTime toTime) {
+        return packTimes(fromTime == null ? -1 : fromTime.toSecondOfDay(), toTime == null ? -1 : toTime.toSecondOfDay());
+    }
+
+    private static long packTimes(int fromSeconds, int toSeconds) {
+        return ((long) (fromSeconds + 1) << 32) | (toSeconds + 1);
+    }
+
+    private static int fromSeconds(long times) {
+        return (int) (times >>> 32) - 1;
+    }
+
+    private static int toSeconds(long times) {
+        return (int) times - 1;
+    }
+
+    private static LocalTime toLocalTime(int seconds) {
+        return seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds);
+    }
+
+    // The packed times by user, in an open addressing table of a user array and a long array, so a user takes two slots
+    // of 4 and 8 bytes (at most half of the slots are used) besides its name, rather than a map entry and a boxed Long.
+    // Writes are synchronized, while reads take no lock: the times of a new user are set before its name, and a full
+    // table is copied to one of twice the size before it is published.
+    private static class IndexedDay {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final LocalDate date;
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size;
+
+        private IndexedDay(LocalDate date) {
+            this.date = date;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private long get(String user) {
+            Table current = table;
+            int slot = current.find(user);
+            return current.users.get(slot) == null ? MISSING : current.times.get(slot);
+        }
+
+        private synchronized void merge(String user, long times, int maxUsers) {
+            int slot = table.find(user);
+            if (table.users.get(slot) != null) {
+                table.times.set(slot, PunchIndex.merge(table.times.get(slot), times));
+                return;
+            }
+            if (size >= maxUsers) {
+                return;
+            }
+            if ((size + 1) * 2 > table.capacity()) {
+                table = table.grow();
+                slot = table.find(user);
+            }
+            table.put(slot, user, times);
+            size++;
+        }
+    }
+
+    private static class Table {
+        private final AtomicReferenceArray<String> users;
+        private final AtomicLongArray times;
+
+        private Table(int capacity) {
+            this.users = new AtomicReferenceArray<>(capacity);
+            this.times = new AtomicLongArray(capacity);
+        }
+
+        private int capacity() {
+            return users.length();
+        }
+
+        // The slot of the user, or the empty slot where it would be put
+        private int find(String user) {
+            int mask = capacity() - 1;
+            int hash = user.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            String slotUser;
+            while ((slotUser = users.get(slot)) != null && !slotUser.equals(user)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void put(int slot, String user, long packedTimes) {
+            times.set(slot, packedTimes);
+            users.set(slot, user);
+        }
+
+        private Table grow() {
+            Table grown = new Table(capacity() * 2);
+            for (int slot = 0; slot < capacity(); slot++) {
+                String user = users.get(slot);
+                if (user != null) {
+                    grown.put(grown.find(user), user, times.get(slot));
+                }
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.exercise.attendance.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Serializes the punches of each user within this node, while punches of users of other stripes run in parallel.
+// Users are mapped to a fixed number of stripes, so memory does not depend on the number of users,
+// and two users share a stripe (and wait for each other) only when their hashes collide.
+// Acquisitions which had to wait are counted by attendance.punch.lock.contended, and their wait is timed by
+// attendance.punch.lock.wait.
+@Component
+public class PunchLocks {
+
+    private final ReentrantLock[] stripes;
+    private final Counter contended;
+    private final Timer wait;
+
+    public PunchLocks(MeterRegistry meterRegistry,
+                      @Value("${attendance.punch.lock-stripes:1024}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Number of punch lock stripes must be positive: " + stripeCount);
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.contended = meterRegistry.counter("attendance.punch.lock.contended");
+        this.wait = meterRegistry.timer("attendance.punch.lock.wait");
+    }
+
+    public <T> T withLock(String user, Supplier<T> action) {
+        ReentrantLock lock = stripeOf(user);
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            contended.increment();
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripeIndexOf(String user) {
+        // The high bits are spread into the low ones, as user names often differ only in their last characters
+        int hash = user.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private ReentrantLock stripeOf(String user) {
+        return stripes[stripeIndexOf(user)];
+    }
+}
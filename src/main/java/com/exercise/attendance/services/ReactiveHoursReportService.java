@@ -0,0 +1,20 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of HoursReportService, used by the reactive stack.
+// Invalid input is signalled as IllegalArgumentException errors.
+public interface ReactiveHoursReportService {
+
+    // The filter is validated before the first working hours are emitted
+    HoursReportStream getReport(WorkingHoursFilter filter);
+
+    // Summary only, aggregated by the database
+    Mono<HoursSummary> getSummary(WorkingHoursFilter filter);
+
+    Mono<WorkingHours> reportActivity(Activity activity);
+}
@@ -0,0 +1,112 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.ReactiveWorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+// Same validation and entry/exit rules as HoursReportServiceImpl, composed without blocking the event loop.
+// The monthly hours are refreshed with the blocking MonthlyHoursDao on the bounded elastic scheduler,
+// once the activity was recorded (not in the same transaction, unlike HoursReportServiceImpl),
+// and so is the append to the activity event log.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHoursReportServiceImpl implements ReactiveHoursReportService {
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveHoursReportServiceImpl.class);
+
+    private final HoursReportValidator validator;
+    private final WorkingHoursCalculator calculator;
+    private final ReactiveWorkingHoursDao dao;
+    private final HoursReportBuilder reportBuilder;
+    private final MonthlyHoursDao monthlyHoursDao;
+    private final MeterRegistry meterRegistry;
+    private final Optional<ActivityEventLog> eventLog;
+
+    public ReactiveHoursReportServiceImpl(HoursReportValidator validator,
+                                          WorkingHoursCalculator calculator,
+                                          ReactiveWorkingHoursDao dao,
+                                          HoursReportBuilder reportBuilder,
+                                          MonthlyHoursDao monthlyHoursDao,
+                                          MeterRegistry meterRegistry,
+                                          Optional<ActivityEventLog> eventLog) {
+        this.validator = validator;
+        this.calculator = calculator;
+        this.dao = dao;
+        this.reportBuilder = reportBuilder;
+        this.monthlyHoursDao = monthlyHoursDao;
+        this.meterRegistry = meterRegistry;
+        this.eventLog = eventLog;
+    }
+
+    @Override
+    public HoursReportStream getReport(WorkingHoursFilter filter) {
+        HoursSummaryAccumulator summaryAccumulator = reportBuilder.newSummaryAccumulator();
+        Flux<WorkingHours> workingHours = Mono.fromRunnable(() -> validator.validateFilter(filter))
+                .thenMany(Flux.defer(() -> {
+                    logger.debug("Streaming hours report. Filter: " + filter);
+                    return dao.getWorkingHours(filter);
+                }))
+                .doOnNext(summaryAccumulator);
+        return new HoursReportStream(workingHours, Mono.fromSupplier(summaryAccumulator::getSummary));
+    }
+
+    @Override
+    public Mono<HoursSummary> getSummary(WorkingHoursFilter filter) {
+        return Mono.fromRunnable(() -> validator.validateFilter(filter))
+                .then(Mono.defer(() -> dao.getHoursSummary(filter, reportBuilder.getOvertimeThreshold())));
+    }
+
+    @Override
+    public Mono<WorkingHours> reportActivity(Activity activity) {
+        return dao.recordActivity(activity)
+                .flatMap(recordResult -> {
+                    if (recordResult.isRecorded()) {
+                        return refreshMonthlyHours(activity);
+                    }
+                    meterRegistry.counter("attendance.punch.rejected", "activity", activity.getActivityType().name()).increment();
+                    logger.debug("Activity was not recorded. Conflicting working hours: " + recordResult.getConflictingWorkingHours());
+                    return Mono.fromRunnable(() -> rejectActivity(activity, recordResult.getConflictingWorkingHours()));
+                });
+    }
+
+    // The database rejected the activity, so the calculation is expected to fail with the matching validation error
+    private void rejectActivity(Activity activity, Optional<WorkingHours> conflictingWorkingHours) {
+        calculator.calculateWorkingHours(conflictingWorkingHours, activity);
+        throw new IllegalArgumentException("Cannot report " + activity.getActivityType() + ". Working hours were updated concurrently for " + activity.getReportDateTime().toLocalDate());
+    }
+
+    private Mono<WorkingHours> refreshMonthlyHours(Activity activity) {
+        return recordedWorkingHours(activity)
+                .flatMap(recordedWorkingHours -> Mono.fromCallable(() -> {
+                    monthlyHoursDao.refreshMonthlyHours(List.of(recordedWorkingHours));
+                    eventLog.ifPresent(log -> log.append(activity));
+                    return recordedWorkingHours;
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    // As in HoursReportServiceImpl, the day of a recorded exit is read back, so it's returned with its entry
+    private Mono<WorkingHours> recordedWorkingHours(Activity activity) {
+        if (activity.getActivityType() != ActivityType.EXIT) {
+            return Mono.just(HoursReportServiceImpl.entryWorkingHours(activity));
+        }
+        LocalDate date = activity.getReportDateTime().toLocalDate();
+        return dao.getWorkingHours(new WorkingHoursFilter(activity.getUser(), date, date)).next();
+    }
+}
@@ -0,0 +1,25 @@
+package com.exercise.attendance.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// The cursor of a report page is the last date of the previous page, encoded so clients treat it as opaque
+final class ReportCursor {
+
+    private ReportCursor() {
+    }
+
+    static String encode(LocalDate lastDate) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastDate.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static LocalDate decode(String cursor) {
+        try {
+            return LocalDate.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("cursor is invalid");
+        }
+    }
+}
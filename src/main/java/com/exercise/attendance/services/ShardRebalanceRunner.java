@@ -0,0 +1,33 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ShardRebalancer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Moves users to their shard on startup, when started with the sharded profile and --attendance.shards.rebalance=true,
+// e.g. once a shard was appended.
+// The users to move are found while the application starts, before it serves punches, so their punches go to their
+// old shard until they are moved. The moves run once the application started.
+@Component
+@ConditionalOnProperty(name = "attendance.shards.rebalance", havingValue = "true")
+public class ShardRebalanceRunner implements InitializingBean, ApplicationRunner {
+
+    private final ShardRebalancer rebalancer;
+
+    public ShardRebalanceRunner(ShardRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebalancer.startMoves();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebalancer.rebalance();
+    }
+}
@@ -0,0 +1,13 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.TeamHoursReport;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+
+import java.time.LocalDate;
+
+public interface TeamReportService {
+
+    TeamHoursReport getReport(UsersWorkingHoursFilter filter);
+
+    TeamHoursReport getTeamReport(String team, LocalDate fromDate, LocalDate toDate);
+}
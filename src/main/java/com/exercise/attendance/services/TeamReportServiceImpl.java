@@ -0,0 +1,130 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.TeamDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.metrics.StageTimer;
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.TeamHoursReport;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHours;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// Builds the hours reports of many users from a single set-based fetch.
+// Large teams are split between the threads of a bounded executor.
+// Stages are timed by attendance.report, tagged with the team endpoint.
+@Service
+public class TeamReportServiceImpl implements TeamReportService {
+
+    private static final Tags TEAM_TAGS = Tags.of("endpoint", "team");
+
+    private final Logger logger = LoggerFactory.getLogger(TeamReportServiceImpl.class);
+
+    private final HoursReportValidator validator;
+    private final WorkingHoursDao dao;
+    private final TeamDao teamDao;
+    private final HoursReportBuilder reportBuilder;
+    private final MeterRegistry meterRegistry;
+    private final StageTimer reportTimer;
+    private final ExecutorService reportBuilders;
+    private final int parallelism;
+    private final int parallelThreshold;
+
+    public TeamReportServiceImpl(HoursReportValidator validator,
+                                 WorkingHoursDao dao,
+                                 TeamDao teamDao,
+                                 HoursReportBuilder reportBuilder,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${attendance.report.team.parallelism:4}") int parallelism,
+                                 @Value("${attendance.report.team.parallel-threshold:100}") int parallelThreshold) {
+        this.validator = validator;
+        this.dao = dao;
+        this.teamDao = teamDao;
+        this.reportBuilder = reportBuilder;
+        this.meterRegistry = meterRegistry;
+        this.reportTimer = new StageTimer(meterRegistry, "attendance.report");
+        this.parallelism = parallelism;
+        this.parallelThreshold = parallelThreshold;
+        this.reportBuilders = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @Override
+    public TeamHoursReport getReport(UsersWorkingHoursFilter filter) {
+
+        reportTimer.record("validation", TEAM_TAGS, () -> validator.validateFilter(filter));
+        logger.debug("Fetching team hours report. Filter: " + filter);
+
+        List<WorkingHours> workingHours = reportTimer.record("fetch", TEAM_TAGS, () -> dao.getWorkingHours(filter));
+        logger.debug("Fetched " + workingHours.size() + " for team hour report. Filter: " + filter);
+        meterRegistry.summary("attendance.report.rows", TEAM_TAGS).record(workingHours.size());
+
+        return reportTimer.record("build", TEAM_TAGS, () -> buildTeamHoursReport(filter.getUsers(), groupByUser(workingHours)));
+    }
+
+    @Override
+    public TeamHoursReport getTeamReport(String team, LocalDate fromDate, LocalDate toDate) {
+        if (StringUtils.isBlank(team))
+            throw new IllegalArgumentException("team cannot be empty");
+
+        List<String> members = reportTimer.record("members", TEAM_TAGS, () -> teamDao.getTeamMembers(team));
+        if (members.isEmpty())
+            throw new IllegalArgumentException("team " + team + " has no members");
+
+        return getReport(new UsersWorkingHoursFilter(new LinkedHashSet<>(members), fromDate, toDate));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reportBuilders.shutdown();
+    }
+
+    private Map<String, List<WorkingHours>> groupByUser(List<WorkingHours> workingHours) {
+        return workingHours.stream().collect(Collectors.groupingBy(WorkingHours::getUser));
+    }
+
+    // Every requested user gets a report, even if it's empty
+    private TeamHoursReport buildTeamHoursReport(Set<String> users, Map<String, List<WorkingHours>> workingHoursByUser) {
+        List<String> sortedUsers = new ArrayList<>(new TreeSet<>(users));
+        List<HoursReport> reports = users.size() < parallelThreshold ?
+                buildHoursReports(sortedUsers, workingHoursByUser) :
+                buildHoursReportsInParallel(sortedUsers, workingHoursByUser);
+
+        TeamHoursReport teamReport = new TeamHoursReport();
+        for (int i = 0; i < sortedUsers.size(); i++) {
+            teamReport.addUserReport(sortedUsers.get(i), reports.get(i));
+        }
+        return teamReport;
+    }
+
+    private List<HoursReport> buildHoursReportsInParallel(List<String> sortedUsers, Map<String, List<WorkingHours>> workingHoursByUser) {
+        int chunkSize = (sortedUsers.size() + parallelism - 1) / parallelism;
+        List<CompletableFuture<List<HoursReport>>> chunks = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < sortedUsers.size(); chunkStart += chunkSize) {
+            List<String> usersChunk = sortedUsers.subList(chunkStart, Math.min(chunkStart + chunkSize, sortedUsers.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> buildHoursReports(usersChunk, workingHoursByUser), reportBuilders));
+        }
+        return chunks.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private List<HoursReport> buildHoursReports(List<String> users, Map<String, List<WorkingHours>> workingHoursByUser) {
+        return users.stream()
+                .map(user -> reportBuilder.buildHoursReport(workingHoursByUser.getOrDefault(user, Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+}
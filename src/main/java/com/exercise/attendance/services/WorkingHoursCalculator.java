@@ -0,0 +1,10 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.WorkingHours;
+
+import java.util.Optional;
+
+public interface WorkingHoursCalculator {
+    WorkingHours calculateWorkingHours(Optional<WorkingHours> existingWorkingHours, Activity activity);
+}
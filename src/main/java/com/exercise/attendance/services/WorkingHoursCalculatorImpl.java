@@ -0,0 +1,49 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.WorkingHours;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Component
+public class WorkingHoursCalculatorImpl implements WorkingHoursCalculator {
+
+    public WorkingHours calculateWorkingHours(Optional<WorkingHours> existingWorkingHours, Activity activity) {
+        switch (activity.getActivityType()) {
+            case ENTRY:
+            default:
+                return calculateWorkingHoursForEntry(activity.getUser(), existingWorkingHours, activity.getReportDateTime());
+            case EXIT:
+                return calculateWorkingHoursForExit(activity.getUser(), existingWorkingHours, activity.getReportDateTime());
+        }
+    }
+
+    private WorkingHours calculateWorkingHoursForExit(String user, Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
+        WorkingHours workingHours = validateExitReport(existingWorkingHours, reportDateTime);
+        return new WorkingHours(user, reportDateTime.toLocalDate(), workingHours.getFromTime(), reportDateTime.toLocalTime());
+    }
+
+    private WorkingHours validateExitReport(Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
+        if (existingWorkingHours.isEmpty()) {
+            throw new IllegalArgumentException("Cannot report exit. Entry was not reported at " + reportDateTime.toLocalDate());
+        }
+        WorkingHours workingHours = existingWorkingHours.get();
+        if (workingHours.getToTime() != null) {
+            throw new IllegalArgumentException("Cannot report exit. Exit was already reported at " + workingHours.getToTime());
+        }
+        return workingHours;
+    }
+
+    private WorkingHours calculateWorkingHoursForEntry(String user, Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
+        validateEntryReport(existingWorkingHours, reportDateTime);
+        return new WorkingHours(user, reportDateTime.toLocalDate(), reportDateTime.toLocalTime());
+    }
+
+    private void validateEntryReport(Optional<WorkingHours> existingWorkingHours, LocalDateTime reportDateTime) {
+        if (existingWorkingHours.isPresent()) {
+            throw new IllegalArgumentException("Cannot report entry for user. Entry was already reported for " + reportDateTime.toLocalDate());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.WorkingHours;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// A columnar export, made of the "WHC1" magic and row groups of up to rowGroupSize rows each, until the end of the file.
+// Rows are sorted by user and date, so the columns of a row group are:
+// users - the number of runs of a user, then each run as its user (length and UTF-8 bytes) and its number of rows
+// dates - each date as its epoch day minus the epoch day of the previous row (0 for the first row), zigzag encoded
+// from times, to times - each time as its second of day plus 1, or 0 when missing
+// All the numbers, including the number of rows which starts a row group, are unsigned LEB128 varints.
+// A row group is held in primitive arrays until written, so memory is bounded by the row group size.
+class WorkingHoursColumnarWriter implements WorkingHoursExportWriter {
+
+    static final byte[] MAGIC = {'W', 'H', 'C', '1'};
+    static final int ROW_GROUP_SIZE = 65536;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final OutputStream outputStream;
+    private final long[] epochDays;
+    private final int[] fromTimes;
+    private final int[] toTimes;
+    private final List<String> runUsers = new ArrayList<>();
+    private final List<Integer> runRows = new ArrayList<>();
+    private int rows;
+
+    WorkingHoursColumnarWriter(OutputStream outputStream, int rowGroupSize) {
+        this.outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        this.epochDays = new long[rowGroupSize];
+        this.fromTimes = new int[rowGroupSize];
+        this.toTimes = new int[rowGroupSize];
+    }
+
+    static void writeHeader(OutputStream outputStream) throws IOException {
+        outputStream.write(MAGIC);
+    }
+
+    @Override
+    public void accept(WorkingHours workingHours) {
+        int lastRun = runUsers.size() - 1;
+        if (lastRun >= 0 && runUsers.get(lastRun).equals(workingHours.getUser())) {
+            runRows.set(lastRun, runRows.get(lastRun) + 1);
+        } else {
+            runUsers.add(workingHours.getUser());
+            runRows.add(1);
+        }
+        epochDays[rows] = workingHours.getDate().toEpochDay();
+        fromTimes[rows] = encode(workingHours.getFromTime());
+        toTimes[rows] = encode(workingHours.getToTime());
+        rows++;
+        if (rows == epochDays.length) {
+            try {
+                writeRowGroup();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeRowGroup();
+        }
+        outputStream.flush();
+    }
+
+    private void writeRowGroup() throws IOException {
+        writeVarint(rows);
+        writeVarint(runUsers.size());
+        for (int run = 0; run < runUsers.size(); run++) {
+            byte[] user = runUsers.get(run).getBytes(StandardCharsets.UTF_8);
+            writeVarint(user.length);
+            outputStream.write(user);
+            writeVarint(runRows.get(run));
+        }
+        long previousEpochDay = 0;
+        for (int row = 0; row < rows; row++) {
+            long delta = epochDays[row] - previousEpochDay;
+            writeVarint((delta << 1) ^ (delta >> 63));
+            previousEpochDay = epochDays[row];
+        }
+        for (int row = 0; row < rows; row++) {
+            writeVarint(fromTimes[row]);
+        }
+        for (int row = 0; row < rows; row++) {
+            writeVarint(toTimes[row]);
+        }
+        runUsers.clear();
+        runRows.clear();
+        rows = 0;
+    }
+
+    private static int encode(LocalTime time) {
+        return time == null ? 0 : time.toSecondOfDay() + 1;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            outputStream.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+}
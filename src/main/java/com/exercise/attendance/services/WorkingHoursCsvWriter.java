@@ -0,0 +1,66 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.WorkingHours;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+
+// RFC 4180 CSV: a user with a comma, quote or line break is quoted. Open days have empty to_time and worked_seconds.
+class WorkingHoursCsvWriter implements WorkingHoursExportWriter {
+
+    static final String HEADER = "user,date,from_time,to_time,worked_seconds\r\n";
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Writer writer;
+
+    WorkingHoursCsvWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static void writeHeader(OutputStream outputStream) throws IOException {
+        outputStream.write(HEADER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void accept(WorkingHours workingHours) {
+        try {
+            writer.write(escape(workingHours.getUser()));
+            writer.write(',');
+            writer.write(workingHours.getDate().toString());
+            writer.write(',');
+            writer.write(format(workingHours.getFromTime()));
+            writer.write(',');
+            writer.write(format(workingHours.getToTime()));
+            writer.write(',');
+            Long workedSeconds = workingHours.getWorkedSeconds();
+            if (workedSeconds != null) {
+                writer.write(Long.toString(workedSeconds));
+            }
+            writer.write("\r\n");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private static String format(LocalTime time) {
+        return time == null ? "" : time.toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,19 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.ExportJob;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface WorkingHoursExportService {
+
+    // Queues an export of the working hours matching the filter, which runs in the background
+    ExportJob submit(WorkingHoursExportFilter filter, ExportFormat format);
+
+    Optional<ExportJob> getJob(String id);
+
+    // Present once the job is completed
+    Optional<Path> getFile(String id);
+}
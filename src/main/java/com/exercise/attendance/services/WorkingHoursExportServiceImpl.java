@@ -0,0 +1,281 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursExportDao;
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.ExportJob;
+import com.exercise.attendance.model.ExportJobStatus;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+// Exports run one at a time (jobs are queued), each one reading the chunks of its users in parallel.
+// Every chunk is written by its own thread to a gzip part file, and the parts are appended to the export in the order
+// of their users, so the export is a valid multi-member gzip file, and memory does not depend on the export size.
+// Jobs and their files are removed retention after they finished, once another job is submitted.
+@Service
+@ConditionalOnProperty(name = "attendance.export.enabled", havingValue = "true")
+public class WorkingHoursExportServiceImpl implements WorkingHoursExportService {
+
+    private final Logger logger = LoggerFactory.getLogger(WorkingHoursExportServiceImpl.class);
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final HoursReportValidator validator;
+    private final WorkingHoursExportDao dao;
+    private final Path directory;
+    private final int usersPerChunk;
+    private final Duration retention;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService chunkExecutor;
+    private final Map<String, Export> exports = new ConcurrentHashMap<>();
+
+    public WorkingHoursExportServiceImpl(HoursReportValidator validator,
+                                         WorkingHoursExportDao dao,
+                                         @Value("${attendance.export.directory:exports}") String directory,
+                                         @Value("${attendance.export.parallelism:4}") int parallelism,
+                                         @Value("${attendance.export.users-per-chunk:1000}") int usersPerChunk,
+                                         @Value("${attendance.export.retention:PT24H}") Duration retention) {
+        this.validator = validator;
+        this.dao = dao;
+        this.directory = Path.of(directory);
+        this.usersPerChunk = usersPerChunk;
+        this.retention = retention;
+        this.jobExecutor = Executors.newSingleThreadExecutor(daemonThreads("working-hours-export"));
+        this.chunkExecutor = Executors.newFixedThreadPool(parallelism, daemonThreads("working-hours-export-chunk"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        jobExecutor.shutdownNow();
+        chunkExecutor.shutdownNow();
+        jobExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        chunkExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public ExportJob submit(WorkingHoursExportFilter filter, ExportFormat format) {
+        validator.validateFilter(filter);
+        removeExpiredExports();
+        Export export = new Export(UUID.randomUUID().toString(), filter, format);
+        exports.put(export.id, export);
+        jobExecutor.execute(() -> run(export));
+        logger.info("Queued working hours export " + export.id + ". Used filter: " + filter);
+        return export.toJob();
+    }
+
+    @Override
+    public Optional<ExportJob> getJob(String id) {
+        return Optional.ofNullable(exports.get(id)).map(Export::toJob);
+    }
+
+    @Override
+    public Optional<Path> getFile(String id) {
+        return Optional.ofNullable(exports.get(id)).map(export -> export.file);
+    }
+
+    private void run(Export export) {
+        export.status = ExportJobStatus.RUNNING;
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(export.id + export.format.getFileExtension());
+            Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+            List<String> firstUsers = dao.getChunkFirstUsers(export.filter, usersPerChunk);
+            export.totalChunks = firstUsers.size();
+            List<Future<Path>> parts = new ArrayList<>();
+            for (int chunk = 0; chunk < firstUsers.size(); chunk++) {
+                String fromUser = firstUsers.get(chunk);
+                String toUser = chunk + 1 < firstUsers.size() ? firstUsers.get(chunk + 1) : null;
+                Path part = directory.resolve(export.id + ".part" + chunk);
+                parts.add(chunkExecutor.submit(() -> exportChunk(export, fromUser, toUser, part)));
+            }
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE)) {
+                writeHeader(export.format, outputStream);
+                appendParts(export, parts, outputStream);
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(temporaryFile);
+                throw ex;
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            export.file = file;
+            export.finish(ExportJobStatus.COMPLETED, null);
+            logger.info("Exported " + export.exportedRows.sum() + " working hours to " + file);
+        } catch (IOException | RuntimeException ex) {
+            export.finish(ExportJobStatus.FAILED, ex.getMessage());
+            logger.error("Working hours export " + export.id + " failed", ex);
+        }
+    }
+
+    // When a chunk fails, the chunks which did not start yet are skipped, the running ones are awaited,
+    // and all the parts are deleted
+    private void appendParts(Export export, List<Future<Path>> parts, OutputStream outputStream) throws IOException {
+        try {
+            for (Future<Path> part : parts) {
+                Path partFile = getPart(part);
+                Files.copy(partFile, outputStream);
+                Files.delete(partFile);
+            }
+        } catch (IOException | RuntimeException ex) {
+            export.failed = true;
+            for (int chunk = 0; chunk < parts.size(); chunk++) {
+                try {
+                    parts.get(chunk).get();
+                } catch (ExecutionException | RuntimeException ignored) {
+                    // The first failure is the one reported
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                Files.deleteIfExists(directory.resolve(export.id + ".part" + chunk));
+            }
+            throw ex;
+        }
+    }
+
+    private Path getPart(Future<Path> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private Path exportChunk(Export export, String fromUser, String toUser, Path part) throws IOException {
+        if (export.failed) {
+            return part;
+        }
+        try (GZIPOutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(part), BUFFER_SIZE)) {
+            WorkingHoursExportWriter writer = createWriter(export.format, outputStream);
+            dao.exportWorkingHours(export.filter, fromUser, toUser, workingHours -> {
+                writer.accept(workingHours);
+                export.exportedRows.increment();
+            });
+            writer.finish();
+        }
+        export.completedChunks.incrementAndGet();
+        return part;
+    }
+
+    // The header is a gzip member of its own, in front of the parts
+    private void writeHeader(ExportFormat format, OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        switch (format) {
+            case COLUMNAR:
+                WorkingHoursColumnarWriter.writeHeader(gzipOutputStream);
+                break;
+            case CSV:
+            default:
+                WorkingHoursCsvWriter.writeHeader(gzipOutputStream);
+        }
+        gzipOutputStream.finish();
+    }
+
+    private WorkingHoursExportWriter createWriter(ExportFormat format, OutputStream outputStream) {
+        switch (format) {
+            case COLUMNAR:
+                return new WorkingHoursColumnarWriter(outputStream, WorkingHoursColumnarWriter.ROW_GROUP_SIZE);
+            case CSV:
+            default:
+                return new WorkingHoursCsvWriter(outputStream);
+        }
+    }
+
+    private void removeExpiredExports() {
+        Instant expiry = Instant.now().minus(retention);
+        exports.values().removeIf(export -> {
+            if (export.finishedAt == null || export.finishedAt.isAfter(expiry)) {
+                return false;
+            }
+            if (export.file != null) {
+                try {
+                    Files.deleteIfExists(export.file);
+                } catch (IOException ex) {
+                    logger.warn("Failed deleting expired export " + export.file, ex);
+                }
+            }
+            return true;
+        });
+    }
+
+    // The progress of a job, updated by the job and chunk threads
+    private static class Export {
+        private final String id;
+        private final WorkingHoursExportFilter filter;
+        private final ExportFormat format;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private final LongAdder exportedRows = new LongAdder();
+        private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+        private volatile int totalChunks;
+        private volatile boolean failed;
+        private volatile Path file;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Export(String id, WorkingHoursExportFilter filter, ExportFormat format) {
+            this.id = id;
+            this.filter = filter;
+            this.format = format;
+        }
+
+        // The status is set last, so a finished job is seen with its finish time and error
+        private void finish(ExportJobStatus status, String error) {
+            this.finishedAt = Instant.now();
+            this.error = error;
+            this.status = status;
+        }
+
+        private ExportJob toJob() {
+            return new ExportJob(id, filter, format, status, totalChunks, completedChunks.get(), exportedRows.sum(),
+                    submittedAt, finishedAt, error);
+        }
+    }
+}
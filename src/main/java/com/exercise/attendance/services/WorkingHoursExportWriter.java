@@ -0,0 +1,14 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.WorkingHours;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+// Writes the working hours of a range of users to a part of an export file.
+// Write failures are thrown as UncheckedIOException, since working hours are passed by a Consumer.
+interface WorkingHoursExportWriter extends Consumer<WorkingHours> {
+
+    // Writes what is still buffered, without closing the output stream
+    void finish() throws IOException;
+}
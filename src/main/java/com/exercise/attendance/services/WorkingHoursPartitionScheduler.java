@@ -0,0 +1,53 @@
+package com.exercise.attendance.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Maintains the working hours partitions on startup, and every interval after that
+@Component
+@ConditionalOnProperty(name = "attendance.partitions.enabled", havingValue = "true")
+public class WorkingHoursPartitionScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(WorkingHoursPartitionScheduler.class);
+
+    private final WorkingHoursPartitionService service;
+    private final ScheduledExecutorService scheduler;
+
+    public WorkingHoursPartitionScheduler(WorkingHoursPartitionService service,
+                                          @Value("${attendance.partitions.maintenance-interval:PT24H}") Duration interval) {
+        this.service = service;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "working-hours-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void maintain() {
+        YearMonth currentMonth = YearMonth.now();
+        try {
+            service.addPartitions(currentMonth);
+            service.dropExpiredPartitions(currentMonth);
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Working hours partition maintenance failed, it is retried on the next interval", ex);
+        }
+    }
+}
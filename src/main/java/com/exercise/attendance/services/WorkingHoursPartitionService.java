@@ -0,0 +1,14 @@
+package com.exercise.attendance.services;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface WorkingHoursPartitionService {
+
+    // Adds the monthly partitions up to monthsAhead months after the current month, and returns the added months
+    List<YearMonth> addPartitions(YearMonth currentMonth);
+
+    // Archives and drops the partitions of the months before the retention horizon, and returns the dropped months
+    List<YearMonth> dropExpiredPartitions(YearMonth currentMonth) throws IOException;
+}
@@ -0,0 +1,136 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursPartitionDao;
+import com.exercise.attendance.model.WorkingHours;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Nothing is maintained until the table was partitioned out of band (db/online/partition_working_hours_by_month.sql).
+// The first maintenance splits the months from the earliest row to monthsAhead months ahead off p_future,
+// and the later ones only add the months ahead, while p_future is still empty, so they move no rows.
+// A retentionMonths of 0 keeps all the partitions. The monthly hours of dropped months are kept.
+// Archives are gzipped in the default format of MySQL's LOAD DATA (tab separated, \N for null), so a month can be
+// restored with: LOAD DATA LOCAL INFILE '<unzipped archive>' INTO TABLE WORKING_HOURS (USER, DATE, FROM_TIME, TO_TIME)
+@Service
+@ConditionalOnProperty(name = "attendance.partitions.enabled", havingValue = "true")
+public class WorkingHoursPartitionServiceImpl implements WorkingHoursPartitionService {
+
+    private final Logger logger = LoggerFactory.getLogger(WorkingHoursPartitionServiceImpl.class);
+
+    private final WorkingHoursPartitionDao dao;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archiveEnabled;
+    private final Path archiveDirectory;
+
+    public WorkingHoursPartitionServiceImpl(WorkingHoursPartitionDao dao,
+                                            @Value("${attendance.partitions.months-ahead:3}") int monthsAhead,
+                                            @Value("${attendance.partitions.retention-months:0}") int retentionMonths,
+                                            @Value("${attendance.partitions.archive.enabled:true}") boolean archiveEnabled,
+                                            @Value("${attendance.partitions.archive.directory:archive}") String archiveDirectory) {
+        this.dao = dao;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveDirectory = Path.of(archiveDirectory);
+    }
+
+    @Override
+    public List<YearMonth> addPartitions(YearMonth currentMonth) {
+        if (!dao.isPartitioned()) {
+            logger.warn("WORKING_HOURS is not partitioned yet, so no partitions are added. " +
+                    "It is partitioned out of band by db/online/partition_working_hours_by_month.sql");
+            return List.of();
+        }
+        List<YearMonth> partitionMonths = dao.getPartitionMonths();
+        YearMonth firstMonth = partitionMonths.isEmpty() ?
+                dao.getFirstFutureMonth().filter(month -> month.isBefore(currentMonth)).orElse(currentMonth) :
+                partitionMonths.get(partitionMonths.size() - 1).plusMonths(1);
+        List<YearMonth> addedMonths = new ArrayList<>();
+        for (YearMonth month = firstMonth; !month.isAfter(currentMonth.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            addedMonths.add(month);
+        }
+        if (!addedMonths.isEmpty()) {
+            dao.addPartitions(addedMonths);
+            logger.info("Added working hours partitions of " + addedMonths);
+        }
+        return addedMonths;
+    }
+
+    @Override
+    public List<YearMonth> dropExpiredPartitions(YearMonth currentMonth) throws IOException {
+        List<YearMonth> droppedMonths = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return droppedMonths;
+        }
+        YearMonth horizon = currentMonth.minusMonths(retentionMonths);
+        for (YearMonth month : dao.getPartitionMonths()) {
+            if (!month.isBefore(horizon)) {
+                break;
+            }
+            if (archiveEnabled) {
+                archive(month);
+            }
+            dao.dropPartition(month);
+            droppedMonths.add(month);
+            logger.info("Dropped the working hours partition of " + month);
+        }
+        return droppedMonths;
+    }
+
+    // The archive is written to a temporary file which replaces the archive only once complete,
+    // so a partition is never dropped with a partial archive
+    private void archive(YearMonth month) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        Path archive = archiveDirectory.resolve("WORKING_HOURS-" + month + ".tsv.gz");
+        Path temporaryArchive = archiveDirectory.resolve(archive.getFileName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temporaryArchive)), StandardCharsets.UTF_8))) {
+            dao.exportPartition(month, workingHours -> write(writer, workingHours));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        Files.move(temporaryArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Archived the working hours partition of " + month + " to " + archive);
+    }
+
+    private void write(Writer writer, WorkingHours workingHours) {
+        try {
+            writer.write(escape(workingHours.getUser()));
+            writer.write('\t');
+            writer.write(workingHours.getDate().toString());
+            writer.write('\t');
+            writer.write(format(workingHours.getFromTime()));
+            writer.write('\t');
+            writer.write(format(workingHours.getToTime()));
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String format(LocalTime time) {
+        return time == null ? "\\N" : time.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,234 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.PartiallyRecordedActivitiesException;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Accepts activities into bounded queues and records them in micro-batches.
+// Each user is mapped to a single partition, and each partition is flushed by a single thread,
+// so the activities of a user are recorded in the order they were submitted.
+// A batch is recorded by the batch recorder, in a single transaction. A failed batch is rolled back as a whole, so it is
+// retried, and after the last attempt it is appended to the dead letter file (newline delimited Json activities,
+// which can be imported later on), so an accepted activity is never dropped.
+// A batch split between shards may fail on some of them only, and then only the activities of those are retried, as
+// the others are committed (and would be rejected as conflicts when recorded again).
+@Service
+@ConditionalOnProperty(name = "attendance.ingestion.write-behind.enabled", havingValue = "true")
+public class WriteBehindActivityIngestionService implements ActivityIngestionService {
+
+    private final Logger logger = LoggerFactory.getLogger(WriteBehindActivityIngestionService.class);
+
+    private final ActivityBatchRecorder recorder;
+    private final WorkingHoursCalculator calculator;
+    private final ObjectWriter activityWriter;
+    private final List<BlockingQueue<Activity>> partitions;
+    private final ExecutorService flushers;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Duration drainTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Path deadLetterFile;
+
+    // Submissions hold the read lock while they check running and queue the activity,
+    // so no activity is queued once the shutdown has set running to false
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public WriteBehindActivityIngestionService(ActivityBatchRecorder recorder,
+                                               WorkingHoursCalculator calculator,
+                                               ObjectMapper objectMapper,
+                                               @Value("${attendance.ingestion.write-behind.partitions:4}") int partitionCount,
+                                               @Value("${attendance.ingestion.write-behind.queue-capacity:10000}") int queueCapacity,
+                                               @Value("${attendance.ingestion.write-behind.batch-size:500}") int batchSize,
+                                               @Value("${attendance.ingestion.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+                                               @Value("${attendance.ingestion.write-behind.drain-timeout:PT30S}") Duration drainTimeout,
+                                               @Value("${attendance.ingestion.write-behind.max-attempts:3}") int maxAttempts,
+                                               @Value("${attendance.ingestion.write-behind.retry-backoff:PT1S}") Duration retryBackoff,
+                                               @Value("${attendance.ingestion.write-behind.dead-letter-file:write-behind-dead-letters.ndjson}") Path deadLetterFile) {
+        this.recorder = recorder;
+        this.calculator = calculator;
+        this.activityWriter = objectMapper.writerFor(Activity.class);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.drainTimeout = drainTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.deadLetterFile = deadLetterFile;
+        this.partitions = createPartitions(partitionCount, queueCapacity);
+        this.flushers = Executors.newFixedThreadPool(partitionCount);
+        partitions.forEach(partition -> flushers.execute(() -> flushLoop(partition)));
+    }
+
+    @Override
+    public void submit(Activity activity) {
+        submitLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IngestionQueueFullException("Activity ingestion is shutting down");
+            }
+            if (!partitionOf(activity.getUser()).offer(activity)) {
+                throw new IngestionQueueFullException("Activity ingestion queue is full");
+            }
+        } finally {
+            submitLock.readLock().unlock();
+        }
+    }
+
+    // Stops accepting activities, and waits for the already accepted ones to be recorded.
+    // Activities which were not recorded within the drain timeout are appended to the dead letter file.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        submitLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        flushers.shutdown();
+        if (!flushers.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            List<Activity> remainingActivities = new ArrayList<>();
+            partitions.forEach(partition -> partition.drainTo(remainingActivities));
+            logger.error("Activity ingestion was not drained within " + drainTimeout + ". Remaining activities: " + remainingActivities.size());
+            deadLetter(remainingActivities);
+        }
+    }
+
+    private List<BlockingQueue<Activity>> createPartitions(int partitionCount, int queueCapacity) {
+        int partitionCapacity = Math.max(1, queueCapacity / partitionCount);
+        List<BlockingQueue<Activity>> queues = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(partitionCapacity));
+        }
+        return queues;
+    }
+
+    private BlockingQueue<Activity> partitionOf(String user) {
+        return partitions.get(Math.floorMod(user.hashCode(), partitions.size()));
+    }
+
+    private void flushLoop(BlockingQueue<Activity> partition) {
+        List<Activity> batch = new ArrayList<>(batchSize);
+        while (running || !partition.isEmpty()) {
+            try {
+                collectBatch(partition, batch);
+            } catch (InterruptedException ex) {
+                // Polls fail at once from now on, so the rest of the partition is drained without waiting
+                Thread.currentThread().interrupt();
+                running = false;
+                partition.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(List.copyOf(batch));
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits up to the flush interval for the first activity, and then until the batch is full or the interval elapsed
+    private void collectBatch(BlockingQueue<Activity> partition, List<Activity> batch) throws InterruptedException {
+        Activity first = partition.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            partition.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            Activity next = partition.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // Retries wait for a growing backoff, which also holds back the partition, so a failing database fills the queue
+    // (and submissions are refused) rather than the dead letter file
+    private void flush(List<Activity> batch) {
+        logger.debug("Flushing " + batch.size() + " activities.");
+        List<Activity> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                logRejectedActivities(pending, recorder.record(pending));
+                return;
+            } catch (RuntimeException ex) {
+                if (ex instanceof PartiallyRecordedActivitiesException partiallyRecorded) {
+                    logRejectedActivities(pending, partiallyRecorded.getRecordResults());
+                    pending = partiallyRecorded.unrecordedActivities(pending);
+                }
+                if (attempt >= maxAttempts) {
+                    logger.error("Failed recording " + pending.size() + " activities after " + attempt + " attempts.", ex);
+                    deadLetter(pending);
+                    return;
+                }
+                logger.warn("Failed recording " + pending.size() + " activities, attempt " + attempt + " of " + maxAttempts + ". " + ex.getMessage());
+            }
+            try {
+                Thread.sleep(retryBackoff.multipliedBy(attempt).toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    // The rejection is calculated from the conflicting working hours, for the same message as a rejected punch.
+    // Activities without a result (of a failed shard) were not recorded, and are not rejected either.
+    private void logRejectedActivities(List<Activity> batch, List<ActivityRecordResult> results) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (results.get(i) == null || results.get(i).isRecorded()) {
+                continue;
+            }
+            Activity activity = batch.get(i);
+            try {
+                calculator.calculateWorkingHours(results.get(i).getConflictingWorkingHours(), activity);
+                logger.warn("Activity was rejected. Activity: " + activity + ". Working hours were updated concurrently.");
+            } catch (IllegalArgumentException ex) {
+                logger.warn("Activity was rejected. Activity: " + activity + ". " + ex.getMessage());
+            }
+        }
+    }
+
+    // Appended by the flushers and the shutdown, so writes are serialized. When even the file fails,
+    // the activities are logged in full, as the last place they are kept.
+    private synchronized void deadLetter(List<Activity> activities) {
+        if (activities.isEmpty()) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Activity activity : activities) {
+                writer.write(activityWriter.writeValueAsString(activity));
+                writer.write('\n');
+            }
+            logger.error("Appended " + activities.size() + " activities to the dead letter file " + deadLetterFile.toAbsolutePath());
+        } catch (IOException ex) {
+            logger.error("Failed appending " + activities.size() + " activities to the dead letter file " + deadLetterFile.toAbsolutePath()
+                    + ". Activities: " + activities, ex);
+        }
+    }
+}
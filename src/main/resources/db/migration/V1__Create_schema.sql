@@ -0,0 +1,30 @@
+-- The schema before the application owned it through migrations. Databases created before that are baselined
+-- at version 0 (spring.flyway.baseline-on-migrate), so this migration runs on them too, and creates only the tables
+-- they are missing.
+CREATE TABLE IF NOT EXISTS WORKING_HOURS
+(
+    ID        serial,
+    USER      varchar(255),
+    DATE      date,
+    FROM_TIME time,
+    TO_TIME   time,
+    primary key (ID),
+    unique key WORKING_HOURS_USER_DATE_IX (USER, DATE)
+);
+
+CREATE TABLE IF NOT EXISTS TEAM_MEMBERS
+(
+    TEAM varchar(255),
+    USER varchar(255),
+    primary key (TEAM, USER)
+);
+
+CREATE TABLE IF NOT EXISTS MONTHLY_HOURS
+(
+    REPORT_YEAR          smallint,
+    REPORT_MONTH         tinyint,
+    USER                 varchar(255),
+    TOTAL_WORKED_SECONDS bigint,
+    WORKED_DAYS          int,
+    primary key (REPORT_YEAR, REPORT_MONTH, USER)
+);
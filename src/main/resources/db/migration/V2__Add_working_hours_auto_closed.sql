@@ -0,0 +1,12 @@
+-- Days closed (or flagged) by the auto-close sweeper (attendance.auto-close.enabled) are marked, so they can be told
+-- apart from days closed by an exit. The column is added in place, without copying the table.
+ALTER TABLE WORKING_HOURS
+    ADD COLUMN AUTO_CLOSED boolean NOT NULL DEFAULT FALSE;
+
+-- The sweeper pages through the open days (TO_TIME IS NULL) which were not flagged yet, by ID.
+-- The index holds the primary key, which is ID alone until the table is partitioned (db/online), so the cutoff date
+-- is checked on the rows of the page. Once partitioned the primary key is (ID, DATE), and the cutoff date is checked
+-- in the index. It is built online.
+ALTER TABLE WORKING_HOURS
+    ADD INDEX WORKING_HOURS_OPEN_IX (TO_TIME, AUTO_CLOSED, ID),
+    ALGORITHM=INPLACE, LOCK=NONE;
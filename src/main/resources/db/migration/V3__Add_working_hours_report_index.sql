@@ -0,0 +1,6 @@
+-- The report index covers the report and summary queries, so they are answered from the index alone (and, once
+-- WORKING_HOURS is partitioned, from the index of the pruned partitions). Adding a secondary index does not copy the
+-- table, so it is built online on startup, while punches continue.
+ALTER TABLE WORKING_HOURS
+    ADD INDEX WORKING_HOURS_REPORT_IX (USER, DATE, FROM_TIME, TO_TIME),
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,6 @@
+-- The punch index (attendance.punch.index.enabled) is warmed with all the rows of today, on startup and at every
+-- midnight, by every instance. The date index covers that query, so it reads the rows of the day from the index alone,
+-- whether or not WORKING_HOURS is partitioned. It is built online.
+ALTER TABLE WORKING_HOURS
+    ADD INDEX WORKING_HOURS_DATE_IX (DATE, USER, FROM_TIME, TO_TIME),
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,20 @@
+-- Not a Flyway migration: the ALTER copies the whole table, which would block the writes of a large WORKING_HOURS
+-- for the length of the copy on startup. It is applied out of band instead, online with
+-- pt-online-schema-change --alter "<everything after ALTER TABLE WORKING_HOURS>" D=attendance,t=WORKING_HOURS
+-- (which copies the table in the background while punches continue), or as is in a maintenance window.
+-- Until it is applied, the partition maintenance (attendance.partitions.enabled) skips the table.
+--
+-- Every unique key of a partitioned table must contain the partitioning column, so DATE joins the primary key,
+-- and the extra unique key which serial adds on ID is dropped.
+-- The report index is added by the V3 migration, and is kept by the copy.
+-- Monthly partitions (pYYYYMM) are split off p_future by the partition maintenance, starting with the month of the
+-- earliest row. The keys and the partitioning are changed by a single statement, so the table is copied once.
+ALTER TABLE WORKING_HOURS
+    MODIFY ID bigint unsigned NOT NULL AUTO_INCREMENT,
+    MODIFY DATE date NOT NULL,
+    DROP INDEX ID,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (ID, DATE)
+    PARTITION BY RANGE COLUMNS (DATE) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
@@ -3,21 +3,25 @@ package com.exercise.attendance;
 import com.exercise.attendance.model.ActivityType;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
-import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
 @Sql({"/init-schema.sql", "/test-data.sql"})
 class AttendanceApplicationEndToEndTests {
 
@@ -30,10 +34,39 @@ class AttendanceApplicationEndToEndTests {
     @Test
     void shouldReturnReportBasedOnUrlParameters() {
         String response = restTemplate.getForObject("http://localhost:" + port + "/v1/report/alice?fromDate=2020-10-08&toDate=2020-10-10", String.class);
-        String expectedReportJson = "{\"report\":{\"2020-10-08\":{\"user\":\"alice\",\"date\":\"2020-10-08\",\"fromTime\":\"08:00:00\",\"toTime\":\"17:00:00\"},\"2020-10-09\":{\"user\":\"alice\",\"date\":\"2020-10-09\",\"fromTime\":\"08:30:00\",\"toTime\":\"18:15:00\"},\"2020-10-10\":{\"user\":\"alice\",\"date\":\"2020-10-10\",\"fromTime\":\"09:30:00\",\"toTime\":\"16:15:00\"}}}";
+        String expectedReportJson = "{\"report\":{\"2020-10-08\":{\"user\":\"alice\",\"date\":\"2020-10-08\",\"fromTime\":\"08:00:00\",\"toTime\":\"17:00:00\",\"workedSeconds\":32400},\"2020-10-09\":{\"user\":\"alice\",\"date\":\"2020-10-09\",\"fromTime\":\"08:30:00\",\"toTime\":\"18:15:00\",\"workedSeconds\":35100},\"2020-10-10\":{\"user\":\"alice\",\"date\":\"2020-10-10\",\"fromTime\":\"09:30:00\",\"toTime\":\"16:15:00\",\"workedSeconds\":24300}},\"summary\":{\"totalWorkedSeconds\":91800,\"workedDays\":3,\"openDays\":0,\"overtimeSeconds\":9900}}";
         assertThat(response, is(expectedReportJson));
     }
 
+    @Test
+    void shouldStreamSameReportAsNonStreamedReport() {
+        String response = restTemplate.getForObject("http://localhost:" + port + "/v1/report/alice/stream?fromDate=2020-10-08&toDate=2020-10-10", String.class);
+        String expectedReportJson = restTemplate.getForObject("http://localhost:" + port + "/v1/report/alice?fromDate=2020-10-08&toDate=2020-10-10", String.class);
+        assertThat(response, is(expectedReportJson));
+    }
+
+    @Test
+    void shouldReturnSummaryAggregatedByDatabaseSameAsReportSummary() {
+        String response = restTemplate.getForObject("http://localhost:" + port + "/v1/report/alice/summary?fromDate=2020-10-08&toDate=2020-10-10", String.class);
+        assertThat(response, is("{\"totalWorkedSeconds\":91800,\"workedDays\":3,\"openDays\":0,\"overtimeSeconds\":9900}"));
+    }
+
+    @Test
+    void shouldRefreshMonthlyReportWhenActivityIsReported() {
+        restTemplate.postForEntity("http://localhost:" + port + "/v1/report/frank", ActivityType.ENTRY, Object.class);
+        String response = restTemplate.getForObject("http://localhost:" + port + "/v1/monthly-report/" + YearMonth.now(), String.class);
+        assertThat(response, is("{\"month\":\"" + YearMonth.now() + "\",\"report\":[{\"user\":\"frank\",\"month\":\"" + YearMonth.now() + "\",\"totalWorkedSeconds\":0,\"workedDays\":0,\"openDays\":1}]}"));
+    }
+
+    @Test
+    void shouldExposeStageTimersToPrometheus() {
+        restTemplate.getForObject("http://localhost:" + port + "/v1/report/alice?fromDate=2020-10-08&toDate=2020-10-10", String.class);
+        String response = restTemplate.getForObject("http://localhost:" + port + "/actuator/prometheus", String.class);
+        assertThat(response, containsString("attendance_report_seconds_bucket{endpoint=\"report\",outcome=\"success\",stage=\"fetch\""));
+        assertThat(response, containsString("attendance_dao_query_seconds_count{outcome=\"success\",query=\"working_hours_for_update\",stage=\"mapping\",}"));
+        assertThat(response, containsString("hikaricp_connections_active"));
+    }
+
     @Test
     void shouldReturnBadRequestWhenFromDateIsAfterToDate() {
         ResponseEntity<String> responseEntity = restTemplate.getForEntity("http://localhost:" + port + "/v1/report/alice?fromDate=2020-10-18&toDate=2020-10-10", String.class);
@@ -46,7 +79,7 @@ class AttendanceApplicationEndToEndTests {
         LocalDate today = LocalDate.now();
         assertThat(responseEntity.getStatusCode(), is(HttpStatus.CREATED));
         String response = restTemplate.getForObject("http://localhost:" + port + "/v1/report/bob?fromDate=2020-10-08&toDate=" + today, String.class);
-        String expectedReportJsonStart = "{\"report\":{\"2020-10-09\":{\"user\":\"bob\",\"date\":\"2020-10-09\",\"fromTime\":\"10:30:00\",\"toTime\":\"15:00:00\"},\"2020-10-11\":{\"user\":\"bob\",\"date\":\"2020-10-11\",\"fromTime\":\"07:30:00\",\"toTime\":null},\"" + today + "\":{\"user\":\"bob\",\"date\":\"" + today + "\",\"fromTime\":";
+        String expectedReportJsonStart = "{\"report\":{\"2020-10-09\":{\"user\":\"bob\",\"date\":\"2020-10-09\",\"fromTime\":\"10:30:00\",\"toTime\":\"15:00:00\",\"workedSeconds\":16200},\"2020-10-11\":{\"user\":\"bob\",\"date\":\"2020-10-11\",\"fromTime\":\"07:30:00\",\"toTime\":null,\"workedSeconds\":null},\"" + today + "\":{\"user\":\"bob\",\"date\":\"" + today + "\",\"fromTime\":";
         assertThat(response, startsWith(expectedReportJsonStart));
     }
 
@@ -0,0 +1,74 @@
+package com.exercise.attendance;
+
+import com.exercise.attendance.model.ActivityType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+
+// Same expectations as AttendanceApplicationEndToEndTests for the APIs served by the reactive profile
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class ReactiveAttendanceApplicationEndToEndTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void shouldReturnReportBasedOnUrlParameters() {
+        String expectedReportJson = "{\"report\":{\"2020-10-08\":{\"user\":\"alice\",\"date\":\"2020-10-08\",\"fromTime\":\"08:00:00\",\"toTime\":\"17:00:00\",\"workedSeconds\":32400},\"2020-10-09\":{\"user\":\"alice\",\"date\":\"2020-10-09\",\"fromTime\":\"08:30:00\",\"toTime\":\"18:15:00\",\"workedSeconds\":35100},\"2020-10-10\":{\"user\":\"alice\",\"date\":\"2020-10-10\",\"fromTime\":\"09:30:00\",\"toTime\":\"16:15:00\",\"workedSeconds\":24300}},\"summary\":{\"totalWorkedSeconds\":91800,\"workedDays\":3,\"openDays\":0,\"overtimeSeconds\":9900}}";
+        webTestClient.get().uri("/v1/report/alice?fromDate=2020-10-08&toDate=2020-10-10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(expectedReportJson);
+    }
+
+    @Test
+    void shouldReturnSummaryAggregatedByDatabaseSameAsReportSummary() {
+        webTestClient.get().uri("/v1/report/alice/summary?fromDate=2020-10-08&toDate=2020-10-10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"totalWorkedSeconds\":91800,\"workedDays\":3,\"openDays\":0,\"overtimeSeconds\":9900}");
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenFromDateIsAfterToDate() {
+        webTestClient.get().uri("/v1/report/alice?fromDate=2020-10-18&toDate=2020-10-10")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldUpdateReportWhenEntryIsAdded() {
+        LocalDate today = LocalDate.now();
+        webTestClient.post().uri("/v1/report/bob")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ActivityType.ENTRY)
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.get().uri("/v1/report/bob/summary?fromDate=" + today + "&toDate=" + today)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"totalWorkedSeconds\":0,\"workedDays\":0,\"openDays\":1,\"overtimeSeconds\":0}");
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenEntryIsRepeated() {
+        webTestClient.post().uri("/v1/report/carl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ActivityType.ENTRY)
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.post().uri("/v1/report/carl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ActivityType.ENTRY)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
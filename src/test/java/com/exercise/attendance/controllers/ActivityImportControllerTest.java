@@ -0,0 +1,146 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.*;
+import com.exercise.attendance.services.ActivityImportService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@WebMvcTest(value = ActivityImportController.class, properties = "attendance.import.batch-size=2")
+class ActivityImportControllerTest {
+
+    private static final String IMPORT_RESOURCE = "/v1/import/activities";
+    private static final String ENTRY_RECORD = "{\"user\":\"alice\",\"activityType\":\"ENTRY\",\"reportDateTime\":\"2020-10-08T08:00:00\"}";
+    private static final String EXIT_RECORD = "{\"user\":\"alice\",\"activityType\":\"EXIT\",\"reportDateTime\":\"2020-10-08T17:00:00\"}";
+    private static final String INVALID_TYPE_RECORD = "{\"user\":\"alice\",\"activityType\":\"LUNCH\",\"reportDateTime\":\"2020-10-08T12:00:00\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ActivityImportService service;
+
+    @BeforeEach
+    private void setUp() {
+        when(service.importActivities(anyList())).thenAnswer(invocation -> {
+            List<ImportedActivity> chunk = invocation.getArgument(0);
+            return new ActivityImportReport(chunk.stream().map(importedActivity -> ActivityImportRecordResult.accepted(importedActivity.getIndex())).toList());
+        });
+    }
+
+    @Test
+    void shouldImportActivitiesFromJsonArray() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ENTRY_RECORD + "," + EXIT_RECORD + "]"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accepted", Matchers.is(2)));
+
+        List<ImportedActivity> importedActivities = capturedImportedActivities();
+        assertThat(importedActivities.size(), is(2));
+        assertActivity(importedActivities.get(0), ActivityType.ENTRY, "2020-10-08T08:00:00");
+        assertActivity(importedActivities.get(1), ActivityType.EXIT, "2020-10-08T17:00:00");
+    }
+
+    @Test
+    void shouldImportActivitiesFromNewlineDelimitedJson() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(ActivityImportController.APPLICATION_NDJSON_VALUE)
+                        .content(ENTRY_RECORD + "\n" + EXIT_RECORD + "\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        List<ImportedActivity> importedActivities = capturedImportedActivities();
+        assertThat(importedActivities.size(), is(2));
+        assertActivity(importedActivities.get(1), ActivityType.EXIT, "2020-10-08T17:00:00");
+    }
+
+    @Test
+    void shouldPassUnmappableRecordAsMalformed() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + INVALID_TYPE_RECORD + "," + EXIT_RECORD + "]"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        List<ImportedActivity> importedActivities = capturedImportedActivities();
+        assertThat(importedActivities.size(), is(2));
+        assertThat(importedActivities.get(0).getActivity().isPresent(), is(false));
+        assertThat(importedActivities.get(0).getError(), Matchers.containsString("LUNCH"));
+        assertActivity(importedActivities.get(1), ActivityType.EXIT, "2020-10-08T17:00:00");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldImportActivitiesInChunksAndMergeTheirResults() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(ActivityImportController.APPLICATION_NDJSON_VALUE)
+                        .content(ENTRY_RECORD + "\n" + EXIT_RECORD + "\n" + ENTRY_RECORD + "\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accepted", Matchers.is(3)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[2].index", Matchers.is(2)));
+
+        ArgumentCaptor<List<ImportedActivity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(service, times(2)).importActivities(captor.capture());
+        assertThat(captor.getAllValues().get(0).size(), is(2));
+        assertThat(captor.getAllValues().get(1).size(), is(1));
+        assertThat(captor.getAllValues().get(1).get(0).getIndex(), is(2));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBodyIsMalformed() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ENTRY_RECORD + ",{\"user\":"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReportImportedRecordsWhenBodyIsMalformedAfterFirstChunk() throws Exception {
+        mockMvc.perform(
+                post(IMPORT_RESOURCE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ENTRY_RECORD + "," + EXIT_RECORD + "," + ENTRY_RECORD + ",{\"user\":"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results.length()", Matchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accepted", Matchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.error", Matchers.containsString("after 2 imported records")));
+
+        verify(service, times(1)).importActivities(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ImportedActivity> capturedImportedActivities() {
+        ArgumentCaptor<List<ImportedActivity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(service).importActivities(captor.capture());
+        return captor.getValue();
+    }
+
+    private void assertActivity(ImportedActivity importedActivity, ActivityType activityType, String reportDateTime) {
+        Activity activity = importedActivity.getActivity().orElseThrow();
+        assertThat(activity.getUser(), is("alice"));
+        assertThat(activity.getActivityType(), is(activityType));
+        assertThat(activity.getReportDateTime(), is(LocalDateTime.parse(reportDateTime)));
+    }
+}
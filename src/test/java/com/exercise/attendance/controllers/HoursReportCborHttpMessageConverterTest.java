@@ -0,0 +1,110 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HexFormat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+class HoursReportCborHttpMessageConverterTest {
+
+    private static final String TEST_USER = "alice";
+
+    private final HoursReportCborHttpMessageConverter converter = new HoursReportCborHttpMessageConverter();
+
+    @Test
+    void shouldWriteUserOnceAndDaysAsEpochDayDeltasAndSecondsOfDay() throws Exception {
+        HoursReport report = new HoursReport();
+        report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("2020-10-08"), LocalTime.parse("08:00"), LocalTime.parse("17:00")));
+        report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("2020-10-09"), LocalTime.parse("09:15")));
+        report.setSummary(new HoursSummary(32400, 1, 1, 3600));
+
+        assertThat(HexFormat.of().formatHex(write(report)), is("a3"
+                + text("user") + text(TEST_USER)
+                + text("days") + "82"
+                + "83" + "19486f" + "197080" + "19ef10"
+                + "83" + "01" + "198214" + "f6"
+                + text("summary") + "a4"
+                + text("totalWorkedSeconds") + "197e90"
+                + text("workedDays") + "01"
+                + text("openDays") + "01"
+                + text("overtimeSeconds") + "190e10"));
+    }
+
+    @Test
+    void shouldWriteDayBeforeEpochAsNegativeDelta() throws Exception {
+        HoursReport report = new HoursReport();
+        report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("1969-12-31"), null));
+        report.setSummary(HoursSummary.EMPTY);
+
+        assertThat(HexFormat.of().formatHex(write(report)).startsWith("a3" + text("user") + text(TEST_USER)
+                + text("days") + "81" + "83" + "20" + "f6" + "f6"), is(true));
+    }
+
+    @Test
+    void shouldWriteNextCursorOfPageAfterSummary() throws Exception {
+        HoursReport report = new HoursReport();
+        report.setSummary(HoursSummary.EMPTY);
+        report.setNextCursor("MjAyMC0xMC0wOQ");
+
+        String hex = HexFormat.of().formatHex(write(report));
+
+        assertThat(hex.startsWith("a4"), is(true));
+        assertThat(hex.endsWith(text("nextCursor") + text("MjAyMC0xMC0wOQ")), is(true));
+    }
+
+    @Test
+    void shouldWriteEmptyReportWithoutUser() throws Exception {
+        HoursReport report = new HoursReport();
+        report.setSummary(HoursSummary.EMPTY);
+
+        assertThat(HexFormat.of().formatHex(write(report)).startsWith("a3" + text("user") + "f6" + text("days") + "80"), is(true));
+    }
+
+    @Test
+    void shouldWriteFiveYearReportInAFractionOfItsJsonSize() throws Exception {
+        HoursReport report = new HoursReport();
+        LocalDate date = LocalDate.parse("2016-01-01");
+        for (int day = 0; day < 1826; day++) {
+            report.addDailyReport(new WorkingHours(TEST_USER, date.plusDays(day), LocalTime.parse("08:00"), LocalTime.parse("17:00")));
+        }
+        report.setSummary(new HoursSummary(1826L * 32400, 1826, 0, 1826L * 3600));
+
+        byte[] json = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build()
+                .writeValueAsBytes(report);
+
+        assertThat(write(report).length, is(lessThan(json.length / 10)));
+    }
+
+    @Test
+    void shouldWriteOnlyHoursReportsAsCbor() {
+        assertThat(converter.canWrite(HoursReport.class, MediaType.APPLICATION_CBOR), is(true));
+        assertThat(converter.canWrite(HoursReport.class, MediaType.APPLICATION_JSON), is(false));
+        assertThat(converter.canWrite(HoursSummary.class, MediaType.APPLICATION_CBOR), is(false));
+        assertThat(converter.canRead(HoursReport.class, MediaType.APPLICATION_CBOR), is(false));
+    }
+
+    private byte[] write(HoursReport report) throws Exception {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(report, MediaType.APPLICATION_CBOR, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    // Text strings shorter than 24 bytes have their length in the initial byte
+    private static String text(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return String.format("%02x", 0x60 + bytes.length) + HexFormat.of().formatHex(bytes);
+    }
+}
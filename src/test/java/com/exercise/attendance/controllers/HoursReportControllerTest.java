@@ -11,17 +11,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -38,6 +45,7 @@ class HoursReportControllerTest {
     private static final String TO_PARAM_NAME = "toDate";
     private static final String TO_DATE = "2020-10-09";
     private static final String INVALID_DATE = "INVALID";
+    private static final HoursReportVersion REPORT_VERSION = new HoursReportVersion("0a1b2c");
 
 
     @Autowired
@@ -53,6 +61,7 @@ class HoursReportControllerTest {
     private void setUp() {
         sampleReport = sampleReport();
         when(service.getReport(any(WorkingHoursFilter.class))).thenReturn(sampleReport);
+        when(service.getReportVersion(any(HoursReport.class))).thenReturn(REPORT_VERSION);
     }
 
     @Test
@@ -67,6 +76,83 @@ class HoursReportControllerTest {
                 .andExpect(reportContentMatcher(sampleReport));
     }
 
+    @Test
+    void shouldStreamHoursReportWhenUserAndDateRangeIsValid() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<WorkingHours> consumer = invocation.getArgument(1);
+            sampleReport.getReport().values().forEach(consumer);
+            return sampleReport.getSummary();
+        }).when(service).streamReport(any(WorkingHoursFilter.class), any());
+
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/stream")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(reportContentMatcher(sampleReport));
+    }
+
+    @Test
+    void shouldStreamEmptyHoursReportWhenNoWorkingHours() throws Exception {
+        when(service.streamReport(any(WorkingHoursFilter.class), any())).thenReturn(HoursSummary.EMPTY);
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/stream")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("{\"report\":{},\"summary\":{\"totalWorkedSeconds\":0,\"workedDays\":0,\"openDays\":0,\"overtimeSeconds\":0}}"));
+    }
+
+    @Test
+    void shouldReturnHoursSummaryWhenUserAndDateRangeIsValid() throws Exception {
+        when(service.getSummary(any(WorkingHoursFilter.class))).thenReturn(sampleReport.getSummary());
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/summary")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(summaryMatcher("$", sampleReport.getSummary()));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSummaryThrowsIllegalArgumentException() throws Exception {
+        doThrow(new IllegalArgumentException()).when(service).getSummary(any(WorkingHoursFilter.class));
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/summary")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSummaryToDateIsNotSpecified() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/summary")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenStreamReportThrowsIllegalArgumentException() throws Exception {
+        doThrow(new IllegalArgumentException()).when(service).streamReport(any(WorkingHoursFilter.class), any());
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/stream")
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenStreamFromDateIsNotSpecified() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE + "/stream")
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.status().reason(missingParameterMatcher(FROM_PARAM_NAME)));
+    }
+
     @Test
     void shouldReturnOkWhenReportActivityIsValid() throws Exception {
         mockMvc.perform(
@@ -139,6 +225,157 @@ class HoursReportControllerTest {
                 .andExpect(MockMvcResultMatchers.status().reason(missingParameterMatcher(TO_PARAM_NAME)));
     }
 
+    @Test
+    void shouldReturnVersionAndCacheControlOfPastReport() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400"));
+        verify(service).getReportVersion(sampleReport);
+    }
+
+    @Test
+    void shouldRevalidateReportOfRangeWithToday() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, LocalDate.now().toString()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWhenVersionMatches() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400"))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    void shouldReturnReportWhenVersionChanged() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"9f8e7d\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(reportContentMatcher(sampleReport));
+    }
+
+    @Test
+    void shouldNotReturnLastModified() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void shouldReturnCborReportWithItsOwnVersionWhenAcceptPrefersCbor() throws Exception {
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        HoursReportCborHttpMessageConverter.write(sampleReport, new CborWriter(cbor));
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"0a1b2c-cbor\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(MockMvcResultMatchers.content().bytes(cbor.toByteArray()));
+    }
+
+    @Test
+    void shouldReturnPageWithNextCursorWhenLimitIsGiven() throws Exception {
+        HoursReport page = sampleReport();
+        page.setNextCursor("MjAyMC0xMC0wOQ");
+        when(service.getReportPage(any(WorkingHoursFilter.class), any(), any())).thenReturn(page);
+        when(service.getReportVersion(page)).thenReturn(new HoursReportVersion("3d4e5f"));
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .queryParam("limit", "2")
+                        .queryParam("cursor", "MjAyMC0xMC0wNw"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(reportContentMatcher(page))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("MjAyMC0xMC0wOQ"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3d4e5f\""));
+        verify(service).getReportPage(any(WorkingHoursFilter.class), eq("MjAyMC0xMC0wNw"), eq(2));
+        verify(service, never()).getReport(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldReturnWholeReportWithoutNextCursorWhenNeitherLimitNorCursorIsGiven() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+        verify(service, never()).getReportPage(any(WorkingHoursFilter.class), any(), any());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenGetReportPageThrowsIllegalArgumentException() throws Exception {
+        doThrow(new IllegalArgumentException("cursor is invalid")).when(service).getReportPage(any(WorkingHoursFilter.class), any(), any());
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .queryParam("cursor", "INVALID"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnJsonReportWhenAcceptPrefersJson() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.ACCEPT, "application/cbor;q=0.5, application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(reportContentMatcher(sampleReport));
+    }
+
+    @Test
+    void shouldNotAnswerNotModifiedToCborRequestWithJsonVersion() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0a1b2c\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    void shouldReturnNotAcceptableWhenNeitherJsonNorCborIsAccepted() throws Exception {
+        mockMvc.perform(
+                get(TEST_USER_REPORT_RESOURCE)
+                        .queryParam(FROM_PARAM_NAME, FROM_DATE)
+                        .queryParam(TO_PARAM_NAME, TO_DATE)
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isNotAcceptable());
+    }
+
     @Test
     void shouldReturnBadRequestWhenGetReportThrowsIllegalArgumentException() throws Exception {
         doThrow(new IllegalArgumentException()).when(service).getReport(any(WorkingHoursFilter.class));
@@ -177,6 +414,7 @@ class HoursReportControllerTest {
         report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("2020-10-08"), LocalTime.parse("08:00"), LocalTime.parse("17:00")));
         report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("2020-10-09"), LocalTime.parse("09:15"), LocalTime.parse("17:00")));
         report.addDailyReport(new WorkingHours(TEST_USER, LocalDate.parse("2020-10-10"), LocalTime.parse("08:30"), LocalTime.parse("18:30")));
+        report.setSummary(new HoursSummary(96300, 3, 0, 9900));
         return report;
     }
 
@@ -184,7 +422,16 @@ class HoursReportControllerTest {
         ResultMatcher[] matchers = report.getReport().values().stream()
                 .map(this::dailyReportMatcher)
                 .toArray(ResultMatcher[]::new);
-        return ResultMatcher.matchAll(matchers);
+        return ResultMatcher.matchAll(ResultMatcher.matchAll(matchers), summaryMatcher("$.summary", report.getSummary()));
+    }
+
+    private ResultMatcher summaryMatcher(String path, HoursSummary summary) {
+        return ResultMatcher.matchAll(
+                MockMvcResultMatchers.jsonPath(path + ".totalWorkedSeconds", Matchers.is((int) summary.getTotalWorkedSeconds())),
+                MockMvcResultMatchers.jsonPath(path + ".workedDays", Matchers.is((int) summary.getWorkedDays())),
+                MockMvcResultMatchers.jsonPath(path + ".openDays", Matchers.is((int) summary.getOpenDays())),
+                MockMvcResultMatchers.jsonPath(path + ".overtimeSeconds", Matchers.is((int) summary.getOvertimeSeconds()))
+        );
     }
 
     private ResultMatcher dailyReportMatcher(WorkingHours workingHours) {
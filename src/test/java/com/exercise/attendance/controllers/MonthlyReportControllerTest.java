@@ -0,0 +1,61 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.MonthlyHoursReport;
+import com.exercise.attendance.services.MonthlyReportService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@WebMvcTest(MonthlyReportController.class)
+class MonthlyReportControllerTest {
+
+    private static final String MONTHLY_REPORT_RESOURCE = "/v1/monthly-report";
+    private static final YearMonth MONTH = YearMonth.parse("2020-10");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MonthlyReportService service;
+
+    @Test
+    void shouldReturnMonthlyHoursReportForMonth() throws Exception {
+        when(service.getReport(MONTH)).thenReturn(new MonthlyHoursReport(MONTH, List.of(new MonthlyHours("alice", MONTH, 91800, 3, 0))));
+
+        mockMvc.perform(get(MONTHLY_REPORT_RESOURCE + "/2020-10"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.month", Matchers.is("2020-10")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.report[0].user", Matchers.is("alice")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.report[0].totalWorkedSeconds", Matchers.is(91800)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.report[0].workedDays", Matchers.is(3)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.report[0].openDays", Matchers.is(0)));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenMonthIsInvalid() throws Exception {
+        mockMvc.perform(get(MONTHLY_REPORT_RESOURCE + "/2020-13"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenServiceThrowsIllegalArgumentException() throws Exception {
+        doThrow(new IllegalArgumentException()).when(service).getReport(any());
+        mockMvc.perform(get(MONTHLY_REPORT_RESOURCE + "/2020-10"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
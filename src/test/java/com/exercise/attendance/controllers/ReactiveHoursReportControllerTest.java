@@ -0,0 +1,102 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.*;
+import com.exercise.attendance.services.HoursReportStream;
+import com.exercise.attendance.services.ReactiveHoursReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveHoursReportController.class)
+class ReactiveHoursReportControllerTest {
+
+    private static final String TEST_USER_REPORT_RESOURCE = "/v1/report/alice";
+    private static final String REPORT_QUERY = "?fromDate=2020-10-08&toDate=2020-10-09";
+
+    private static final WorkingHours DAY_1_WORKING_HOURS = new WorkingHours("alice", LocalDate.parse("2020-10-08"), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+    private static final WorkingHours DAY_2_WORKING_HOURS = new WorkingHours("alice", LocalDate.parse("2020-10-09"), LocalTime.parse("08:30:00"));
+    private static final HoursSummary SUMMARY = new HoursSummary(32400, 1, 1, 3600);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveHoursReportService service;
+
+    @Test
+    void shouldWriteSameReportJsonAsServletController() {
+        when(service.getReport(any(WorkingHoursFilter.class))).thenReturn(new HoursReportStream(Flux.just(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS), Mono.just(SUMMARY)));
+        webTestClient.get().uri(TEST_USER_REPORT_RESOURCE + REPORT_QUERY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(String.class).isEqualTo("{\"report\":{" +
+                        "\"2020-10-08\":{\"user\":\"alice\",\"date\":\"2020-10-08\",\"fromTime\":\"08:00:00\",\"toTime\":\"17:00:00\",\"workedSeconds\":32400}," +
+                        "\"2020-10-09\":{\"user\":\"alice\",\"date\":\"2020-10-09\",\"fromTime\":\"08:30:00\",\"toTime\":null,\"workedSeconds\":null}}," +
+                        "\"summary\":{\"totalWorkedSeconds\":32400,\"workedDays\":1,\"openDays\":1,\"overtimeSeconds\":3600}}");
+    }
+
+    @Test
+    void shouldWriteEmptyReportWhenNoWorkingHours() {
+        when(service.getReport(any(WorkingHoursFilter.class))).thenReturn(new HoursReportStream(Flux.empty(), Mono.just(HoursSummary.EMPTY)));
+        webTestClient.get().uri(TEST_USER_REPORT_RESOURCE + "/stream" + REPORT_QUERY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"report\":{},\"summary\":{\"totalWorkedSeconds\":0,\"workedDays\":0,\"openDays\":0,\"overtimeSeconds\":0}}");
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenReportFilterIsInvalid() {
+        when(service.getReport(any(WorkingHoursFilter.class))).thenReturn(new HoursReportStream(Flux.error(new IllegalArgumentException()), Mono.empty()));
+        webTestClient.get().uri(TEST_USER_REPORT_RESOURCE + REPORT_QUERY)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenToDateIsNotSpecified() {
+        webTestClient.get().uri(TEST_USER_REPORT_RESOURCE + "?fromDate=2020-10-08")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldReturnHoursSummary() {
+        when(service.getSummary(any(WorkingHoursFilter.class))).thenReturn(Mono.just(SUMMARY));
+        webTestClient.get().uri(TEST_USER_REPORT_RESOURCE + "/summary" + REPORT_QUERY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"totalWorkedSeconds\":32400,\"workedDays\":1,\"openDays\":1,\"overtimeSeconds\":3600}");
+    }
+
+    @Test
+    void shouldReturnCreatedWhenActivityIsRecorded() {
+        when(service.reportActivity(any(Activity.class))).thenReturn(Mono.just(DAY_2_WORKING_HOURS));
+        webTestClient.post().uri(TEST_USER_REPORT_RESOURCE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("\"ENTRY\"")
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenActivityIsRejected() {
+        when(service.reportActivity(any(Activity.class))).thenReturn(Mono.error(new IllegalArgumentException()));
+        webTestClient.post().uri(TEST_USER_REPORT_RESOURCE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("\"EXIT\"")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,105 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.HoursReport;
+import com.exercise.attendance.model.TeamHoursReport;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.services.TeamReportService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@WebMvcTest(TeamReportController.class)
+class TeamReportControllerTest {
+
+    private static final String TEAM_REPORT_RESOURCE = "/v1/team-report";
+    private static final String FROM_DATE = "2020-10-08";
+    private static final String TO_DATE = "2020-10-09";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TeamReportService service;
+
+    private TeamHoursReport sampleReport;
+
+    @BeforeEach
+    private void setUp() {
+        sampleReport = sampleReport();
+        when(service.getReport(any(UsersWorkingHoursFilter.class))).thenReturn(sampleReport);
+        when(service.getTeamReport(eq("rnd"), any(LocalDate.class), any(LocalDate.class))).thenReturn(sampleReport);
+    }
+
+    @Test
+    void shouldReturnReportsForRequestedUsers() throws Exception {
+        mockMvc.perform(
+                get(TEAM_REPORT_RESOURCE)
+                        .queryParam("users", "alice,bob")
+                        .queryParam("fromDate", FROM_DATE)
+                        .queryParam("toDate", TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.reports.alice.report['2020-10-08'].fromTime", Matchers.is("08:00:00")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.reports.bob.report").isEmpty());
+
+        ArgumentCaptor<UsersWorkingHoursFilter> captor = ArgumentCaptor.forClass(UsersWorkingHoursFilter.class);
+        verify(service).getReport(captor.capture());
+        assertThat(captor.getValue().getUsers(), containsInAnyOrder("alice", "bob"));
+    }
+
+    @Test
+    void shouldReturnReportsForTeam() throws Exception {
+        mockMvc.perform(
+                get(TEAM_REPORT_RESOURCE + "/rnd")
+                        .queryParam("fromDate", FROM_DATE)
+                        .queryParam("toDate", TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.reports.alice.report['2020-10-08'].toTime", Matchers.is("17:00:00")));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenUsersAreNotSpecified() throws Exception {
+        mockMvc.perform(
+                get(TEAM_REPORT_RESOURCE)
+                        .queryParam("fromDate", FROM_DATE)
+                        .queryParam("toDate", TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenTeamReportThrowsIllegalArgumentException() throws Exception {
+        doThrow(new IllegalArgumentException()).when(service).getTeamReport(eq("marketing"), any(LocalDate.class), any(LocalDate.class));
+        mockMvc.perform(
+                get(TEAM_REPORT_RESOURCE + "/marketing")
+                        .queryParam("fromDate", FROM_DATE)
+                        .queryParam("toDate", TO_DATE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private TeamHoursReport sampleReport() {
+        HoursReport aliceReport = new HoursReport();
+        aliceReport.addDailyReport(new WorkingHours("alice", LocalDate.parse(FROM_DATE), LocalTime.parse("08:00"), LocalTime.parse("17:00")));
+        TeamHoursReport report = new TeamHoursReport();
+        report.addUserReport("alice", aliceReport);
+        report.addUserReport("bob", new HoursReport());
+        return report;
+    }
+}
@@ -0,0 +1,148 @@
+package com.exercise.attendance.controllers;
+
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.ExportJob;
+import com.exercise.attendance.model.ExportJobStatus;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import com.exercise.attendance.services.WorkingHoursExportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@WebMvcTest(controllers = WorkingHoursExportController.class, properties = "attendance.export.enabled=true")
+class WorkingHoursExportControllerTest {
+
+    private static final String EXPORT_RESOURCE = "/v1/export/working-hours";
+    private static final String JOB_ID = "5f0c6a1e";
+    private static final LocalDate FROM_DATE = LocalDate.parse("2020-10-01");
+    private static final LocalDate TO_DATE = LocalDate.parse("2020-10-31");
+    private static final WorkingHoursExportFilter FILTER = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, "rnd");
+    private static final Instant SUBMITTED_AT = Instant.parse("2020-11-01T06:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private WorkingHoursExportService service;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldAcceptExportJob() throws Exception {
+        when(service.submit(any(WorkingHoursExportFilter.class), eq(ExportFormat.COLUMNAR))).thenReturn(job(ExportJobStatus.QUEUED));
+
+        mockMvc.perform(
+                post(EXPORT_RESOURCE)
+                        .queryParam("fromDate", FROM_DATE.toString())
+                        .queryParam("toDate", TO_DATE.toString())
+                        .queryParam("team", "rnd")
+                        .queryParam("format", "COLUMNAR"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LOCATION, "http://localhost" + EXPORT_RESOURCE + "/" + JOB_ID))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(JOB_ID))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.filter.team").value("rnd"));
+
+        ArgumentCaptor<WorkingHoursExportFilter> captor = ArgumentCaptor.forClass(WorkingHoursExportFilter.class);
+        verify(service).submit(captor.capture(), eq(ExportFormat.COLUMNAR));
+        assertThat(captor.getValue().getFromDate(), is(FROM_DATE));
+        assertThat(captor.getValue().getToDate(), is(TO_DATE));
+        assertThat(captor.getValue().getUserPrefix(), is(nullValue()));
+        assertThat(captor.getValue().getTeam(), is("rnd"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenFilterIsInvalid() throws Exception {
+        when(service.submit(any(WorkingHoursExportFilter.class), any(ExportFormat.class))).thenThrow(new IllegalArgumentException("fromDate cannot be after toDate"));
+
+        mockMvc.perform(
+                post(EXPORT_RESOURCE)
+                        .queryParam("fromDate", TO_DATE.toString())
+                        .queryParam("toDate", FROM_DATE.toString()))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenFormatIsUnknown() throws Exception {
+        mockMvc.perform(
+                post(EXPORT_RESOURCE)
+                        .queryParam("fromDate", FROM_DATE.toString())
+                        .queryParam("toDate", TO_DATE.toString())
+                        .queryParam("format", "PARQUET"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(service, never()).submit(any(WorkingHoursExportFilter.class), any(ExportFormat.class));
+    }
+
+    @Test
+    void shouldReturnProgressOfJob() throws Exception {
+        when(service.getJob(JOB_ID)).thenReturn(Optional.of(job(ExportJobStatus.RUNNING)));
+
+        mockMvc.perform(get(EXPORT_RESOURCE + "/" + JOB_ID))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalChunks").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.completedChunks").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.exportedRows").value(22000));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        when(service.getJob(JOB_ID)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(EXPORT_RESOURCE + "/" + JOB_ID))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        mockMvc.perform(get(EXPORT_RESOURCE + "/" + JOB_ID + "/file"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnConflictForFileOfRunningJob() throws Exception {
+        when(service.getJob(JOB_ID)).thenReturn(Optional.of(job(ExportJobStatus.RUNNING)));
+
+        mockMvc.perform(get(EXPORT_RESOURCE + "/" + JOB_ID + "/file"))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
+    @Test
+    void shouldDownloadFileOfCompletedJob() throws Exception {
+        Path file = Files.write(directory.resolve(JOB_ID + ".whc.gz"), new byte[]{0x1f, (byte) 0x8b, 8, 0});
+        when(service.getJob(JOB_ID)).thenReturn(Optional.of(job(ExportJobStatus.COMPLETED)));
+        when(service.getFile(JOB_ID)).thenReturn(Optional.of(file));
+
+        mockMvc.perform(get(EXPORT_RESOURCE + "/" + JOB_ID + "/file"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.parseMediaType("application/gzip")))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"working-hours-2020-10-01-2020-10-31.whc.gz\""))
+                .andExpect(MockMvcResultMatchers.content().bytes(Files.readAllBytes(file)));
+    }
+
+    private static ExportJob job(ExportJobStatus status) {
+        return new ExportJob(JOB_ID, FILTER, ExportFormat.COLUMNAR, status, 4, 1, 22000, SUBMITTED_AT, null, null);
+    }
+}
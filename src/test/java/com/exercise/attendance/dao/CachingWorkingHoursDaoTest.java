@@ -0,0 +1,210 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CachingWorkingHoursDaoTest {
+
+    private static final String DUMMY_USER = "alice";
+    private static final WorkingHours DAY_1_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-08"), LocalTime.parse("08:30:00"), LocalTime.parse("19:30:00"));
+    private static final WorkingHours DAY_2_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-09"), LocalTime.parse("08:00:00"));
+    private static final WorkingHoursFilter OCTOBER_FILTER = new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"));
+
+    @Mock
+    private WorkingHoursDao dao;
+
+    private MeterRegistry meterRegistry;
+
+    private CachingWorkingHoursDao cachingDao;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        cachingDao = new CachingWorkingHoursDao(dao, meterRegistry, 1000, Duration.ofMinutes(1), Duration.ofHours(1));
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class))).thenReturn(List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        List<WorkingHours> workingHours = cachingDao.getWorkingHours(new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-09"), LocalDate.parse("2020-10-20")));
+
+        assertThat(workingHours, contains(DAY_2_WORKING_HOURS));
+        verify(dao, times(1)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count(), is(1.0));
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count(), is(1.0));
+    }
+
+    @Test
+    void shouldAlwaysReadWorkingHoursForUpdateFromDao() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+
+        cachingDao.getWorkingHoursForUpdate(OCTOBER_FILTER);
+        cachingDao.getWorkingHoursForUpdate(OCTOBER_FILTER);
+
+        verify(dao, times(3)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldFetchOnlyMissingMonthsWithSingleQuery() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class))).thenReturn(Lists.emptyList());
+
+        List<WorkingHours> workingHours = cachingDao.getWorkingHours(new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-01"), LocalDate.parse("2020-12-15")));
+
+        assertThat(workingHours, contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+        ArgumentCaptor<WorkingHoursFilter> captor = ArgumentCaptor.forClass(WorkingHoursFilter.class);
+        verify(dao, times(2)).getWorkingHoursForUpdate(captor.capture());
+        assertThat(captor.getValue().getFromDate(), is(LocalDate.parse("2020-11-01")));
+        assertThat(captor.getValue().getToDate(), is(LocalDate.parse("2020-12-31")));
+    }
+
+    @Test
+    void shouldUpdateCachedDayWhenUpserting() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        WorkingHours newWorkingHours = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-10"), LocalTime.parse("07:00:00"));
+
+        cachingDao.upsertWorkingHours(newWorkingHours);
+
+        verify(dao).upsertWorkingHours(newWorkingHours);
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS, newWorkingHours));
+        verify(dao, times(1)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldUpdateCachedDayWhenExitIsRecorded() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+
+        cachingDao.recordActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-09T17:00:00")));
+
+        WorkingHours expectedWorkingHours = new WorkingHours(DUMMY_USER, DAY_2_WORKING_HOURS.getDate(), DAY_2_WORKING_HOURS.getFromTime(), LocalTime.parse("17:00:00"));
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, expectedWorkingHours));
+        verify(dao, times(1)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldEvictMonthWhenRecordedExitHasNoCachedEntry() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+
+        cachingDao.recordActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-12T17:00:00")));
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+
+        verify(dao, times(2)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldNotCacheMonthLoadedBeforeWriteCommittedDuringLoad() {
+        WorkingHours closedWorkingHours = new WorkingHours(DUMMY_USER, DAY_2_WORKING_HOURS.getDate(), DAY_2_WORKING_HOURS.getFromTime(), LocalTime.parse("17:00:00"));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class)))
+                .thenAnswer(invocation -> {
+                    // The exit is committed after the month was read, but before the read stores it
+                    cachingDao.recordActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-09T17:00:00")));
+                    return List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS);
+                })
+                .thenReturn(List.of(DAY_1_WORKING_HOURS, closedWorkingHours));
+
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, closedWorkingHours));
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, closedWorkingHours));
+        verify(dao, times(2)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldRefreshCachedDayFromConflict() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        WorkingHours conflictingWorkingHours = new WorkingHours(DUMMY_USER, DAY_2_WORKING_HOURS.getDate(), DAY_2_WORKING_HOURS.getFromTime(), LocalTime.parse("16:00:00"));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(conflictingWorkingHours)));
+
+        cachingDao.recordActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-09T17:00:00")));
+
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, conflictingWorkingHours));
+    }
+
+    @Test
+    void shouldUpdateCachedDaysOfRecordedActivitiesOnlyAfterCommit() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        when(dao.recordActivities(anyList())).thenReturn(List.of(ActivityRecordResult.recorded()));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cachingDao.recordActivities(List.of(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-09T17:00:00"))));
+            assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        WorkingHours expectedWorkingHours = new WorkingHours(DUMMY_USER, DAY_2_WORKING_HOURS.getDate(), DAY_2_WORKING_HOURS.getFromTime(), LocalTime.parse("17:00:00"));
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, expectedWorkingHours));
+    }
+
+    @Test
+    void shouldEvictMonthsOfDaysWrittenPastCacheOnlyAfterCommit() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        WorkingHours closedWorkingHours = new WorkingHours(DUMMY_USER, DAY_2_WORKING_HOURS.getDate(), DAY_2_WORKING_HOURS.getFromTime(), LocalTime.parse("20:00:00"));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cachingDao.evictWorkingHours(List.of(closedWorkingHours));
+            cachingDao.getWorkingHours(OCTOBER_FILTER);
+            verify(dao, times(1)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class))).thenReturn(List.of(DAY_1_WORKING_HOURS, closedWorkingHours));
+
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, closedWorkingHours));
+        verify(dao, times(2)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldNotUpdateCachedDayWhenTransactionIsRolledBack() {
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cachingDao.upsertWorkingHours(new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-12"), LocalTime.parse("08:00:00")));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cachingDao.getWorkingHours(OCTOBER_FILTER), contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+    }
+
+    @Test
+    void shouldNotCacheWritesOfMonthsWhichWereNotRead() {
+        cachingDao.upsertWorkingHours(List.of(DAY_1_WORKING_HOURS));
+        cachingDao.getWorkingHours(OCTOBER_FILTER);
+        verify(dao, times(1)).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+}
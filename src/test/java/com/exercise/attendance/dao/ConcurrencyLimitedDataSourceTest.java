@@ -0,0 +1,74 @@
+package com.exercise.attendance.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitedDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    private ConcurrencyLimitedDataSource limitedDataSource;
+
+    @BeforeEach
+    private void setUp() throws SQLException {
+        MockitoAnnotations.initMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        limitedDataSource = new ConcurrencyLimitedDataSource(dataSource, 2, Duration.ofMillis(10));
+    }
+
+    @Test
+    void shouldHoldPermitUntilConnectionIsClosed() throws SQLException {
+        Connection limitedConnection = limitedDataSource.getConnection();
+        assertThat(limitedDataSource.getAvailablePermits(), is(1));
+
+        limitedConnection.close();
+        assertThat(limitedDataSource.getAvailablePermits(), is(2));
+        verify(connection).close();
+    }
+
+    @Test
+    void shouldThrowDatabaseBusyExceptionWhenNoPermitWithinTimeout() throws SQLException {
+        limitedDataSource.getConnection();
+        limitedDataSource.getConnection();
+        assertThrows(DatabaseBusyException.class, () -> limitedDataSource.getConnection());
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitOnlyOnceWhenConnectionIsClosedTwice() throws SQLException {
+        limitedDataSource.getConnection();
+        Connection limitedConnection = limitedDataSource.getConnection();
+        limitedConnection.close();
+        limitedConnection.close();
+        assertThat(limitedDataSource.getAvailablePermits(), is(1));
+    }
+
+    @Test
+    void shouldReleasePermitWhenConnectionCannotBeBorrowed() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        assertThrows(SQLException.class, () -> limitedDataSource.getConnection());
+        assertThat(limitedDataSource.getAvailablePermits(), is(2));
+    }
+
+    @Test
+    void shouldDelegateConnectionCalls() throws SQLException {
+        limitedDataSource.getConnection().setAutoCommit(false);
+        verify(connection).setAutoCommit(false);
+    }
+}
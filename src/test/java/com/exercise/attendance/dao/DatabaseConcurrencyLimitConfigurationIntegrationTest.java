@@ -0,0 +1,43 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = {"spring.threads.virtual.enabled=true", "attendance.db.max-concurrency=4"})
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class DatabaseConcurrencyLimitConfigurationIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private WorkingHoursDao dao;
+
+    @Test
+    void shouldLimitConcurrencyOfPooledDataSourceWhenVirtualThreadsAreEnabled() throws SQLException {
+        assertThat(dataSource, instanceOf(ConcurrencyLimitedDataSource.class));
+        assertThat(dataSource.unwrap(HikariDataSource.class), instanceOf(HikariDataSource.class));
+        assertThat(((ConcurrencyLimitedDataSource) dataSource).getAvailablePermits(), is(4));
+    }
+
+    @Test
+    void shouldReturnPermitsAfterQueries() {
+        List<WorkingHours> workingHours = dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09")));
+        assertThat(workingHours.size(), is(2));
+        assertThat(((ConcurrencyLimitedDataSource) dataSource).getAvailablePermits(), is(4));
+    }
+}
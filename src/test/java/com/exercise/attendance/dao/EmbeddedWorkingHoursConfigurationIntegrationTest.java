@@ -0,0 +1,57 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import com.exercise.attendance.services.HoursReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = {"attendance.embedded.directory=${java.io.tmpdir}/attendance-embedded-${random.uuid}", "attendance.cache.enabled=true"})
+@ActiveProfiles("embedded")
+class EmbeddedWorkingHoursConfigurationIntegrationTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private WorkingHoursDao workingHoursDao;
+
+    @Autowired
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Autowired
+    private HoursReportService service;
+
+    @Test
+    void shouldReplaceDatabaseDaosWithEmbeddedStore() {
+        assertThat(workingHoursDao, instanceOf(EmbeddedWorkingHoursDao.class));
+        assertThat(monthlyHoursDao, instanceOf(EmbeddedMonthlyHoursDao.class));
+        assertThat(applicationContext.getBeansOfType(WorkingHoursDaoImpl.class).isEmpty(), is(true));
+    }
+
+    @Test
+    void shouldReportAndSummarizeActivitiesWithoutDatabase() {
+        LocalDateTime entry = LocalDateTime.parse("2020-11-02T08:00:00");
+        service.reportActivity(new Activity("frank", ActivityType.ENTRY, entry));
+        service.reportActivity(new Activity("frank", ActivityType.EXIT, entry.plusHours(9)));
+        List<WorkingHours> workingHours = workingHoursDao.getWorkingHours(new WorkingHoursFilter("frank", entry.toLocalDate(), entry.toLocalDate()));
+        assertThat(workingHours, contains(new WorkingHours("frank", entry.toLocalDate(), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+        assertThat(monthlyHoursDao.getMonthlyHours(YearMonth.parse("2020-11")), contains(new MonthlyHours("frank", YearMonth.parse("2020-11"), 32400, 1, 0)));
+    }
+}
@@ -0,0 +1,189 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class EmbeddedWorkingHoursDaoTest {
+
+    private static final WorkingHours ALICE_DAY_1 = new WorkingHours("alice", LocalDate.parse("2020-10-08"), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+    private static final WorkingHours ALICE_DAY_2 = new WorkingHours("alice", LocalDate.parse("2020-10-09"), LocalTime.parse("08:30:00"), LocalTime.parse("18:15:00"));
+    private static final WorkingHours ALICE_DAY_3 = new WorkingHours("alice", LocalDate.parse("2020-10-10"), LocalTime.parse("09:30:00"), LocalTime.parse("16:15:00"));
+    private static final WorkingHours BOB_DAY_1 = new WorkingHours("bob", LocalDate.parse("2020-10-09"), LocalTime.parse("10:30:00"), LocalTime.parse("15:00:00"));
+    private static final WorkingHours BOB_OPEN_DAY = new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"));
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedWorkingHoursDao dao;
+
+    @BeforeEach
+    private void setUp() throws IOException {
+        dao = openDao();
+        // Out of order, to insert days before existing ones
+        dao.upsertWorkingHours(List.of(ALICE_DAY_3, ALICE_DAY_1, ALICE_DAY_2, BOB_OPEN_DAY, BOB_DAY_1));
+    }
+
+    @AfterEach
+    private void tearDown() throws Exception {
+        dao.close();
+    }
+
+    @Test
+    void shouldReturnWorkingHoursForUserForFilteredDatesSortedByDate() {
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09"))), contains(ALICE_DAY_1, ALICE_DAY_2));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-09"), LocalDate.parse("2020-10-30"))), contains(ALICE_DAY_2, ALICE_DAY_3));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("carl", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09"))), is(empty()));
+    }
+
+    @Test
+    void shouldReturnWorkingHoursForUsersSortedByUserAndDate() {
+        List<WorkingHours> workingHours = dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of("bob", "alice", "carl"), LocalDate.parse("2020-10-09"), LocalDate.parse("2020-10-11")));
+        assertThat(workingHours, contains(ALICE_DAY_2, ALICE_DAY_3, BOB_DAY_1, BOB_OPEN_DAY));
+    }
+
+    @Test
+    void shouldReturnPageOfWorkingHoursForUserAfterDate() {
+        WorkingHoursFilter filter = new WorkingHoursFilter("alice", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"));
+        assertThat(dao.getWorkingHours(filter, LocalDate.parse("2020-09-30"), 2), contains(ALICE_DAY_1, ALICE_DAY_2));
+        assertThat(dao.getWorkingHours(filter, ALICE_DAY_2.getDate(), 2), contains(ALICE_DAY_3));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-01"), ALICE_DAY_2.getDate()), ALICE_DAY_1.getDate(), 2), contains(ALICE_DAY_2));
+    }
+
+    @Test
+    void shouldStreamWorkingHoursForUserSortedByDate() {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.streamWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-09")), workingHours::add);
+        assertThat(workingHours, contains(ALICE_DAY_1, ALICE_DAY_2));
+    }
+
+    @Test
+    void shouldStreamWorkingHoursOfAllUsersOnDate() {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.streamWorkingHours(LocalDate.parse("2020-10-09"), workingHours::add);
+        workingHours.sort(Comparator.comparing(WorkingHours::getUser));
+        assertThat(workingHours, contains(ALICE_DAY_2, BOB_DAY_1));
+    }
+
+    @Test
+    void shouldAggregateHoursSummaryLikeDatabase() {
+        assertThat(dao.getHoursSummary(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-10")), Duration.ofHours(8)),
+                is(new HoursSummary(91800, 3, 0, 9900)));
+        assertThat(dao.getHoursSummary(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31")), Duration.ofHours(8)),
+                is(new HoursSummary(16200, 1, 1, 0)));
+        assertThat(dao.getHoursSummary(new WorkingHoursFilter("carl", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31")), Duration.ofHours(8)),
+                is(HoursSummary.EMPTY));
+    }
+
+    @Test
+    void shouldRecordEntryOnlyWhenDayHasNoWorkingHours() {
+        ActivityRecordResult recorded = dao.recordActivity(new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00")));
+        ActivityRecordResult conflict = dao.recordActivity(new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T09:00:00")));
+        assertThat(recorded.isRecorded(), is(true));
+        assertThat(conflict.isRecorded(), is(false));
+        assertThat(conflict.getConflictingWorkingHours(), is(Optional.of(BOB_OPEN_DAY)));
+    }
+
+    @Test
+    void shouldRecordExitOnlyWhenDayHasEntryWithoutExit() {
+        ActivityRecordResult recorded = dao.recordActivity(new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")));
+        ActivityRecordResult repeated = dao.recordActivity(new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T17:00:00")));
+        ActivityRecordResult withoutEntry = dao.recordActivity(new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-12T16:00:00")));
+        assertThat(recorded.isRecorded(), is(true));
+        assertThat(repeated.getConflictingWorkingHours(), is(Optional.of(new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:00:00")))));
+        assertThat(withoutEntry.isRecorded(), is(false));
+        assertThat(withoutEntry.getConflictingWorkingHours(), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldSummarizeMonthlyHoursOfUsersWithDaysInMonth() {
+        List<MonthlyHours> monthlyHours = dao.getMonthlyHours(YearMonth.parse("2020-10"));
+        assertThat(monthlyHours, contains(
+                new MonthlyHours("alice", YearMonth.parse("2020-10"), 91800, 3, 0),
+                new MonthlyHours("bob", YearMonth.parse("2020-10"), 16200, 1, 1)));
+        assertThat(dao.getMonthlyHours(YearMonth.parse("2020-11")), is(empty()));
+    }
+
+    @Test
+    void shouldRecoverWorkingHoursFromJournal() throws Exception {
+        dao.recordActivity(new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")));
+        dao = reopenWithoutSnapshot();
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"))),
+                contains(BOB_DAY_1, new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:00:00"))));
+    }
+
+    @Test
+    void shouldRecoverWorkingHoursFromSnapshotAndLaterJournal() throws Exception {
+        dao.snapshot();
+        dao.recordActivity(new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00")));
+        dao = reopenWithoutSnapshot();
+        assertThat(files("journal-"), is(List.of("journal-2.log", "journal-3.log")));
+        assertThat(files("snapshot-"), is(List.of("snapshot-2.dat")));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"))), contains(ALICE_DAY_1, ALICE_DAY_2, ALICE_DAY_3));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("carl", LocalDate.parse("2020-10-12"), LocalDate.parse("2020-10-12"))),
+                contains(new WorkingHours("carl", LocalDate.parse("2020-10-12"), LocalTime.parse("08:00:00"))));
+    }
+
+    @Test
+    void shouldReplaceJournalWithSnapshotOnClose() throws Exception {
+        dao.close();
+        dao = openDao();
+        assertThat(files("journal-"), is(List.of("journal-2.log", "journal-3.log")));
+        assertThat(files("snapshot-"), is(List.of("snapshot-2.dat")));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"))), contains(BOB_DAY_1, BOB_OPEN_DAY));
+    }
+
+    @Test
+    void shouldIgnoreRecordCutShortAtEndOfJournal() throws Exception {
+        dao.recordActivity(new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00")));
+        Path journal = directory.resolve("journal-1.log");
+        try (RandomAccessFile file = new RandomAccessFile(journal.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        dao = reopenWithoutSnapshot();
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("carl", LocalDate.parse("2020-10-12"), LocalDate.parse("2020-10-12"))), is(empty()));
+        assertThat(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"))), contains(BOB_DAY_1, BOB_OPEN_DAY));
+    }
+
+    // Simulates a crash: the store is dropped without the snapshot of close
+    private EmbeddedWorkingHoursDao reopenWithoutSnapshot() throws IOException {
+        return openDao();
+    }
+
+    private EmbeddedWorkingHoursDao openDao() throws IOException {
+        return new EmbeddedWorkingHoursDao(new EmbeddedWorkingHoursJournal(directory, false), 4, Duration.ZERO);
+    }
+
+    private List<String> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedActivityEventLogTest {
+
+    private static final Activity ALICE_ENTRY = new Activity("alice", ActivityType.ENTRY, LocalDateTime.parse("2020-10-08T08:00:00.123456789"));
+    private static final Activity BOB_ENTRY = new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-08T09:30:00"));
+    private static final Activity ALICE_EXIT = new Activity("alice", ActivityType.EXIT, LocalDateTime.parse("2020-10-08T17:00:00"));
+    private static final Activity ZOE_ENTRY = new Activity("zoë", ActivityType.ENTRY, LocalDateTime.parse("2020-10-09T07:45:00"));
+
+    // Header, type, epoch second, nano and a 5 byte user: 3 records of alice or bob fit
+    private static final DataSize SMALL_SEGMENT = DataSize.ofBytes(3 * (8 + 13 + 5));
+
+    @TempDir
+    Path directory;
+
+    private MappedActivityEventLog eventLog;
+
+    @BeforeEach
+    private void setUp() throws IOException {
+        eventLog = openLog(DataSize.ofKilobytes(4), ActivityEventLogSync.ALWAYS);
+    }
+
+    @AfterEach
+    private void tearDown() {
+        eventLog.close();
+    }
+
+    @Test
+    void shouldReplayActivitiesInAppendOrder() {
+        eventLog.append(ALICE_ENTRY);
+        eventLog.append(List.of(BOB_ENTRY, ALICE_EXIT));
+        eventLog.append(ZOE_ENTRY);
+        assertThat(replay(eventLog), contains(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT, ZOE_ENTRY));
+    }
+
+    @Test
+    void shouldReplayNothingWhenLogIsEmpty() {
+        assertThat(replay(eventLog), is(empty()));
+    }
+
+    @Test
+    void shouldRotateSegmentWhenActivityDoesNotFit() throws IOException {
+        eventLog.close();
+        eventLog = openLog(SMALL_SEGMENT, ActivityEventLogSync.NEVER);
+        eventLog.append(List.of(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT, ALICE_ENTRY));
+        eventLog.append(BOB_ENTRY);
+
+        assertThat(files(), is(Set.of("activities-1.log", "activities-2.log")));
+        assertThat(replay(eventLog), contains(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT, ALICE_ENTRY, BOB_ENTRY));
+    }
+
+    @Test
+    void shouldContinueAppendingAfterReopen() throws IOException {
+        eventLog.append(List.of(ALICE_ENTRY, BOB_ENTRY));
+        eventLog.close();
+
+        eventLog = openLog(DataSize.ofKilobytes(4), ActivityEventLogSync.ALWAYS);
+        eventLog.append(ALICE_EXIT);
+        assertThat(replay(eventLog), contains(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT));
+    }
+
+    @Test
+    void shouldContinueAppendingInLastSegmentAfterReopen() throws IOException {
+        eventLog.close();
+        eventLog = openLog(SMALL_SEGMENT, ActivityEventLogSync.INTERVAL);
+        eventLog.append(List.of(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT, ALICE_ENTRY));
+        eventLog.close();
+
+        eventLog = openLog(SMALL_SEGMENT, ActivityEventLogSync.INTERVAL);
+        eventLog.append(BOB_ENTRY);
+        assertThat(files(), is(Set.of("activities-1.log", "activities-2.log")));
+        assertThat(replay(eventLog), contains(ALICE_ENTRY, BOB_ENTRY, ALICE_EXIT, ALICE_ENTRY, BOB_ENTRY));
+    }
+
+    @Test
+    void shouldDropTornRecordAndOverwriteItAfterReopen() throws IOException {
+        eventLog.append(List.of(ALICE_ENTRY, BOB_ENTRY));
+        eventLog.close();
+        // Corrupts the last byte of the user of the second record, as if the machine crashed before it reached the disk
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("activities-1.log").toFile(), "rw")) {
+            long lastUserByte = (8 + 13 + 5) + (8 + 13 + 3) - 1;
+            file.seek(lastUserByte);
+            file.write('x');
+        }
+
+        eventLog = openLog(DataSize.ofKilobytes(4), ActivityEventLogSync.ALWAYS);
+        assertThat(replay(eventLog), contains(ALICE_ENTRY));
+        eventLog.append(ALICE_EXIT);
+        assertThat(replay(eventLog), contains(ALICE_ENTRY, ALICE_EXIT));
+    }
+
+    @Test
+    void shouldRejectActivityLargerThanSegment() throws IOException {
+        eventLog.close();
+        eventLog = openLog(SMALL_SEGMENT, ActivityEventLogSync.ALWAYS);
+        Activity activity = new Activity("a".repeat((int) SMALL_SEGMENT.toBytes()), ActivityType.ENTRY, LocalDateTime.parse("2020-10-08T08:00:00"));
+        assertThrows(IllegalArgumentException.class, () -> eventLog.append(activity));
+    }
+
+    @Test
+    void shouldRejectInvalidSegmentSize() {
+        assertThrows(IllegalArgumentException.class, () -> openLog(DataSize.ofBytes(8), ActivityEventLogSync.ALWAYS));
+        assertThrows(IllegalArgumentException.class, () -> openLog(DataSize.ofGigabytes(2), ActivityEventLogSync.ALWAYS));
+    }
+
+    private MappedActivityEventLog openLog(DataSize segmentSize, ActivityEventLogSync sync) throws IOException {
+        return new MappedActivityEventLog(directory.toString(), segmentSize, sync, Duration.ofMillis(10));
+    }
+
+    private List<Activity> replay(ActivityEventLog log) {
+        List<Activity> activities = new ArrayList<>();
+        log.replay(activities::add);
+        return activities;
+    }
+
+    private Set<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+}
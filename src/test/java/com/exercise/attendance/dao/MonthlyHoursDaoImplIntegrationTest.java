@@ -0,0 +1,134 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.WorkingHours;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class MonthlyHoursDaoImplIntegrationTest {
+
+    private static final YearMonth OCTOBER = YearMonth.parse("2020-10");
+    private static final int USERS_PAGE_SIZE = 1;
+
+    @Autowired
+    private MonthlyHoursDao dao;
+
+    @Autowired
+    private WorkingHoursDao workingHoursDao;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldRebuildMonthlyHoursOfAllUsers() {
+        int rebuiltMonths = dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+
+        assertThat(rebuiltMonths, is(2));
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(
+                new MonthlyHours("alice", OCTOBER, 91800, 3, 0),
+                new MonthlyHours("bob", OCTOBER, 16200, 1, 1)));
+    }
+
+    @Test
+    void shouldClearMonthsWithoutWorkingHoursOnRebuild() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        jdbcTemplate.update("DELETE FROM WORKING_HOURS WHERE USER IN ('alice', 'bob') AND DATE < '2020-10-11'", Map.of());
+
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(new MonthlyHours("bob", OCTOBER, 0, 0, 1)));
+    }
+
+    @Test
+    void shouldClearMonthsOfUsersAfterLastUserWithWorkingHours() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        jdbcTemplate.update("DELETE FROM WORKING_HOURS WHERE USER= 'bob'", Map.of());
+
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(new MonthlyHours("alice", OCTOBER, 91800, 3, 0)));
+    }
+
+    @Test
+    void shouldAddRecordedActivitiesToMonthlyHours() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        Activity bobExit = new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:30:00"));
+        Activity carlEntry = new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00"));
+        Activity carlExit = new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-12T16:00:00"));
+        List.of(bobExit, carlEntry, carlExit).forEach(workingHoursDao::recordActivity);
+
+        dao.addRecordedActivities(List.of(bobExit, carlEntry, carlExit));
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(
+                new MonthlyHours("alice", OCTOBER, 91800, 3, 0),
+                new MonthlyHours("bob", OCTOBER, 48600, 2, 0),
+                new MonthlyHours("carl", OCTOBER, 28800, 1, 0)));
+    }
+
+    @Test
+    void shouldCountOpenDaysOfRecordedEntriesWhenRead() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        Activity carlEntry = new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00"));
+        workingHoursDao.recordActivity(carlEntry);
+
+        dao.addRecordedActivities(List.of(carlEntry));
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(
+                new MonthlyHours("alice", OCTOBER, 91800, 3, 0),
+                new MonthlyHours("bob", OCTOBER, 16200, 1, 1),
+                new MonthlyHours("carl", OCTOBER, 0, 0, 1)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM MONTHLY_HOURS WHERE USER= 'carl'", Map.of(), Integer.class), is(0));
+    }
+
+    @Test
+    void shouldRefreshMonthlyHoursOfUpdatedUserMonths() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        WorkingHours closedDay = new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:30:00"));
+        WorkingHours nextMonthDay = new WorkingHours("bob", LocalDate.parse("2020-11-02"), LocalTime.parse("08:00:00"));
+        workingHoursDao.upsertWorkingHours(List.of(closedDay, nextMonthDay));
+
+        dao.refreshMonthlyHours(List.of(closedDay, nextMonthDay));
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(
+                new MonthlyHours("alice", OCTOBER, 91800, 3, 0),
+                new MonthlyHours("bob", OCTOBER, 48600, 2, 0)));
+        assertThat(dao.getMonthlyHours(YearMonth.parse("2020-11")), contains(
+                new MonthlyHours("bob", YearMonth.parse("2020-11"), 0, 0, 1)));
+    }
+
+    @Test
+    void shouldRefreshSameUserMonthOnce() {
+        WorkingHours day1 = new WorkingHours("carl", LocalDate.parse("2020-10-01"), LocalTime.parse("08:00:00"), LocalTime.parse("16:00:00"));
+        WorkingHours day2 = new WorkingHours("carl", LocalDate.parse("2020-10-02"), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+        workingHoursDao.upsertWorkingHours(List.of(day1, day2));
+
+        dao.refreshMonthlyHours(List.of(day1, day2));
+
+        assertThat(dao.getMonthlyHours(OCTOBER), contains(new MonthlyHours("carl", OCTOBER, 61200, 2, 0)));
+    }
+
+    @Test
+    void shouldReturnNoMonthlyHoursForMonthWithoutWorkingHours() {
+        dao.rebuildMonthlyHours(USERS_PAGE_SIZE);
+        assertThat(dao.getMonthlyHours(YearMonth.parse("2020-09")), empty());
+    }
+}
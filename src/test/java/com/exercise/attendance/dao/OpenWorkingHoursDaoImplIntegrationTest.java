@@ -0,0 +1,117 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The scheduled sweep is delayed, so it does not close the days of the tests
+@SpringBootTest(properties = {"attendance.auto-close.enabled=true", "attendance.auto-close.initial-delay=PT24H"})
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class OpenWorkingHoursDaoImplIntegrationTest {
+
+    private static final LocalDate CUTOFF_DATE = LocalDate.parse("2020-10-31");
+
+    @Autowired
+    private OpenWorkingHoursDao dao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    private void setUp() {
+        jdbcTemplate.update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES ('alice','2020-10-12','08:00:00')");
+        jdbcTemplate.update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES ('carl','2020-10-12','09:00:00')");
+        jdbcTemplate.update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES ('carl','2020-11-02','09:00:00')");
+    }
+
+    @Test
+    void shouldPageThroughOpenDaysUntilCutoffById() {
+        List<WorkingHoursRecord> firstPage = dao.getOpenWorkingHours(CUTOFF_DATE, 0, 2);
+        List<WorkingHoursRecord> secondPage = dao.getOpenWorkingHours(CUTOFF_DATE, firstPage.get(1).getId(), 2);
+
+        assertThat(workingHoursOf(firstPage), contains(
+                new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30")),
+                new WorkingHours("alice", LocalDate.parse("2020-10-12"), LocalTime.parse("08:00"))));
+        assertThat(workingHoursOf(secondPage), contains(
+                new WorkingHours("carl", LocalDate.parse("2020-10-12"), LocalTime.parse("09:00"))));
+        assertThat(firstPage.get(0).getId() < firstPage.get(1).getId(), is(true));
+    }
+
+    @Test
+    void shouldCloseAndFlagOpenDays() {
+        List<WorkingHoursRecord> open = dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10);
+        WorkingHoursRecord bob = close(open.get(0), LocalTime.parse("17:00"));
+        WorkingHoursRecord alice = close(open.get(1), null);
+
+        assertThat(dao.autoClose(List.of(bob, alice)), contains(bob, alice));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT TO_TIME FROM WORKING_HOURS WHERE USER='bob' AND DATE='2020-10-11'", LocalTime.class),
+                is(LocalTime.parse("17:00")));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM WORKING_HOURS WHERE AUTO_CLOSED = TRUE", Integer.class), is(2));
+        assertThat(workingHoursOf(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)), contains(
+                new WorkingHours("carl", LocalDate.parse("2020-10-12"), LocalTime.parse("09:00"))));
+    }
+
+    @Test
+    void shouldSkipDayClosedMeanwhile() {
+        WorkingHoursRecord bob = dao.getOpenWorkingHours(CUTOFF_DATE, 0, 1).get(0);
+        jdbcTemplate.update("UPDATE WORKING_HOURS SET TO_TIME='16:00:00' WHERE USER='bob' AND DATE='2020-10-11'");
+
+        assertThat(dao.autoClose(List.of(close(bob, LocalTime.parse("17:00")))), is(empty()));
+        assertThat(jdbcTemplate.queryForObject("SELECT TO_TIME FROM WORKING_HOURS WHERE USER='bob' AND DATE='2020-10-11'", LocalTime.class),
+                is(LocalTime.parse("16:00")));
+    }
+
+    @Test
+    void shouldFailBatchWithoutUpdateCountsRatherThanGuessClosedDays() {
+        NamedParameterJdbcTemplate countlessJdbcTemplate = new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+                int[] updatedRows = super.batchUpdate(sql, batchArgs);
+                Arrays.fill(updatedRows, Statement.SUCCESS_NO_INFO);
+                return updatedRows;
+            }
+        };
+        OpenWorkingHoursDao countlessDao = new OpenWorkingHoursDaoImpl(countlessJdbcTemplate, meterRegistry);
+        WorkingHoursRecord bob = dao.getOpenWorkingHours(CUTOFF_DATE, 0, 1).get(0);
+
+        assertThrows(IllegalStateException.class, () -> countlessDao.autoClose(List.of(close(bob, LocalTime.parse("17:00")))));
+    }
+
+    private static WorkingHoursRecord close(WorkingHoursRecord record, LocalTime toTime) {
+        WorkingHours workingHours = record.getWorkingHours();
+        return new WorkingHoursRecord(record.getId(), new WorkingHours(workingHours.getUser(), workingHours.getDate(), workingHours.getFromTime(), toTime));
+    }
+
+    private static List<WorkingHours> workingHoursOf(List<WorkingHoursRecord> records) {
+        return records.stream().map(WorkingHoursRecord::getWorkingHours).collect(Collectors.toList());
+    }
+}
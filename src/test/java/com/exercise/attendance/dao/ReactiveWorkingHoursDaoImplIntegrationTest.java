@@ -0,0 +1,87 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class ReactiveWorkingHoursDaoImplIntegrationTest {
+
+    @Autowired
+    private ReactiveWorkingHoursDao dao;
+
+    @Test
+    void shouldReturnWorkingHoursForUserForFilteredDates() {
+        StepVerifier.create(dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09"))))
+                .expectNext(new WorkingHours("alice", LocalDate.parse("2020-10-08"), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00")))
+                .expectNext(new WorkingHours("alice", LocalDate.parse("2020-10-09"), LocalTime.parse("08:30:00"), LocalTime.parse("18:15:00")))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnOpenWorkingHoursWithoutToTime() {
+        StepVerifier.create(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11"))))
+                .expectNext(new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00")))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldAggregateHoursSummaryForUserForFilteredDates() {
+        StepVerifier.create(dao.getHoursSummary(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-10")), Duration.ofHours(8)))
+                .expectNext(new HoursSummary(91800, 3, 0, 9900))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnEmptyHoursSummaryForUserWithoutWorkingHours() {
+        StepVerifier.create(dao.getHoursSummary(new WorkingHoursFilter("carl", LocalDate.parse("2000-10-07"), LocalDate.parse("2050-10-08")), Duration.ofHours(8)))
+                .expectNext(HoursSummary.EMPTY)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRecordEntryAndExitOfSameDay() {
+        recordActivity(new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00")), ActivityRecordResult.recorded());
+        recordActivity(new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-12T16:00:00")), ActivityRecordResult.recorded());
+        StepVerifier.create(dao.getWorkingHours(new WorkingHoursFilter("carl", LocalDate.parse("2020-10-12"), LocalDate.parse("2020-10-12"))))
+                .expectNext(new WorkingHours("carl", LocalDate.parse("2020-10-12"), LocalTime.parse("08:00:00"), LocalTime.parse("16:00:00")))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnConflictingWorkingHoursWhenEntryIsRepeated() {
+        WorkingHours openWorkingHours = new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"));
+        recordActivity(new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T09:00:00")), ActivityRecordResult.conflict(Optional.of(openWorkingHours)));
+    }
+
+    @Test
+    void shouldReturnConflictWithoutWorkingHoursWhenExitHasNoEntry() {
+        recordActivity(new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-12T16:00:00")), ActivityRecordResult.conflict(Optional.empty()));
+    }
+
+    private void recordActivity(Activity activity, ActivityRecordResult expectedResult) {
+        ActivityRecordResult result = dao.recordActivity(activity).block();
+        assertThat(result.isRecorded(), is(expectedResult.isRecorded()));
+        assertThat(result.getConflictingWorkingHours(), is(expectedResult.getConflictingWorkingHours()));
+    }
+}
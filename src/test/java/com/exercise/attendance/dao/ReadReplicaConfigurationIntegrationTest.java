@@ -0,0 +1,84 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+// The replicas are two embedded H2 databases, which hold other working hours than the primary,
+// so each read shows which database served it
+@SpringBootTest(properties = {
+        "attendance.replicas.enabled=true",
+        "attendance.replicas.urls=" + ReadReplicaConfigurationIntegrationTest.REPLICA_1_URL + "," + ReadReplicaConfigurationIntegrationTest.REPLICA_2_URL,
+        "attendance.replicas.username=sa",
+        "attendance.replicas.password=",
+        "attendance.replicas.lag-query=SELECT 0"})
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class ReadReplicaConfigurationIntegrationTest {
+
+    static final String REPLICA_1_URL = "jdbc:h2:mem:replica1;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2_URL = "jdbc:h2:mem:replica2;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final LocalDate DATE = LocalDate.parse("2020-11-02");
+    private static final WorkingHoursFilter FILTER = new WorkingHoursFilter("alice", DATE, DATE);
+
+    @Autowired
+    private WorkingHoursDao dao;
+
+    @BeforeEach
+    private void setUp() {
+        initReplica(REPLICA_1_URL, "08:00:00");
+        initReplica(REPLICA_2_URL, "09:00:00");
+    }
+
+    @Test
+    void shouldBalanceReportReadsBetweenReplicas() {
+        WorkingHours firstRead = dao.getWorkingHours(FILTER).get(0);
+        WorkingHours secondRead = dao.getWorkingHours(FILTER).get(0);
+
+        assertThat(List.of(firstRead.getFromTime(), secondRead.getFromTime()), containsInAnyOrder(LocalTime.parse("08:00:00"), LocalTime.parse("09:00:00")));
+    }
+
+    @Test
+    void shouldRecordActivityAndReadForUpdateOnPrimary() {
+        dao.recordActivity(new Activity("alice", ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.parse("10:00:00"))));
+
+        assertThat(dao.getWorkingHoursForUpdate(FILTER), contains(new WorkingHours("alice", DATE, LocalTime.parse("10:00:00"))));
+        assertThat(dao.getWorkingHours(FILTER).get(0).getFromTime(), is(not(LocalTime.parse("10:00:00"))));
+    }
+
+    @Test
+    void shouldReadConflictingWorkingHoursOfPunchFromPrimary() {
+        ActivityRecordResult recordResult = dao.recordActivity(new Activity("alice", ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.parse("17:00:00"))));
+
+        assertThat(recordResult.isRecorded(), is(false));
+        assertThat(recordResult.getConflictingWorkingHours(), is(Optional.empty()));
+    }
+
+    private void initReplica(String url, String fromTime) {
+        DriverManagerDataSource replica = new DriverManagerDataSource(url, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("init-schema.sql")).execute(replica);
+        new JdbcTemplate(replica).update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES (?,?,?)", "alice", DATE, LocalTime.parse(fromTime));
+    }
+}
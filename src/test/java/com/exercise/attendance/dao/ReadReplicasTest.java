@@ -0,0 +1,165 @@
+package com.exercise.attendance.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ReadReplicasTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(30);
+    private static final String LAG_QUERY = "SHOW REPLICA STATUS";
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replica1Connection;
+
+    @Mock
+    private Connection replica2Connection;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    private void setUp() throws SQLException {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+    }
+
+    @Test
+    void shouldBalanceConnectionsBetweenReplicas() throws SQLException {
+        DataSource dataSource = readReplicas(Duration.ofMinutes(1)).getDataSource();
+
+        assertThat(dataSource.getConnection(), is(sameInstance(replica1Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica1Connection)));
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldSkipUnavailableReplicaUntilRetryIntervalElapsed() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        DataSource dataSource = readReplicas(Duration.ofMinutes(1)).getDataSource();
+
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        verify(replica1, times(1)).getConnection();
+        assertThat(meterRegistry.get("attendance.db.replica.unavailable").tag("replica", "1").counter().count(), is(1.0));
+    }
+
+    @Test
+    void shouldRetryUnavailableReplicaOnceRetryIntervalElapsed() throws SQLException {
+        when(replica1.getConnection())
+                .thenThrow(new SQLTransientConnectionException("Connection is not available"))
+                .thenReturn(replica1Connection);
+        DataSource dataSource = readReplicas(Duration.ZERO).getDataSource();
+
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica1Connection)));
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenNoReplicaIsAvailable() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        when(replica2.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        DataSource dataSource = readReplicas(Duration.ofMinutes(1)).getDataSource();
+
+        assertThat(dataSource.getConnection(), is(sameInstance(primaryConnection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(primaryConnection)));
+        verify(replica1, times(1)).getConnection();
+        verify(replica2, times(1)).getConnection();
+    }
+
+    @Test
+    void shouldSkipReplicaWhichLagsBeyondMaxLagUntilItCatchesUp() throws SQLException {
+        stubLag(replica1Connection, 31L);
+        stubLag(replica2Connection, 0L);
+        ReadReplicas readReplicas = readReplicas(Duration.ofMinutes(1));
+        DataSource dataSource = readReplicas.getDataSource();
+
+        readReplicas.checkReplicas();
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(dataSource.getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(meterRegistry.get("attendance.db.replica.unavailable").tag("replica", "1").counter().count(), is(1.0));
+
+        stubLag(replica1Connection, 2L);
+        readReplicas.checkReplicas();
+        assertThat(dataSource.getConnection(), is(sameInstance(replica1Connection)));
+    }
+
+    @Test
+    void shouldSkipReplicaWhichDoesNotReplicate() throws SQLException {
+        stubLag(replica1Connection, null);
+        stubLag(replica2Connection, 0L);
+        ReadReplicas readReplicas = readReplicas(Duration.ofMinutes(1));
+
+        readReplicas.checkReplicas();
+
+        assertThat(readReplicas.getDataSource().getConnection(), is(sameInstance(replica2Connection)));
+        assertThat(readReplicas.getDataSource().getConnection(), is(sameInstance(replica2Connection)));
+    }
+
+    @Test
+    void shouldConnectToReplicaAsOtherUser() throws SQLException {
+        Connection otherUserConnection = mock(Connection.class);
+        when(replica1.getConnection("reporter", "secret")).thenReturn(otherUserConnection);
+
+        assertThat(readReplicas(Duration.ofMinutes(1)).getDataSource().getConnection("reporter", "secret"), is(sameInstance(otherUserConnection)));
+    }
+
+    @Test
+    void shouldRequireAtLeastOneReplica() {
+        assertThrows(IllegalArgumentException.class, () -> new ReadReplicas(List.of(), primary, Duration.ZERO, MAX_LAG, LAG_QUERY, Duration.ZERO, meterRegistry));
+    }
+
+    private ReadReplicas readReplicas(Duration retryInterval) {
+        return new ReadReplicas(List.of(replica1, replica2), primary, retryInterval, MAX_LAG, LAG_QUERY, Duration.ZERO, meterRegistry);
+    }
+
+    private void stubLag(Connection connection, Long lagSeconds) throws SQLException {
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(LAG_QUERY)).thenReturn(rs);
+        when(rs.next()).thenReturn(lagSeconds != null);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("Replica_IO_State");
+        when(metaData.getColumnLabel(2)).thenReturn(ReadReplicas.LAG_COLUMN);
+        when(rs.getLong(2)).thenReturn(lagSeconds == null ? 0 : lagSeconds);
+    }
+}
@@ -0,0 +1,57 @@
+package com.exercise.attendance.dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardRingTest {
+
+    private static final int USERS = 30_000;
+
+    @Test
+    void shouldMapUserToSameShardOnEveryRing() {
+        ShardRing ring = new ShardRing(3, 128);
+        ShardRing otherRing = new ShardRing(3, 128);
+        for (int i = 0; i < 100; i++) {
+            assertThat(otherRing.shardOf("user" + i), is(ring.shardOf("user" + i)));
+        }
+    }
+
+    @Test
+    void shouldSpreadUsersEvenlyBetweenShards() {
+        ShardRing ring = new ShardRing(3, 128);
+        int[] users = new int[3];
+        for (int i = 0; i < USERS; i++) {
+            users[ring.shardOf("user" + i)]++;
+        }
+        for (int shardUsers : users) {
+            assertThat(shardUsers, is(both(greaterThan(USERS / 3 * 8 / 10)).and(lessThan(USERS / 3 * 12 / 10))));
+        }
+    }
+
+    @Test
+    void shouldMoveOnlyUsersOfAppendedShard() {
+        ShardRing ring = new ShardRing(3, 128);
+        ShardRing appendedRing = new ShardRing(4, 128);
+        int movedUsers = 0;
+        for (int i = 0; i < USERS; i++) {
+            int shard = ring.shardOf("user" + i);
+            int appendedShard = appendedRing.shardOf("user" + i);
+            if (shard != appendedShard) {
+                assertThat(appendedShard, is(3));
+                movedUsers++;
+            }
+        }
+        assertThat(movedUsers, is(both(greaterThan(USERS / 4 * 8 / 10)).and(lessThan(USERS / 4 * 12 / 10))));
+    }
+
+    @Test
+    void shouldRejectRingWithoutShards() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(0, 128));
+    }
+}
@@ -0,0 +1,180 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.services.HoursReportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+// The shards are three embedded H2 databases, while teams stay in the primary database
+@SpringBootTest(properties = {
+        "attendance.shards.urls=" + ShardedWorkingHoursConfigurationIntegrationTest.SHARD_URL_PREFIX + "0;MODE=MySQL;DB_CLOSE_DELAY=-1," +
+                ShardedWorkingHoursConfigurationIntegrationTest.SHARD_URL_PREFIX + "1;MODE=MySQL;DB_CLOSE_DELAY=-1," +
+                ShardedWorkingHoursConfigurationIntegrationTest.SHARD_URL_PREFIX + "2;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "attendance.shards.username=sa",
+        "attendance.shards.password="})
+@ActiveProfiles("sharded")
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class ShardedWorkingHoursConfigurationIntegrationTest {
+
+    static final String SHARD_URL_PREFIX = "jdbc:h2:mem:shard";
+    private static final List<String> USERS = List.of("alice", "bob", "carl", "david", "erin", "frank");
+    private static final LocalDate DATE = LocalDate.parse("2020-11-02");
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private HoursReportService hoursReportService;
+
+    @Autowired
+    private WorkingHoursDao dao;
+
+    @Autowired
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Autowired
+    private WorkingHoursShards shards;
+
+    @Autowired
+    private ShardRebalancer rebalancer;
+
+    @BeforeEach
+    private void setUp() {
+        for (int shard = 0; shard < 3; shard++) {
+            new ResourceDatabasePopulator(new ClassPathResource("init-schema.sql")).execute(shardDataSource(shard));
+        }
+    }
+
+    @Test
+    void shouldReplaceWorkingHoursDaoWithShardedDao() {
+        assertThat(dao instanceof ShardedWorkingHoursDao, is(true));
+        assertThat(monthlyHoursDao instanceof ShardedMonthlyHoursDao, is(true));
+        assertThat(applicationContext.getBeansOfType(WorkingHoursDaoImpl.class).isEmpty(), is(true));
+    }
+
+    @Test
+    void shouldRecordActivityOnShardOfUser() {
+        for (String user : USERS) {
+            hoursReportService.reportActivity(new Activity(user, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.parse("08:00:00"))));
+        }
+
+        for (int shard = 0; shard < 3; shard++) {
+            int expectedShard = shard;
+            assertThat(usersOf(shard), is(USERS.stream().filter(user -> shards.shardOf(user) == expectedShard).collect(Collectors.toSet())));
+        }
+    }
+
+    @Test
+    void shouldGatherWorkingHoursAndMonthlyHoursOfAllShards() {
+        for (String user : USERS) {
+            hoursReportService.reportActivity(new Activity(user, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.parse("08:00:00"))));
+            hoursReportService.reportActivity(new Activity(user, ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.parse("09:00:00"))));
+        }
+
+        List<WorkingHours> workingHours = dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of("alice", "bob", "carl"), DATE, DATE));
+        List<MonthlyHours> monthlyHours = monthlyHoursDao.getMonthlyHours(YearMonth.from(DATE));
+
+        assertThat(workingHours.stream().map(WorkingHours::getUser).collect(Collectors.toList()), contains("alice", "bob", "carl"));
+        assertThat(monthlyHours.stream().map(MonthlyHours::getUser).collect(Collectors.toList()), is(USERS));
+        assertThat(monthlyHours.stream().allMatch(hours -> hours.getTotalWorkedSeconds() == 3600), is(true));
+    }
+
+    @Test
+    void shouldMoveUsersToTheirShardOnRebalance() {
+        JdbcTemplate firstShard = new JdbcTemplate(shardDataSource(0));
+        for (String user : USERS) {
+            firstShard.update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES (?,?,?,?)",
+                    user, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("09:00:00"));
+        }
+        long misplacedUsers = USERS.stream().filter(user -> shards.shardOf(user) != 0).count();
+
+        assertThat(rebalancer.rebalance(), is((int) misplacedUsers));
+
+        for (int shard = 0; shard < 3; shard++) {
+            int expectedShard = shard;
+            assertThat(usersOf(shard), is(USERS.stream().filter(user -> shards.shardOf(user) == expectedShard).collect(Collectors.toSet())));
+        }
+        assertThat(monthlyHoursDao.getMonthlyHours(YearMonth.from(DATE)).stream()
+                .filter(hours -> shards.shardOf(hours.getUser()) != 0)
+                .count(), is(misplacedUsers));
+        assertThat(rebalancer.rebalance(), is(0));
+    }
+
+    @Test
+    void shouldKeepPunchesOfMovingUserOnItsOldShardUntilMoved() {
+        String user = USERS.stream().filter(candidate -> shards.ringShardOf(candidate) != 0).findFirst().orElseThrow();
+        new JdbcTemplate(shardDataSource(0)).update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES (?,?,?)",
+                user, DATE, LocalTime.parse("08:00:00"));
+        assertThat(rebalancer.startMoves(), is(1));
+
+        hoursReportService.reportActivity(new Activity(user, ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.parse("17:00:00"))));
+        assertThat(usersOf(0), is(Set.of(user)));
+
+        assertThat(rebalancer.rebalance(), is(1));
+        assertThat(usersOf(0), is(empty()));
+        assertThat(dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of(user), DATE, DATE)),
+                contains(new WorkingHours(user, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+        assertThat(monthlyHoursDao.getMonthlyHours(YearMonth.from(DATE)).stream()
+                .filter(hours -> hours.getUser().equals(user))
+                .mapToLong(MonthlyHours::getTotalWorkedSeconds)
+                .sum(), is(9 * 3600L));
+    }
+
+    @Test
+    void shouldDeleteUserLeftOnOldShardWithoutOverwritingItsDays() {
+        String user = USERS.stream().filter(candidate -> shards.ringShardOf(candidate) != 0).findFirst().orElseThrow();
+        new JdbcTemplate(shardDataSource(0)).update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES (?,?,?)",
+                user, DATE, LocalTime.parse("08:00:00"));
+        new JdbcTemplate(shardDataSource(shards.ringShardOf(user))).update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES (?,?,?,?)",
+                user, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+
+        assertThat(rebalancer.rebalance(), is(0));
+
+        assertThat(usersOf(0), is(empty()));
+        assertThat(dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of(user), DATE, DATE)),
+                contains(new WorkingHours(user, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+    }
+
+    @Test
+    void shouldNotFindWorkingHoursOfUserOnOtherShard() {
+        String user = USERS.stream().filter(candidate -> shards.shardOf(candidate) != 0).findFirst().orElseThrow();
+        new JdbcTemplate(shardDataSource(0)).update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES (?,?,?)",
+                user, DATE, LocalTime.parse("08:00:00"));
+
+        assertThat(dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of(user), DATE, DATE)), is(empty()));
+    }
+
+    private Set<String> usersOf(int shard) {
+        return Set.copyOf(new JdbcTemplate(shardDataSource(shard)).queryForList("SELECT DISTINCT USER FROM WORKING_HOURS", String.class));
+    }
+
+    private DriverManagerDataSource shardDataSource(int shard) {
+        return new DriverManagerDataSource(SHARD_URL_PREFIX + shard + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
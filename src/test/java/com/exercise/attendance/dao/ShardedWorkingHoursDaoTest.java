@@ -0,0 +1,331 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShardedWorkingHoursDaoTest {
+
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+    private static final int SHARDS = 3;
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<WorkingHoursDao> shardDaos = new ArrayList<>();
+    private final List<MonthlyHoursDao> shardMonthlyHoursDaos = new ArrayList<>();
+    private final List<TransactionStatus> shardTransactions = new ArrayList<>();
+    private final ShardRing ring = new ShardRing(SHARDS, VIRTUAL_NODES);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private WorkingHoursShards shards;
+    private ShardedWorkingHoursDao dao;
+    private ShardedMonthlyHoursDao monthlyHoursDao;
+
+    @BeforeEach
+    private void setUp() {
+        List<WorkingHoursShards.Shard> shardList = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            WorkingHoursDao shardDao = Mockito.mock(WorkingHoursDao.class);
+            MonthlyHoursDao shardMonthlyHoursDao = Mockito.mock(MonthlyHoursDao.class);
+            shardDaos.add(shardDao);
+            shardMonthlyHoursDaos.add(shardMonthlyHoursDao);
+            TransactionStatus shardTransaction = new SimpleTransactionStatus();
+            shardTransactions.add(shardTransaction);
+            shardList.add(new WorkingHoursShards.Shard(null, shardTransactionOperations(shardTransaction), shardDao, shardMonthlyHoursDao, () -> {
+            }));
+        }
+        shards = new WorkingHoursShards(shardList, VIRTUAL_NODES);
+        dao = new ShardedWorkingHoursDao(shards);
+        monthlyHoursDao = new ShardedMonthlyHoursDao(shards);
+    }
+
+    @AfterEach
+    private void tearDown() throws IOException {
+        executor.shutdownNow();
+        shards.close();
+    }
+
+    @Test
+    void shouldRouteReadsAndPunchesOfUserToItsShard() {
+        String user = userOfShard(1);
+        WorkingHoursFilter filter = new WorkingHoursFilter(user, DATE, DATE);
+        Activity activity = new Activity(user, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(1).getWorkingHours(filter)).thenReturn(List.of(new WorkingHours(user, DATE, LocalTime.NOON)));
+        when(shardDaos.get(1).recordActivity(activity)).thenReturn(ActivityRecordResult.recorded());
+
+        assertThat(dao.getWorkingHours(filter), contains(new WorkingHours(user, DATE, LocalTime.NOON)));
+        assertThat(dao.recordActivity(activity).isRecorded(), is(true));
+        dao.getWorkingHoursForUpdate(filter);
+        verify(shardDaos.get(1)).getWorkingHoursForUpdate(filter);
+        dao.getWorkingHours(filter, DATE.minusDays(1), 10);
+        verify(shardDaos.get(1)).getWorkingHours(filter, DATE.minusDays(1), 10);
+        verifyNoInteractions(shardDaos.get(0), shardDaos.get(2));
+    }
+
+    @Test
+    void shouldRouteMovingUserToItsOldShardUntilMoved() {
+        String user = userOfShard(1);
+        Activity exit = new Activity(user, ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(0).recordActivity(exit)).thenReturn(ActivityRecordResult.recorded());
+        when(shardDaos.get(1).recordActivity(exit)).thenReturn(ActivityRecordResult.recorded());
+        shards.startMove(user, 0);
+
+        dao.recordActivity(exit);
+        verify(shardDaos.get(0)).recordActivity(exit);
+        verifyNoInteractions(shardDaos.get(1));
+
+        shards.move(user, () -> {
+        });
+        dao.recordActivity(exit);
+        verify(shardDaos.get(1)).recordActivity(exit);
+        assertThat(shards.getMovingUsers().isEmpty(), is(true));
+    }
+
+    @Test
+    void shouldPunchDuringMoveOnNewShardOnceCopyIsCommitted() throws Exception {
+        String user = userOfShard(1);
+        Activity exit = new Activity(user, ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(1).recordActivity(exit)).thenReturn(ActivityRecordResult.recorded());
+        shards.startMove(user, 0);
+        CountDownLatch copying = new CountDownLatch(1);
+        CountDownLatch copied = new CountDownLatch(1);
+
+        Future<?> move = executor.submit(() -> shards.move(user, () -> {
+            copying.countDown();
+            try {
+                copied.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        copying.await();
+        Future<ActivityRecordResult> punch = executor.submit(() -> dao.recordActivity(exit));
+
+        assertThrows(TimeoutException.class, () -> punch.get(200, TimeUnit.MILLISECONDS));
+        verifyNoInteractions(shardDaos.get(0), shardDaos.get(1));
+        copied.countDown();
+        move.get();
+        assertThat(punch.get().isRecorded(), is(true));
+        verify(shardDaos.get(1)).recordActivity(exit);
+        verifyNoInteractions(shardDaos.get(0));
+    }
+
+    @Test
+    void shouldNotMoveUserUntilTransactionOfItsPunchCompletes() throws Exception {
+        String user = userOfShard(1);
+        Activity entry = new Activity(user, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(0).recordActivity(entry)).thenReturn(ActivityRecordResult.recorded());
+        shards.startMove(user, 0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dao.recordActivity(entry);
+            monthlyHoursDao.addRecordedActivities(List.of(entry));
+            Future<?> move = executor.submit(() -> shards.move(user, () -> {
+            }));
+
+            assertThrows(TimeoutException.class, () -> move.get(200, TimeUnit.MILLISECONDS));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            move.get();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(shardMonthlyHoursDaos.get(0)).addRecordedActivities(List.of(entry));
+        assertThat(shards.shardOf(user), is(1));
+    }
+
+    @Test
+    void shouldScatterUsersQueryAndMergeByUserAndDate() {
+        String user0 = userOfShard(0);
+        String user2 = userOfShard(2);
+        WorkingHours user0Day1 = new WorkingHours(user0, DATE, LocalTime.NOON);
+        WorkingHours user0Day2 = new WorkingHours(user0, DATE.plusDays(1), LocalTime.NOON);
+        WorkingHours user2Day1 = new WorkingHours(user2, DATE, LocalTime.NOON);
+        when(shardDaos.get(0).getWorkingHours(any(UsersWorkingHoursFilter.class))).thenReturn(List.of(user0Day1, user0Day2));
+        when(shardDaos.get(2).getWorkingHours(any(UsersWorkingHoursFilter.class))).thenReturn(List.of(user2Day1));
+
+        List<WorkingHours> workingHours = dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of(user0, user2), DATE, DATE.plusDays(1)));
+
+        List<WorkingHours> expected = user0.compareTo(user2) < 0 ? List.of(user0Day1, user0Day2, user2Day1) : List.of(user2Day1, user0Day1, user0Day2);
+        assertThat(workingHours, is(expected));
+        ArgumentCaptor<UsersWorkingHoursFilter> captor = ArgumentCaptor.forClass(UsersWorkingHoursFilter.class);
+        verify(shardDaos.get(0)).getWorkingHours(captor.capture());
+        assertThat(captor.getValue().getUsers(), is(Set.of(user0)));
+        verifyNoInteractions(shardDaos.get(1));
+    }
+
+    @Test
+    void shouldStreamWorkingHoursOfDateFromAllShards() {
+        WorkingHours shard0Hours = new WorkingHours(userOfShard(0), DATE, LocalTime.NOON);
+        WorkingHours shard2Hours = new WorkingHours(userOfShard(2), DATE, LocalTime.NOON);
+        doAnswer(invocation -> {
+            invocation.<Consumer<WorkingHours>>getArgument(1).accept(shard0Hours);
+            return null;
+        }).when(shardDaos.get(0)).streamWorkingHours(eq(DATE), any());
+        doAnswer(invocation -> {
+            invocation.<Consumer<WorkingHours>>getArgument(1).accept(shard2Hours);
+            return null;
+        }).when(shardDaos.get(2)).streamWorkingHours(eq(DATE), any());
+
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.streamWorkingHours(DATE, workingHours::add);
+
+        assertThat(workingHours, contains(shard0Hours, shard2Hours));
+        verify(shardDaos.get(1)).streamWorkingHours(eq(DATE), any());
+    }
+
+    @Test
+    void shouldSplitBatchUpsertByShard() {
+        WorkingHours shard0Hours = new WorkingHours(userOfShard(0), DATE, LocalTime.NOON);
+        WorkingHours shard1Hours = new WorkingHours(userOfShard(1), DATE, LocalTime.NOON);
+
+        dao.upsertWorkingHours(List.of(shard0Hours, shard1Hours));
+
+        verify(shardDaos.get(0)).upsertWorkingHours(List.of(shard0Hours));
+        verify(shardDaos.get(1)).upsertWorkingHours(List.of(shard1Hours));
+        verifyNoInteractions(shardDaos.get(2));
+    }
+
+    @Test
+    void shouldRecordActivitiesInShardsAndReturnResultsInOrder() {
+        Activity shard0Entry = new Activity(userOfShard(0), ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        Activity shard1Entry = new Activity(userOfShard(1), ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        Activity shard0Exit = new Activity(userOfShard(0), ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.MIDNIGHT));
+        ActivityRecordResult conflict = ActivityRecordResult.conflict(Optional.empty());
+        when(shardDaos.get(0).recordActivities(List.of(shard0Entry, shard0Exit))).thenReturn(List.of(ActivityRecordResult.recorded(), conflict));
+        when(shardDaos.get(1).recordActivities(List.of(shard1Entry))).thenReturn(List.of(ActivityRecordResult.recorded()));
+
+        List<ActivityRecordResult> results = dao.recordActivities(List.of(shard0Entry, shard1Entry, shard0Exit));
+
+        assertThat(results.get(0).isRecorded(), is(true));
+        assertThat(results.get(1).isRecorded(), is(true));
+        assertThat(results.get(2), is(conflict));
+        verifyNoInteractions(shardDaos.get(2));
+    }
+
+    @Test
+    void shouldRollUpRecordedActivitiesInTransactionOfTheirShard() {
+        Activity shard0Exit = new Activity(userOfShard(0), ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.NOON));
+        Activity shard0ConflictingExit = new Activity(userOfShard(0), ActivityType.EXIT, LocalDateTime.of(DATE.plusDays(1), LocalTime.NOON));
+        Activity shard1Exit = new Activity(userOfShard(1), ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(0).recordActivities(List.of(shard0Exit, shard0ConflictingExit)))
+                .thenReturn(List.of(ActivityRecordResult.recorded(), ActivityRecordResult.conflict(Optional.empty())));
+        when(shardDaos.get(1).recordActivity(shard1Exit)).thenReturn(ActivityRecordResult.recorded());
+        doAnswer(invocation -> {
+            assertThat(shardTransactions.get(0).isCompleted(), is(false));
+            return null;
+        }).when(shardMonthlyHoursDaos.get(0)).addRecordedActivities(anyCollection());
+
+        dao.recordActivities(List.of(shard0Exit, shard0ConflictingExit));
+        dao.recordActivity(shard1Exit);
+        monthlyHoursDao.addRecordedActivities(List.of(shard0Exit, shard1Exit));
+
+        verify(shardMonthlyHoursDaos.get(0)).addRecordedActivities(List.of(shard0Exit));
+        verify(shardMonthlyHoursDaos.get(1)).addRecordedActivities(List.of(shard1Exit));
+        assertThat(shardTransactions.get(0).isCompleted(), is(true));
+    }
+
+    @Test
+    void shouldKeepBatchesOfCommittedShardsWhenAnotherShardFails() {
+        Activity shard0Entry = new Activity(userOfShard(0), ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        Activity shard1Entry = new Activity(userOfShard(1), ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON));
+        when(shardDaos.get(0).recordActivities(List.of(shard0Entry))).thenReturn(List.of(ActivityRecordResult.recorded()));
+        when(shardDaos.get(1).recordActivities(List.of(shard1Entry))).thenThrow(new IllegalStateException("Shard is down"));
+
+        PartiallyRecordedActivitiesException ex = assertThrows(PartiallyRecordedActivitiesException.class,
+                () -> dao.recordActivities(List.of(shard0Entry, shard1Entry)));
+
+        assertThat(ex.getRecordResults().get(0).isRecorded(), is(true));
+        assertThat(ex.getRecordResults().get(1), is(nullValue()));
+        assertThat(ex.unrecordedActivities(List.of(shard0Entry, shard1Entry)), contains(shard1Entry));
+        assertThat(shardTransactions.get(1).isRollbackOnly(), is(true));
+    }
+
+    @Test
+    void shouldMergeMonthlyHoursOfAllShardsByUser() {
+        YearMonth month = YearMonth.from(DATE);
+        MonthlyHours bob = new MonthlyHours("bob", month, 3600, 1, 0);
+        MonthlyHours alice = new MonthlyHours("alice", month, 7200, 1, 0);
+        MonthlyHours carl = new MonthlyHours("carl", month, 0, 0, 1);
+        when(shardMonthlyHoursDaos.get(0).getMonthlyHours(month)).thenReturn(List.of(bob));
+        when(shardMonthlyHoursDaos.get(1).getMonthlyHours(month)).thenReturn(List.of(alice, carl));
+        when(shardMonthlyHoursDaos.get(2).getMonthlyHours(month)).thenReturn(List.of());
+
+        assertThat(monthlyHoursDao.getMonthlyHours(month), contains(alice, bob, carl));
+    }
+
+    @Test
+    void shouldRefreshMonthlyHoursInShardOfUser() {
+        WorkingHours workingHours = new WorkingHours(userOfShard(2), DATE, LocalTime.NOON);
+        monthlyHoursDao.refreshMonthlyHours(List.of(workingHours));
+        verify(shardMonthlyHoursDaos.get(2)).refreshMonthlyHours(List.of(workingHours));
+        verifyNoInteractions(shardMonthlyHoursDaos.get(0), shardMonthlyHoursDaos.get(1));
+    }
+
+    @Test
+    void shouldSumRebuiltMonthsOfAllShards() {
+        when(shardMonthlyHoursDaos.get(0).rebuildMonthlyHours(100)).thenReturn(2);
+        when(shardMonthlyHoursDaos.get(1).rebuildMonthlyHours(100)).thenReturn(3);
+        assertThat(monthlyHoursDao.rebuildMonthlyHours(100), is(5));
+    }
+
+    // Completes the transaction once the callback returns, and marks it rollback-only when the callback fails
+    private static TransactionOperations shardTransactionOperations(TransactionStatus status) {
+        return new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                try {
+                    return action.doInTransaction(status);
+                } catch (RuntimeException ex) {
+                    status.setRollbackOnly();
+                    throw ex;
+                } finally {
+                    ((SimpleTransactionStatus) status).setCompleted();
+                }
+            }
+        };
+    }
+
+    private String userOfShard(int shard) {
+        for (int i = 0; ; i++) {
+            if (ring.shardOf("user" + i) == shard) {
+                return "user" + i;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.exercise.attendance.dao;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+@SpringBootTest
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class TeamDaoImplIntegrationTest {
+
+    @Autowired
+    private TeamDao dao;
+
+    @Test
+    void shouldReturnTeamMembersSortedByUser() {
+        List<String> members = dao.getTeamMembers("rnd");
+        assertThat(members, contains("alice", "bob", "carl"));
+    }
+
+    @Test
+    void shouldReturnNoMembersForUnknownTeam() {
+        assertThat(dao.getTeamMembers("marketing"), empty());
+    }
+}
@@ -1,18 +1,38 @@
 package com.exercise.attendance.dao;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
 import com.exercise.attendance.model.WorkingHours;
 import com.exercise.attendance.model.WorkingHoursFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.test.context.jdbc.Sql;
 
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @Sql({"/init-schema.sql", "/test-data.sql"})
@@ -21,6 +41,12 @@ class WorkingHoursDaoImplIntegrationTest {
     @Autowired
     private WorkingHoursDao dao;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
     @Test
     void shouldReturnWorkingHoursForUserForFilteredDates() {
         List<WorkingHours> workingHours = dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09")));
@@ -29,6 +55,79 @@ class WorkingHoursDaoImplIntegrationTest {
         assertDate(workingHours.get(1), "2020-10-09");
     }
 
+    @Test
+    void shouldReturnWorkingHoursForUsersSortedByUserAndDate() {
+        List<WorkingHours> workingHours = dao.getWorkingHours(new UsersWorkingHoursFilter(Set.of("bob", "alice", "carl"), LocalDate.parse("2020-10-09"), LocalDate.parse("2020-10-11")));
+        assertThat(workingHours.size(), is(4));
+        assertUserDate(workingHours.get(0), "alice", "2020-10-09");
+        assertUserDate(workingHours.get(1), "alice", "2020-10-10");
+        assertUserDate(workingHours.get(2), "bob", "2020-10-09");
+        assertUserDate(workingHours.get(3), "bob", "2020-10-11");
+    }
+
+    @Test
+    void shouldReturnPageOfWorkingHoursForUserAfterDate() {
+        WorkingHoursFilter filter = new WorkingHoursFilter("alice", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"));
+        List<WorkingHours> firstPage = dao.getWorkingHours(filter, LocalDate.parse("2020-09-30"), 2);
+        assertThat(firstPage.size(), is(2));
+        assertDate(firstPage.get(0), "2020-10-08");
+        assertDate(firstPage.get(1), "2020-10-09");
+        List<WorkingHours> lastPage = dao.getWorkingHours(filter, LocalDate.parse("2020-10-09"), 2);
+        assertThat(lastPage.size(), is(1));
+        assertDate(lastPage.get(0), "2020-10-10");
+    }
+
+    @Test
+    void shouldTimeQueryExecutionSeparatelyFromRowMapping() {
+        dao.getWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-09")));
+        assertThat(meterRegistry.get("attendance.dao.query").tags("query", "working_hours", "stage", "execute", "outcome", "success").timer().count() > 0, is(true));
+        assertThat(meterRegistry.get("attendance.dao.query").tags("query", "working_hours", "stage", "mapping", "outcome", "success").timer().count() > 0, is(true));
+    }
+
+    @Test
+    void shouldAggregateHoursSummaryForUserForFilteredDates() {
+        dao.upsertWorkingHours(new WorkingHours("alice", LocalDate.parse("2020-10-11"), LocalTime.parse("07:45:00")));
+        HoursSummary summary = dao.getHoursSummary(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-11")), Duration.ofHours(8));
+        assertThat(summary, is(new HoursSummary(91800, 3, 1, 9900)));
+    }
+
+    @Test
+    void shouldReturnEmptyHoursSummaryForUserWithoutWorkingHours() {
+        HoursSummary summary = dao.getHoursSummary(new WorkingHoursFilter("carl", LocalDate.parse("2000-10-07"), LocalDate.parse("2050-10-08")), Duration.ofHours(8));
+        assertThat(summary, is(HoursSummary.EMPTY));
+    }
+
+    @Test
+    void shouldStreamWorkingHoursForUserSortedByDate() {
+        dao.upsertWorkingHours(new WorkingHours("alice", LocalDate.parse("2020-10-01"), LocalTime.parse("07:45:00")));
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.streamWorkingHours(new WorkingHoursFilter("alice", LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-09")), workingHours::add);
+        assertThat(workingHours.size(), is(3));
+        assertDate(workingHours.get(0), "2020-10-01");
+        assertDate(workingHours.get(1), "2020-10-08");
+        assertDate(workingHours.get(2), "2020-10-09");
+    }
+
+    @Test
+    void shouldStreamWorkingHoursOfAllUsersOnDate() {
+        dao.upsertWorkingHours(new WorkingHours("carl", LocalDate.parse("2020-10-09"), LocalTime.parse("07:45:00")));
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.streamWorkingHours(LocalDate.parse("2020-10-09"), workingHours::add);
+        workingHours.sort(Comparator.comparing(WorkingHours::getUser));
+        assertThat(workingHours, contains(
+                new WorkingHours("alice", LocalDate.parse("2020-10-09"), LocalTime.parse("08:30:00"), LocalTime.parse("18:15:00")),
+                new WorkingHours("bob", LocalDate.parse("2020-10-09"), LocalTime.parse("10:30:00"), LocalTime.parse("15:00:00")),
+                new WorkingHours("carl", LocalDate.parse("2020-10-09"), LocalTime.parse("07:45:00"))));
+    }
+
+    @Test
+    void shouldReadWorkingHoursOfDateFromDateIndex() {
+        Map<String, Object> plan = new NamedParameterJdbcTemplate(dataSource).queryForMap("EXPLAIN " + WorkingHoursDaoImpl.FETCH_DAY_WORKING_HOURS_SQL,
+                Map.of("date", LocalDate.parse("2020-10-09")));
+
+        assertThat(plan.get("key"), is("WORKING_HOURS_DATE_IX"));
+    }
+
     @Test
     void shouldNotReturnWorkingHoursForUserIfDatesAreOutOfRange() {
         List<WorkingHours> workingHours = dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-07"), LocalDate.parse("2020-10-08")));
@@ -61,6 +160,117 @@ class WorkingHoursDaoImplIntegrationTest {
         assertWorkingHours(actualWorkingHours, updatedWorkingHours);
     }
 
+    @Test
+    void shouldUpsertWorkingHoursInBatch() {
+        WorkingHours newWorkingHours = new WorkingHours("david", LocalDate.parse("2020-10-11"), LocalTime.parse("07:45:00"));
+        WorkingHours updatedWorkingHours = new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:00:00"));
+        dao.upsertWorkingHours(List.of(newWorkingHours, updatedWorkingHours));
+        assertWorkingHours(dao.getWorkingHours(new WorkingHoursFilter("david", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11"))), newWorkingHours);
+        assertWorkingHours(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11"))), updatedWorkingHours);
+    }
+
+    @Test
+    void shouldRecordEntryWhenNoRecordExists() {
+        ActivityRecordResult result = dao.recordActivity(new Activity("david", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T07:45:00")));
+        assertThat(result.isRecorded(), is(true));
+        List<WorkingHours> actualWorkingHours = dao.getWorkingHours(new WorkingHoursFilter("david", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11")));
+        assertWorkingHours(actualWorkingHours, new WorkingHours("david", LocalDate.parse("2020-10-11"), LocalTime.parse("07:45:00")));
+    }
+
+    @Test
+    void shouldReturnConflictWhenRecordingEntryForExistingDate() {
+        ActivityRecordResult result = dao.recordActivity(new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T09:00:00")));
+        assertThat(result.isRecorded(), is(false));
+        assertThat(result.getConflictingWorkingHours().orElseThrow().getFromTime(), is(LocalTime.parse("07:30:00")));
+    }
+
+    @Test
+    void shouldRecordExitWhenEntryExists() {
+        ActivityRecordResult result = dao.recordActivity(new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")));
+        assertThat(result.isRecorded(), is(true));
+        List<WorkingHours> actualWorkingHours = dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11")));
+        assertWorkingHours(actualWorkingHours, new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:00:00")));
+    }
+
+    @Test
+    void shouldReturnConflictWhenRecordingExitForExistingExit() {
+        ActivityRecordResult result = dao.recordActivity(new Activity("alice", ActivityType.EXIT, LocalDateTime.parse("2020-10-08T19:00:00")));
+        assertThat(result.isRecorded(), is(false));
+        assertThat(result.getConflictingWorkingHours().orElseThrow().getToTime(), is(LocalTime.parse("17:00:00")));
+    }
+
+    @Test
+    void shouldReturnEmptyConflictWhenRecordingExitWithoutEntry() {
+        ActivityRecordResult result = dao.recordActivity(new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")));
+        assertThat(result.isRecorded(), is(false));
+        assertThat(result.getConflictingWorkingHours().isPresent(), is(false));
+    }
+
+    @Test
+    void shouldRecordActivitiesInOrderAndReturnTheirConflicts() {
+        List<ActivityRecordResult> results = dao.recordActivities(List.of(
+                new Activity("david", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T07:45:00")),
+                new Activity("david", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")),
+                new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T09:00:00")),
+                new Activity("carl", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:00:00")),
+                new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T16:30:00")),
+                new Activity("david", ActivityType.EXIT, LocalDateTime.parse("2020-10-11T17:00:00"))));
+
+        assertThat(results.get(0).isRecorded(), is(true));
+        assertThat(results.get(1).isRecorded(), is(true));
+        assertThat(results.get(2).getConflictingWorkingHours(), is(Optional.of(new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00")))));
+        assertThat(results.get(3).isRecorded(), is(false));
+        assertThat(results.get(3).getConflictingWorkingHours().isPresent(), is(false));
+        assertThat(results.get(4).isRecorded(), is(true));
+        assertThat(results.get(5).getConflictingWorkingHours().orElseThrow().getToTime(), is(LocalTime.parse("16:00:00")));
+        assertWorkingHours(dao.getWorkingHours(new WorkingHoursFilter("david", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11"))),
+                new WorkingHours("david", LocalDate.parse("2020-10-11"), LocalTime.parse("07:45:00"), LocalTime.parse("16:00:00")));
+        assertWorkingHours(dao.getWorkingHours(new WorkingHoursFilter("bob", LocalDate.parse("2020-10-11"), LocalDate.parse("2020-10-11"))),
+                new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00"), LocalTime.parse("16:30:00")));
+    }
+
+    // Each round has more entries than the driver sends one by one, so its batch is rewritten (rewriteBatchedStatements).
+    // The repeated entries are of the same second as their day, which was opened before the batch (bob) or by the
+    // previous round of the batch.
+    @Test
+    void shouldReturnConflictForRepeatedEntriesOfSameSecondInBatch() {
+        List<Activity> entries = List.of(
+                new Activity("david", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T07:45:00")),
+                new Activity("bob", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T07:30:00")),
+                new Activity("carl", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T08:00:00")),
+                new Activity("eli", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T08:15:00")));
+        List<Activity> activities = new ArrayList<>(entries);
+        activities.addAll(entries);
+
+        List<ActivityRecordResult> results = dao.recordActivities(activities);
+
+        assertThat(results.get(0).isRecorded(), is(true));
+        assertThat(results.get(1).getConflictingWorkingHours(), is(Optional.of(new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30:00")))));
+        assertThat(results.get(2).isRecorded(), is(true));
+        assertThat(results.get(3).isRecorded(), is(true));
+        for (int i = entries.size(); i < activities.size(); i++) {
+            Activity entry = activities.get(i);
+            assertThat(results.get(i).getConflictingWorkingHours(), is(Optional.of(new WorkingHours(entry.getUser(),
+                    entry.getReportDateTime().toLocalDate(), entry.getReportDateTime().toLocalTime()))));
+        }
+    }
+
+    @Test
+    void shouldFailBatchWithoutUpdateCountsRatherThanGuessRecordedEntries() {
+        NamedParameterJdbcTemplate countlessJdbcTemplate = new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+                int[] updatedRows = super.batchUpdate(sql, batchArgs);
+                Arrays.fill(updatedRows, Statement.SUCCESS_NO_INFO);
+                return updatedRows;
+            }
+        };
+        WorkingHoursDao countlessDao = new WorkingHoursDaoImpl(countlessJdbcTemplate, meterRegistry, Integer.MIN_VALUE, 500, Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> countlessDao.recordActivities(List.of(
+                new Activity("david", ActivityType.ENTRY, LocalDateTime.parse("2020-10-11T07:45:00")))));
+    }
+
     private void assertWorkingHours(List<WorkingHours> actualWorkingHours, WorkingHours expectedWorkingHours) {
         assertThat(actualWorkingHours.size(), is(1));
         WorkingHours dayWorkingHours = actualWorkingHours.get(0);
@@ -77,6 +287,11 @@ class WorkingHoursDaoImplIntegrationTest {
         assertTime(workingHours.getFromTime(), expectedTime);
     }
 
+    private void assertUserDate(WorkingHours workingHours, String expectedUser, String expectedDate) {
+        assertThat(workingHours.getUser(), is(expectedUser));
+        assertDate(workingHours, expectedDate);
+    }
+
     private void assertDate(WorkingHours workingHours, String expectedDate) {
         assertDate(workingHours, LocalDate.parse(expectedDate));
     }
@@ -0,0 +1,95 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest(properties = "attendance.export.enabled=true")
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class WorkingHoursExportDaoImplIntegrationTest {
+
+    private static final LocalDate FROM_DATE = LocalDate.parse("2020-10-01");
+    private static final LocalDate TO_DATE = LocalDate.parse("2020-10-31");
+
+    @Autowired
+    private WorkingHoursExportDao dao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldReturnFirstUserOfEveryChunk() {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, null);
+
+        assertThat(dao.getChunkFirstUsers(filter, 1), contains("alice", "bob"));
+        assertThat(dao.getChunkFirstUsers(filter, 2), contains("alice"));
+    }
+
+    @Test
+    void shouldExportRangeOfUsersSortedByUserAndDate() {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, null);
+
+        assertThat(export(filter, "alice", "bob"), contains(
+                new WorkingHours("alice", LocalDate.parse("2020-10-08"), LocalTime.parse("08:00"), LocalTime.parse("17:00")),
+                new WorkingHours("alice", LocalDate.parse("2020-10-09"), LocalTime.parse("08:30"), LocalTime.parse("18:15")),
+                new WorkingHours("alice", LocalDate.parse("2020-10-10"), LocalTime.parse("09:30"), LocalTime.parse("16:15"))));
+        assertThat(export(filter, "bob", null), contains(
+                new WorkingHours("bob", LocalDate.parse("2020-10-09"), LocalTime.parse("10:30"), LocalTime.parse("15:00")),
+                new WorkingHours("bob", LocalDate.parse("2020-10-11"), LocalTime.parse("07:30"))));
+    }
+
+    @Test
+    void shouldExportOnlyDateRange() {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(LocalDate.parse("2020-10-10"), LocalDate.parse("2020-10-10"), null, null);
+
+        assertThat(dao.getChunkFirstUsers(filter, 1), contains("alice"));
+        assertThat(export(filter, "alice", null), contains(
+                new WorkingHours("alice", LocalDate.parse("2020-10-10"), LocalTime.parse("09:30"), LocalTime.parse("16:15"))));
+    }
+
+    @Test
+    void shouldExportOnlyUsersWithPrefix() {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, "bo", null);
+
+        assertThat(dao.getChunkFirstUsers(filter, 1), contains("bob"));
+        assertThat(export(filter, null, null).size(), is(2));
+    }
+
+    @Test
+    void shouldMatchPrefixLiterally() {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, "%", null);
+
+        assertThat(dao.getChunkFirstUsers(filter, 1), empty());
+        assertThat(export(filter, null, null), empty());
+    }
+
+    @Test
+    void shouldExportOnlyTeamMembers() {
+        jdbcTemplate.update("INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES ('david','2020-10-09','09:00:00','17:00:00')");
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, "sales");
+
+        assertThat(dao.getChunkFirstUsers(filter, 1), contains("david"));
+        assertThat(export(filter, null, null), contains(
+                new WorkingHours("david", LocalDate.parse("2020-10-09"), LocalTime.parse("09:00"), LocalTime.parse("17:00"))));
+    }
+
+    private List<WorkingHours> export(WorkingHoursExportFilter filter, String fromUser, String toUser) {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        dao.exportWorkingHours(filter, fromUser, toUser, workingHours::add);
+        return workingHours;
+    }
+}
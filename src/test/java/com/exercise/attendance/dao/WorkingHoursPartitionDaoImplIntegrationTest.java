@@ -0,0 +1,80 @@
+package com.exercise.attendance.dao;
+
+import com.exercise.attendance.model.WorkingHours;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+// Partitioning is MySQL specific, so the test schema is partitioned the way db/online/partition_working_hours_by_month.sql does
+@SpringBootTest
+@Sql({"/init-schema.sql", "/partition-schema.sql", "/test-data.sql"})
+class WorkingHoursPartitionDaoImplIntegrationTest {
+
+    private static final YearMonth OCTOBER = YearMonth.parse("2020-10");
+    private static final YearMonth NOVEMBER = YearMonth.parse("2020-11");
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private WorkingHoursPartitionDao dao;
+
+    @BeforeEach
+    private void setUp() {
+        dao = new WorkingHoursPartitionDaoImpl(namedParameterJdbcTemplate, Integer.MIN_VALUE);
+    }
+
+    @Test
+    void shouldFindFirstMonthOfUnpartitionedRows() {
+        assertThat(dao.isPartitioned(), is(true));
+        assertThat(dao.getPartitionMonths(), is(empty()));
+        assertThat(dao.getFirstFutureMonth(), is(Optional.of(OCTOBER)));
+    }
+
+    @Test
+    void shouldSplitMonthsOffFuturePartition() {
+        dao.addPartitions(List.of(OCTOBER, NOVEMBER));
+
+        assertThat(dao.getPartitionMonths(), contains(OCTOBER, NOVEMBER));
+        assertThat(dao.getFirstFutureMonth(), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldPruneReportQueryToPartitionOfMonth() {
+        dao.addPartitions(List.of(OCTOBER, NOVEMBER));
+
+        Map<String, Object> plan = namedParameterJdbcTemplate.queryForMap("EXPLAIN " + WorkingHoursDaoImpl.FETCH_WORKING_HOURS_SQL,
+                Map.of("user", "alice", "fromDate", LocalDate.parse("2020-10-01"), "toDate", LocalDate.parse("2020-10-31")));
+
+        assertThat(plan.get("partitions"), is("p202010"));
+    }
+
+    @Test
+    void shouldExportAndDropPartition() {
+        dao.addPartitions(List.of(OCTOBER, NOVEMBER));
+        List<WorkingHours> exported = new ArrayList<>();
+
+        dao.exportPartition(OCTOBER, exported::add);
+        dao.dropPartition(OCTOBER);
+
+        assertThat(exported, hasSize(5));
+        assertThat(dao.getPartitionMonths(), contains(NOVEMBER));
+        assertThat(namedParameterJdbcTemplate.queryForObject("SELECT COUNT(*) FROM WORKING_HOURS", Collections.emptyMap(), Integer.class), is(0));
+    }
+}
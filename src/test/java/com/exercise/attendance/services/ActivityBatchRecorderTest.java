@@ -0,0 +1,106 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.PartiallyRecordedActivitiesException;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ActivityBatchRecorderTest {
+
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+    private static final Activity ALICE_ENTRY = new Activity("alice", ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.parse("08:00:00")));
+    private static final Activity BOB_EXIT = new Activity("bob", ActivityType.EXIT, LocalDateTime.of(DATE, LocalTime.parse("17:00:00")));
+
+    @Mock
+    private WorkingHoursDao dao;
+
+    @Mock
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Mock
+    private ActivityEventLog eventLog;
+
+    private boolean committed;
+    private ActivityBatchRecorder recorder;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TransactionOperations transactionOperations = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                T result = action.doInTransaction(null);
+                committed = true;
+                return result;
+            }
+        };
+        recorder = new ActivityBatchRecorder(dao, monthlyHoursDao, Optional.of(eventLog), transactionOperations);
+    }
+
+    @Test
+    void shouldAddRecordedActivitiesToMonthlyHoursInTransactionAndLogThemAfterCommit() {
+        List<ActivityRecordResult> results = List.of(ActivityRecordResult.recorded(), ActivityRecordResult.conflict(Optional.empty()));
+        when(dao.recordActivities(List.of(ALICE_ENTRY, BOB_EXIT))).thenReturn(results);
+        doAnswer(invocation -> {
+            assertThat(committed, is(false));
+            return null;
+        }).when(monthlyHoursDao).addRecordedActivities(anyCollection());
+        doAnswer(invocation -> {
+            assertThat(committed, is(true));
+            return null;
+        }).when(eventLog).append(anyList());
+
+        assertThat(recorder.record(List.of(ALICE_ENTRY, BOB_EXIT)), is(results));
+
+        verify(monthlyHoursDao).addRecordedActivities(List.of(ALICE_ENTRY));
+        verify(eventLog).append(List.of(ALICE_ENTRY));
+    }
+
+    @Test
+    void shouldNotLogActivitiesOfFailedBatch() {
+        when(dao.recordActivities(anyList())).thenThrow(new IllegalStateException("Deadlock found"));
+
+        assertThrows(IllegalStateException.class, () -> recorder.record(List.of(ALICE_ENTRY)));
+
+        verifyNoInteractions(monthlyHoursDao, eventLog);
+    }
+
+    @Test
+    void shouldLogCommittedActivitiesOfPartiallyRecordedBatch() {
+        PartiallyRecordedActivitiesException failure = new PartiallyRecordedActivitiesException("Failed recording activities on 1 of 2 shards",
+                new ActivityRecordResult[]{ActivityRecordResult.recorded(), null}, new IllegalStateException("Shard is down"));
+        when(dao.recordActivities(anyList())).thenThrow(failure);
+
+        assertThrows(PartiallyRecordedActivitiesException.class, () -> recorder.record(List.of(ALICE_ENTRY, BOB_EXIT)));
+
+        verify(eventLog).append(List.of(ALICE_ENTRY));
+    }
+
+    @Test
+    void shouldNotFailCommittedBatchWhenEventLogFails() {
+        when(dao.recordActivities(anyList())).thenReturn(List.of(ActivityRecordResult.recorded()));
+        doThrow(new IllegalStateException("Log is full")).when(eventLog).append(anyList());
+
+        assertThat(recorder.record(List.of(ALICE_ENTRY)).get(0).isRecorded(), is(true));
+    }
+}
@@ -0,0 +1,118 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ActivityImportServiceImplTest {
+
+    private static final String DUMMY_USER = "alice";
+    private static final String OTHER_USER = "bob";
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+
+    @Mock
+    private ActivityBatchRecorder recorder;
+
+    private ActivityImportService service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(recorder.record(anyList())).thenAnswer(invocation -> {
+            List<ActivityRecordResult> results = new ArrayList<>();
+            invocation.<List<Activity>>getArgument(0).forEach(activity -> results.add(ActivityRecordResult.recorded()));
+            return results;
+        });
+        service = new ActivityImportServiceImpl(new HoursReportValidatorImpl(), new WorkingHoursCalculatorImpl(), recorder);
+    }
+
+    @Test
+    void shouldRecordActivitiesSortedByReportTimeInSingleBatch() {
+        ImportedActivity exit = imported(0, DUMMY_USER, ActivityType.EXIT, "17:00:00");
+        ImportedActivity otherUserEntry = imported(1, OTHER_USER, ActivityType.ENTRY, "09:00:00");
+        ImportedActivity entry = imported(2, DUMMY_USER, ActivityType.ENTRY, "08:00:00");
+
+        ActivityImportReport report = service.importActivities(List.of(exit, otherUserEntry, entry));
+
+        assertThat(report.getAccepted(), is(3));
+        verify(recorder).record(List.of(entry.getActivity().get(), otherUserEntry.getActivity().get(), exit.getActivity().get()));
+    }
+
+    @Test
+    void shouldReturnResultsInOrderOfRecords() {
+        when(recorder.record(anyList())).thenReturn(List.of(
+                ActivityRecordResult.recorded(),
+                ActivityRecordResult.conflict(Optional.of(new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"))))));
+
+        ActivityImportReport report = service.importActivities(List.of(
+                imported(10, DUMMY_USER, ActivityType.ENTRY, "09:00:00"),
+                imported(11, DUMMY_USER, ActivityType.ENTRY, "08:00:00")));
+
+        assertThat(report.getResults().get(0).getIndex(), is(10));
+        assertThat(report.getResults().get(0).isAccepted(), is(false));
+        assertThat(report.getResults().get(1).getIndex(), is(11));
+        assertThat(report.getResults().get(1).isAccepted(), is(true));
+    }
+
+    @Test
+    void shouldRejectConflictingActivityWithValidationMessage() {
+        when(recorder.record(anyList())).thenReturn(List.of(ActivityRecordResult.conflict(Optional.empty())));
+
+        ActivityImportReport report = service.importActivities(List.of(imported(0, DUMMY_USER, ActivityType.EXIT, "17:00:00")));
+
+        assertThat(report.getRejected(), is(1));
+        assertThat(report.getResults().get(0).getMessage(), containsString("Entry was not reported"));
+    }
+
+    @Test
+    void shouldRejectActivityWhichConflictsWithDayWrittenConcurrently() {
+        WorkingHours concurrentWorkingHours = new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"));
+        when(recorder.record(anyList())).thenReturn(List.of(ActivityRecordResult.conflict(Optional.of(concurrentWorkingHours))));
+
+        ActivityImportReport report = service.importActivities(List.of(imported(0, DUMMY_USER, ActivityType.EXIT, "17:00:00")));
+
+        assertThat(report.getResults().get(0).isAccepted(), is(false));
+        assertThat(report.getResults().get(0).getMessage(), containsString("updated concurrently"));
+    }
+
+    @Test
+    void shouldRejectMalformedAndInvalidRecords() {
+        ActivityImportReport report = service.importActivities(List.of(
+                ImportedActivity.malformed(0, "bad record"),
+                ImportedActivity.parsed(1, new Activity("", ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.NOON))),
+                ImportedActivity.parsed(2, new Activity(DUMMY_USER, null, LocalDateTime.of(DATE, LocalTime.NOON))),
+                imported(3, DUMMY_USER, ActivityType.ENTRY, "08:00:00")));
+
+        assertThat(report.getAccepted(), is(1));
+        assertThat(report.getRejected(), is(3));
+        assertThat(report.getResults().get(0).getMessage(), is("bad record"));
+        assertThat(report.getResults().get(3).isAccepted(), is(true));
+        verify(recorder).record(List.of(new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.parse("08:00:00")))));
+    }
+
+    @Test
+    void shouldNotRecordWhenAllRecordsAreInvalid() {
+        ActivityImportReport report = service.importActivities(List.of(ImportedActivity.malformed(0, "bad record")));
+        assertThat(report.getRejected(), is(1));
+        verifyNoInteractions(recorder);
+    }
+
+    private ImportedActivity imported(int index, String user, ActivityType activityType, String time) {
+        return ImportedActivity.parsed(index, new Activity(user, activityType, LocalDateTime.of(DATE, LocalTime.parse(time))));
+    }
+}
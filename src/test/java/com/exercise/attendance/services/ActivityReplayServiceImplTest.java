@@ -0,0 +1,148 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ActivityReplayServiceImplTest {
+
+    private static final String DUMMY_USER = "alice";
+    private static final String OTHER_USER = "bob";
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+
+    @Mock
+    private WorkingHoursDao dao;
+
+    @Mock
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Mock
+    private ActivityEventLog eventLog;
+
+    private ActivityReplayService service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        service = new ActivityReplayServiceImpl(new WorkingHoursCalculatorImpl(), dao, monthlyHoursDao, eventLog, 2, 1);
+    }
+
+    @Test
+    void shouldFoldLoggedActivitiesPerUserDay() {
+        logged(activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE),
+                activity(OTHER_USER, ActivityType.ENTRY, "09:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.EXIT, "17:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.ENTRY, "08:30:00", DATE.plusDays(1)));
+
+        assertThat(service.replay(), is(3));
+        assertThat(upsertedWorkingHours(), containsInAnyOrder(
+                new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00")),
+                new WorkingHours(DUMMY_USER, DATE.plusDays(1), LocalTime.parse("08:30:00")),
+                new WorkingHours(OTHER_USER, DATE, LocalTime.parse("09:00:00"))));
+    }
+
+    @Test
+    void shouldSkipActivitiesRejectedByReplay() {
+        logged(activity(DUMMY_USER, ActivityType.EXIT, "07:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.ENTRY, "09:00:00", DATE));
+
+        assertThat(service.replay(), is(1));
+        assertThat(upsertedWorkingHours(), containsInAnyOrder(new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"))));
+    }
+
+    @Test
+    void shouldSaveReplayedWorkingHoursInBatches() {
+        logged(activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE.plusDays(1)),
+                activity(OTHER_USER, ActivityType.ENTRY, "09:00:00", DATE));
+
+        service.replay();
+
+        verify(dao, times(2)).upsertWorkingHours(anyList());
+        verify(monthlyHoursDao, times(2)).refreshMonthlyHours(anyList());
+    }
+
+    @Test
+    void shouldSaveDaysOnceLogMovesPastTheirWindow() {
+        logged(activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE),
+                activity(DUMMY_USER, ActivityType.EXIT, "17:00:00", DATE),
+                activity(OTHER_USER, ActivityType.ENTRY, "09:00:00", DATE.plusDays(2)),
+                activity(OTHER_USER, ActivityType.EXIT, "18:00:00", DATE.plusDays(2)));
+
+        assertThat(service.replay(), is(2));
+
+        InOrder inOrder = inOrder(dao);
+        inOrder.verify(dao).upsertWorkingHours(List.of(new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+        inOrder.verify(dao).upsertWorkingHours(List.of(new WorkingHours(OTHER_USER, DATE.plusDays(2), LocalTime.parse("09:00:00"), LocalTime.parse("18:00:00"))));
+        verify(dao, never()).getWorkingHoursForUpdate(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldFoldLateActivityOntoSavedDay() {
+        WorkingHours savedDay = new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"));
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class))).thenReturn(List.of(savedDay));
+        logged(activity(DUMMY_USER, ActivityType.ENTRY, "08:00:00", DATE),
+                activity(OTHER_USER, ActivityType.ENTRY, "09:00:00", DATE.plusDays(2)),
+                activity(DUMMY_USER, ActivityType.EXIT, "17:00:00", DATE));
+
+        service.replay();
+
+        assertThat(upsertedWorkingHours(), containsInAnyOrder(
+                savedDay,
+                new WorkingHours(OTHER_USER, DATE.plusDays(2), LocalTime.parse("09:00:00")),
+                new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+    }
+
+    @Test
+    void shouldNotSaveWhenLogIsEmpty() {
+        logged();
+        assertThat(service.replay(), is(0));
+        verify(dao, never()).upsertWorkingHours(anyList());
+        verify(monthlyHoursDao, never()).refreshMonthlyHours(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void logged(Activity... activities) {
+        doAnswer(invocation -> {
+            Consumer<Activity> consumer = invocation.getArgument(0);
+            List.of(activities).forEach(consumer);
+            return null;
+        }).when(eventLog).replay(any(Consumer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WorkingHours> upsertedWorkingHours() {
+        ArgumentCaptor<List<WorkingHours>> captor = ArgumentCaptor.forClass(List.class);
+        verify(dao, atLeastOnce()).upsertWorkingHours(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private Activity activity(String user, ActivityType activityType, String time, LocalDate date) {
+        return new Activity(user, activityType, LocalDateTime.of(date, LocalTime.parse(time)));
+    }
+}
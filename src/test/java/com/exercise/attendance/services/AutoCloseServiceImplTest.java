@@ -0,0 +1,237 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.CachingWorkingHoursDao;
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.OpenWorkingHoursDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.AutoClosePolicy;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AutoCloseServiceImplTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2020-10-14");
+    private static final LocalDate CUTOFF_DATE = LocalDate.parse("2020-10-13");
+    private static final WorkingHoursRecord MORNING = open(3, "alice", LocalDate.parse("2020-10-12"), "08:00");
+    private static final WorkingHoursRecord EVENING = open(7, "bob", LocalDate.parse("2020-10-12"), "18:00");
+    private static final WorkingHoursRecord NIGHT = open(9, "carl", LocalDate.parse("2020-10-13"), "20:00");
+
+    @Mock
+    private OpenWorkingHoursDao dao;
+
+    @Mock
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Mock
+    private CachingWorkingHoursDao cachingDao;
+
+    @Mock
+    private ActivityEventLog eventLog;
+
+    private SimpleMeterRegistry meterRegistry;
+    private int committedBatches;
+    private TransactionOperations transactionOperations;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        transactionOperations = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                T result = action.doInTransaction(null);
+                committedBatches++;
+                return result;
+            }
+        };
+        when(dao.autoClose(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldCloseOpenDaysAtFixedTimeOrAtLateEntry() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING, EVENING));
+
+        assertThat(service(AutoClosePolicy.FIXED_TIME, 10).autoClose(TODAY), is(2));
+
+        verify(dao).autoClose(List.of(closed(MORNING, "17:00"), closed(EVENING, "18:00")));
+        verify(monthlyHoursDao).refreshMonthlyHours(List.of(closed(MORNING, "17:00").getWorkingHours(), closed(EVENING, "18:00").getWorkingHours()));
+        assertThat(meterRegistry.counter("attendance.auto-close.days", "policy", "FIXED_TIME", "outcome", "closed").count(), is(2.0));
+    }
+
+    @Test
+    void shouldCloseOpenDaysAfterMaxShiftCappedAtEndOfDay() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING, NIGHT));
+
+        service(AutoClosePolicy.MAX_SHIFT, 10).autoClose(TODAY);
+
+        verify(dao).autoClose(List.of(closed(MORNING, "18:00"), closed(NIGHT, "23:59:59")));
+    }
+
+    @Test
+    void shouldOnlyFlagOpenDaysWithoutRefreshingMonthlyHours() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING));
+
+        assertThat(service(AutoClosePolicy.FLAG_ONLY, 10).autoClose(TODAY), is(1));
+
+        verify(dao).autoClose(List.of(MORNING));
+        verifyNoInteractions(monthlyHoursDao);
+        assertThat(meterRegistry.counter("attendance.auto-close.days", "policy", "FLAG_ONLY", "outcome", "flagged").count(), is(1.0));
+    }
+
+    @Test
+    void shouldPageByLastIdUntilPartialPage() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 2)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 7, 2)).thenReturn(List.of(NIGHT));
+
+        assertThat(service(AutoClosePolicy.MAX_SHIFT, 2).autoClose(TODAY), is(3));
+
+        verify(dao, times(2)).getOpenWorkingHours(any(LocalDate.class), anyLong(), anyInt());
+        verify(dao, times(2)).autoClose(anyList());
+    }
+
+    @Test
+    void shouldStopOnEmptyPage() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 2)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 7, 2)).thenReturn(List.of());
+
+        assertThat(service(AutoClosePolicy.MAX_SHIFT, 2).autoClose(TODAY), is(2));
+
+        verify(dao, times(1)).autoClose(anyList());
+    }
+
+    @Test
+    void shouldCountDaysClosedMeanwhileAsSkipped() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.autoClose(anyList())).thenReturn(List.of(closed(EVENING, "17:00")));
+
+        assertThat(service(AutoClosePolicy.FIXED_TIME, 10).autoClose(TODAY), is(1));
+
+        ArgumentCaptor<List<WorkingHours>> captor = ArgumentCaptor.forClass(List.class);
+        verify(monthlyHoursDao).refreshMonthlyHours(captor.capture());
+        assertThat(captor.getValue(), contains(closed(EVENING, "17:00").getWorkingHours()));
+        assertThat(meterRegistry.counter("attendance.auto-close.days", "policy", "FIXED_TIME", "outcome", "skipped").count(), is(1.0));
+    }
+
+    @Test
+    void shouldCloseEachBatchAndRefreshItsMonthlyHoursInOneTransaction() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 2)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 7, 2)).thenReturn(List.of(NIGHT));
+        doAnswer(invocation -> {
+            assertThat(committedBatches, is(0));
+            return invocation.getArgument(0);
+        }).doAnswer(invocation -> {
+            assertThat(committedBatches, is(1));
+            return invocation.getArgument(0);
+        }).when(dao).autoClose(anyList());
+        doAnswer(invocation -> {
+            assertThat(committedBatches, is(0));
+            return null;
+        }).doAnswer(invocation -> {
+            assertThat(committedBatches, is(1));
+            return null;
+        }).when(monthlyHoursDao).refreshMonthlyHours(anyList());
+
+        service(AutoClosePolicy.MAX_SHIFT, 2).autoClose(TODAY);
+
+        assertThat(committedBatches, is(2));
+    }
+
+    @Test
+    void shouldEvictCachedMonthsOfUpdatedDays() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.autoClose(anyList())).thenReturn(List.of(closed(EVENING, "17:00")));
+
+        service(AutoClosePolicy.FIXED_TIME, 10).autoClose(TODAY);
+
+        verify(cachingDao).evictWorkingHours(List.of(closed(EVENING, "17:00").getWorkingHours()));
+    }
+
+    @Test
+    void shouldAppendExitsOfClosedDaysToEventLogOnceCommitted() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING, EVENING));
+        when(dao.autoClose(anyList())).thenReturn(List.of(closed(EVENING, "18:00")));
+        doAnswer(invocation -> {
+            assertThat(committedBatches, is(1));
+            return null;
+        }).when(eventLog).append(anyList());
+
+        service(AutoClosePolicy.FIXED_TIME, 10).autoClose(TODAY);
+
+        verify(eventLog).append(List.of(new Activity("bob", ActivityType.EXIT, LocalDateTime.parse("2020-10-12T18:00:00"))));
+    }
+
+    @Test
+    void shouldNotAppendFlaggedDaysToEventLog() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING));
+
+        service(AutoClosePolicy.FLAG_ONLY, 10).autoClose(TODAY);
+
+        verifyNoInteractions(eventLog);
+    }
+
+    @Test
+    void shouldNotFailSweepWhenEventLogFails() {
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING));
+        doThrow(new IllegalStateException("disk full")).when(eventLog).append(anyList());
+
+        assertThat(service(AutoClosePolicy.MAX_SHIFT, 10).autoClose(TODAY), is(1));
+    }
+
+    @Test
+    void shouldKeepAutoClosedDaysClosedOnReplay() {
+        List<Activity> logged = new ArrayList<>(List.of(new Activity("alice", ActivityType.ENTRY, LocalDateTime.parse("2020-10-12T08:00:00"))));
+        doAnswer(invocation -> logged.addAll(invocation.getArgument(0))).when(eventLog).append(anyList());
+        doAnswer(invocation -> {
+            logged.forEach(invocation.<Consumer<Activity>>getArgument(0));
+            return null;
+        }).when(eventLog).replay(any());
+        when(dao.getOpenWorkingHours(CUTOFF_DATE, 0, 10)).thenReturn(List.of(MORNING));
+        service(AutoClosePolicy.MAX_SHIFT, 10).autoClose(TODAY);
+        WorkingHoursDao replayedDao = mock(WorkingHoursDao.class);
+
+        new ActivityReplayServiceImpl(new WorkingHoursCalculatorImpl(), replayedDao, monthlyHoursDao, eventLog, 10, 2).replay();
+
+        verify(replayedDao).upsertWorkingHours(List.of(closed(MORNING, "18:00").getWorkingHours()));
+    }
+
+    private AutoCloseService service(AutoClosePolicy policy, int batchSize) {
+        return new AutoCloseServiceImpl(dao, monthlyHoursDao, Optional.of(cachingDao), Optional.of(eventLog), transactionOperations, meterRegistry, policy, "17:00", Duration.ofHours(10), 1, batchSize);
+    }
+
+    private static WorkingHoursRecord open(long id, String user, LocalDate date, String fromTime) {
+        return new WorkingHoursRecord(id, new WorkingHours(user, date, LocalTime.parse(fromTime)));
+    }
+
+    private static WorkingHoursRecord closed(WorkingHoursRecord record, String toTime) {
+        WorkingHours workingHours = record.getWorkingHours();
+        return new WorkingHoursRecord(record.getId(), new WorkingHours(workingHours.getUser(), workingHours.getDate(),
+                workingHours.getFromTime(), LocalTime.parse(toTime)));
+    }
+}
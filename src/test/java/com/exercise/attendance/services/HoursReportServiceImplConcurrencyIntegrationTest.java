@@ -0,0 +1,127 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.MonthlyHours;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// Fires thousands of simultaneous punches of overlapping users, as double-taps on a turnstile would.
+// The conditional statements alone keep one entry of each user and day, so the recording of each punch is held open for
+// a while, and the punches of a user being recorded at the same time are tracked, which only the punch locks prevent.
+@SpringBootTest
+@Sql({"/init-schema.sql", "/test-data.sql"})
+class HoursReportServiceImplConcurrencyIntegrationTest {
+
+    private static final int USERS = 50;
+    private static final int PUNCHES_PER_USER = 40;
+    private static final int THREADS = 32;
+    // Today, as only today's punches are indexed when the punch index is enabled
+    private static final LocalDate DATE = LocalDate.now();
+
+    @Autowired
+    private HoursReportService service;
+
+    @Autowired
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @SpyBean
+    private WorkingHoursDao dao;
+
+    @Test
+    void shouldRecordExactlyOneEntryOfEachUserAndDay() throws InterruptedException {
+        List<Activity> activities = new ArrayList<>();
+        for (int punch = 0; punch < PUNCHES_PER_USER; punch++) {
+            for (int user = 0; user < USERS; user++) {
+                activities.add(new Activity("user" + user, ActivityType.ENTRY, LocalDateTime.of(DATE, LocalTime.of(8, 0, punch))));
+            }
+        }
+        Collections.shuffle(activities);
+
+        Map<String, AtomicInteger> recordingPunches = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> maxRecordingPunches = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            String user = invocation.<Activity>getArgument(0).getUser();
+            int recording = recordingPunches.computeIfAbsent(user, key -> new AtomicInteger()).incrementAndGet();
+            maxRecordingPunches.computeIfAbsent(user, key -> new AtomicInteger()).accumulateAndGet(recording, Math::max);
+            try {
+                Thread.sleep(1);
+                return invocation.callRealMethod();
+            } finally {
+                recordingPunches.get(user).decrementAndGet();
+            }
+        }).when(dao).recordActivity(any(Activity.class));
+
+        Map<String, AtomicInteger> recordedEntries = new ConcurrentHashMap<>();
+        AtomicInteger rejectedEntries = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (Activity activity : activities) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    service.reportActivity(activity);
+                    recordedEntries.computeIfAbsent(activity.getUser(), user -> new AtomicInteger()).incrementAndGet();
+                } catch (IllegalArgumentException ex) {
+                    rejectedEntries.incrementAndGet();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.MINUTES), is(true));
+
+        assertThat(maxRecordingPunches.size(), is(USERS));
+        assertThat(maxRecordingPunches.values().stream().map(AtomicInteger::get).collect(Collectors.toList()), everyItem(is(1)));
+        assertThat(meterRegistry.counter("attendance.punch.lock.contended").count(), is(greaterThan(0.0)));
+        assertThat(recordedEntries.size(), is(USERS));
+        assertThat(recordedEntries.values().stream().map(AtomicInteger::get).collect(Collectors.toList()), everyItem(is(1)));
+        assertThat(rejectedEntries.get(), is(USERS * (PUNCHES_PER_USER - 1)));
+        assertThat(jdbcTemplate.queryForList("SELECT COUNT(*) FROM WORKING_HOURS WHERE DATE = ? GROUP BY USER", Integer.class, DATE),
+                everyItem(is(1)));
+        List<Long> openDays = monthlyHoursDao.getMonthlyHours(YearMonth.from(DATE)).stream()
+                .filter(hours -> hours.getUser().startsWith("user"))
+                .map(MonthlyHours::getOpenDays)
+                .collect(Collectors.toList());
+        assertThat(openDays.size(), is(USERS));
+        assertThat(openDays, everyItem(is(1L)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Same punches, with the later duplicates rejected by the punch index instead of the database
+@SpringBootTest(properties = "attendance.punch.index.enabled=true")
+class HoursReportServiceImplPunchIndexIntegrationTest extends HoursReportServiceImplConcurrencyIntegrationTest {
+
+    @Autowired
+    private HoursReportService service;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldRejectDuplicateEntryWithoutDatabase() {
+        LocalDateTime entry = LocalDate.now().atTime(8, 0);
+        service.reportActivity(new Activity("erin", ActivityType.ENTRY, entry));
+        long recordedEntries = recordEntryQueries();
+
+        assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity("erin", ActivityType.ENTRY, entry.plusMinutes(1))));
+
+        assertThat(recordEntryQueries(), is(recordedEntries));
+    }
+
+    private long recordEntryQueries() {
+        return meterRegistry.find("attendance.dao.query").tag("query", "record_entry").timers().stream().mapToLong(Timer::count).sum();
+    }
+}
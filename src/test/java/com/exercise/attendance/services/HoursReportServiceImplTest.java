@@ -1,30 +1,51 @@
 package com.exercise.attendance.services;
 
+import com.exercise.attendance.dao.ActivityEventLog;
+import com.exercise.attendance.dao.MonthlyHoursDao;
 import com.exercise.attendance.dao.WorkingHoursDao;
 import com.exercise.attendance.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
 class HoursReportServiceImplTest {
 
     private static final String DUMMY_USER = "alice";
+    private static final Duration OVERTIME_THRESHOLD = Duration.ofHours(8);
+    private static final int MAX_PAGE_SIZE = 31;
     private static final WorkingHours DAY_1_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-08"), LocalTime.parse("08:30:00"), LocalTime.parse("19:30:00"));
     private static final WorkingHours DAY_2_WORKING_HOURS = new WorkingHours(DUMMY_USER,LocalDate.parse("2020-10-09"), LocalTime.parse("08:00:00"), LocalTime.parse("17:15:00"));
+    private static final LocalDate INDEXED_DATE = LocalDate.parse("2020-10-12");
     private static final WorkingHours ENTRY_ONLY_WORKING_HOURS = new WorkingHours(DUMMY_USER,LocalDate.parse("2020-10-09"), LocalTime.parse("08:00:00"));
 
     @Mock
@@ -33,12 +54,37 @@ class HoursReportServiceImplTest {
     @Mock
     private WorkingHoursDao dao;
 
+    @Mock
+    private MonthlyHoursDao monthlyHoursDao;
+
+    @Mock
+    private ActivityEventLog eventLog;
+
+    private MeterRegistry meterRegistry;
+
     private HoursReportService service;
 
+    private PunchIndex punchIndex;
+
+    private HoursReportService indexedService;
+
     @BeforeEach
     private void setUp() {
         MockitoAnnotations.initMocks(this);
-        service = new HoursReportServiceImpl(validator, dao);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new HoursReportServiceImpl(validator, new WorkingHoursCalculatorImpl(), dao, new HoursReportBuilder(OVERTIME_THRESHOLD), monthlyHoursDao, meterRegistry, Optional.of(eventLog),
+                new PunchLocks(meterRegistry, 16), Optional.empty(), TransactionOperations.withoutTransaction(), MAX_PAGE_SIZE);
+        punchIndex = new PunchIndex(dao, meterRegistry, 100, Clock.fixed(INDEXED_DATE.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        // The index is warmed on its own thread, which is awaited so it never races the stubbing and verifications of the tests
+        verify(dao, timeout(5000)).streamWorkingHours(eq(INDEXED_DATE), any());
+        clearInvocations(dao);
+        indexedService = new HoursReportServiceImpl(validator, new WorkingHoursCalculatorImpl(), dao, new HoursReportBuilder(OVERTIME_THRESHOLD), monthlyHoursDao, meterRegistry, Optional.of(eventLog),
+                new PunchLocks(meterRegistry, 16), Optional.of(punchIndex), TransactionOperations.withoutTransaction(), MAX_PAGE_SIZE);
+    }
+
+    @AfterEach
+    private void tearDown() throws InterruptedException {
+        punchIndex.close();
     }
 
     @Test
@@ -52,12 +98,123 @@ class HoursReportServiceImplTest {
         assertReport(report, workingHoursList);
     }
 
+    @Test
+    void shouldReturnReportPageWithCursorOfItsLastDayWhenMoreDaysFollow() {
+        WorkingHoursFilter filter = new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"));
+        when(dao.getWorkingHours(filter, LocalDate.parse("2020-09-30"), 2))
+                .thenReturn(List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+
+        HoursReport page = service.getReportPage(filter, null, 1);
+
+        assertReport(page, List.of(DAY_1_WORKING_HOURS));
+        assertThat(ReportCursor.decode(page.getNextCursor()), is(DAY_1_WORKING_HOURS.getDate()));
+        verify(validator).validatePageSize(1, MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldReturnReportPageAfterCursorWithoutNextCursorOnLastPage() {
+        WorkingHoursFilter filter = new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-01"), LocalDate.parse("2020-10-31"));
+        when(dao.getWorkingHours(filter, DAY_1_WORKING_HOURS.getDate(), 3))
+                .thenReturn(List.of(DAY_2_WORKING_HOURS));
+
+        HoursReport page = service.getReportPage(filter, ReportCursor.encode(DAY_1_WORKING_HOURS.getDate()), 2);
+
+        assertReport(page, List.of(DAY_2_WORKING_HOURS));
+        assertThat(page.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void shouldReadReportPageOfMaxPageSizeFromStartOfRangeByDefault() {
+        WorkingHoursFilter filter = new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-31"));
+
+        service.getReportPage(filter, ReportCursor.encode(LocalDate.parse("2020-01-01")), null);
+
+        verify(dao).getWorkingHours(filter, LocalDate.parse("2020-10-07"), MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenCursorIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> service.getReportPage(dummyFilter(), "not a cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getReportPage(dummyFilter(), "bm90IGEgZGF0ZQ", 10));
+        verify(dao, never()).getWorkingHours(any(WorkingHoursFilter.class), any(LocalDate.class), anyInt());
+    }
+
+    @Test
+    void shouldNotReadReportPageOfInvalidPageSize() {
+        doThrow(new IllegalArgumentException()).when(validator).validatePageSize(MAX_PAGE_SIZE + 1, MAX_PAGE_SIZE);
+        assertThrows(IllegalArgumentException.class, () -> service.getReportPage(dummyFilter(), null, MAX_PAGE_SIZE + 1));
+        verify(dao, never()).getWorkingHours(any(WorkingHoursFilter.class), any(LocalDate.class), anyInt());
+    }
+
+    @Test
+    void shouldReturnHoursReportSummaryFromFetchedWorkingHours() {
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+        HoursReport report = service.getReport(dummyFilter());
+        assertThat(report.getSummary(), is(new HoursSummary(72900, 2, 0, 15300)));
+    }
+
+    @Test
+    void shouldCountOpenDaysWithoutWorkedTimeInHoursReportSummary() {
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(DAY_1_WORKING_HOURS, ENTRY_ONLY_WORKING_HOURS));
+        HoursReport report = service.getReport(dummyFilter());
+        assertThat(report.getSummary(), is(new HoursSummary(39600, 1, 1, 10800)));
+    }
+
+    @Test
+    void shouldTimeReportStagesAndRecordFetchedRows() {
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+        service.getReport(dummyFilter());
+        for (String stage : List.of("validation", "fetch", "build")) {
+            assertThat(meterRegistry.get("attendance.report").tags("endpoint", "report", "stage", stage, "outcome", "success").timer().count(), is(1L));
+        }
+        assertThat(meterRegistry.get("attendance.report.rows").tag("endpoint", "report").summary().totalAmount(), is(2.0));
+    }
+
+    @Test
+    void shouldTimeFailedValidationStageAsError() {
+        doThrow(new IllegalArgumentException()).when(validator).validateFilter(any(WorkingHoursFilter.class));
+        assertThrows(IllegalArgumentException.class, () -> service.getReport(dummyFilter()));
+        assertThat(meterRegistry.get("attendance.report").tags("stage", "validation", "outcome", "error").timer().count(), is(1L));
+        assertThat(meterRegistry.find("attendance.report").tags("stage", "fetch").timer(), is(nullValue()));
+    }
+
     @Test
     void shouldReturnEmptyHoursReportWhenNoWorkingHours() {
         when(dao.getWorkingHours(any(WorkingHoursFilter.class)))
                 .thenReturn(Lists.emptyList());
         HoursReport report = service.getReport(dummyFilter());
         assertReportSize(report, 0);
+        assertThat(report.getSummary(), is(HoursSummary.EMPTY));
+    }
+
+    @Test
+    void shouldReturnSummaryOfStreamedWorkingHours() {
+        doAnswer(invocation -> {
+            Consumer<WorkingHours> consumer = invocation.getArgument(1);
+            List.of(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS).forEach(consumer);
+            return null;
+        }).when(dao).streamWorkingHours(any(WorkingHoursFilter.class), any());
+        List<WorkingHours> streamed = new ArrayList<>();
+        HoursSummary summary = service.streamReport(dummyFilter(), streamed::add);
+        assertThat(streamed, contains(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+        assertThat(summary, is(new HoursSummary(72900, 2, 0, 15300)));
+    }
+
+    @Test
+    void shouldReturnSummaryAggregatedByDaoWithOvertimeThreshold() {
+        HoursSummary daoSummary = new HoursSummary(72900, 2, 0, 15300);
+        when(dao.getHoursSummary(any(WorkingHoursFilter.class), eq(OVERTIME_THRESHOLD))).thenReturn(daoSummary);
+        assertThat(service.getSummary(dummyFilter()), is(daoSummary));
+        verify(dao, never()).getWorkingHours(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenSummaryFilterIsInvalid() {
+        doThrow(new IllegalArgumentException()).when(validator).validateFilter(any(WorkingHoursFilter.class));
+        assertThrows(IllegalArgumentException.class, () -> service.getSummary(dummyFilter()));
     }
 
     @Test
@@ -79,18 +236,174 @@ class HoursReportServiceImplTest {
     @Test
     void shouldAddWorkingHoursWhenNewEntry() {
         LocalDateTime reportedDateTime = LocalDateTime.now();
-        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(Lists.emptyList());
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
         WorkingHours updatedHours = service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, reportedDateTime));
         assertThat(updatedHours.getDate(), is(reportedDateTime.toLocalDate()));
         assertThat(updatedHours.getFromTime(), is(reportedDateTime.toLocalTime()));
         assertThat(updatedHours.getToTime(), is((LocalTime)null));
     }
 
+    @Test
+    void shouldRecordActivityWithoutFetchingExistingWorkingHours() {
+        Activity activity = new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.now());
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        service.reportActivity(activity);
+        verify(dao).recordActivity(activity);
+        verify(dao, never()).getWorkingHours(any(WorkingHoursFilter.class));
+        verify(dao, never()).upsertWorkingHours(any(WorkingHours.class));
+    }
+
+    @Test
+    void shouldAddRecordedActivityToMonthlyHours() {
+        LocalDateTime reportedDateTime = LocalDateTime.of(ENTRY_ONLY_WORKING_HOURS.getDate(), ENTRY_ONLY_WORKING_HOURS.getFromTime()).plusHours(8);
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(new WorkingHours(DUMMY_USER, reportedDateTime.toLocalDate(), ENTRY_ONLY_WORKING_HOURS.getFromTime(), reportedDateTime.toLocalTime())));
+        Activity activity = new Activity(DUMMY_USER, ActivityType.EXIT, reportedDateTime);
+        service.reportActivity(activity);
+        verify(monthlyHoursDao).addRecordedActivities(List.of(activity));
+        verify(monthlyHoursDao, never()).refreshMonthlyHours(any());
+    }
+
+    @Test
+    void shouldNotRollUpRecordedEntry() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-10T08:00:00")));
+        verifyNoInteractions(monthlyHoursDao);
+    }
+
+    @Test
+    void shouldNotUpdateMonthlyHoursWhenActivityIsRejected() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(DAY_1_WORKING_HOURS)));
+        assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.now())));
+        verifyNoInteractions(monthlyHoursDao);
+    }
+
+    @Test
+    void shouldAppendRecordedActivityToEventLog() {
+        Activity activity = new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-10T08:00:00"));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        service.reportActivity(activity);
+        verify(eventLog).append(activity);
+        assertThat(meterRegistry.get("attendance.punch").tags("activity", "ENTRY", "stage", "log", "outcome", "success").timer().count(), is(1L));
+    }
+
+    @Test
+    void shouldAppendRecordedActivityToEventLogAfterCommit() {
+        AtomicBoolean committed = new AtomicBoolean();
+        TransactionOperations transactionOperations = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                T result = action.doInTransaction(null);
+                committed.set(true);
+                return result;
+            }
+        };
+        HoursReportService transactionalService = new HoursReportServiceImpl(validator, new WorkingHoursCalculatorImpl(), dao, new HoursReportBuilder(OVERTIME_THRESHOLD), monthlyHoursDao, meterRegistry, Optional.of(eventLog),
+                new PunchLocks(meterRegistry, 16), Optional.empty(), transactionOperations, MAX_PAGE_SIZE);
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        doAnswer(invocation -> {
+            assertThat(committed.get(), is(true));
+            return null;
+        }).when(eventLog).append(any(Activity.class));
+
+        Activity activity = new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-10T08:00:00"));
+        transactionalService.reportActivity(activity);
+
+        verify(eventLog).append(activity);
+    }
+
+    @Test
+    void shouldNotAppendActivityToEventLogWhenTransactionFails() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class))).thenReturn(List.of(DAY_1_WORKING_HOURS));
+        doThrow(new IllegalStateException("Deadlock found")).when(monthlyHoursDao).addRecordedActivities(anyList());
+        assertThrows(IllegalStateException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.parse("2020-10-10T17:00:00"))));
+        verifyNoInteractions(eventLog);
+    }
+
+    @Test
+    void shouldNotFailRecordedPunchWhenEventLogFails() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        doThrow(new IllegalStateException("Log is full")).when(eventLog).append(any(Activity.class));
+        WorkingHours recordedWorkingHours = service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-10T08:00:00")));
+        assertThat(recordedWorkingHours.getFromTime(), is(LocalTime.parse("08:00:00")));
+    }
+
+    @Test
+    void shouldNotAppendRejectedActivityToEventLog() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.empty()));
+        assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.now())));
+        verifyNoInteractions(eventLog);
+    }
+
+    @Test
+    void shouldCountRejectedPunchesByActivity() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.empty()));
+        assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.now())));
+        assertThat(meterRegistry.get("attendance.punch.rejected").tag("activity", "EXIT").counter().count(), is(1.0));
+        assertThat(meterRegistry.get("attendance.punch").tags("activity", "EXIT", "stage", "record").timer().count(), is(1L));
+    }
+
+    @Test
+    void shouldRejectEntryOfIndexedDayWithoutDatabase() {
+        punchIndex.record(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("08:00:00")));
+
+        assertThrows(IllegalArgumentException.class, () -> indexedService.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, INDEXED_DATE.atTime(9, 0))));
+
+        verify(dao, never()).recordActivity(any(Activity.class));
+        assertThat(meterRegistry.get("attendance.punch.rejected").tag("activity", "ENTRY").counter().count(), is(1.0));
+    }
+
+    @Test
+    void shouldRejectExitOfClosedIndexedDayWithoutDatabase() {
+        punchIndex.record(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00")));
+
+        assertThrows(IllegalArgumentException.class, () -> indexedService.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, INDEXED_DATE.atTime(18, 0))));
+
+        verify(dao, never()).recordActivity(any(Activity.class));
+    }
+
+    @Test
+    void shouldRecordExitOfOpenIndexedDayAndIndexIt() {
+        punchIndex.record(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("08:00:00")));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"))));
+
+        indexedService.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, INDEXED_DATE.atTime(17, 0)));
+
+        verify(dao).recordActivity(any(Activity.class));
+        assertThat(punchIndex.getWorkingHours(DUMMY_USER, INDEXED_DATE),
+                is(Optional.of(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00")))));
+    }
+
+    @Test
+    void shouldLeaveDayMissingFromIndexToDatabaseAndIndexItsConflict() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(new WorkingHours(DUMMY_USER, INDEXED_DATE, LocalTime.parse("07:00:00")))));
+
+        assertThrows(IllegalArgumentException.class, () -> indexedService.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, INDEXED_DATE.atTime(9, 0))));
+        assertThrows(IllegalArgumentException.class, () -> indexedService.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, INDEXED_DATE.atTime(9, 5))));
+
+        verify(dao, times(1)).recordActivity(any(Activity.class));
+    }
+
+    @Test
+    void shouldTimeRecordAndRollupStagesOfPunch() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-10T08:00:00")));
+        assertThat(meterRegistry.get("attendance.punch").tags("activity", "ENTRY", "stage", "record", "outcome", "success").timer().count(), is(1L));
+        assertThat(meterRegistry.get("attendance.punch").tags("activity", "ENTRY", "stage", "rollup", "outcome", "success").timer().count(), is(1L));
+        assertThat(meterRegistry.find("attendance.punch.rejected").counter(), is(nullValue()));
+    }
+
     @Test
     void shouldUpdateExitWhenEntryExists() {
         WorkingHours entryOnlyWorkingHours = ENTRY_ONLY_WORKING_HOURS;
         LocalDateTime reportedDateTime = LocalDateTime.of(entryOnlyWorkingHours.getDate(), entryOnlyWorkingHours.getFromTime()).plusHours(8);
-        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(List.of(entryOnlyWorkingHours));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.recorded());
+        when(dao.getWorkingHoursForUpdate(any(WorkingHoursFilter.class)))
+                .thenReturn(List.of(new WorkingHours(DUMMY_USER, reportedDateTime.toLocalDate(), entryOnlyWorkingHours.getFromTime(), reportedDateTime.toLocalTime())));
         WorkingHours updatedHours = service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, reportedDateTime));
         assertThat(updatedHours.getDate(), is(reportedDateTime.toLocalDate()));
         assertThat(updatedHours.getFromTime(), is(entryOnlyWorkingHours.getFromTime()));
@@ -100,21 +413,28 @@ class HoursReportServiceImplTest {
     @Test
     void shouldThrowIllegalArgumentExceptionWhenReportingEntryForExistingDate() {
         LocalDateTime reportedDateTime = LocalDateTime.now();
-        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(List.of(ENTRY_ONLY_WORKING_HOURS));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(ENTRY_ONLY_WORKING_HOURS)));
         assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, reportedDateTime)));
     }
 
     @Test
     void shouldThrowIllegalArgumentExceptionWhenReportingExitForExistingExit() {
         LocalDateTime reportedDateTime = LocalDateTime.now();
-        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(List.of(DAY_1_WORKING_HOURS));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(DAY_1_WORKING_HOURS)));
         assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, reportedDateTime)));
     }
 
     @Test
     void shouldThrowIllegalArgumentExceptionWhenReportingExitAndNoEntry() {
         LocalDateTime reportedDateTime = LocalDateTime.now();
-        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(Lists.emptyList());
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.empty()));
+        assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, reportedDateTime)));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenActivityIsNotRecordedAndNoConflictRemains() {
+        LocalDateTime reportedDateTime = LocalDateTime.now();
+        when(dao.recordActivity(any(Activity.class))).thenReturn(ActivityRecordResult.conflict(Optional.of(ENTRY_ONLY_WORKING_HOURS)));
         assertThrows(IllegalArgumentException.class, () -> service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, reportedDateTime)));
     }
 
@@ -133,6 +453,44 @@ class HoursReportServiceImplTest {
         assertThat(report.getReport().get(workingHours.getDate()).getToTime(), is(workingHours.getToTime()));
     }
 
+    @Test
+    void shouldVersionReportByItsContent() {
+        HoursReport report = reportOf(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS);
+
+        HoursReportVersion version = service.getReportVersion(report);
+
+        assertThat(service.getReportVersion(reportOf(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS)), is(version));
+        verifyNoInteractions(dao, monthlyHoursDao);
+    }
+
+    @Test
+    void shouldChangeReportVersionWhenServedWorkingHoursChange() {
+        HoursReportVersion version = service.getReportVersion(reportOf(DAY_1_WORKING_HOURS, ENTRY_ONLY_WORKING_HOURS));
+        WorkingHours closedDay = new WorkingHours(DUMMY_USER, ENTRY_ONLY_WORKING_HOURS.getDate(), ENTRY_ONLY_WORKING_HOURS.getFromTime(),
+                ENTRY_ONLY_WORKING_HOURS.getFromTime().plusHours(8));
+
+        HoursReportVersion closedVersion = service.getReportVersion(reportOf(DAY_1_WORKING_HOURS, closedDay));
+
+        assertThat(closedVersion.getTag().equals(version.getTag()), is(false));
+    }
+
+    @Test
+    void shouldVersionPagesWithNextCursorDifferently() {
+        HoursReport page = reportOf(DAY_1_WORKING_HOURS);
+        HoursReport pageWithNextCursor = reportOf(DAY_1_WORKING_HOURS);
+        pageWithNextCursor.setNextCursor(ReportCursor.encode(DAY_1_WORKING_HOURS.getDate()));
+
+        assertThat(service.getReportVersion(pageWithNextCursor).getTag().equals(service.getReportVersion(page).getTag()), is(false));
+    }
+
+    private HoursReport reportOf(WorkingHours... workingHours) {
+        HoursReport report = new HoursReport();
+        for (WorkingHours dailyReport : workingHours) {
+            report.addDailyReport(dailyReport);
+        }
+        return report;
+    }
+
     private WorkingHoursFilter dummyFilter() {
         return new WorkingHoursFilter(DUMMY_USER, LocalDate.now(), LocalDate.now());
     }
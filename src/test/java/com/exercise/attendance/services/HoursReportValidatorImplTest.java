@@ -1,9 +1,15 @@
 package com.exercise.attendance.services;
 
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
 import com.exercise.attendance.model.WorkingHoursFilter;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -11,6 +17,7 @@ class HoursReportValidatorImplTest {
     private static final String USER = "alice";
     private static final LocalDate FROM_DATE = LocalDate.parse("2020-10-08");
     private static final LocalDate TO_DATE = LocalDate.parse("2020-10-10");
+    private static final LocalDateTime REPORT_DATE_TIME = LocalDateTime.parse("2020-10-08T08:00:00");
 
     private HoursReportValidator validator = new HoursReportValidatorImpl();
 
@@ -39,4 +46,69 @@ class HoursReportValidatorImplTest {
         assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new WorkingHoursFilter(USER, FROM_DATE, null)));
     }
 
+    @Test
+    void shouldNotThrowExceptionWhenExportFilterIsValid() {
+        validator.validateFilter(new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, null));
+        validator.validateFilter(new WorkingHoursExportFilter(FROM_DATE, TO_DATE, "al", "rnd"));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenExportFilterIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new WorkingHoursExportFilter(TO_DATE, FROM_DATE, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new WorkingHoursExportFilter(FROM_DATE, TO_DATE, "", null)));
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new WorkingHoursExportFilter(FROM_DATE, TO_DATE, null, " ")));
+    }
+
+    @Test
+    void shouldNotThrowExceptionWhenActivityIsValid() {
+        validator.validateActivity(new Activity(USER, ActivityType.ENTRY, REPORT_DATE_TIME));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenActivityUserIsEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateActivity(new Activity(" ", ActivityType.ENTRY, REPORT_DATE_TIME)));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenActivityTypeIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateActivity(new Activity(USER, null, REPORT_DATE_TIME)));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenReportDateTimeIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateActivity(new Activity(USER, ActivityType.EXIT, null)));
+    }
+
+    @Test
+    void shouldNotThrowExceptionWhenUsersFilterIsValid() {
+        validator.validateFilter(new UsersWorkingHoursFilter(Set.of(USER, "bob"), FROM_DATE, TO_DATE));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenUsersAreEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new UsersWorkingHoursFilter(Set.of(), FROM_DATE, TO_DATE)));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenOneOfUsersIsBlank() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new UsersWorkingHoursFilter(Set.of(USER, " "), FROM_DATE, TO_DATE)));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenUsersFilterFromDateIsAfterToDate() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validateFilter(new UsersWorkingHoursFilter(Set.of(USER), TO_DATE, FROM_DATE)));
+    }
+
+    @Test
+    void shouldAcceptPageSizeUpToMaxPageSize() {
+        validator.validatePageSize(1, 10);
+        validator.validatePageSize(10, 10);
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenPageSizeIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validatePageSize(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> validator.validatePageSize(11, 10));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.model.MonthlyHours;
+import com.exercise.attendance.model.MonthlyHoursReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class MonthlyReportServiceImplTest {
+
+    private static final YearMonth MONTH = YearMonth.parse("2020-10");
+
+    @Mock
+    private MonthlyHoursDao dao;
+
+    private MonthlyReportService service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        service = new MonthlyReportServiceImpl(dao, 100);
+    }
+
+    @Test
+    void shouldReturnMonthlyHoursReportFromRollup() {
+        List<MonthlyHours> monthlyHours = List.of(new MonthlyHours("alice", MONTH, 91800, 3, 0));
+        when(dao.getMonthlyHours(MONTH)).thenReturn(monthlyHours);
+
+        MonthlyHoursReport report = service.getReport(MONTH);
+
+        assertThat(report.getMonth(), is(MONTH));
+        assertThat(report.getReport(), is(monthlyHours));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenMonthIsEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> service.getReport(null));
+    }
+
+    @Test
+    void shouldReturnRebuiltMonthsCount() {
+        when(dao.rebuildMonthlyHours(100)).thenReturn(42);
+        assertThat(service.rebuild(), is(42));
+    }
+}
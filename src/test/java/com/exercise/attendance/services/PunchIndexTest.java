@@ -0,0 +1,186 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.WorkingHours;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PunchIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2020-10-12");
+    private static final WorkingHours ALICE_OPEN = new WorkingHours("alice", TODAY, LocalTime.parse("08:00:00"));
+    private static final WorkingHours ALICE_CLOSED = new WorkingHours("alice", TODAY, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+    private static final WorkingHours BOB_CLOSED = new WorkingHours("bob", TODAY, LocalTime.parse("09:00:00"), LocalTime.parse("18:00:00"));
+    private static final ZoneId ZONE = ZoneId.of("Europe/Warsaw");
+
+    @Mock
+    private WorkingHoursDao dao;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private PunchIndex index;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(TODAY.atTime(10, 0).atZone(ZONE).toInstant());
+    }
+
+    @AfterEach
+    private void tearDown() throws InterruptedException {
+        index.close();
+    }
+
+    @Test
+    void shouldWarmTodayFromDatabase() {
+        doAnswer(invocation -> {
+            Consumer<WorkingHours> consumer = invocation.getArgument(1);
+            consumer.accept(ALICE_OPEN);
+            consumer.accept(BOB_CLOSED);
+            return null;
+        }).when(dao).streamWorkingHours(eq(TODAY), any());
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+
+        index.rollOver();
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.of(ALICE_OPEN)));
+        assertThat(index.getWorkingHours("bob", TODAY), is(Optional.of(BOB_CLOSED)));
+        assertThat(index.getWorkingHours("carl", TODAY), is(Optional.empty()));
+        assertThat(meterRegistry.get("attendance.punch.index.users").gauge().value(), is(2.0));
+    }
+
+    @Test
+    void shouldKeepEntryWhenExitIsRecordedWithoutIt() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+
+        index.record(ALICE_OPEN);
+        index.record(new WorkingHours("alice", TODAY, null, LocalTime.parse("17:00:00")));
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.of(ALICE_CLOSED)));
+    }
+
+    @Test
+    void shouldNeverReopenClosedDay() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+
+        index.record(ALICE_CLOSED);
+        index.record(ALICE_OPEN);
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.of(ALICE_CLOSED)));
+    }
+
+    @Test
+    void shouldIgnoreWorkingHoursOfEarlierDay() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+
+        index.record(new WorkingHours("alice", TODAY.minusDays(1), LocalTime.parse("08:00:00")));
+
+        assertThat(index.getWorkingHours("alice", TODAY.minusDays(1)), is(Optional.empty()));
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldRollOverToLaterDayOfRecordedWorkingHours() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+        WorkingHours tomorrow = new WorkingHours("bob", TODAY.plusDays(1), LocalTime.parse("00:30:00"));
+
+        index.record(ALICE_OPEN);
+        index.record(tomorrow);
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.empty()));
+        assertThat(index.getWorkingHours("bob", TODAY.plusDays(1)), is(Optional.of(tomorrow)));
+    }
+
+    @Test
+    void shouldNotRollOverBeforeMidnightOfClockZone() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+        index.record(ALICE_OPEN);
+
+        clock.instant = TODAY.atTime(23, 59).atZone(ZONE).toInstant();
+        index.rollOver();
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.of(ALICE_OPEN)));
+    }
+
+    @Test
+    void shouldRollOverAtMidnightOfClockZone() {
+        index = new PunchIndex(dao, meterRegistry, 100, clock);
+        index.record(ALICE_OPEN);
+
+        clock.instant = TODAY.plusDays(1).atStartOfDay(ZONE).toInstant();
+        index.rollOver();
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.empty()));
+        assertThat(meterRegistry.get("attendance.punch.index.users").gauge().value(), is(0.0));
+        verify(dao, atLeastOnce()).streamWorkingHours(eq(TODAY.plusDays(1)), any());
+    }
+
+    @Test
+    void shouldNotIndexUsersBeyondMaxUsers() {
+        index = new PunchIndex(dao, meterRegistry, 1, clock);
+
+        index.record(ALICE_OPEN);
+        index.record(BOB_CLOSED);
+        index.record(ALICE_CLOSED);
+
+        assertThat(index.getWorkingHours("alice", TODAY), is(Optional.of(ALICE_CLOSED)));
+        assertThat(index.getWorkingHours("bob", TODAY), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldKeepUsersWhenIndexGrows() {
+        index = new PunchIndex(dao, meterRegistry, 5000, clock);
+
+        for (int i = 0; i < 3000; i++) {
+            index.record(new WorkingHours("user" + i, TODAY, LocalTime.ofSecondOfDay(i)));
+        }
+        index.record(new WorkingHours("user7", TODAY, null, LocalTime.parse("17:00:00")));
+
+        assertThat(index.getWorkingHours("user2999", TODAY), is(Optional.of(new WorkingHours("user2999", TODAY, LocalTime.ofSecondOfDay(2999)))));
+        assertThat(index.getWorkingHours("user7", TODAY), is(Optional.of(new WorkingHours("user7", TODAY, LocalTime.ofSecondOfDay(7), LocalTime.parse("17:00:00")))));
+        assertThat(index.getWorkingHours("user3000", TODAY), is(Optional.empty()));
+        assertThat(meterRegistry.get("attendance.punch.index.users").gauge().value(), is(3000.0));
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
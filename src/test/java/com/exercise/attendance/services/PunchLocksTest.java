@@ -0,0 +1,130 @@
+package com.exercise.attendance.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PunchLocksTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    private void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldRunActionsOfSameUserOneAtATime() throws Exception {
+        PunchLocks locks = new PunchLocks(meterRegistry, 16);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 200; i++) {
+                executor.execute(() -> locks.withLock("alice", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    return running.decrementAndGet();
+                }));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        assertThat(maxRunning.get(), is(1));
+    }
+
+    @Test
+    void shouldNotBlockUserOfOtherStripe() throws Exception {
+        PunchLocks locks = new PunchLocks(meterRegistry, 16);
+        String otherUser = userOfOtherStripe(locks, "alice");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> holder = executor.submit(() -> locks.withLock("alice", () -> {
+                locked.countDown();
+                return await(release);
+            }));
+            locked.await();
+
+            assertThat(locks.withLock(otherUser, () -> true), is(true));
+            assertThat(meterRegistry.counter("attendance.punch.lock.contended").count(), is(0.0));
+            release.countDown();
+            assertThat(holder.get(1, TimeUnit.MINUTES), is(true));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldCountAndTimeContendedAcquisitions() throws Exception {
+        PunchLocks locks = new PunchLocks(meterRegistry, 16);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> holder = executor.submit(() -> locks.withLock("alice", () -> {
+                locked.countDown();
+                return await(release);
+            }));
+            locked.await();
+            Thread waiter = new Thread(() -> locks.withLock("alice", () -> true));
+            waiter.start();
+            while (waiter.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            waiter.join();
+            holder.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(meterRegistry.counter("attendance.punch.lock.contended").count(), is(1.0));
+        assertThat(meterRegistry.timer("attendance.punch.lock.wait").count(), is(1L));
+    }
+
+    @Test
+    void shouldReleaseLockWhenActionFails() {
+        PunchLocks locks = new PunchLocks(meterRegistry, 1);
+        assertThrows(IllegalArgumentException.class, () -> locks.withLock("alice", () -> {
+            throw new IllegalArgumentException();
+        }));
+        assertThat(locks.withLock("bob", () -> true), is(true));
+    }
+
+    @Test
+    void shouldRejectNonPositiveStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new PunchLocks(meterRegistry, 0));
+    }
+
+    private static String userOfOtherStripe(PunchLocks locks, String user) {
+        for (int i = 0; ; i++) {
+            if (locks.stripeIndexOf("user" + i) != locks.stripeIndexOf(user)) {
+                assertThat(locks.stripeIndexOf("user" + i), not(locks.stripeIndexOf(user)));
+                return "user" + i;
+            }
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
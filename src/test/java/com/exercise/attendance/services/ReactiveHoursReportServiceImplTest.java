@@ -0,0 +1,126 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.MonthlyHoursDao;
+import com.exercise.attendance.dao.ReactiveWorkingHoursDao;
+import com.exercise.attendance.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveHoursReportServiceImplTest {
+
+    private static final String DUMMY_USER = "alice";
+    private static final Duration OVERTIME_THRESHOLD = Duration.ofHours(8);
+    private static final WorkingHours DAY_1_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-08"), LocalTime.parse("08:30:00"), LocalTime.parse("19:30:00"));
+    private static final WorkingHours DAY_2_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-09"), LocalTime.parse("08:00:00"), LocalTime.parse("17:15:00"));
+    private static final WorkingHours ENTRY_ONLY_WORKING_HOURS = new WorkingHours(DUMMY_USER, LocalDate.parse("2020-10-09"), LocalTime.parse("08:00:00"));
+
+    @Mock
+    private HoursReportValidator validator;
+
+    @Mock
+    private ReactiveWorkingHoursDao dao;
+
+    @Mock
+    private MonthlyHoursDao monthlyHoursDao;
+
+    private MeterRegistry meterRegistry;
+
+    private ReactiveHoursReportService service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ReactiveHoursReportServiceImpl(validator, new WorkingHoursCalculatorImpl(), dao, new HoursReportBuilder(OVERTIME_THRESHOLD), monthlyHoursDao, meterRegistry, Optional.empty());
+    }
+
+    @Test
+    void shouldEmitFetchedWorkingHoursFollowedBySummary() {
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(Flux.just(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS));
+        HoursReportStream report = service.getReport(dummyFilter());
+        StepVerifier.create(Flux.concat(report.getWorkingHours(), report.getSummary()))
+                .expectNext(DAY_1_WORKING_HOURS, DAY_2_WORKING_HOURS)
+                .expectNext(new HoursSummary(72900, 2, 0, 15300))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldEmitEmptySummaryWhenNoWorkingHours() {
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(Flux.empty());
+        HoursReportStream report = service.getReport(dummyFilter());
+        StepVerifier.create(Flux.concat(report.getWorkingHours(), report.getSummary()))
+                .expectNext(HoursSummary.EMPTY)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSignalInvalidFilterBeforeFetchingWorkingHours() {
+        doThrow(new IllegalArgumentException()).when(validator).validateFilter(any(WorkingHoursFilter.class));
+        StepVerifier.create(service.getReport(dummyFilter()).getWorkingHours())
+                .verifyError(IllegalArgumentException.class);
+        verify(dao, never()).getWorkingHours(any(WorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldReturnSummaryAggregatedByDao() {
+        HoursSummary summary = new HoursSummary(72900, 2, 0, 15300);
+        when(dao.getHoursSummary(any(WorkingHoursFilter.class), eq(OVERTIME_THRESHOLD))).thenReturn(Mono.just(summary));
+        StepVerifier.create(service.getSummary(dummyFilter()))
+                .expectNext(summary)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRefreshMonthlyHoursWhenActivityIsRecorded() {
+        LocalDateTime reportDateTime = LocalDateTime.parse("2020-10-09T08:00:00");
+        when(dao.recordActivity(any(Activity.class))).thenReturn(Mono.just(ActivityRecordResult.recorded()));
+        StepVerifier.create(service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, reportDateTime)))
+                .expectNext(ENTRY_ONLY_WORKING_HOURS)
+                .verifyComplete();
+        verify(monthlyHoursDao).refreshMonthlyHours(List.of(ENTRY_ONLY_WORKING_HOURS));
+    }
+
+    @Test
+    void shouldReturnRecordedExitWithItsEntry() {
+        WorkingHours closedWorkingHours = new WorkingHours(DUMMY_USER, ENTRY_ONLY_WORKING_HOURS.getDate(), ENTRY_ONLY_WORKING_HOURS.getFromTime(), LocalTime.parse("17:00:00"));
+        when(dao.recordActivity(any(Activity.class))).thenReturn(Mono.just(ActivityRecordResult.recorded()));
+        when(dao.getWorkingHours(any(WorkingHoursFilter.class))).thenReturn(Flux.just(closedWorkingHours));
+        StepVerifier.create(service.reportActivity(new Activity(DUMMY_USER, ActivityType.EXIT, LocalDateTime.of(closedWorkingHours.getDate(), closedWorkingHours.getToTime()))))
+                .expectNext(closedWorkingHours)
+                .verifyComplete();
+        verify(monthlyHoursDao).refreshMonthlyHours(List.of(closedWorkingHours));
+    }
+
+    @Test
+    void shouldSignalErrorAndCountRejectionWhenEntryConflicts() {
+        when(dao.recordActivity(any(Activity.class))).thenReturn(Mono.just(ActivityRecordResult.conflict(Optional.of(ENTRY_ONLY_WORKING_HOURS))));
+        StepVerifier.create(service.reportActivity(new Activity(DUMMY_USER, ActivityType.ENTRY, LocalDateTime.parse("2020-10-09T09:00:00"))))
+                .verifyError(IllegalArgumentException.class);
+        verify(monthlyHoursDao, never()).refreshMonthlyHours(any());
+        assertThat(meterRegistry.get("attendance.punch.rejected").tag("activity", "ENTRY").counter().count(), is(1.0));
+    }
+
+    private WorkingHoursFilter dummyFilter() {
+        return new WorkingHoursFilter(DUMMY_USER, LocalDate.parse("2020-10-08"), LocalDate.parse("2020-10-09"));
+    }
+}
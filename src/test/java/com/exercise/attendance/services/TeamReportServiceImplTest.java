@@ -0,0 +1,117 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.TeamDao;
+import com.exercise.attendance.dao.WorkingHoursDao;
+import com.exercise.attendance.model.HoursSummary;
+import com.exercise.attendance.model.TeamHoursReport;
+import com.exercise.attendance.model.UsersWorkingHoursFilter;
+import com.exercise.attendance.model.WorkingHours;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TeamReportServiceImplTest {
+
+    private static final LocalDate FROM_DATE = LocalDate.parse("2020-10-08");
+    private static final LocalDate TO_DATE = LocalDate.parse("2020-10-09");
+    private static final WorkingHours ALICE_DAY_1_WORKING_HOURS = new WorkingHours("alice", FROM_DATE, LocalTime.parse("08:30:00"), LocalTime.parse("19:30:00"));
+    private static final WorkingHours ALICE_DAY_2_WORKING_HOURS = new WorkingHours("alice", TO_DATE, LocalTime.parse("08:00:00"));
+    private static final WorkingHours BOB_DAY_1_WORKING_HOURS = new WorkingHours("bob", FROM_DATE, LocalTime.parse("09:00:00"), LocalTime.parse("17:00:00"));
+
+    @Mock
+    private HoursReportValidator validator;
+
+    @Mock
+    private WorkingHoursDao dao;
+
+    @Mock
+    private TeamDao teamDao;
+
+    private TeamReportServiceImpl service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        service = new TeamReportServiceImpl(validator, dao, teamDao, new HoursReportBuilder(Duration.ofHours(8)), new SimpleMeterRegistry(), 2, 3);
+    }
+
+    @AfterEach
+    private void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldReturnReportPerUserFromSingleFetch() {
+        when(dao.getWorkingHours(any(UsersWorkingHoursFilter.class)))
+                .thenReturn(List.of(ALICE_DAY_1_WORKING_HOURS, ALICE_DAY_2_WORKING_HOURS, BOB_DAY_1_WORKING_HOURS));
+
+        TeamHoursReport report = service.getReport(new UsersWorkingHoursFilter(Set.of("bob", "alice", "carl"), FROM_DATE, TO_DATE));
+
+        assertThat(report.getReports().keySet(), contains("alice", "bob", "carl"));
+        assertThat(report.getReports().get("alice").getReport().values(), contains(ALICE_DAY_1_WORKING_HOURS, ALICE_DAY_2_WORKING_HOURS));
+        assertThat(report.getReports().get("bob").getReport().values(), contains(BOB_DAY_1_WORKING_HOURS));
+        assertThat(report.getReports().get("carl").getReport().size(), is(0));
+        assertThat(report.getReports().get("alice").getSummary(), is(new HoursSummary(39600, 1, 1, 10800)));
+        verify(dao, times(1)).getWorkingHours(any(UsersWorkingHoursFilter.class));
+    }
+
+    @Test
+    void shouldBuildReportsInParallelForLargeUserSets() {
+        List<String> users = IntStream.range(0, 10).mapToObj(i -> "user" + i).collect(Collectors.toList());
+        List<WorkingHours> workingHours = new ArrayList<>();
+        users.forEach(user -> workingHours.add(new WorkingHours(user, FROM_DATE, LocalTime.parse("08:00:00"))));
+        when(dao.getWorkingHours(any(UsersWorkingHoursFilter.class))).thenReturn(workingHours);
+
+        TeamHoursReport report = service.getReport(new UsersWorkingHoursFilter(new LinkedHashSet<>(users), FROM_DATE, TO_DATE));
+
+        assertThat(report.getReports().size(), is(10));
+        users.forEach(user -> assertThat(report.getReports().get(user).getReport().get(FROM_DATE).getUser(), is(user)));
+    }
+
+    @Test
+    void shouldResolveTeamMembersForTeamReport() {
+        when(teamDao.getTeamMembers("rnd")).thenReturn(List.of("alice", "bob"));
+        when(dao.getWorkingHours(any(UsersWorkingHoursFilter.class))).thenReturn(Lists.emptyList());
+
+        TeamHoursReport report = service.getTeamReport("rnd", FROM_DATE, TO_DATE);
+
+        ArgumentCaptor<UsersWorkingHoursFilter> captor = ArgumentCaptor.forClass(UsersWorkingHoursFilter.class);
+        verify(dao).getWorkingHours(captor.capture());
+        assertThat(captor.getValue().getUsers(), contains("alice", "bob"));
+        assertThat(report.getReports().keySet(), contains("alice", "bob"));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenTeamHasNoMembers() {
+        when(teamDao.getTeamMembers("marketing")).thenReturn(Lists.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> service.getTeamReport("marketing", FROM_DATE, TO_DATE));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenFilterIsInvalid() {
+        doThrow(new IllegalArgumentException()).when(validator).validateFilter(any(UsersWorkingHoursFilter.class));
+        assertThrows(IllegalArgumentException.class, () -> service.getReport(new UsersWorkingHoursFilter(Set.of("alice"), FROM_DATE, TO_DATE)));
+    }
+}
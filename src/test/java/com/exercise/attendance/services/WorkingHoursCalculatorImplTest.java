@@ -0,0 +1,55 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.WorkingHours;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkingHoursCalculatorImplTest {
+    private static final String USER = "alice";
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+    private static final WorkingHours ENTRY_ONLY_WORKING_HOURS = new WorkingHours(USER, DATE, LocalTime.parse("08:00:00"));
+    private static final WorkingHours FULL_WORKING_HOURS = new WorkingHours(USER, DATE, LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00"));
+
+    private WorkingHoursCalculator calculator = new WorkingHoursCalculatorImpl();
+
+    @Test
+    void shouldCalculateEntryWhenNoWorkingHours() {
+        WorkingHours workingHours = calculator.calculateWorkingHours(Optional.empty(), activity(ActivityType.ENTRY, "08:00:00"));
+        assertThat(workingHours, is(ENTRY_ONLY_WORKING_HOURS));
+    }
+
+    @Test
+    void shouldCalculateExitWhenEntryExists() {
+        WorkingHours workingHours = calculator.calculateWorkingHours(Optional.of(ENTRY_ONLY_WORKING_HOURS), activity(ActivityType.EXIT, "17:00:00"));
+        assertThat(workingHours, is(FULL_WORKING_HOURS));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenEntryExists() {
+        assertThrows(IllegalArgumentException.class, () -> calculator.calculateWorkingHours(Optional.of(ENTRY_ONLY_WORKING_HOURS), activity(ActivityType.ENTRY, "09:00:00")));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenExitWithoutEntry() {
+        assertThrows(IllegalArgumentException.class, () -> calculator.calculateWorkingHours(Optional.empty(), activity(ActivityType.EXIT, "17:00:00")));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenExitExists() {
+        assertThrows(IllegalArgumentException.class, () -> calculator.calculateWorkingHours(Optional.of(FULL_WORKING_HOURS), activity(ActivityType.EXIT, "18:00:00")));
+    }
+
+    private Activity activity(ActivityType activityType, String time) {
+        return new Activity(USER, activityType, LocalDateTime.of(DATE, LocalTime.parse(time)));
+    }
+}
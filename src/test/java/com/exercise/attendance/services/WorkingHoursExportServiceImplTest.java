@@ -0,0 +1,234 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursExportDao;
+import com.exercise.attendance.model.ExportFormat;
+import com.exercise.attendance.model.ExportJob;
+import com.exercise.attendance.model.ExportJobStatus;
+import com.exercise.attendance.model.WorkingHours;
+import com.exercise.attendance.model.WorkingHoursExportFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class WorkingHoursExportServiceImplTest {
+
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+    private static final WorkingHoursExportFilter FILTER = new WorkingHoursExportFilter(DATE, DATE.plusDays(1), null, null);
+    private static final WorkingHours ALICE_DAY_1 = new WorkingHours("alice", DATE, LocalTime.parse("08:00"), LocalTime.parse("17:00"));
+    private static final WorkingHours ALICE_DAY_2 = new WorkingHours("alice", DATE.plusDays(1), LocalTime.parse("08:30"));
+    private static final WorkingHours BOB_DAY_1 = new WorkingHours("bob", DATE, LocalTime.parse("10:30"), LocalTime.parse("15:00"));
+    private static final WorkingHours CARL_DAY_2 = new WorkingHours("smith, \"carl\"", DATE.plusDays(1), LocalTime.parse("09:00"), LocalTime.parse("18:00"));
+
+    @Mock
+    private WorkingHoursExportDao dao;
+
+    @TempDir
+    Path directory;
+
+    private WorkingHoursExportServiceImpl service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        service = new WorkingHoursExportServiceImpl(new HoursReportValidatorImpl(), dao, directory.toString(), 2, 1, Duration.ofHours(1));
+        when(dao.getChunkFirstUsers(FILTER, 1)).thenReturn(List.of("alice", "bob", "smith, \"carl\""));
+        // The first chunk is the slowest one, so the later chunks are written before it
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return export(invocation.getArgument(3), ALICE_DAY_1, ALICE_DAY_2);
+        }).when(dao).exportWorkingHours(eq(FILTER), eq("alice"), eq("bob"), any());
+        doAnswer(invocation -> export(invocation.getArgument(3), BOB_DAY_1))
+                .when(dao).exportWorkingHours(eq(FILTER), eq("bob"), eq("smith, \"carl\""), any());
+        doAnswer(invocation -> export(invocation.getArgument(3), CARL_DAY_2))
+                .when(dao).exportWorkingHours(eq(FILTER), eq("smith, \"carl\""), isNull(), any());
+    }
+
+    @AfterEach
+    private void tearDown() throws InterruptedException {
+        service.close();
+    }
+
+    @Test
+    void shouldExportChunksAsCsvInOrderOfUsers() throws Exception {
+        ExportJob job = awaitFinished(service.submit(FILTER, ExportFormat.CSV));
+
+        assertThat(job.getStatus(), is(ExportJobStatus.COMPLETED));
+        assertThat(job.getTotalChunks(), is(3));
+        assertThat(job.getCompletedChunks(), is(3));
+        assertThat(job.getExportedRows(), is(4L));
+        assertThat(readGzip(service.getFile(job.getId()).get()), is(
+                "user,date,from_time,to_time,worked_seconds\r\n" +
+                        "alice,2020-10-08,08:00,17:00,32400\r\n" +
+                        "alice,2020-10-09,08:30,,\r\n" +
+                        "bob,2020-10-08,10:30,15:00,16200\r\n" +
+                        "\"smith, \"\"carl\"\"\",2020-10-09,09:00,18:00,32400\r\n"));
+    }
+
+    @Test
+    void shouldExportChunksAsColumnarRowGroups() throws Exception {
+        ExportJob job = awaitFinished(service.submit(FILTER, ExportFormat.COLUMNAR));
+
+        assertThat(job.getStatus(), is(ExportJobStatus.COMPLETED));
+        assertThat(readColumnar(service.getFile(job.getId()).get()), contains(ALICE_DAY_1, ALICE_DAY_2, BOB_DAY_1, CARL_DAY_2));
+    }
+
+    @Test
+    void shouldSplitColumnarRowsIntoRowGroups() throws Exception {
+        Path file = directory.resolve("row-groups.whc.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(file))) {
+            WorkingHoursColumnarWriter.writeHeader(outputStream);
+            WorkingHoursColumnarWriter writer = new WorkingHoursColumnarWriter(outputStream, 2);
+            List.of(ALICE_DAY_1, ALICE_DAY_2, BOB_DAY_1, CARL_DAY_2).forEach(writer);
+            writer.finish();
+        }
+
+        assertThat(readColumnar(file), contains(ALICE_DAY_1, ALICE_DAY_2, BOB_DAY_1, CARL_DAY_2));
+    }
+
+    @Test
+    void shouldExportOnlyHeaderWhenNoUsersMatch() throws Exception {
+        WorkingHoursExportFilter filter = new WorkingHoursExportFilter(DATE, DATE, "zed", null);
+        when(dao.getChunkFirstUsers(filter, 1)).thenReturn(List.of());
+
+        ExportJob job = awaitFinished(service.submit(filter, ExportFormat.CSV));
+
+        assertThat(job.getStatus(), is(ExportJobStatus.COMPLETED));
+        assertThat(readGzip(service.getFile(job.getId()).get()), is("user,date,from_time,to_time,worked_seconds\r\n"));
+    }
+
+    @Test
+    void shouldFailJobAndDeleteItsPartsWhenChunkFails() throws Exception {
+        doThrow(new IllegalStateException("Connection lost"))
+                .when(dao).exportWorkingHours(eq(FILTER), eq("bob"), eq("smith, \"carl\""), any());
+
+        ExportJob job = awaitFinished(service.submit(FILTER, ExportFormat.CSV));
+
+        assertThat(job.getStatus(), is(ExportJobStatus.FAILED));
+        assertThat(job.getError(), is("Connection lost"));
+        assertThat(service.getFile(job.getId()).isPresent(), is(false));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidFilter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(new WorkingHoursExportFilter(DATE.plusDays(1), DATE, null, null), ExportFormat.CSV));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(new WorkingHoursExportFilter(DATE, DATE, " ", null), ExportFormat.CSV));
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    void shouldNotFindUnknownJob() {
+        assertThat(service.getJob("unknown").isPresent(), is(false));
+        assertThat(service.getFile("unknown").isPresent(), is(false));
+    }
+
+    private static Void export(Consumer<WorkingHours> consumer, WorkingHours... workingHours) {
+        for (WorkingHours hours : workingHours) {
+            consumer.accept(hours);
+        }
+        return null;
+    }
+
+    private ExportJob awaitFinished(ExportJob submittedJob) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            ExportJob job = service.getJob(submittedJob.getId()).get();
+            if (job.getStatus() == ExportJobStatus.COMPLETED || job.getStatus() == ExportJobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Export job did not finish: " + submittedJob);
+    }
+
+    private static String readGzip(Path file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Decodes the format described in WorkingHoursColumnarWriter
+    private static List<WorkingHours> readColumnar(Path file) throws IOException {
+        List<WorkingHours> workingHours = new ArrayList<>();
+        try (DataInputStream inputStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            assertThat(new String(inputStream.readNBytes(4), StandardCharsets.US_ASCII), is("WHC1"));
+            int firstByte;
+            while ((firstByte = inputStream.read()) >= 0) {
+                int rows = (int) readVarint(inputStream, firstByte);
+                List<String> users = new ArrayList<>();
+                long runs = readVarint(inputStream, inputStream.read());
+                for (int run = 0; run < runs; run++) {
+                    String user = new String(inputStream.readNBytes((int) readVarint(inputStream, inputStream.read())), StandardCharsets.UTF_8);
+                    long runRows = readVarint(inputStream, inputStream.read());
+                    for (int row = 0; row < runRows; row++) {
+                        users.add(user);
+                    }
+                }
+                long[] epochDays = new long[rows];
+                long epochDay = 0;
+                for (int row = 0; row < rows; row++) {
+                    long zigzag = readVarint(inputStream, inputStream.read());
+                    epochDay += (zigzag >>> 1) ^ -(zigzag & 1);
+                    epochDays[row] = epochDay;
+                }
+                LocalTime[] fromTimes = readTimes(inputStream, rows);
+                LocalTime[] toTimes = readTimes(inputStream, rows);
+                for (int row = 0; row < rows; row++) {
+                    workingHours.add(new WorkingHours(users.get(row), LocalDate.ofEpochDay(epochDays[row]), fromTimes[row], toTimes[row]));
+                }
+            }
+        }
+        return workingHours;
+    }
+
+    private static LocalTime[] readTimes(InputStream inputStream, int rows) throws IOException {
+        LocalTime[] times = new LocalTime[rows];
+        for (int row = 0; row < rows; row++) {
+            long value = readVarint(inputStream, inputStream.read());
+            times[row] = value == 0 ? null : LocalTime.ofSecondOfDay(value - 1);
+        }
+        return times;
+    }
+
+    private static long readVarint(InputStream inputStream, int firstByte) throws IOException {
+        long value = firstByte & 0x7f;
+        int current = firstByte;
+        for (int shift = 7; (current & 0x80) != 0; shift += 7) {
+            current = inputStream.read();
+            value |= (long) (current & 0x7f) << shift;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,154 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.WorkingHoursPartitionDao;
+import com.exercise.attendance.model.WorkingHours;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WorkingHoursPartitionServiceImplTest {
+
+    private static final YearMonth CURRENT_MONTH = YearMonth.parse("2020-10");
+
+    @Mock
+    private WorkingHoursPartitionDao dao;
+
+    @TempDir
+    Path archiveDirectory;
+
+    private WorkingHoursPartitionService service;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(dao.isPartitioned()).thenReturn(true);
+        service = new WorkingHoursPartitionServiceImpl(dao, 2, 12, true, archiveDirectory.toString());
+    }
+
+    @Test
+    void shouldNotAddPartitionsBeforeTableIsPartitioned() {
+        when(dao.isPartitioned()).thenReturn(false);
+
+        assertThat(service.addPartitions(CURRENT_MONTH), is(empty()));
+
+        verify(dao, never()).addPartitions(anyList());
+    }
+
+    @Test
+    void shouldPartitionFromFirstMonthOfRowsOnFirstMaintenance() {
+        when(dao.getPartitionMonths()).thenReturn(List.of());
+        when(dao.getFirstFutureMonth()).thenReturn(Optional.of(YearMonth.parse("2020-08")));
+
+        List<YearMonth> addedMonths = service.addPartitions(CURRENT_MONTH);
+
+        assertThat(addedMonths, contains(YearMonth.parse("2020-08"), YearMonth.parse("2020-09"), CURRENT_MONTH,
+                YearMonth.parse("2020-11"), YearMonth.parse("2020-12")));
+        verify(dao).addPartitions(addedMonths);
+    }
+
+    @Test
+    void shouldPartitionFromCurrentMonthWhenEmpty() {
+        when(dao.getPartitionMonths()).thenReturn(List.of());
+        when(dao.getFirstFutureMonth()).thenReturn(Optional.empty());
+
+        assertThat(service.addPartitions(CURRENT_MONTH), contains(CURRENT_MONTH, YearMonth.parse("2020-11"), YearMonth.parse("2020-12")));
+    }
+
+    @Test
+    void shouldAddOnlyMissingMonthsAhead() {
+        when(dao.getPartitionMonths()).thenReturn(List.of(YearMonth.parse("2020-09"), CURRENT_MONTH, YearMonth.parse("2020-11")));
+
+        assertThat(service.addPartitions(CURRENT_MONTH), contains(YearMonth.parse("2020-12")));
+        verify(dao, never()).getFirstFutureMonth();
+    }
+
+    @Test
+    void shouldNotAddPartitionsWhenMonthsAheadExist() {
+        when(dao.getPartitionMonths()).thenReturn(List.of(CURRENT_MONTH, YearMonth.parse("2020-11"), YearMonth.parse("2020-12")));
+
+        assertThat(service.addPartitions(CURRENT_MONTH), is(empty()));
+        verify(dao, never()).addPartitions(anyList());
+    }
+
+    @Test
+    void shouldArchiveAndDropPartitionsBeforeRetentionHorizon() throws IOException {
+        YearMonth expiredMonth = YearMonth.parse("2019-09");
+        when(dao.getPartitionMonths()).thenReturn(List.of(expiredMonth, YearMonth.parse("2019-10"), CURRENT_MONTH));
+        doAnswer(invocation -> {
+            Consumer<WorkingHours> consumer = invocation.getArgument(1);
+            consumer.accept(new WorkingHours("alice", LocalDate.parse("2019-09-02"), LocalTime.parse("08:00:00"), LocalTime.parse("17:00:00")));
+            consumer.accept(new WorkingHours("bob\tsmith", LocalDate.parse("2019-09-03"), LocalTime.parse("09:00:00")));
+            return null;
+        }).when(dao).exportPartition(eq(expiredMonth), any());
+
+        List<YearMonth> droppedMonths = service.dropExpiredPartitions(CURRENT_MONTH);
+
+        assertThat(droppedMonths, contains(expiredMonth));
+        InOrder inOrder = inOrder(dao);
+        inOrder.verify(dao).exportPartition(eq(expiredMonth), any());
+        inOrder.verify(dao).dropPartition(expiredMonth);
+        verify(dao, never()).dropPartition(YearMonth.parse("2019-10"));
+        assertThat(readArchive(archiveDirectory.resolve("WORKING_HOURS-2019-09.tsv.gz")),
+                is("alice\t2019-09-02\t08:00\t17:00\nbob\\tsmith\t2019-09-03\t09:00\t\\N\n"));
+    }
+
+    @Test
+    void shouldNotDropPartitionWhenArchiveFails() throws IOException {
+        YearMonth expiredMonth = YearMonth.parse("2019-09");
+        when(dao.getPartitionMonths()).thenReturn(List.of(expiredMonth));
+        doThrow(new IllegalStateException("Lost connection")).when(dao).exportPartition(eq(expiredMonth), any());
+
+        assertThrows(IllegalStateException.class, () -> service.dropExpiredPartitions(CURRENT_MONTH));
+
+        verify(dao, never()).dropPartition(any());
+        assertThat(Files.exists(archiveDirectory.resolve("WORKING_HOURS-2019-09.tsv.gz")), is(false));
+    }
+
+    @Test
+    void shouldDropWithoutArchiveWhenArchiveDisabled() throws IOException {
+        service = new WorkingHoursPartitionServiceImpl(dao, 2, 12, false, archiveDirectory.toString());
+        when(dao.getPartitionMonths()).thenReturn(List.of(YearMonth.parse("2019-09")));
+
+        assertThat(service.dropExpiredPartitions(CURRENT_MONTH), contains(YearMonth.parse("2019-09")));
+        verify(dao, never()).exportPartition(any(), any());
+    }
+
+    @Test
+    void shouldKeepAllPartitionsWithoutRetention() throws IOException {
+        service = new WorkingHoursPartitionServiceImpl(dao, 2, 0, true, archiveDirectory.toString());
+
+        assertThat(service.dropExpiredPartitions(CURRENT_MONTH), is(empty()));
+        verifyNoInteractions(dao);
+    }
+
+    private String readArchive(Path archive) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(archive))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.exercise.attendance.services;
+
+import com.exercise.attendance.dao.PartiallyRecordedActivitiesException;
+import com.exercise.attendance.model.Activity;
+import com.exercise.attendance.model.ActivityRecordResult;
+import com.exercise.attendance.model.ActivityType;
+import com.exercise.attendance.model.WorkingHours;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WriteBehindActivityIngestionServiceTest {
+
+    private static final String DUMMY_USER = "alice";
+    private static final LocalDate DATE = LocalDate.parse("2020-10-08");
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Mock
+    private ActivityBatchRecorder recorder;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    private void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(recorder.record(anyList())).thenAnswer(invocation -> recorded(invocation.<List<Activity>>getArgument(0).size()));
+    }
+
+    @Test
+    void shouldRecordActivitiesOfPartitionInSingleBatchInSubmittedOrder() throws InterruptedException {
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofSeconds(1));
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        service.submit(activity(ActivityType.EXIT, "17:00:00"));
+        service.shutdown();
+
+        verify(recorder).record(List.of(activity(ActivityType.ENTRY, "08:00:00"), activity(ActivityType.EXIT, "17:00:00")));
+    }
+
+    @Test
+    void shouldNotRetryBatchWithRejectedActivities() throws InterruptedException {
+        when(recorder.record(anyList())).thenReturn(List.of(
+                ActivityRecordResult.conflict(Optional.empty()),
+                ActivityRecordResult.recorded(),
+                ActivityRecordResult.conflict(Optional.of(new WorkingHours(DUMMY_USER, DATE, LocalTime.parse("08:00:00"))))));
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofSeconds(1));
+
+        service.submit(activity(ActivityType.EXIT, "07:00:00"));
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        service.submit(activity(ActivityType.ENTRY, "09:00:00"));
+        service.shutdown();
+
+        verify(recorder, times(1)).record(anyList());
+        assertThat(Files.exists(deadLetterFile()), is(false));
+    }
+
+    @Test
+    void shouldRetryFailedBatch() throws InterruptedException {
+        when(recorder.record(anyList()))
+                .thenThrow(new IllegalStateException("Deadlock found"))
+                .thenReturn(recorded(1));
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofMillis(10));
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        service.shutdown();
+
+        verify(recorder, times(2)).record(List.of(activity(ActivityType.ENTRY, "08:00:00")));
+        assertThat(Files.exists(deadLetterFile()), is(false));
+    }
+
+    @Test
+    void shouldRetryOnlyActivitiesOfFailedShards() throws Exception {
+        when(recorder.record(anyList()))
+                .thenThrow(new PartiallyRecordedActivitiesException("Failed recording activities on 1 of 2 shards",
+                        new ActivityRecordResult[]{ActivityRecordResult.recorded(), null}, new IllegalStateException("Shard is down")))
+                .thenThrow(new IllegalStateException("Shard is down"));
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofMillis(10));
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        service.submit(activity(ActivityType.EXIT, "17:00:00"));
+        service.shutdown();
+
+        verify(recorder).record(List.of(activity(ActivityType.ENTRY, "08:00:00"), activity(ActivityType.EXIT, "17:00:00")));
+        verify(recorder).record(List.of(activity(ActivityType.EXIT, "17:00:00")));
+        assertThat(deadLetters(), contains(activity(ActivityType.EXIT, "17:00:00")));
+    }
+
+    @Test
+    void shouldAppendBatchToDeadLetterFileAfterLastAttempt() throws Exception {
+        when(recorder.record(anyList())).thenThrow(new IllegalStateException("Database is down"));
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofMillis(10));
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        service.submit(activity(ActivityType.EXIT, "17:00:00"));
+        service.shutdown();
+
+        verify(recorder, times(2)).record(anyList());
+        assertThat(deadLetters(), contains(activity(ActivityType.ENTRY, "08:00:00"), activity(ActivityType.EXIT, "17:00:00")));
+    }
+
+    @Test
+    void shouldAppendActivitiesNotDrainedWithinTimeoutToDeadLetterFile() throws Exception {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        when(recorder.record(anyList())).thenAnswer(invocation -> {
+            flushStarted.countDown();
+            releaseFlush.await();
+            return recorded(1);
+        });
+        WriteBehindActivityIngestionService service = new WriteBehindActivityIngestionService(recorder, new WorkingHoursCalculatorImpl(), objectMapper,
+                1, 100, 1, Duration.ofMillis(10), Duration.ofMillis(50), 2, Duration.ofMillis(1), deadLetterFile());
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        flushStarted.await();
+        service.submit(activity(ActivityType.EXIT, "17:00:00"));
+        service.shutdown();
+        releaseFlush.countDown();
+
+        assertThat(deadLetters(), contains(activity(ActivityType.EXIT, "17:00:00")));
+    }
+
+    @Test
+    void shouldThrowIngestionQueueFullExceptionWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        when(recorder.record(anyList())).thenAnswer(invocation -> {
+            flushStarted.countDown();
+            releaseFlush.await();
+            return recorded(1);
+        });
+        WriteBehindActivityIngestionService service = createService(1, 1, 1, Duration.ofMillis(10));
+
+        service.submit(activity(ActivityType.ENTRY, "08:00:00"));
+        flushStarted.await();
+        service.submit(activity(ActivityType.EXIT, "17:00:00"));
+        assertThrows(IngestionQueueFullException.class, () -> service.submit(activity(ActivityType.EXIT, "18:00:00")));
+
+        releaseFlush.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void shouldThrowIngestionQueueFullExceptionAfterShutdown() throws InterruptedException {
+        WriteBehindActivityIngestionService service = createService(1, 100, 100, Duration.ofMillis(10));
+        service.shutdown();
+        assertThrows(IngestionQueueFullException.class, () -> service.submit(activity(ActivityType.ENTRY, "08:00:00")));
+    }
+
+    private WriteBehindActivityIngestionService createService(int partitions, int queueCapacity, int batchSize, Duration flushInterval) {
+        return new WriteBehindActivityIngestionService(recorder, new WorkingHoursCalculatorImpl(), objectMapper,
+                partitions, queueCapacity, batchSize, flushInterval, Duration.ofSeconds(10), 2, Duration.ofMillis(1), deadLetterFile());
+    }
+
+    private Path deadLetterFile() {
+        return directory.resolve("dead-letters.ndjson");
+    }
+
+    private List<Activity> deadLetters() throws IOException {
+        List<Activity> activities = new ArrayList<>();
+        for (String line : Files.readAllLines(deadLetterFile())) {
+            activities.add(objectMapper.readValue(line, Activity.class));
+        }
+        return activities;
+    }
+
+    private static List<ActivityRecordResult> recorded(int count) {
+        List<ActivityRecordResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(ActivityRecordResult.recorded());
+        }
+        return results;
+    }
+
+    private Activity activity(ActivityType activityType, String time) {
+        return new Activity(DUMMY_USER, activityType, LocalDateTime.of(DATE, LocalTime.parse(time)));
+    }
+}
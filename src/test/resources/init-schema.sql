@@ -7,6 +7,32 @@ CREATE TABLE WORKING_HOURS
     DATE      date,
     FROM_TIME time,
     TO_TIME   time,
+    AUTO_CLOSED boolean NOT NULL DEFAULT FALSE,
     primary key (ID),
-    unique key WORKING_HOURS_USER_DATE_IX (USER, DATE)
-);
\ No newline at end of file
+    unique key WORKING_HOURS_USER_DATE_IX (USER, DATE),
+    key WORKING_HOURS_REPORT_IX (USER, DATE, FROM_TIME, TO_TIME),
+    key WORKING_HOURS_OPEN_IX (TO_TIME, AUTO_CLOSED, ID),
+    key WORKING_HOURS_DATE_IX (DATE, USER, FROM_TIME, TO_TIME)
+);
+
+DROP TABLE IF EXISTS TEAM_MEMBERS;
+
+CREATE TABLE TEAM_MEMBERS
+(
+    TEAM varchar(255),
+    USER varchar(255),
+    primary key (TEAM, USER)
+);
+
+
+DROP TABLE IF EXISTS MONTHLY_HOURS;
+
+CREATE TABLE MONTHLY_HOURS
+(
+    REPORT_YEAR smallint,
+    REPORT_MONTH tinyint,
+    USER varchar(255),
+    TOTAL_WORKED_SECONDS bigint,
+    WORKED_DAYS int,
+    primary key (REPORT_YEAR, REPORT_MONTH, USER)
+);
@@ -0,0 +1,11 @@
+ALTER TABLE WORKING_HOURS
+    MODIFY ID bigint unsigned NOT NULL AUTO_INCREMENT,
+    MODIFY DATE date NOT NULL,
+    DROP INDEX ID,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (ID, DATE);
+
+ALTER TABLE WORKING_HOURS
+    PARTITION BY RANGE COLUMNS (DATE) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
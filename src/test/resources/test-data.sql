@@ -3,3 +3,8 @@ INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES ('alice','2020-10
 INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES ('alice','2020-10-10','09:30:00','16:15:00');
 INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME,TO_TIME) VALUES ('bob','2020-10-09','10:30:00','15:00:00');
 INSERT INTO WORKING_HOURS (USER,DATE,FROM_TIME) VALUES ('bob','2020-10-11','07:30:00');
+
+INSERT INTO TEAM_MEMBERS (TEAM,USER) VALUES ('rnd','bob');
+INSERT INTO TEAM_MEMBERS (TEAM,USER) VALUES ('rnd','alice');
+INSERT INTO TEAM_MEMBERS (TEAM,USER) VALUES ('rnd','carl');
+INSERT INTO TEAM_MEMBERS (TEAM,USER) VALUES ('sales','david');